@@ -0,0 +1,156 @@
+package io.substrait.expression;
+
+import io.substrait.type.Type;
+import io.substrait.type.TypeCreator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.immutables.value.Value;
+
+/**
+ * A projection of the fields of a struct, as used by the projection of read relations.
+ *
+ * <p>Only struct selections are modelled: each selected field may itself be narrowed by a nested
+ * {@link StructSelect} if it is a struct. List and map selections are not supported.
+ */
+@Value.Immutable
+public abstract class MaskExpression {
+  static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(MaskExpression.class);
+
+  public abstract StructSelect getSelect();
+
+  @Value.Default
+  public boolean getMaintainSingularStruct() {
+    return false;
+  }
+
+  /** Applies this mask to the given struct type. */
+  public Type.Struct apply(Type.Struct struct) {
+    return getSelect().apply(struct);
+  }
+
+  /**
+   * Creates a mask selecting the given top-level fields, in the given order. A single selected
+   * field stays wrapped in a struct, as read projections require.
+   */
+  public static MaskExpression of(List<Integer> fields) {
+    return builder()
+        .select(
+            StructSelect.builder()
+                .addAllStructItems(
+                    fields.stream().map(StructItem::of).collect(Collectors.toList()))
+                .build())
+        .maintainSingularStruct(true)
+        .build();
+  }
+
+  public static ImmutableMaskExpression.Builder builder() {
+    return ImmutableMaskExpression.builder();
+  }
+
+  public io.substrait.proto.Expression.MaskExpression toProto() {
+    return io.substrait.proto.Expression.MaskExpression.newBuilder()
+        .setSelect(getSelect().toProto())
+        .setMaintainSingularStruct(getMaintainSingularStruct())
+        .build();
+  }
+
+  public static MaskExpression fromProto(io.substrait.proto.Expression.MaskExpression proto) {
+    return builder()
+        .select(StructSelect.fromProto(proto.getSelect()))
+        .maintainSingularStruct(proto.getMaintainSingularStruct())
+        .build();
+  }
+
+  @Value.Immutable
+  public abstract static class StructSelect {
+    public abstract List<StructItem> getStructItems();
+
+    public Type.Struct apply(Type.Struct struct) {
+      return TypeCreator.of(struct.nullable())
+          .struct(getStructItems().stream().map(item -> item.apply(struct)));
+    }
+
+    public static ImmutableStructSelect.Builder builder() {
+      return ImmutableStructSelect.builder();
+    }
+
+    public io.substrait.proto.Expression.MaskExpression.StructSelect toProto() {
+      return io.substrait.proto.Expression.MaskExpression.StructSelect.newBuilder()
+          .addAllStructItems(
+              getStructItems().stream().map(StructItem::toProto).collect(Collectors.toList()))
+          .build();
+    }
+
+    public static StructSelect fromProto(
+        io.substrait.proto.Expression.MaskExpression.StructSelect proto) {
+      return builder()
+          .addAllStructItems(
+              proto.getStructItemsList().stream()
+                  .map(StructItem::fromProto)
+                  .collect(Collectors.toList()))
+          .build();
+    }
+  }
+
+  @Value.Immutable
+  public abstract static class StructItem {
+    public abstract int getField();
+
+    public abstract Optional<StructSelect> getChild();
+
+    public static StructItem of(int field) {
+      return builder().field(field).build();
+    }
+
+    /** Returns the type of the selected field within the given struct. */
+    public Type apply(Type.Struct struct) {
+      if (getField() >= struct.fields().size()) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Mask field %s must be less than number of fields in struct (%s)",
+                getField(), struct.fields().size()));
+      }
+      Type type = struct.fields().get(getField());
+      if (!getChild().isPresent()) {
+        return type;
+      }
+      if (!(type instanceof Type.Struct)) {
+        throw new IllegalArgumentException(
+            String.format("Nested struct mask applied to non-struct field of type %s", type));
+      }
+      return getChild().get().apply((Type.Struct) type);
+    }
+
+    public static ImmutableStructItem.Builder builder() {
+      return ImmutableStructItem.builder();
+    }
+
+    public io.substrait.proto.Expression.MaskExpression.StructItem toProto() {
+      var builder =
+          io.substrait.proto.Expression.MaskExpression.StructItem.newBuilder().setField(getField());
+      getChild()
+          .ifPresent(
+              child ->
+                  builder.setChild(
+                      io.substrait.proto.Expression.MaskExpression.Select.newBuilder()
+                          .setStruct(child.toProto())));
+      return builder.build();
+    }
+
+    public static StructItem fromProto(
+        io.substrait.proto.Expression.MaskExpression.StructItem proto) {
+      var builder = builder().field(proto.getField());
+      if (proto.hasChild()) {
+        var child = proto.getChild();
+        if (!child.hasStruct()) {
+          throw new UnsupportedOperationException(
+              "Only struct selections are supported in mask expressions, found: "
+                  + child.getTypeCase());
+        }
+        builder.child(StructSelect.fromProto(child.getStruct()));
+      }
+      return builder.build();
+    }
+  }
+}
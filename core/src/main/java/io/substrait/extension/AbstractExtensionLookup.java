@@ -1,11 +1,18 @@
 package io.substrait.extension;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class AbstractExtensionLookup implements ExtensionLookup {
   protected final Map<Integer, SimpleExtension.FunctionAnchor> functionAnchorMap;
   protected final Map<Integer, SimpleExtension.TypeAnchor> typeAnchorMap;
 
+  /**
+   * Variants already resolved by reference. A plan references the same few functions many times, so
+   * this avoids resolving anchors against the extension collection on every lookup.
+   */
+  private volatile ResolvedReferences resolved;
+
   public AbstractExtensionLookup(
       Map<Integer, SimpleExtension.FunctionAnchor> functionAnchorMap,
       Map<Integer, SimpleExtension.TypeAnchor> typeAnchorMap) {
@@ -15,45 +22,72 @@ public abstract class AbstractExtensionLookup implements ExtensionLookup {
 
   public SimpleExtension.ScalarFunctionVariant getScalarFunction(
       int reference, SimpleExtension.ExtensionCollection extensions) {
-    var anchor = functionAnchorMap.get(reference);
-    if (anchor == null) {
-      throw new IllegalArgumentException(
-          "Unknown function id. Make sure that the function id provided was shared in the extensions section of the plan.");
-    }
-
-    return extensions.getScalarFunction(anchor);
+    return resolved(extensions)
+        .scalarFunctions
+        .computeIfAbsent(reference, r -> extensions.getScalarFunction(functionAnchor(r)));
   }
 
   public SimpleExtension.WindowFunctionVariant getWindowFunction(
       int reference, SimpleExtension.ExtensionCollection extensions) {
-    var anchor = functionAnchorMap.get(reference);
-    if (anchor == null) {
-      throw new IllegalArgumentException(
-          "Unknown function id. Make sure that the function id provided was shared in the extensions section of the plan.");
-    }
-
-    return extensions.getWindowFunction(anchor);
+    return resolved(extensions)
+        .windowFunctions
+        .computeIfAbsent(reference, r -> extensions.getWindowFunction(functionAnchor(r)));
   }
 
   public SimpleExtension.AggregateFunctionVariant getAggregateFunction(
       int reference, SimpleExtension.ExtensionCollection extensions) {
+    return resolved(extensions)
+        .aggregateFunctions
+        .computeIfAbsent(reference, r -> extensions.getAggregateFunction(functionAnchor(r)));
+  }
+
+  public SimpleExtension.Type getType(
+      int reference, SimpleExtension.ExtensionCollection extensions) {
+    return resolved(extensions)
+        .types
+        .computeIfAbsent(reference, r -> extensions.getType(typeAnchor(r)));
+  }
+
+  private SimpleExtension.FunctionAnchor functionAnchor(int reference) {
     var anchor = functionAnchorMap.get(reference);
     if (anchor == null) {
       throw new IllegalArgumentException(
           "Unknown function id. Make sure that the function id provided was shared in the extensions section of the plan.");
     }
-
-    return extensions.getAggregateFunction(anchor);
+    return anchor;
   }
 
-  public SimpleExtension.Type getType(
-      int reference, SimpleExtension.ExtensionCollection extensions) {
+  private SimpleExtension.TypeAnchor typeAnchor(int reference) {
     var anchor = typeAnchorMap.get(reference);
     if (anchor == null) {
       throw new IllegalArgumentException(
           "Unknown type id. Make sure that the type id provided was shared in the extensions section of the plan.");
     }
+    return anchor;
+  }
 
-    return extensions.getType(anchor);
+  private ResolvedReferences resolved(SimpleExtension.ExtensionCollection extensions) {
+    ResolvedReferences current = resolved;
+    if (current == null || current.extensions != extensions) {
+      current = new ResolvedReferences(extensions);
+      resolved = current;
+    }
+    return current;
+  }
+
+  /** Variants resolved against one particular extension collection. */
+  private static final class ResolvedReferences {
+    final SimpleExtension.ExtensionCollection extensions;
+    final Map<Integer, SimpleExtension.ScalarFunctionVariant> scalarFunctions =
+        new ConcurrentHashMap<>();
+    final Map<Integer, SimpleExtension.AggregateFunctionVariant> aggregateFunctions =
+        new ConcurrentHashMap<>();
+    final Map<Integer, SimpleExtension.WindowFunctionVariant> windowFunctions =
+        new ConcurrentHashMap<>();
+    final Map<Integer, SimpleExtension.Type> types = new ConcurrentHashMap<>();
+
+    ResolvedReferences(SimpleExtension.ExtensionCollection extensions) {
+      this.extensions = extensions;
+    }
   }
 }
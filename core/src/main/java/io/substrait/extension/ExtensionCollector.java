@@ -23,6 +23,14 @@ public class ExtensionCollector extends AbstractExtensionLookup {
   private final BidiMap<Integer, SimpleExtension.TypeAnchor> typeMap;
   private final BidiMap<Integer, String> uriMap;
 
+  // the declarations behind the collected anchors, used to build a pruned ExtensionCollection
+  private final Map<SimpleExtension.FunctionAnchor, SimpleExtension.ScalarFunctionVariant>
+      scalarFunctions = new LinkedHashMap<>();
+  private final Map<SimpleExtension.FunctionAnchor, SimpleExtension.AggregateFunctionVariant>
+      aggregateFunctions = new LinkedHashMap<>();
+  private final Map<SimpleExtension.FunctionAnchor, SimpleExtension.WindowFunctionVariant>
+      windowFunctions = new LinkedHashMap<>();
+
   private int counter = -1;
 
   public ExtensionCollector() {
@@ -33,6 +41,7 @@ public class ExtensionCollector extends AbstractExtensionLookup {
   }
 
   public int getFunctionReference(SimpleExtension.Function declaration) {
+    trackDeclaration(declaration);
     Integer i = funcMap.reverseGet(declaration.getAnchor());
     if (i != null) {
       return i;
@@ -52,6 +61,41 @@ public class ExtensionCollector extends AbstractExtensionLookup {
     return counter;
   }
 
+  private void trackDeclaration(SimpleExtension.Function declaration) {
+    // aggregate functions used in windows share their anchor with the aggregate variant, so
+    // declarations are tracked per function kind.
+    if (declaration instanceof SimpleExtension.ScalarFunctionVariant scalar) {
+      scalarFunctions.putIfAbsent(scalar.getAnchor(), scalar);
+    } else if (declaration instanceof SimpleExtension.AggregateFunctionVariant aggregate) {
+      aggregateFunctions.putIfAbsent(aggregate.getAnchor(), aggregate);
+    } else if (declaration instanceof SimpleExtension.WindowFunctionVariant window) {
+      windowFunctions.putIfAbsent(window.getAnchor(), window);
+    }
+  }
+
+  /**
+   * Returns an {@link SimpleExtension.ExtensionCollection} containing only the function variants and
+   * types that have been referenced through this collector.
+   *
+   * <p>The result can be used in place of the complete collection when converting the collected
+   * plan back from proto, and can be serialized with {@link SimpleExtensionWriter}.
+   */
+  public SimpleExtension.ExtensionCollection getExtensionCollection() {
+    var builder =
+        ImmutableSimpleExtension.ExtensionCollection.builder()
+            .addAllScalarFunctions(scalarFunctions.values())
+            .addAllAggregateFunctions(aggregateFunctions.values())
+            .addAllWindowFunctions(windowFunctions.values());
+    for (SimpleExtension.TypeAnchor anchor : typeMap.forwardMap.values()) {
+      builder.addTypes(
+          ImmutableSimpleExtension.Type.builder()
+              .uri(anchor.namespace())
+              .name(anchor.key())
+              .build());
+    }
+    return builder.build();
+  }
+
   public void addExtensionsToPlan(Plan.Builder builder) {
     SimpleExtensions simpleExtensions = getExtensions();
 
@@ -17,7 +17,8 @@ import io.substrait.function.ParameterizedType;
 import io.substrait.function.ToTypeString;
 import io.substrait.function.TypeExpression;
 import io.substrait.type.Deserializers;
-import io.substrait.type.TypeExpressionEvaluator;
+import io.substrait.type.TypeCreator;
+import io.substrait.type.TypeExpressionCompiler;
 import io.substrait.util.Util;
 import java.io.IOException;
 import java.io.InputStream;
@@ -180,7 +181,7 @@ public class SimpleExtension {
     String key();
   }
 
-  @Value.Immutable
+  @Value.Immutable(prehash = true)
   public interface FunctionAnchor extends Anchor {
     static FunctionAnchor of(String namespace, String key) {
       return ImmutableSimpleExtension.FunctionAnchor.builder()
@@ -190,7 +191,7 @@ public class SimpleExtension {
     }
   }
 
-  @Value.Immutable
+  @Value.Immutable(prehash = true)
   public interface TypeAnchor extends Anchor {
     static TypeAnchor of(String namespace, String name) {
       return ImmutableSimpleExtension.TypeAnchor.builder().namespace(namespace).key(name).build();
@@ -267,7 +268,11 @@ public class SimpleExtension {
 
     private final Supplier<FunctionAnchor> anchorSupplier =
         Util.memoize(() -> FunctionAnchor.of(uri(), key()));
-    private final Supplier<String> keySupplier = Util.memoize(() -> constructKey(name(), args()));
+    private final Supplier<String> keySupplier =
+        Util.memoize(() -> constructKey(name(), args()).intern());
+    private final Supplier<Util.IntRange> rangeSupplier = Util.memoize(this::computeRange);
+    private final Supplier<TypeExpressionCompiler.CompiledTypeExpression> compiledReturnType =
+        Util.memoize(() -> TypeExpressionCompiler.compile(returnType(), args()));
     private final Supplier<List<Argument>> requiredArgsSupplier =
         Util.memoize(
             () -> {
@@ -279,11 +284,14 @@ public class SimpleExtension {
     public static String constructKeyFromTypes(
         String name, List<io.substrait.type.Type> arguments) {
       try {
-        return name
-            + ":"
-            + arguments.stream()
-                .map(t -> t.accept(ToTypeString.INSTANCE))
-                .collect(Collectors.joining("_"));
+        StringBuilder sb = new StringBuilder(name).append(':');
+        for (int i = 0; i < arguments.size(); i++) {
+          if (i > 0) {
+            sb.append('_');
+          }
+          sb.append(arguments.get(i).accept(ToTypeString.INSTANCE));
+        }
+        return sb.toString();
       } catch (UnsupportedOperationException ex) {
         throw new UnsupportedOperationException(
             String.format("Failure converting types of function %s.", name), ex);
@@ -292,16 +300,26 @@ public class SimpleExtension {
 
     public static String constructKey(String name, List<Argument> arguments) {
       try {
-        return name
-            + ":"
-            + arguments.stream().map(Argument::toTypeString).collect(Collectors.joining("_"));
+        StringBuilder sb = new StringBuilder(name).append(':');
+        for (int i = 0; i < arguments.size(); i++) {
+          if (i > 0) {
+            sb.append('_');
+          }
+          sb.append(arguments.get(i).toTypeString());
+        }
+        return sb.toString();
       } catch (UnsupportedOperationException ex) {
         throw new UnsupportedOperationException(
             String.format("Failure converting types of function %s.", name), ex);
       }
     }
 
+    /** The range of argument counts this function accepts, computed once per function. */
     public Util.IntRange getRange() {
+      return rangeSupplier.get();
+    }
+
+    private Util.IntRange computeRange() {
       // end range is exclusive so add one to size.
 
       long optionalCount = args().stream().filter(t -> !t.required()).count();
@@ -345,8 +363,24 @@ public class SimpleExtension {
       return keySupplier.get();
     }
 
+    /**
+     * Resolves the output type of this function for the given value argument types by evaluating
+     * the return type derivation and applying the declared {@link Nullability}.
+     *
+     * <p>The derivation is compiled once per function by {@link TypeExpressionCompiler}, so
+     * resolutions do not re-interpret the derivation nor re-bind its type parameters.
+     */
     public io.substrait.type.Type resolveType(List<io.substrait.type.Type> argumentTypes) {
-      return TypeExpressionEvaluator.evaluateExpression(returnType(), args(), argumentTypes);
+      io.substrait.type.Type resolved = compiledReturnType.get().apply(argumentTypes);
+      if (nullability() == Nullability.MIRROR) {
+        boolean anyNullable = false;
+        for (io.substrait.type.Type argumentType : argumentTypes) {
+          anyNullable |= argumentType.nullable();
+        }
+        resolved =
+            anyNullable ? TypeCreator.asNullable(resolved) : TypeCreator.asNotNullable(resolved);
+      }
+      return resolved;
     }
   }
 
@@ -517,6 +551,9 @@ public class SimpleExtension {
     // TODO: Handle conversion of structure object to Named Struct representation
     protected abstract Optional<Object> structure();
 
+    /** The declared type parameters, kept as read so that they can be written back. */
+    protected abstract Optional<Object> parameters();
+
     public TypeAnchor getAnchor() {
       return anchorSupplier.get();
     }
@@ -735,6 +772,18 @@ public class SimpleExtension {
     return complete;
   }
 
+  /**
+   * Loads extension documents keyed by their URI, such as those produced by {@link
+   * SimpleExtensionWriter#toYaml(ExtensionCollection)}.
+   */
+  public static ExtensionCollection load(Map<String, String> documents) {
+    ExtensionCollection complete = ImmutableSimpleExtension.ExtensionCollection.builder().build();
+    for (Map.Entry<String, String> document : documents.entrySet()) {
+      complete = complete.merge(load(document.getKey(), document.getValue()));
+    }
+    return complete;
+  }
+
   public static ExtensionCollection load(String namespace, String str) {
     try {
       var doc = objectMapper(namespace).readValue(str, ExtensionSignatures.class);
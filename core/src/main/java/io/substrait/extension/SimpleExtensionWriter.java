@@ -0,0 +1,158 @@
+package io.substrait.extension;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import io.substrait.function.ToTypeExpressionString;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes an {@link SimpleExtension.ExtensionCollection} back into the YAML extension format. One
+ * document is produced per extension URI, keyed by that URI, so that the result can be read back
+ * with {@link SimpleExtension#load(Map)}.
+ *
+ * <p>Combined with {@link ExtensionCollector#getExtensionCollection()} this allows a plan to carry
+ * exactly the slice of the extension catalog it references.
+ */
+public class SimpleExtensionWriter {
+  static final org.slf4j.Logger logger =
+      org.slf4j.LoggerFactory.getLogger(SimpleExtensionWriter.class);
+
+  private static final ObjectMapper MAPPER = new ObjectMapper(new YAMLFactory());
+
+  private SimpleExtensionWriter() {}
+
+  public static Map<String, String> toYaml(SimpleExtension.ExtensionCollection collection) {
+    Map<String, ObjectNode> documents = new LinkedHashMap<>();
+
+    for (SimpleExtension.Type type : collection.types()) {
+      ObjectNode node = document(documents, type.uri()).withArray("types").addObject();
+      node.put("name", type.name());
+      type.structure().ifPresent(structure -> node.set("structure", MAPPER.valueToTree(structure)));
+      type.parameters()
+          .ifPresent(parameters -> node.set("parameters", MAPPER.valueToTree(parameters)));
+    }
+
+    // Aggregate functions are also exposed as window functions when loaded, so only write window
+    // variants that are not already derived from an aggregate in the collection.
+    Set<SimpleExtension.FunctionAnchor> aggregateAnchors = new HashSet<>();
+    for (SimpleExtension.AggregateFunctionVariant aggregate : collection.aggregateFunctions()) {
+      aggregateAnchors.add(aggregate.getAnchor());
+      ObjectNode impl = impl(documents, "aggregate_functions", aggregate);
+      impl.put("decomposable", aggregate.decomposability().name());
+      if (aggregate.intermediate() != null) {
+        impl.put("intermediate", ToTypeExpressionString.apply(aggregate.intermediate()));
+      }
+    }
+
+    for (SimpleExtension.ScalarFunctionVariant scalar : collection.scalarFunctions()) {
+      impl(documents, "scalar_functions", scalar);
+    }
+
+    for (SimpleExtension.WindowFunctionVariant window : collection.windowFunctions()) {
+      if (aggregateAnchors.contains(window.getAnchor())) {
+        continue;
+      }
+      ObjectNode impl = impl(documents, "window_functions", window);
+      impl.put("decomposable", window.decomposability().name());
+      if (window.intermediate() != null) {
+        impl.put("intermediate", ToTypeExpressionString.apply(window.intermediate()));
+      }
+      impl.put("window_type", window.windowType().name());
+    }
+
+    Map<String, String> yaml = new LinkedHashMap<>();
+    for (Map.Entry<String, ObjectNode> e : documents.entrySet()) {
+      try {
+        yaml.put(e.getKey(), MAPPER.writeValueAsString(e.getValue()));
+      } catch (JsonProcessingException ex) {
+        throw new RuntimeException("Failure while writing extensions of " + e.getKey(), ex);
+      }
+    }
+    return yaml;
+  }
+
+  private static ObjectNode document(Map<String, ObjectNode> documents, String uri) {
+    return documents.computeIfAbsent(uri, k -> MAPPER.createObjectNode());
+  }
+
+  /** Adds a function implementation to the function of the same name, creating it if needed. */
+  private static ObjectNode impl(
+      Map<String, ObjectNode> documents, String section, SimpleExtension.Function function) {
+    ArrayNode functions = document(documents, function.uri()).withArray(section);
+    ObjectNode declaration = null;
+    for (var f : functions) {
+      if (f.get("name").asText().equals(function.name())) {
+        declaration = (ObjectNode) f;
+        break;
+      }
+    }
+    if (declaration == null) {
+      declaration = functions.addObject();
+      declaration.put("name", function.name());
+      if (function.description() != null && !function.description().isEmpty()) {
+        declaration.put("description", function.description());
+      }
+    }
+
+    ObjectNode impl = declaration.withArray("impls").addObject();
+    writeArgs(impl.putArray("args"), function.args());
+    if (!function.options().isEmpty()) {
+      ObjectNode options = impl.putObject("options");
+      for (Map.Entry<String, SimpleExtension.Option> e : function.options().entrySet()) {
+        ObjectNode option = options.putObject(e.getKey());
+        e.getValue().getDescription().ifPresent(d -> option.put("description", d));
+        ArrayNode values = option.putArray("values");
+        e.getValue().getValues().forEach(values::add);
+      }
+    }
+    function
+        .variadic()
+        .ifPresent(
+            v -> {
+              ObjectNode variadic = impl.putObject("variadic");
+              variadic.put("min", v.getMin());
+              if (v.getMax().isPresent()) {
+                variadic.put("max", v.getMax().getAsInt());
+              }
+            });
+    if (function.ordered() != null) {
+      impl.put("ordered", function.ordered());
+    }
+    impl.put("nullability", function.nullability().name());
+    impl.put("return", ToTypeExpressionString.apply(function.returnType()));
+    return impl;
+  }
+
+  private static void writeArgs(ArrayNode args, List<SimpleExtension.Argument> arguments) {
+    for (SimpleExtension.Argument argument : arguments) {
+      ObjectNode arg = args.addObject();
+      if (argument.name() != null) {
+        arg.put("name", argument.name());
+      }
+      if (argument.description() != null) {
+        arg.put("description", argument.description());
+      }
+      if (argument instanceof SimpleExtension.ValueArgument value) {
+        arg.put("value", ToTypeExpressionString.apply(value.value()));
+        if (value.constant() != null) {
+          arg.put("constant", value.constant());
+        }
+      } else if (argument instanceof SimpleExtension.TypeArgument type) {
+        arg.put("type", ToTypeExpressionString.apply(type.type()));
+      } else if (argument instanceof SimpleExtension.EnumArgument enumArgument) {
+        ArrayNode options = arg.putArray("options");
+        enumArgument.options().forEach(options::add);
+      } else {
+        throw new UnsupportedOperationException(
+            "Unable to write argument of type " + argument.getClass());
+      }
+    }
+  }
+}
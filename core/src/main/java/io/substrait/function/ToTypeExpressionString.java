@@ -0,0 +1,337 @@
+package io.substrait.function;
+
+import io.substrait.type.Type;
+import java.util.stream.Collectors;
+
+/**
+ * Renders a {@link TypeExpression} (including {@link Type}s and {@link ParameterizedType}s) using
+ * the type grammar of the extension YAML files, such that the output can be parsed back by {@link
+ * io.substrait.type.parser.TypeStringParser}.
+ *
+ * <p>Unlike {@link ToTypeString}, which produces the short type names used in function keys, this
+ * visitor retains nullability, type parameters and derivation programs.
+ */
+public class ToTypeExpressionString implements TypeExpressionVisitor<String, RuntimeException> {
+
+  public static final ToTypeExpressionString INSTANCE = new ToTypeExpressionString();
+
+  public static String apply(TypeExpression typeExpression) {
+    return typeExpression.accept(INSTANCE);
+  }
+
+  private ToTypeExpressionString() {}
+
+  private static String n(NullableType type) {
+    return type.nullable() ? "?" : "";
+  }
+
+  private String p(TypeExpression expr) {
+    return expr.accept(this);
+  }
+
+  @Override
+  public String visit(Type.Bool type) {
+    return "boolean" + n(type);
+  }
+
+  @Override
+  public String visit(Type.I8 type) {
+    return "i8" + n(type);
+  }
+
+  @Override
+  public String visit(Type.I16 type) {
+    return "i16" + n(type);
+  }
+
+  @Override
+  public String visit(Type.I32 type) {
+    return "i32" + n(type);
+  }
+
+  @Override
+  public String visit(Type.I64 type) {
+    return "i64" + n(type);
+  }
+
+  @Override
+  public String visit(Type.FP32 type) {
+    return "fp32" + n(type);
+  }
+
+  @Override
+  public String visit(Type.FP64 type) {
+    return "fp64" + n(type);
+  }
+
+  @Override
+  public String visit(Type.Str type) {
+    return "string" + n(type);
+  }
+
+  @Override
+  public String visit(Type.Binary type) {
+    return "binary" + n(type);
+  }
+
+  @Override
+  public String visit(Type.Date type) {
+    return "date" + n(type);
+  }
+
+  @Override
+  public String visit(Type.Time type) {
+    return "time" + n(type);
+  }
+
+  @Override
+  public String visit(Type.TimestampTZ type) {
+    return "timestamp_tz" + n(type);
+  }
+
+  @Override
+  public String visit(Type.Timestamp type) {
+    return "timestamp" + n(type);
+  }
+
+  @Override
+  public String visit(Type.IntervalYear type) {
+    return "interval_year" + n(type);
+  }
+
+  @Override
+  public String visit(Type.IntervalDay type) {
+    return String.format("interval_day%s<%d>", n(type), type.precision());
+  }
+
+  @Override
+  public String visit(Type.IntervalCompound type) {
+    return String.format("interval_compound%s<%d>", n(type), type.precision());
+  }
+
+  @Override
+  public String visit(Type.UUID type) {
+    return "uuid" + n(type);
+  }
+
+  @Override
+  public String visit(Type.FixedChar type) {
+    return String.format("fixedchar%s<%d>", n(type), type.length());
+  }
+
+  @Override
+  public String visit(Type.VarChar type) {
+    return String.format("varchar%s<%d>", n(type), type.length());
+  }
+
+  @Override
+  public String visit(Type.FixedBinary type) {
+    return String.format("fixedbinary%s<%d>", n(type), type.length());
+  }
+
+  @Override
+  public String visit(Type.Decimal type) {
+    return String.format("decimal%s<%d,%d>", n(type), type.precision(), type.scale());
+  }
+
+  @Override
+  public String visit(Type.PrecisionTimestamp type) {
+    return String.format("precision_timestamp%s<%d>", n(type), type.precision());
+  }
+
+  @Override
+  public String visit(Type.PrecisionTimestampTZ type) {
+    return String.format("precision_timestamp_tz%s<%d>", n(type), type.precision());
+  }
+
+  @Override
+  public String visit(Type.Struct type) {
+    return String.format(
+        "struct%s<%s>",
+        n(type), type.fields().stream().map(this::p).collect(Collectors.joining(",")));
+  }
+
+  @Override
+  public String visit(Type.ListType type) {
+    return String.format("list%s<%s>", n(type), p(type.elementType()));
+  }
+
+  @Override
+  public String visit(Type.Map type) {
+    return String.format("map%s<%s,%s>", n(type), p(type.key()), p(type.value()));
+  }
+
+  @Override
+  public String visit(Type.UserDefined type) {
+    return String.format("u!%s%s", type.name(), n(type));
+  }
+
+  @Override
+  public String visit(ParameterizedType.FixedChar expr) {
+    return String.format("fixedchar%s<%s>", n(expr), p(expr.length()));
+  }
+
+  @Override
+  public String visit(ParameterizedType.VarChar expr) {
+    return String.format("varchar%s<%s>", n(expr), p(expr.length()));
+  }
+
+  @Override
+  public String visit(ParameterizedType.FixedBinary expr) {
+    return String.format("fixedbinary%s<%s>", n(expr), p(expr.length()));
+  }
+
+  @Override
+  public String visit(ParameterizedType.Decimal expr) {
+    return String.format("decimal%s<%s,%s>", n(expr), p(expr.precision()), p(expr.scale()));
+  }
+
+  @Override
+  public String visit(ParameterizedType.IntervalDay expr) {
+    return String.format("interval_day%s<%s>", n(expr), p(expr.precision()));
+  }
+
+  @Override
+  public String visit(ParameterizedType.IntervalCompound expr) {
+    return String.format("interval_compound%s<%s>", n(expr), p(expr.precision()));
+  }
+
+  @Override
+  public String visit(ParameterizedType.PrecisionTimestamp expr) {
+    return String.format("precision_timestamp%s<%s>", n(expr), p(expr.precision()));
+  }
+
+  @Override
+  public String visit(ParameterizedType.PrecisionTimestampTZ expr) {
+    return String.format("precision_timestamp_tz%s<%s>", n(expr), p(expr.precision()));
+  }
+
+  @Override
+  public String visit(ParameterizedType.Struct expr) {
+    return String.format(
+        "struct%s<%s>",
+        n(expr), expr.fields().stream().map(this::p).collect(Collectors.joining(",")));
+  }
+
+  @Override
+  public String visit(ParameterizedType.ListType expr) {
+    return String.format("list%s<%s>", n(expr), p(expr.name()));
+  }
+
+  @Override
+  public String visit(ParameterizedType.Map expr) {
+    return String.format("map%s<%s,%s>", n(expr), p(expr.key()), p(expr.value()));
+  }
+
+  @Override
+  public String visit(ParameterizedType.StringLiteral expr) {
+    // type parameters parsed with a nullability marker retain it as part of their value
+    String value = expr.value();
+    return expr.nullable() && !value.endsWith("?") ? value + "?" : value;
+  }
+
+  @Override
+  public String visit(TypeExpression.FixedChar expr) {
+    return String.format("fixedchar%s<%s>", n(expr), p(expr.length()));
+  }
+
+  @Override
+  public String visit(TypeExpression.VarChar expr) {
+    return String.format("varchar%s<%s>", n(expr), p(expr.length()));
+  }
+
+  @Override
+  public String visit(TypeExpression.FixedBinary expr) {
+    return String.format("fixedbinary%s<%s>", n(expr), p(expr.length()));
+  }
+
+  @Override
+  public String visit(TypeExpression.Decimal expr) {
+    return String.format("decimal%s<%s,%s>", n(expr), p(expr.precision()), p(expr.scale()));
+  }
+
+  @Override
+  public String visit(TypeExpression.IntervalDay expr) {
+    return String.format("interval_day%s<%s>", n(expr), p(expr.precision()));
+  }
+
+  @Override
+  public String visit(TypeExpression.IntervalCompound expr) {
+    return String.format("interval_compound%s<%s>", n(expr), p(expr.precision()));
+  }
+
+  @Override
+  public String visit(TypeExpression.PrecisionTimestamp expr) {
+    return String.format("precision_timestamp%s<%s>", n(expr), p(expr.precision()));
+  }
+
+  @Override
+  public String visit(TypeExpression.PrecisionTimestampTZ expr) {
+    return String.format("precision_timestamp_tz%s<%s>", n(expr), p(expr.precision()));
+  }
+
+  @Override
+  public String visit(TypeExpression.Struct expr) {
+    return String.format(
+        "struct%s<%s>",
+        n(expr), expr.fields().stream().map(this::p).collect(Collectors.joining(",")));
+  }
+
+  @Override
+  public String visit(TypeExpression.ListType expr) {
+    return String.format("list%s<%s>", n(expr), p(expr.elementType()));
+  }
+
+  @Override
+  public String visit(TypeExpression.Map expr) {
+    return String.format("map%s<%s,%s>", n(expr), p(expr.key()), p(expr.value()));
+  }
+
+  @Override
+  public String visit(TypeExpression.BinaryOperation expr) {
+    String left = p(expr.left());
+    String right = p(expr.right());
+    return switch (expr.opType()) {
+      case ADD -> String.format("(%s + %s)", left, right);
+      case SUBTRACT -> String.format("(%s - %s)", left, right);
+      case MULTIPLY -> String.format("(%s * %s)", left, right);
+      case DIVIDE -> String.format("(%s / %s)", left, right);
+      case MIN -> String.format("min(%s, %s)", left, right);
+      case MAX -> String.format("max(%s, %s)", left, right);
+      case LT -> String.format("(%s < %s)", left, right);
+      case GT -> String.format("(%s > %s)", left, right);
+      case LTE -> String.format("(%s <= %s)", left, right);
+      case GTE -> String.format("(%s >= %s)", left, right);
+      case AND -> String.format("(%s AND %s)", left, right);
+      case OR -> String.format("(%s OR %s)", left, right);
+      case EQ -> String.format("(%s = %s)", left, right);
+      case NOT_EQ -> String.format("(%s != %s)", left, right);
+      case COVERS -> String.format("(%s := %s)", left, right);
+    };
+  }
+
+  @Override
+  public String visit(TypeExpression.NotOperation expr) {
+    return String.format("!(%s)", p(expr.inner()));
+  }
+
+  @Override
+  public String visit(TypeExpression.IfOperation expr) {
+    return String.format(
+        "(%s ? %s : %s)", p(expr.ifCondition()), p(expr.thenExpr()), p(expr.elseExpr()));
+  }
+
+  @Override
+  public String visit(TypeExpression.IntegerLiteral expr) {
+    return Integer.toString(expr.value());
+  }
+
+  @Override
+  public String visit(TypeExpression.ReturnProgram expr) {
+    StringBuilder sb = new StringBuilder();
+    for (TypeExpression.ReturnProgram.Assignment assignment : expr.assignments()) {
+      sb.append(assignment.name()).append(" = ").append(p(assignment.expr())).append('\n');
+    }
+    return sb.append(p(expr.finalExpression())).toString();
+  }
+}
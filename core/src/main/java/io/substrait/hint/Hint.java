@@ -11,13 +11,51 @@ public abstract class Hint {
 
   public abstract List<String> getOutputNames();
 
+  public abstract Optional<Stats> getStats();
+
   public RelCommon.Hint toProto() {
     var builder = RelCommon.Hint.newBuilder().addAllOutputNames(getOutputNames());
     getAlias().ifPresent(builder::setAlias);
+    getStats().ifPresent(stats -> builder.setStats(stats.toProto()));
     return builder.build();
   }
 
   public static ImmutableHint.Builder builder() {
     return ImmutableHint.builder();
   }
+
+  /**
+   * Producer estimates of the output of a relation, which consumers may use to size their data
+   * structures or choose between physical operators.
+   */
+  @Value.Immutable
+  public abstract static class Stats {
+    /**
+     * @return the estimated number of records output by the relation, or 0 if unknown
+     */
+    @Value.Default
+    public double getRowCount() {
+      return 0;
+    }
+
+    /**
+     * @return the estimated average size in bytes of the records output by the relation, or 0 if
+     *     unknown
+     */
+    @Value.Default
+    public double getRecordSize() {
+      return 0;
+    }
+
+    public RelCommon.Hint.Stats toProto() {
+      return RelCommon.Hint.Stats.newBuilder()
+          .setRowCount(getRowCount())
+          .setRecordSize(getRecordSize())
+          .build();
+    }
+
+    public static ImmutableStats.Builder builder() {
+      return ImmutableStats.builder();
+    }
+  }
 }
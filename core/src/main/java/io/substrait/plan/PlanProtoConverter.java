@@ -1,12 +1,16 @@
 package io.substrait.plan;
 
 import io.substrait.extension.ExtensionCollector;
+import io.substrait.extension.SimpleExtension;
 import io.substrait.proto.Plan;
 import io.substrait.proto.PlanRel;
 import io.substrait.proto.Rel;
 import io.substrait.relation.RelProtoConverter;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
 
 /** Converts from {@link io.substrait.plan.Plan} to {@link io.substrait.proto.Plan} */
 public class PlanProtoConverter {
@@ -14,10 +18,25 @@ public class PlanProtoConverter {
       org.slf4j.LoggerFactory.getLogger(PlanProtoConverter.class);
 
   public Plan toProto(io.substrait.plan.Plan plan) {
-    List<PlanRel> planRels = new ArrayList<>();
+    return toProto(plan, new ExtensionCollector());
+  }
+
+  /**
+   * Returns the minimal {@link SimpleExtension.ExtensionCollection} required to convert the proto
+   * form of the given plan back into POJOs, containing only the function variants and types the
+   * plan references.
+   */
+  public SimpleExtension.ExtensionCollection extensionCollection(io.substrait.plan.Plan plan) {
     ExtensionCollector functionCollector = new ExtensionCollector();
+    toProto(plan, functionCollector);
+    return functionCollector.getExtensionCollection();
+  }
+
+  private Plan toProto(io.substrait.plan.Plan plan, ExtensionCollector functionCollector) {
+    List<PlanRel> planRels = new ArrayList<>();
+    RelProtoConverter relConverter = new Subtrees(functionCollector, planRels).relConverter;
     for (io.substrait.plan.Plan.Root root : plan.getRoots()) {
-      Rel input = new RelProtoConverter(functionCollector).toProto(root.getInput());
+      Rel input = relConverter.toProto(root.getInput());
       planRels.add(
           PlanRel.newBuilder()
               .setRoot(
@@ -36,4 +55,33 @@ public class PlanProtoConverter {
     }
     return builder.build();
   }
+
+  /**
+   * Adds the subtrees referenced by {@link io.substrait.relation.ReferenceRel}s to the relations of
+   * the plan when they are first referenced, after the subtrees they reference themselves, and
+   * returns their ordinals. Each subtree instance is added once: sharing is explicit through the
+   * references, so equal but distinct subtrees are kept apart.
+   */
+  private static class Subtrees implements ToIntFunction<io.substrait.relation.Rel> {
+    private final List<PlanRel> planRels;
+    private final Map<io.substrait.relation.Rel, Integer> ordinals = new IdentityHashMap<>();
+    private final RelProtoConverter relConverter;
+
+    Subtrees(ExtensionCollector functionCollector, List<PlanRel> planRels) {
+      this.planRels = planRels;
+      this.relConverter = new RelProtoConverter(functionCollector, this);
+    }
+
+    @Override
+    public int applyAsInt(io.substrait.relation.Rel subtree) {
+      Integer ordinal = ordinals.get(subtree);
+      if (ordinal == null) {
+        Rel rel = relConverter.toProto(subtree);
+        ordinal = planRels.size();
+        planRels.add(PlanRel.newBuilder().setRel(rel).build());
+        ordinals.put(subtree, ordinal);
+      }
+      return ordinal;
+    }
+  }
 }
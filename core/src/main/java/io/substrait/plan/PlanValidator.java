@@ -0,0 +1,747 @@
+package io.substrait.plan;
+
+import io.substrait.expression.AbstractExpressionVisitor;
+import io.substrait.expression.AggregateFunctionInvocation;
+import io.substrait.expression.EnumArg;
+import io.substrait.expression.Expression;
+import io.substrait.expression.FieldReference;
+import io.substrait.expression.FunctionArg;
+import io.substrait.extension.SimpleExtension;
+import io.substrait.function.ToTypeString;
+import io.substrait.relation.AbstractReadRel;
+import io.substrait.relation.AbstractRelVisitor;
+import io.substrait.relation.Aggregate;
+import io.substrait.relation.ConsistentPartitionWindow;
+import io.substrait.relation.Cross;
+import io.substrait.relation.EmptyScan;
+import io.substrait.relation.Expand;
+import io.substrait.relation.ExtensionTable;
+import io.substrait.relation.Fetch;
+import io.substrait.relation.Filter;
+import io.substrait.relation.Join;
+import io.substrait.relation.LocalFiles;
+import io.substrait.relation.NamedScan;
+import io.substrait.relation.Project;
+import io.substrait.relation.ReferenceRel;
+import io.substrait.relation.Rel;
+import io.substrait.relation.Set;
+import io.substrait.relation.Sort;
+import io.substrait.relation.VirtualTableScan;
+import io.substrait.relation.physical.HashJoin;
+import io.substrait.relation.physical.MergeJoin;
+import io.substrait.relation.physical.NestedLoopJoin;
+import io.substrait.type.Type;
+import io.substrait.type.TypeCreator;
+import io.substrait.util.Util;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Checks the structure and the types of a plan, reporting every problem found with the path of the
+ * node it was found in.
+ *
+ * <p>The validator checks that:
+ *
+ * <ul>
+ *   <li>the record type of each relation can be derived, which fails for instance on remaps
+ *       referring to fields out of bounds,
+ *   <li>field references, including outer references, are within the bounds of the record they
+ *       refer to and have the type of the referenced field,
+ *   <li>the arguments of scalar, aggregate and window functions match the count, kinds and types
+ *       declared by their variant, and their output type matches the one derived from it,
+ *   <li>filter, join and conditional predicates are booleans,
+ *   <li>the inputs of set operations and the keys of physical joins have matching types.
+ * </ul>
+ *
+ * <p>Types are compared ignoring nullability. Function output types are compared by kind, ignoring
+ * type parameters such as the precision of decimals, which producers may derive differently.
+ *
+ * <p>Each relation and expression is visited once and paths are built in a shared buffer, so a
+ * validation takes time linear in the size of the plan and allocates little besides the reported
+ * errors. A validator can be reused but is not thread-safe.
+ */
+public class PlanValidator {
+
+  /** A problem found in a plan. */
+  public static final class ValidationError {
+    private final String path;
+    private final String message;
+
+    ValidationError(String path, String message) {
+      this.path = path;
+      this.message = message;
+    }
+
+    /**
+     * Returns the path of the node with the problem, such as {@code
+     * roots[0](Project)/input(Filter)/condition/arguments[1]}, naming the kind of each relation.
+     */
+    public String getPath() {
+      return path;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String toString() {
+      return path + ": " + message;
+    }
+  }
+
+  private final StringBuilder path = new StringBuilder();
+  private final RelValidator relValidator = new RelValidator();
+  private final ExpressionValidator expressionValidator = new ExpressionValidator();
+
+  /**
+   * The records expressions refer to, two per relation whose expressions are being validated: the
+   * left or single input and the right input of joins. The last pair belongs to the innermost
+   * relation, preceding ones to the relations enclosing subqueries. Unknown records are null.
+   */
+  private final List<Type.Struct> frames = new ArrayList<>();
+
+  /**
+   * The record types of the subtrees shared through {@link ReferenceRel}s, by identity, so that
+   * each is validated once however often it is referenced.
+   */
+  private final Map<Rel, Type.Struct> subtrees = new IdentityHashMap<>();
+
+  /** The value argument types of the function being checked. */
+  private final List<Type> argumentTypes = new ArrayList<>();
+
+  private List<ValidationError> errors;
+
+  /** Returns the problems found in a plan, empty if it is valid. */
+  public List<ValidationError> validate(Plan plan) {
+    start();
+    for (int i = 0; i < plan.getRoots().size(); i++) {
+      rel(plan.getRoots().get(i).getInput(), "roots", i);
+    }
+    return finish();
+  }
+
+  /** Returns the problems found in a relation tree, empty if it is valid. */
+  public List<ValidationError> validate(Rel rel) {
+    start();
+    rel(rel, "root", -1);
+    return finish();
+  }
+
+  /**
+   * Returns the problems found in an expression evaluated over records of the given type, empty if
+   * it is valid.
+   */
+  public List<ValidationError> validate(Expression expression, Type.Struct inputType) {
+    start();
+    pushFrame(inputType, null);
+    expression(expression, "expression", -1);
+    popFrame();
+    return finish();
+  }
+
+  private void start() {
+    errors = new ArrayList<>();
+    path.setLength(0);
+    frames.clear();
+    subtrees.clear();
+  }
+
+  private List<ValidationError> finish() {
+    List<ValidationError> result = errors;
+    errors = null;
+    return result;
+  }
+
+  private void error(String format, Object... args) {
+    errors.add(new ValidationError(path.toString(), String.format(format, args)));
+  }
+
+  /** Appends a segment to the path and returns the length to restore when leaving it. */
+  private int enter(String segment, int index) {
+    int mark = path.length();
+    if (mark > 0) {
+      path.append('/');
+    }
+    path.append(segment);
+    if (index >= 0) {
+      path.append('[').append(index).append(']');
+    }
+    return mark;
+  }
+
+  private void leave(int mark) {
+    path.setLength(mark);
+  }
+
+  /** Validates a relation tree and returns its record type, or null if it cannot be derived. */
+  private Type.Struct rel(Rel rel, String segment, int index) {
+    int mark = enter(segment, index);
+    String kind = rel.getClass().getSimpleName();
+    int start = kind.startsWith("Immutable") ? "Immutable".length() : 0;
+    path.append('(').append(kind, start, kind.length()).append(')');
+    Type.Struct recordType = rel.accept(relValidator);
+    leave(mark);
+    return recordType;
+  }
+
+  private void expression(Expression expression, String segment, int index) {
+    int mark = enter(segment, index);
+    expression.accept(expressionValidator);
+    leave(mark);
+  }
+
+  private void expressions(List<? extends Expression> expressions, String segment) {
+    for (int i = 0; i < expressions.size(); i++) {
+      expression(expressions.get(i), segment, i);
+    }
+  }
+
+  private void sortFields(List<Expression.SortField> sortFields, String segment) {
+    for (int i = 0; i < sortFields.size(); i++) {
+      expression(sortFields.get(i).expr(), segment, i);
+    }
+  }
+
+  /** Validates a predicate, which must be a boolean. */
+  private void predicate(Expression expression, String segment) {
+    int mark = enter(segment, -1);
+    expression.accept(expressionValidator);
+    if (!(expression.getType() instanceof Type.Bool)) {
+      error("Expected a boolean, got %s", expression.getType());
+    }
+    leave(mark);
+  }
+
+  private void pushFrame(Type.Struct left, Type.Struct right) {
+    frames.add(left);
+    frames.add(right);
+  }
+
+  /** Pushes the records of both inputs of a join, unknown if either is. */
+  private void pushJoinFrame(Type.Struct left, Type.Struct right) {
+    if (left == null || right == null) {
+      pushFrame(null, null);
+    } else {
+      pushFrame(left, right);
+    }
+  }
+
+  private void popFrame() {
+    frames.remove(frames.size() - 1);
+    frames.remove(frames.size() - 1);
+  }
+
+  /**
+   * Returns the record type of a relation, reporting an error if it cannot be derived although the
+   * record types of its inputs could be.
+   */
+  private Type.Struct recordType(Rel rel, boolean inputsTyped) {
+    try {
+      return rel.getRecordType();
+    } catch (RuntimeException e) {
+      if (inputsTyped) {
+        error("Cannot derive the record type: %s", e);
+      }
+      return null;
+    }
+  }
+
+  private static boolean sameType(Type left, Type right) {
+    if (left.nullable() == right.nullable()) {
+      return left.equals(right);
+    }
+    return TypeCreator.asNullable(left).equals(TypeCreator.asNullable(right));
+  }
+
+  private class RelValidator extends AbstractRelVisitor<Type.Struct, RuntimeException> {
+
+    /** Validates the inputs of relations without expressions. */
+    @Override
+    public Type.Struct visitFallback(Rel rel) {
+      boolean inputsTyped = true;
+      for (int i = 0; i < rel.getInputs().size(); i++) {
+        inputsTyped &= rel(rel.getInputs().get(i), "inputs", i) != null;
+      }
+      return recordType(rel, inputsTyped);
+    }
+
+    @Override
+    public Type.Struct visit(Filter filter) {
+      Type.Struct input = rel(filter.getInput(), "input", -1);
+      pushFrame(input, null);
+      predicate(filter.getCondition(), "condition");
+      popFrame();
+      return recordType(filter, input != null);
+    }
+
+    @Override
+    public Type.Struct visit(Project project) {
+      Type.Struct input = rel(project.getInput(), "input", -1);
+      pushFrame(input, null);
+      expressions(project.getExpressions(), "expressions");
+      popFrame();
+      return recordType(project, input != null);
+    }
+
+    @Override
+    public Type.Struct visit(Aggregate aggregate) {
+      Type.Struct input = rel(aggregate.getInput(), "input", -1);
+      pushFrame(input, null);
+      for (int i = 0; i < aggregate.getGroupings().size(); i++) {
+        int mark = enter("groupings", i);
+        expressions(aggregate.getGroupings().get(i).getExpressions(), "expressions");
+        leave(mark);
+      }
+      for (int i = 0; i < aggregate.getMeasures().size(); i++) {
+        Aggregate.Measure measure = aggregate.getMeasures().get(i);
+        int mark = enter("measures", i);
+        AggregateFunctionInvocation function = measure.getFunction();
+        function(function.declaration(), function.arguments(), function.outputType());
+        sortFields(function.sort(), "sort");
+        measure.getPreMeasureFilter().ifPresent(f -> predicate(f, "preMeasureFilter"));
+        leave(mark);
+      }
+      popFrame();
+      return recordType(aggregate, input != null);
+    }
+
+    @Override
+    public Type.Struct visit(Sort sort) {
+      Type.Struct input = rel(sort.getInput(), "input", -1);
+      pushFrame(input, null);
+      sortFields(sort.getSortFields(), "sortFields");
+      popFrame();
+      return recordType(sort, input != null);
+    }
+
+    @Override
+    public Type.Struct visit(Fetch fetch) {
+      Type.Struct input = rel(fetch.getInput(), "input", -1);
+      if (fetch.getOffset() < 0) {
+        error("Negative offset %d", fetch.getOffset());
+      }
+      if (fetch.getCount().isPresent() && fetch.getCount().getAsLong() < 0) {
+        error("Negative count %d", fetch.getCount().getAsLong());
+      }
+      return recordType(fetch, input != null);
+    }
+
+    @Override
+    public Type.Struct visit(Expand expand) {
+      Type.Struct input = rel(expand.getInput(), "input", -1);
+      pushFrame(input, null);
+      for (int i = 0; i < expand.getFields().size(); i++) {
+        Expand.ExpandField field = expand.getFields().get(i);
+        if (field instanceof Expand.ConsistentField) {
+          expression(((Expand.ConsistentField) field).getExpression(), "fields", i);
+        } else if (field instanceof Expand.SwitchingField) {
+          int mark = enter("fields", i);
+          expressions(((Expand.SwitchingField) field).getDuplicates(), "duplicates");
+          leave(mark);
+        }
+      }
+      popFrame();
+      return recordType(expand, input != null);
+    }
+
+    @Override
+    public Type.Struct visit(ConsistentPartitionWindow window) {
+      Type.Struct input = rel(window.getInput(), "input", -1);
+      pushFrame(input, null);
+      for (int i = 0; i < window.getWindowFunctions().size(); i++) {
+        ConsistentPartitionWindow.WindowRelFunctionInvocation function =
+            window.getWindowFunctions().get(i);
+        int mark = enter("windowFunctions", i);
+        function(function.declaration(), function.arguments(), function.outputType());
+        leave(mark);
+      }
+      expressions(window.getPartitionExpressions(), "partitionExpressions");
+      sortFields(window.getSorts(), "sorts");
+      popFrame();
+      return recordType(window, input != null);
+    }
+
+    @Override
+    public Type.Struct visit(Join join) {
+      Type.Struct left = rel(join.getLeft(), "left", -1);
+      Type.Struct right = rel(join.getRight(), "right", -1);
+      Type.Struct recordType = recordType(join, left != null && right != null);
+      pushJoinFrame(left, right);
+      join.getCondition().ifPresent(c -> predicate(c, "condition"));
+      popFrame();
+      pushFrame(recordType, null);
+      join.getPostJoinFilter().ifPresent(f -> predicate(f, "postJoinFilter"));
+      popFrame();
+      return recordType;
+    }
+
+    @Override
+    public Type.Struct visit(NestedLoopJoin join) {
+      Type.Struct left = rel(join.getLeft(), "left", -1);
+      Type.Struct right = rel(join.getRight(), "right", -1);
+      pushJoinFrame(left, right);
+      predicate(join.getCondition(), "condition");
+      popFrame();
+      return recordType(join, left != null && right != null);
+    }
+
+    @Override
+    public Type.Struct visit(HashJoin join) {
+      return keyedJoin(join, join.getLeftKeys(), join.getRightKeys(), join.getPostJoinFilter());
+    }
+
+    @Override
+    public Type.Struct visit(MergeJoin join) {
+      return keyedJoin(join, join.getLeftKeys(), join.getRightKeys(), join.getPostJoinFilter());
+    }
+
+    private Type.Struct keyedJoin(
+        Rel join,
+        List<FieldReference> leftKeys,
+        List<FieldReference> rightKeys,
+        Optional<Expression> postJoinFilter) {
+      Type.Struct left = rel(join.getInputs().get(0), "left", -1);
+      Type.Struct right = rel(join.getInputs().get(1), "right", -1);
+      Type.Struct recordType = recordType(join, left != null && right != null);
+      if (leftKeys.size() != rightKeys.size()) {
+        error("%d left keys for %d right keys", leftKeys.size(), rightKeys.size());
+      }
+      pushFrame(left, null);
+      expressions(leftKeys, "leftKeys");
+      popFrame();
+      pushFrame(right, null);
+      expressions(rightKeys, "rightKeys");
+      popFrame();
+      for (int i = 0; i < Math.min(leftKeys.size(), rightKeys.size()); i++) {
+        Type leftType = leftKeys.get(i).getType();
+        Type rightType = rightKeys.get(i).getType();
+        if (!sameType(leftType, rightType)) {
+          error("Key %d joins %s with %s", i, leftType, rightType);
+        }
+      }
+      pushFrame(recordType, null);
+      postJoinFilter.ifPresent(f -> predicate(f, "postJoinFilter"));
+      popFrame();
+      return recordType;
+    }
+
+    @Override
+    public Type.Struct visit(Set set) {
+      Type.Struct first = null;
+      boolean inputsTyped = true;
+      for (int i = 0; i < set.getInputs().size(); i++) {
+        Type.Struct input = rel(set.getInputs().get(i), "inputs", i);
+        inputsTyped &= input != null;
+        if (input == null) {
+          continue;
+        }
+        if (first == null) {
+          first = input;
+        } else if (!compatible(first, input)) {
+          int mark = enter("inputs", i);
+          error("Record type %s does not match the first input's record type %s", input, first);
+          leave(mark);
+        }
+      }
+      return recordType(set, inputsTyped);
+    }
+
+    private boolean compatible(Type.Struct left, Type.Struct right) {
+      if (left.fields().size() != right.fields().size()) {
+        return false;
+      }
+      for (int i = 0; i < left.fields().size(); i++) {
+        if (!sameType(left.fields().get(i), right.fields().get(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public Type.Struct visit(NamedScan namedScan) {
+      return read(namedScan);
+    }
+
+    @Override
+    public Type.Struct visit(LocalFiles localFiles) {
+      return read(localFiles);
+    }
+
+    @Override
+    public Type.Struct visit(ExtensionTable extensionTable) {
+      return read(extensionTable);
+    }
+
+    @Override
+    public Type.Struct visit(EmptyScan emptyScan) {
+      return read(emptyScan);
+    }
+
+    @Override
+    public Type.Struct visit(VirtualTableScan virtualTableScan) {
+      int fieldCount = virtualTableScan.getInitialSchema().struct().fields().size();
+      for (int i = 0; i < virtualTableScan.getRows().size(); i++) {
+        int rowFields = virtualTableScan.getRows().get(i).fields().size();
+        if (rowFields != fieldCount) {
+          int mark = enter("rows", i);
+          error("Row with %d fields for a schema with %d fields", rowFields, fieldCount);
+          leave(mark);
+        }
+      }
+      return read(virtualTableScan);
+    }
+
+    @Override
+    public Type.Struct visit(Cross cross) {
+      return visitFallback(cross);
+    }
+
+    @Override
+    public Type.Struct visit(ReferenceRel referenceRel) {
+      Rel subtree = referenceRel.getSubtree();
+      if (subtrees.containsKey(subtree)) {
+        return subtrees.get(subtree);
+      }
+      Type.Struct recordType = rel(subtree, "subtree", -1);
+      subtrees.put(subtree, recordType);
+      return recordType;
+    }
+
+    private Type.Struct read(AbstractReadRel read) {
+      pushFrame(read.getInitialSchema().struct(), null);
+      read.getFilter().ifPresent(f -> predicate(f, "filter"));
+      popFrame();
+      return recordType(read, true);
+    }
+  }
+
+  /**
+   * Checks the arguments of a function invocation against its declaration, after validating the
+   * argument expressions.
+   */
+  private void function(
+      SimpleExtension.Function declaration, List<FunctionArg> arguments, Type outputType) {
+    List<SimpleExtension.Argument> declared = declaration.args();
+    for (int i = 0; i < arguments.size(); i++) {
+      if (arguments.get(i) instanceof Expression) {
+        expression((Expression) arguments.get(i), "arguments", i);
+      }
+    }
+
+    Util.IntRange range = declaration.getRange();
+    if (arguments.size() < range.getStartInclusive()
+        || arguments.size() >= range.getEndExclusive()) {
+      error("Wrong number of arguments %d for %s", arguments.size(), declaration.key());
+      return;
+    }
+
+    boolean argumentsMatch = true;
+    argumentTypes.clear();
+    for (int i = 0; i < arguments.size(); i++) {
+      // the last declared argument is repeated by variadic functions
+      SimpleExtension.Argument argument = declared.get(Math.min(i, declared.size() - 1));
+      FunctionArg actual = arguments.get(i);
+      String problem = null;
+      if (argument instanceof SimpleExtension.ValueArgument) {
+        if (actual instanceof Expression) {
+          Type type = ((Expression) actual).getType();
+          argumentTypes.add(type);
+          problem = argumentTypeProblem((SimpleExtension.ValueArgument) argument, type);
+        } else {
+          problem = "Expected a value argument";
+        }
+      } else if (argument instanceof SimpleExtension.TypeArgument) {
+        problem = actual instanceof Type ? null : "Expected a type argument";
+      } else if (argument instanceof SimpleExtension.EnumArgument) {
+        problem = actual instanceof EnumArg ? null : "Expected an enum argument";
+      }
+      if (problem != null) {
+        argumentsMatch = false;
+        int mark = enter("arguments", i);
+        error("%s for %s", problem, declaration.key());
+        leave(mark);
+      }
+    }
+    if (!argumentsMatch) {
+      return;
+    }
+
+    Type derived;
+    try {
+      derived = declaration.resolveType(argumentTypes);
+    } catch (IllegalArgumentException e) {
+      error("Arguments %s do not match %s: %s", argumentTypes, declaration.key(), e.getMessage());
+      return;
+    } catch (UnsupportedOperationException e) {
+      // derivations the type compiler does not support are not checked
+      return;
+    }
+    String expectedKind = typeString(derived);
+    String actualKind = typeString(outputType);
+    if (expectedKind != null && actualKind != null && !expectedKind.equals(actualKind)) {
+      error("Output type %s of %s, expected %s", outputType, declaration.key(), derived);
+    }
+  }
+
+  /** Returns why a value does not match a declared argument, or null if it does. */
+  private static String argumentTypeProblem(SimpleExtension.ValueArgument argument, Type type) {
+    String expected;
+    try {
+      expected = argument.toTypeString();
+    } catch (UnsupportedOperationException e) {
+      // type parameters other than any are not checked
+      return null;
+    }
+    String actual = typeString(type);
+    if (expected.equals("any") || actual == null || expected.equals(actual)) {
+      return null;
+    }
+    return String.format("Expected %s, got %s", expected, type);
+  }
+
+  /** Returns the kind of a type as used in function keys, or null if it has none. */
+  private static String typeString(Type type) {
+    try {
+      return ToTypeString.apply(type);
+    } catch (UnsupportedOperationException e) {
+      return null;
+    }
+  }
+
+  private class ExpressionValidator extends AbstractExpressionVisitor<Void, RuntimeException> {
+
+    /** Literals have nothing to validate. */
+    @Override
+    public Void visitFallback(Expression expr) {
+      return null;
+    }
+
+    @Override
+    public Void visit(FieldReference expr) {
+      if (expr.inputExpression().isPresent()) {
+        expression(expr.inputExpression().get(), "inputExpression", -1);
+        return null;
+      }
+      int stepsOut = expr.outerReferenceStepsOut().orElse(0);
+      int frame = frames.size() / 2 - 1 - stepsOut;
+      if (frame < 0) {
+        error("Outer reference %d steps out of %d enclosing queries", stepsOut, frames.size() / 2);
+        return null;
+      }
+      Type.Struct left = frames.get(2 * frame);
+      Type.Struct right = frames.get(2 * frame + 1);
+      FieldReference.ReferenceSegment root = expr.segments().get(expr.segments().size() - 1);
+      if (left == null || !(root instanceof FieldReference.StructField)) {
+        return null;
+      }
+      int index = ((FieldReference.StructField) root).offset();
+      int leftSize = left.fields().size();
+      int size = leftSize + (right == null ? 0 : right.fields().size());
+      if (index < 0 || index >= size) {
+        error("Field %d is out of the bounds of a record with %d fields", index, size);
+        return null;
+      }
+      Type field =
+          index < leftSize ? left.fields().get(index) : right.fields().get(index - leftSize);
+      if (expr.segments().size() == 1 && !sameType(expr.getType(), field)) {
+        error("Reference of type %s to field %d of type %s", expr.getType(), index, field);
+      }
+      return null;
+    }
+
+    @Override
+    public Void visit(Expression.ScalarFunctionInvocation expr) {
+      function(expr.declaration(), expr.arguments(), expr.outputType());
+      return null;
+    }
+
+    @Override
+    public Void visit(Expression.WindowFunctionInvocation expr) {
+      function(expr.declaration(), expr.arguments(), expr.outputType());
+      expressions(expr.partitionBy(), "partitionBy");
+      sortFields(expr.sort(), "sort");
+      return null;
+    }
+
+    @Override
+    public Void visit(Expression.Cast expr) {
+      expression(expr.input(), "input", -1);
+      return null;
+    }
+
+    @Override
+    public Void visit(Expression.IfThen expr) {
+      for (int i = 0; i < expr.ifClauses().size(); i++) {
+        Expression.IfClause clause = expr.ifClauses().get(i);
+        int mark = enter("ifClauses", i);
+        predicate(clause.condition(), "condition");
+        expression(clause.then(), "then", -1);
+        leave(mark);
+      }
+      expression(expr.elseClause(), "elseClause", -1);
+      return null;
+    }
+
+    @Override
+    public Void visit(Expression.Switch expr) {
+      expression(expr.match(), "match", -1);
+      for (int i = 0; i < expr.switchClauses().size(); i++) {
+        Expression.SwitchClause clause = expr.switchClauses().get(i);
+        int mark = enter("switchClauses", i);
+        if (!sameType(clause.condition().getType(), expr.match().getType())) {
+          int condition = enter("condition", -1);
+          error(
+              "Expected a %s to match, got %s",
+              expr.match().getType(), clause.condition().getType());
+          leave(condition);
+        }
+        expression(clause.then(), "then", -1);
+        leave(mark);
+      }
+      expression(expr.defaultClause(), "defaultClause", -1);
+      return null;
+    }
+
+    @Override
+    public Void visit(Expression.SingleOrList expr) {
+      expression(expr.condition(), "condition", -1);
+      expressions(expr.options(), "options");
+      return null;
+    }
+
+    @Override
+    public Void visit(Expression.MultiOrList expr) {
+      expressions(expr.conditions(), "conditions");
+      for (int i = 0; i < expr.optionCombinations().size(); i++) {
+        int mark = enter("optionCombinations", i);
+        expressions(expr.optionCombinations().get(i).values(), "values");
+        leave(mark);
+      }
+      return null;
+    }
+
+    @Override
+    public Void visit(Expression.SetPredicate expr) {
+      rel(expr.tuples(), "tuples", -1);
+      return null;
+    }
+
+    @Override
+    public Void visit(Expression.ScalarSubquery expr) {
+      rel(expr.input(), "input", -1);
+      return null;
+    }
+
+    @Override
+    public Void visit(Expression.InPredicate expr) {
+      rel(expr.haystack(), "haystack", -1);
+      expressions(expr.needles(), "needles");
+      return null;
+    }
+  }
+}
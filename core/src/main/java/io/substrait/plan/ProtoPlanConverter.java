@@ -8,8 +8,12 @@ import io.substrait.relation.ProtoRelConverter;
 import io.substrait.relation.Rel;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /** Converts from {@link io.substrait.proto.Plan} to {@link io.substrait.plan.Plan} */
 public class ProtoPlanConverter {
@@ -34,11 +38,18 @@ public class ProtoPlanConverter {
   public Plan from(io.substrait.proto.Plan plan) {
     ExtensionLookup functionLookup = ImmutableExtensionLookup.builder().from(plan).build();
     ProtoRelConverter relConverter = getProtoRelConverter(functionLookup);
+    List<PlanRel> planRels = plan.getRelationsList();
+    Map<Integer, Rel> subtrees = new HashMap<>();
+    Set<Integer> converting = new HashSet<>();
+    relConverter.setSubtreeResolver(
+        ordinal -> subtree(relConverter, planRels, subtrees, converting, ordinal));
     List<Plan.Root> roots = new ArrayList<>();
-    for (PlanRel planRel : plan.getRelationsList()) {
-      io.substrait.proto.RelRoot root = planRel.getRoot();
-      Rel rel = relConverter.from(root.getInput());
-      roots.add(ImmutableRoot.builder().input(rel).names(root.getNamesList()).build());
+    for (PlanRel planRel : planRels) {
+      if (planRel.hasRoot()) {
+        io.substrait.proto.RelRoot root = planRel.getRoot();
+        Rel rel = relConverter.from(root.getInput());
+        roots.add(ImmutableRoot.builder().input(rel).names(root.getNamesList()).build());
+      }
     }
     return ImmutablePlan.builder()
         .roots(roots)
@@ -47,4 +58,34 @@ public class ProtoPlanConverter {
             Optional.ofNullable(plan.hasAdvancedExtensions() ? plan.getAdvancedExtensions() : null))
         .build();
   }
+
+  /**
+   * Converts the relation of the plan referenced by a {@link io.substrait.proto.ReferenceRel} once,
+   * so that all the references to it share the same subtree.
+   */
+  private static Rel subtree(
+      ProtoRelConverter relConverter,
+      List<PlanRel> planRels,
+      Map<Integer, Rel> subtrees,
+      Set<Integer> converting,
+      int ordinal) {
+    Rel subtree = subtrees.get(ordinal);
+    if (subtree != null) {
+      return subtree;
+    }
+    if (ordinal < 0 || ordinal >= planRels.size()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "ReferenceRel to subtree %d of a plan with %d relations", ordinal, planRels.size()));
+    }
+    if (!converting.add(ordinal)) {
+      throw new IllegalArgumentException("ReferenceRel to subtree " + ordinal + " is cyclic");
+    }
+    PlanRel planRel = planRels.get(ordinal);
+    subtree =
+        relConverter.from(planRel.hasRoot() ? planRel.getRoot().getInput() : planRel.getRel());
+    converting.remove(ordinal);
+    subtrees.put(ordinal, subtree);
+    return subtree;
+  }
 }
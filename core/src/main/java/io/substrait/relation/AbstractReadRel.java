@@ -1,6 +1,7 @@
 package io.substrait.relation;
 
 import io.substrait.expression.Expression;
+import io.substrait.expression.MaskExpression;
 import io.substrait.type.NamedStruct;
 import io.substrait.type.Type;
 import java.util.Optional;
@@ -11,11 +12,15 @@ public abstract class AbstractReadRel extends ZeroInputRel implements HasExtensi
 
   public abstract Optional<Expression> getFilter();
 
-  // TODO:
-  // public abstract Optional<MaskExpression>
+  /**
+   * @return the fields of the initial schema output by this read. Filters still refer to the
+   *     fields of the initial schema.
+   */
+  public abstract Optional<MaskExpression> getProjection();
 
   @Override
   protected final Type.Struct deriveRecordType() {
-    return getInitialSchema().struct();
+    Type.Struct initial = getInitialSchema().struct();
+    return getProjection().map(p -> p.apply(initial)).orElse(initial);
   }
 }
@@ -112,4 +112,9 @@ public abstract class AbstractRelVisitor<OUTPUT, EXCEPTION extends Exception>
   public OUTPUT visit(ConsistentPartitionWindow consistentPartitionWindow) throws EXCEPTION {
     return visitFallback(consistentPartitionWindow);
   }
+
+  @Override
+  public OUTPUT visit(ReferenceRel referenceRel) throws EXCEPTION {
+    return visitFallback(referenceRel);
+  }
 }
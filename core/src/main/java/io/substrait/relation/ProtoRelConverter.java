@@ -3,6 +3,7 @@ package io.substrait.relation;
 import io.substrait.expression.Expression;
 import io.substrait.expression.FunctionArg;
 import io.substrait.expression.ImmutableExpression;
+import io.substrait.expression.MaskExpression;
 import io.substrait.expression.proto.ProtoExpressionConverter;
 import io.substrait.extension.AdvancedExtension;
 import io.substrait.extension.ExtensionLookup;
@@ -41,6 +42,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -51,6 +53,11 @@ public class ProtoRelConverter {
   protected final ExtensionLookup lookup;
   protected final SimpleExtension.ExtensionCollection extensions;
   private final ProtoTypeConverter protoTypeConverter;
+  private IntFunction<Rel> subtreeResolver =
+      ordinal -> {
+        throw new UnsupportedOperationException(
+            "ReferenceRel to subtree " + ordinal + " can only be converted within a plan");
+      };
 
   public ProtoRelConverter(ExtensionLookup lookup) throws IOException {
     this(lookup, SimpleExtension.loadDefaults());
@@ -62,6 +69,14 @@ public class ProtoRelConverter {
     this.protoTypeConverter = new ProtoTypeConverter(lookup, extensions);
   }
 
+  /**
+   * Sets how the relations of the plan referenced by a {@link io.substrait.proto.ReferenceRel} are
+   * resolved from their ordinal.
+   */
+  public void setSubtreeResolver(IntFunction<Rel> subtreeResolver) {
+    this.subtreeResolver = subtreeResolver;
+  }
+
   public Rel from(io.substrait.proto.Rel rel) {
     var relType = rel.getRelTypeCase();
     switch (relType) {
@@ -116,6 +131,9 @@ public class ProtoRelConverter {
       case WINDOW -> {
         return newConsistentPartitionWindow(rel.getWindow());
       }
+      case REFERENCE -> {
+        return newReference(rel.getReference());
+      }
       default -> {
         throw new UnsupportedOperationException("Unsupported RelTypeCase of " + relType);
       }
@@ -152,13 +170,20 @@ public class ProtoRelConverter {
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
     return builder.build();
   }
 
+  protected Optional<MaskExpression> optionalProjection(ReadRel rel) {
+    return rel.hasProjection()
+        ? Optional.of(MaskExpression.fromProto(rel.getProjection()))
+        : Optional.empty();
+  }
+
   protected NamedStruct newNamedStruct(ReadRel rel) {
     return newNamedStruct(rel.getBaseSchema());
   }
@@ -189,11 +214,13 @@ public class ProtoRelConverter {
                         ? new ProtoExpressionConverter(
                                 lookup, extensions, namedStruct.struct(), this)
                             .from(rel.getFilter())
-                        : null));
+                        : null))
+            .projection(optionalProjection(rel));
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
@@ -205,7 +232,8 @@ public class ProtoRelConverter {
     var builder =
         ExtensionLeaf.from(detail)
             .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-            .remap(optionalRelmap(rel.getCommon()));
+            .remap(optionalRelmap(rel.getCommon()))
+            .hint(optionalHint(rel.getCommon()));
     return builder.build();
   }
 
@@ -215,7 +243,8 @@ public class ProtoRelConverter {
     var builder =
         ExtensionSingle.from(detail, input)
             .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-            .remap(optionalRelmap(rel.getCommon()));
+            .remap(optionalRelmap(rel.getCommon()))
+            .hint(optionalHint(rel.getCommon()));
     return builder.build();
   }
 
@@ -225,7 +254,8 @@ public class ProtoRelConverter {
     var builder =
         ExtensionMulti.from(detail, inputs)
             .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-            .remap(optionalRelmap(rel.getCommon()));
+            .remap(optionalRelmap(rel.getCommon()))
+            .hint(optionalHint(rel.getCommon()));
     if (rel.hasDetail()) {
       builder.detail(detailFromExtensionMultiRel(rel.getDetail()));
     }
@@ -244,11 +274,13 @@ public class ProtoRelConverter {
                         ? new ProtoExpressionConverter(
                                 lookup, extensions, namedStruct.struct(), this)
                             .from(rel.getFilter())
-                        : null));
+                        : null))
+            .projection(optionalProjection(rel));
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
@@ -258,11 +290,21 @@ public class ProtoRelConverter {
   protected ExtensionTable newExtensionTable(ReadRel rel) {
     Extension.ExtensionTableDetail detail =
         detailFromExtensionTable(rel.getExtensionTable().getDetail());
-    var builder = ExtensionTable.from(detail);
+    var builder =
+        ExtensionTable.from(detail)
+            .filter(
+                Optional.ofNullable(
+                    rel.hasFilter()
+                        ? new ProtoExpressionConverter(
+                                lookup, extensions, detail.deriveSchema().struct(), this)
+                            .from(rel.getFilter())
+                        : null))
+            .projection(optionalProjection(rel));
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
@@ -285,11 +327,13 @@ public class ProtoRelConverter {
                         ? new ProtoExpressionConverter(
                                 lookup, extensions, namedStruct.struct(), this)
                             .from(rel.getFilter())
-                        : null));
+                        : null))
+            .projection(optionalProjection(rel));
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
@@ -357,12 +401,14 @@ public class ProtoRelConverter {
     var builder =
         VirtualTableScan.builder()
             .filter(Optional.ofNullable(rel.hasFilter() ? converter.from(rel.getFilter()) : null))
+            .projection(optionalProjection(rel))
             .initialSchema(NamedStruct.fromProto(rel.getBaseSchema(), protoTypeConverter))
             .rows(structLiterals);
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
@@ -380,7 +426,8 @@ public class ProtoRelConverter {
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
@@ -400,7 +447,8 @@ public class ProtoRelConverter {
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
@@ -477,7 +525,8 @@ public class ProtoRelConverter {
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
@@ -502,7 +551,8 @@ public class ProtoRelConverter {
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
@@ -528,7 +578,8 @@ public class ProtoRelConverter {
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
@@ -542,7 +593,8 @@ public class ProtoRelConverter {
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
@@ -558,7 +610,8 @@ public class ProtoRelConverter {
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
@@ -590,7 +643,8 @@ public class ProtoRelConverter {
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
@@ -622,7 +676,8 @@ public class ProtoRelConverter {
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
@@ -649,13 +704,18 @@ public class ProtoRelConverter {
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
     return builder.build();
   }
 
+  protected ReferenceRel newReference(io.substrait.proto.ReferenceRel rel) {
+    return ReferenceRel.builder().subtree(subtreeResolver.apply(rel.getSubtreeOrdinal())).build();
+  }
+
   protected ConsistentPartitionWindow newConsistentPartitionWindow(
       ConsistentPartitionWindowRel rel) {
 
@@ -685,7 +745,8 @@ public class ProtoRelConverter {
 
     builder
         .commonExtension(optionalAdvancedExtension(rel.getCommon()))
-        .remap(optionalRelmap(rel.getCommon()));
+        .remap(optionalRelmap(rel.getCommon()))
+        .hint(optionalHint(rel.getCommon()));
     if (rel.hasAdvancedExtension()) {
       builder.extension(advancedExtension(rel.getAdvancedExtension()));
     }
@@ -704,6 +765,13 @@ public class ProtoRelConverter {
     if (!hint.getAlias().isEmpty()) {
       builder.alias(hint.getAlias());
     }
+    if (hint.hasStats()) {
+      builder.stats(
+          Hint.Stats.builder()
+              .rowCount(hint.getStats().getRowCount())
+              .recordSize(hint.getStats().getRecordSize())
+              .build());
+    }
     return Optional.of(builder.build());
   }
 
@@ -0,0 +1,41 @@
+package io.substrait.relation;
+
+import io.substrait.type.Type;
+import org.immutables.value.Value;
+
+/**
+ * A use of a relation shared by several parts of a plan, such as a common table expression, so
+ * that consumers compute it once.
+ *
+ * <p>In the protobuf form, the shared relation is a separate relation of the plan and is referenced
+ * by its ordinal. Converting a plan emits each distinct shared relation once, however many
+ * references there are to it; converting it back gives all the references the same subtree.
+ */
+@Value.Immutable
+public abstract class ReferenceRel extends ZeroInputRel {
+  static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ReferenceRel.class);
+
+  public abstract Rel getSubtree();
+
+  /** A ReferenceRel has no RelCommon, so it cannot carry a remap, a hint or an extension. */
+  @Value.Check
+  protected void check() {
+    if (getRemap().isPresent() || getHint().isPresent() || getCommonExtension().isPresent()) {
+      throw new IllegalArgumentException("A ReferenceRel cannot have a remap, hint or extension");
+    }
+  }
+
+  @Override
+  protected Type.Struct deriveRecordType() {
+    return getSubtree().getRecordType();
+  }
+
+  @Override
+  public <O, E extends Exception> O accept(RelVisitor<O, E> visitor) throws E {
+    return visitor.visit(this);
+  }
+
+  public static ImmutableReferenceRel.Builder builder() {
+    return ImmutableReferenceRel.builder();
+  }
+}
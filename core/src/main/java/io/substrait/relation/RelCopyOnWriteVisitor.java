@@ -371,6 +371,14 @@ public class RelCopyOnWriteVisitor<EXCEPTION extends Exception>
             .build());
   }
 
+  @Override
+  public Optional<Rel> visit(ReferenceRel referenceRel) throws EXCEPTION {
+    return referenceRel
+        .getSubtree()
+        .accept(this)
+        .map(subtree -> ReferenceRel.builder().from(referenceRel).subtree(subtree).build());
+  }
+
   protected Optional<ConsistentPartitionWindow.WindowRelFunctionInvocation> visitWindowRelFunction(
       ConsistentPartitionWindow.WindowRelFunctionInvocation windowRelFunctionInvocation)
       throws EXCEPTION {
@@ -34,6 +34,7 @@ import io.substrait.relation.physical.NestedLoopJoin;
 import io.substrait.type.proto.TypeProtoConverter;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -43,9 +44,26 @@ public class RelProtoConverter implements RelVisitor<Rel, RuntimeException> {
   private final ExpressionProtoConverter exprProtoConverter;
   private final TypeProtoConverter typeProtoConverter;
   private final ExtensionCollector functionCollector;
+  private final ToIntFunction<io.substrait.relation.Rel> subtreeOrdinals;
 
   public RelProtoConverter(ExtensionCollector functionCollector) {
+    this(
+        functionCollector,
+        subtree -> {
+          throw new UnsupportedOperationException(
+              "ReferenceRel can only be converted within a plan");
+        });
+  }
+
+  /**
+   * @param subtreeOrdinals returns the ordinal in the relations of the plan of a subtree referenced
+   *     by a {@link ReferenceRel}
+   */
+  public RelProtoConverter(
+      ExtensionCollector functionCollector,
+      ToIntFunction<io.substrait.relation.Rel> subtreeOrdinals) {
     this.functionCollector = functionCollector;
+    this.subtreeOrdinals = subtreeOrdinals;
     this.exprProtoConverter = new ExpressionProtoConverter(functionCollector, this);
     this.typeProtoConverter = new TypeProtoConverter(functionCollector);
   }
@@ -133,14 +151,15 @@ public class RelProtoConverter implements RelVisitor<Rel, RuntimeException> {
 
   @Override
   public Rel visit(EmptyScan emptyScan) throws RuntimeException {
-    return Rel.newBuilder()
-        .setRead(
-            ReadRel.newBuilder()
-                .setCommon(common(emptyScan))
-                .setVirtualTable(ReadRel.VirtualTable.newBuilder().build())
-                .setBaseSchema(emptyScan.getInitialSchema().toProto(typeProtoConverter))
-                .build())
-        .build();
+    var builder =
+        ReadRel.newBuilder()
+            .setCommon(common(emptyScan))
+            .setVirtualTable(ReadRel.VirtualTable.newBuilder().build())
+            .setBaseSchema(emptyScan.getInitialSchema().toProto(typeProtoConverter));
+
+    emptyScan.getFilter().ifPresent(f -> builder.setFilter(toProto(f)));
+    emptyScan.getProjection().ifPresent(p -> builder.setProjection(p.toProto()));
+    return Rel.newBuilder().setRead(builder).build();
   }
 
   @Override
@@ -208,6 +227,7 @@ public class RelProtoConverter implements RelVisitor<Rel, RuntimeException> {
             .setBaseSchema(namedScan.getInitialSchema().toProto(typeProtoConverter));
 
     namedScan.getFilter().ifPresent(f -> builder.setFilter(toProto(f)));
+    namedScan.getProjection().ifPresent(p -> builder.setProjection(p.toProto()));
 
     namedScan.getExtension().ifPresent(ae -> builder.setAdvancedExtension(ae.toProto()));
     return Rel.newBuilder().setRead(builder).build();
@@ -227,6 +247,7 @@ public class RelProtoConverter implements RelVisitor<Rel, RuntimeException> {
                     .build())
             .setBaseSchema(localFiles.getInitialSchema().toProto(typeProtoConverter));
     localFiles.getFilter().ifPresent(t -> builder.setFilter(toProto(t)));
+    localFiles.getProjection().ifPresent(p -> builder.setProjection(p.toProto()));
 
     localFiles.getExtension().ifPresent(ae -> builder.setAdvancedExtension(ae.toProto()));
     return Rel.newBuilder().setRead(builder.build()).build();
@@ -242,6 +263,8 @@ public class RelProtoConverter implements RelVisitor<Rel, RuntimeException> {
             .setBaseSchema(extensionTable.getInitialSchema().toProto(typeProtoConverter))
             .setExtensionTable(extensionTableBuilder);
 
+    extensionTable.getFilter().ifPresent(f -> builder.setFilter(toProto(f)));
+    extensionTable.getProjection().ifPresent(p -> builder.setProjection(p.toProto()));
     extensionTable.getExtension().ifPresent(ae -> builder.setAdvancedExtension(ae.toProto()));
     return Rel.newBuilder().setRead(builder).build();
   }
@@ -329,6 +352,15 @@ public class RelProtoConverter implements RelVisitor<Rel, RuntimeException> {
     return Rel.newBuilder().setWindow(builder).build();
   }
 
+  @Override
+  public Rel visit(ReferenceRel referenceRel) throws RuntimeException {
+    return Rel.newBuilder()
+        .setReference(
+            io.substrait.proto.ReferenceRel.newBuilder()
+                .setSubtreeOrdinal(subtreeOrdinals.applyAsInt(referenceRel.getSubtree())))
+        .build();
+  }
+
   private List<ConsistentPartitionWindowRel.WindowRelFunction> toProtoWindowRelFunctions(
       Collection<ConsistentPartitionWindow.WindowRelFunctionInvocation>
           windowRelFunctionInvocations) {
@@ -450,6 +482,7 @@ public class RelProtoConverter implements RelVisitor<Rel, RuntimeException> {
             .setBaseSchema(virtualTableScan.getInitialSchema().toProto(typeProtoConverter));
 
     virtualTableScan.getFilter().ifPresent(f -> builder.setFilter(toProto(f)));
+    virtualTableScan.getProjection().ifPresent(p -> builder.setProjection(p.toProto()));
 
     virtualTableScan.getExtension().ifPresent(ae -> builder.setAdvancedExtension(ae.toProto()));
     return Rel.newBuilder().setRead(builder).build();
@@ -46,4 +46,13 @@ public interface RelVisitor<OUTPUT, EXCEPTION extends Exception> {
   OUTPUT visit(NestedLoopJoin nestedLoopJoin) throws EXCEPTION;
 
   OUTPUT visit(ConsistentPartitionWindow consistentPartitionWindow) throws EXCEPTION;
+
+  /**
+   * Visits a relation shared through a {@link ReferenceRel}. Throws by default, as visitors written
+   * before relations could be shared do not expect them.
+   */
+  default OUTPUT visit(ReferenceRel referenceRel) throws EXCEPTION {
+    throw new UnsupportedOperationException(
+        getClass().getName() + " does not support ReferenceRel");
+  }
 }
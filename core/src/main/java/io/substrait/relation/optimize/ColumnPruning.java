@@ -0,0 +1,500 @@
+package io.substrait.relation.optimize;
+
+import io.substrait.expression.AggregateFunctionInvocation;
+import io.substrait.expression.Expression;
+import io.substrait.expression.FunctionArg;
+import io.substrait.expression.MaskExpression;
+import io.substrait.plan.ImmutablePlan;
+import io.substrait.plan.ImmutableRoot;
+import io.substrait.plan.Plan;
+import io.substrait.relation.AbstractReadRel;
+import io.substrait.relation.Aggregate;
+import io.substrait.relation.ExtensionTable;
+import io.substrait.relation.Fetch;
+import io.substrait.relation.Filter;
+import io.substrait.relation.Join;
+import io.substrait.relation.LocalFiles;
+import io.substrait.relation.NamedScan;
+import io.substrait.relation.Project;
+import io.substrait.relation.Rel;
+import io.substrait.relation.RelCopyOnWriteVisitor;
+import io.substrait.relation.Sort;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Removes the fields of a plan that are not needed to compute its output.
+ *
+ * <p>The set of used fields is computed top-down through {@link Project}, {@link Filter}, {@link
+ * Aggregate}, {@link Join}, {@link Sort} and {@link Fetch}. Unused projected expressions and
+ * measures are dropped, relations emit only the fields used by their parent (through their remap),
+ * and the remaining fields of {@link NamedScan}, {@link LocalFiles} and {@link ExtensionTable}
+ * reads are selected with a {@link MaskExpression} projection. Field references are rewritten to
+ * the new field positions.
+ *
+ * <p>Other relations are treated as using all the fields of their inputs. Expressions containing
+ * subqueries also use all the fields of their input, as the subquery may refer to them through
+ * outer references.
+ */
+public class ColumnPruning extends RelCopyOnWriteVisitor<RuntimeException> {
+
+  /** A pruned relation and, for each field of the original relation, its new index or -1. */
+  private static final class Pruned {
+    final Rel rel;
+    final int[] mapping;
+
+    Pruned(Rel rel, int[] mapping) {
+      this.rel = rel;
+      this.mapping = mapping;
+    }
+  }
+
+  public Rel apply(Rel rel) {
+    return prune(rel, allFields(rel)).rel;
+  }
+
+  public Plan apply(Plan plan) {
+    return ImmutablePlan.builder()
+        .from(plan)
+        .roots(
+            plan.getRoots().stream()
+                .map(r -> ImmutableRoot.builder().from(r).input(apply(r.getInput())).build())
+                .collect(Collectors.toList()))
+        .build();
+  }
+
+  // relations reached through the default traversal must keep all of their fields
+
+  @Override
+  public Optional<Rel> visit(Project project) {
+    return pruned(project);
+  }
+
+  @Override
+  public Optional<Rel> visit(Filter filter) {
+    return pruned(filter);
+  }
+
+  @Override
+  public Optional<Rel> visit(Aggregate aggregate) {
+    return pruned(aggregate);
+  }
+
+  @Override
+  public Optional<Rel> visit(Join join) {
+    return pruned(join);
+  }
+
+  @Override
+  public Optional<Rel> visit(Sort sort) {
+    return pruned(sort);
+  }
+
+  @Override
+  public Optional<Rel> visit(Fetch fetch) {
+    return pruned(fetch);
+  }
+
+  private Optional<Rel> pruned(Rel rel) {
+    Rel pruned = apply(rel);
+    return pruned.equals(rel) ? Optional.empty() : Optional.of(pruned);
+  }
+
+  private static boolean isPrunable(Rel rel) {
+    return rel instanceof Project
+        || rel instanceof Filter
+        || rel instanceof Aggregate
+        || rel instanceof Join
+        || rel instanceof Sort
+        || rel instanceof Fetch
+        || rel instanceof NamedScan
+        || rel instanceof LocalFiles
+        || rel instanceof ExtensionTable;
+  }
+
+  /**
+   * Prunes a relation such that it outputs exactly the required fields, in their original order.
+   */
+  private Pruned prune(Rel rel, SortedSet<Integer> required) {
+    int fieldCount = rel.getRecordType().fields().size();
+    if (!isPrunable(rel)) {
+      return new Pruned(rel.accept(this).orElse(rel), identity(fieldCount));
+    }
+
+    List<Integer> remap = rel.getRemap().map(Rel.Remap::indices).orElse(null);
+    SortedSet<Integer> bodyRequired =
+        remap == null
+            ? required
+            : required.stream().map(remap::get).collect(Collectors.toCollection(TreeSet::new));
+    Pruned body = pruneBody(rel, bodyRequired);
+
+    List<Integer> indices = new ArrayList<>(required.size());
+    int[] mapping = unmapped(fieldCount);
+    for (int i : required) {
+      mapping[i] = indices.size();
+      indices.add(body.mapping[remap == null ? i : remap.get(i)]);
+    }
+    int bodyFieldCount = body.rel.getRecordType().fields().size();
+    boolean isIdentity =
+        indices.size() == bodyFieldCount
+            && IntStream.range(0, bodyFieldCount).allMatch(i -> indices.get(i) == i);
+    return new Pruned(
+        isIdentity ? body.rel : withRemap(body.rel, Rel.Remap.of(indices)), mapping);
+  }
+
+  /**
+   * Prunes a relation, ignoring its remap, such that its output includes the required fields.
+   *
+   * @return the relation without remap and the mapping for the fields before the original remap
+   */
+  private Pruned pruneBody(Rel rel, SortedSet<Integer> required) {
+    if (rel instanceof AbstractReadRel) {
+      return pruneRead((AbstractReadRel) rel, required);
+    }
+    if (rel instanceof Filter) {
+      var filter = (Filter) rel;
+      Pruned input =
+          pruneInput(filter.getInput(), required, Arrays.asList(filter.getCondition()));
+      return new Pruned(
+          Filter.builder()
+              .from(filter)
+              .input(input.rel)
+              .condition(reindex(filter.getCondition(), input))
+              .remap(Optional.empty())
+              .build(),
+          input.mapping);
+    }
+    if (rel instanceof Sort) {
+      var sort = (Sort) rel;
+      Pruned input =
+          pruneInput(
+              sort.getInput(),
+              required,
+              sort.getSortFields().stream()
+                  .map(Expression.SortField::expr)
+                  .collect(Collectors.toList()));
+      return new Pruned(
+          Sort.builder()
+              .from(sort)
+              .input(input.rel)
+              .sortFields(
+                  sort.getSortFields().stream()
+                      .map(
+                          f ->
+                              Expression.SortField.builder()
+                                  .from(f)
+                                  .expr(reindex(f.expr(), input))
+                                  .build())
+                      .collect(Collectors.toList()))
+              .remap(Optional.empty())
+              .build(),
+          input.mapping);
+    }
+    if (rel instanceof Fetch) {
+      var fetch = (Fetch) rel;
+      Pruned input = prune(fetch.getInput(), required);
+      return new Pruned(
+          Fetch.builder().from(fetch).input(input.rel).remap(Optional.empty()).build(),
+          input.mapping);
+    }
+    if (rel instanceof Project) {
+      return pruneProject((Project) rel, required);
+    }
+    if (rel instanceof Aggregate) {
+      return pruneAggregate((Aggregate) rel, required);
+    }
+    if (rel instanceof Join) {
+      return pruneJoin((Join) rel, required);
+    }
+    throw new IllegalStateException("Unexpected relation: " + rel);
+  }
+
+  private Pruned pruneRead(AbstractReadRel read, SortedSet<Integer> required) {
+    List<MaskExpression.StructItem> items =
+        read.getProjection()
+            .map(p -> p.getSelect().getStructItems())
+            .orElseGet(
+                () ->
+                    IntStream.range(0, read.getInitialSchema().struct().fields().size())
+                        .mapToObj(MaskExpression.StructItem::of)
+                        .collect(Collectors.toList()));
+    if (required.size() == items.size() || items.isEmpty()) {
+      return new Pruned(withoutRemap(read), identity(items.size()));
+    }
+
+    // keep a field to not depend on how consumers handle an empty selection
+    SortedSet<Integer> kept = required.isEmpty() ? new TreeSet<>(Arrays.asList(0)) : required;
+    int[] mapping = unmapped(items.size());
+    List<MaskExpression.StructItem> keptItems = new ArrayList<>();
+    for (int i : kept) {
+      mapping[i] = keptItems.size();
+      keptItems.add(items.get(i));
+    }
+    MaskExpression projection =
+        MaskExpression.builder()
+            .select(MaskExpression.StructSelect.builder().addAllStructItems(keptItems).build())
+            // the read must still output a struct when a single field is kept
+            .maintainSingularStruct(true)
+            .build();
+
+    Rel pruned;
+    if (read instanceof NamedScan) {
+      pruned =
+          NamedScan.builder()
+              .from((NamedScan) read)
+              .projection(projection)
+              .remap(Optional.empty())
+              .build();
+    } else if (read instanceof LocalFiles) {
+      pruned =
+          LocalFiles.builder()
+              .from((LocalFiles) read)
+              .projection(projection)
+              .remap(Optional.empty())
+              .build();
+    } else {
+      pruned =
+          ExtensionTable.builder()
+              .from((ExtensionTable) read)
+              .projection(projection)
+              .remap(Optional.empty())
+              .build();
+    }
+    return new Pruned(pruned, mapping);
+  }
+
+  private Pruned pruneProject(Project project, SortedSet<Integer> required) {
+    int inputFieldCount = project.getInput().getRecordType().fields().size();
+    List<Integer> keptExpressions =
+        required.stream()
+            .filter(i -> i >= inputFieldCount)
+            .map(i -> i - inputFieldCount)
+            .collect(Collectors.toList());
+    List<Expression> expressions =
+        keptExpressions.stream().map(project.getExpressions()::get).collect(Collectors.toList());
+
+    SortedSet<Integer> inputRequired =
+        required.stream()
+            .filter(i -> i < inputFieldCount)
+            .collect(Collectors.toCollection(TreeSet::new));
+    Pruned input = pruneInput(project.getInput(), inputRequired, expressions);
+    int newInputFieldCount = input.rel.getRecordType().fields().size();
+
+    int[] mapping = unmapped(inputFieldCount + project.getExpressions().size());
+    System.arraycopy(input.mapping, 0, mapping, 0, inputFieldCount);
+    for (int k = 0; k < keptExpressions.size(); k++) {
+      mapping[inputFieldCount + keptExpressions.get(k)] = newInputFieldCount + k;
+    }
+    return new Pruned(
+        Project.builder()
+            .from(project)
+            .input(input.rel)
+            .expressions(
+                expressions.stream().map(e -> reindex(e, input)).collect(Collectors.toList()))
+            .remap(Optional.empty())
+            .build(),
+        mapping);
+  }
+
+  private Pruned pruneAggregate(Aggregate aggregate, SortedSet<Integer> required) {
+    int groupingFieldCount =
+        aggregate.getGroupings().stream()
+            .flatMap(g -> g.getExpressions().stream())
+            .collect(Collectors.toSet())
+            .size();
+    List<Aggregate.Measure> measures = new ArrayList<>();
+    int[] mapping = unmapped(groupingFieldCount + aggregate.getMeasures().size());
+    for (int i = 0; i < groupingFieldCount; i++) {
+      mapping[i] = i;
+    }
+    for (int i : required) {
+      if (i >= groupingFieldCount) {
+        mapping[i] = groupingFieldCount + measures.size();
+        measures.add(aggregate.getMeasures().get(i - groupingFieldCount));
+      }
+    }
+
+    List<Expression> used = new ArrayList<>();
+    aggregate.getGroupings().forEach(g -> used.addAll(g.getExpressions()));
+    for (Aggregate.Measure measure : measures) {
+      used.addAll(expressions(measure.getFunction().arguments()));
+      measure.getFunction().sort().forEach(s -> used.add(s.expr()));
+      measure.getPreMeasureFilter().ifPresent(used::add);
+    }
+    Pruned input = pruneInput(aggregate.getInput(), new TreeSet<>(), used);
+
+    return new Pruned(
+        Aggregate.builder()
+            .from(aggregate)
+            .input(input.rel)
+            .groupings(
+                aggregate.getGroupings().stream()
+                    .map(
+                        g ->
+                            Aggregate.Grouping.builder()
+                                .from(g)
+                                .expressions(
+                                    g.getExpressions().stream()
+                                        .map(e -> reindex(e, input))
+                                        .collect(Collectors.toList()))
+                                .build())
+                    .collect(Collectors.toList()))
+            .measures(
+                measures.stream().map(m -> reindex(m, input)).collect(Collectors.toList()))
+            .remap(Optional.empty())
+            .build(),
+        mapping);
+  }
+
+  private Pruned pruneJoin(Join join, SortedSet<Integer> required) {
+    int leftFieldCount = join.getLeft().getRecordType().fields().size();
+    int rightFieldCount = join.getRight().getRecordType().fields().size();
+    List<Expression> conditions = new ArrayList<>();
+    join.getCondition().ifPresent(conditions::add);
+    join.getPostJoinFilter().ifPresent(conditions::add);
+
+    SortedSet<Integer> used = used(required, conditions, leftFieldCount + rightFieldCount);
+    Pruned left = prune(join.getLeft(), used.headSet(leftFieldCount));
+    Pruned right =
+        prune(
+            join.getRight(),
+            used.tailSet(leftFieldCount).stream()
+                .map(i -> i - leftFieldCount)
+                .collect(Collectors.toCollection(TreeSet::new)));
+
+    int newLeftFieldCount = left.rel.getRecordType().fields().size();
+    int[] mapping = unmapped(leftFieldCount + rightFieldCount);
+    for (int i = 0; i < mapping.length; i++) {
+      if (i < leftFieldCount) {
+        mapping[i] = left.mapping[i];
+      } else if (right.mapping[i - leftFieldCount] >= 0) {
+        mapping[i] = newLeftFieldCount + right.mapping[i - leftFieldCount];
+      }
+    }
+    return new Pruned(
+        Join.builder()
+            .from(join)
+            .left(left.rel)
+            .right(right.rel)
+            .condition(join.getCondition().map(c -> ExpressionFields.reindex(c, i -> mapping[i])))
+            .postJoinFilter(
+                join.getPostJoinFilter().map(f -> ExpressionFields.reindex(f, i -> mapping[i])))
+            .remap(Optional.empty())
+            .build(),
+        mapping);
+  }
+
+  /** Prunes the input of a relation to the required fields and those used by its expressions. */
+  private Pruned pruneInput(
+      Rel input, SortedSet<Integer> required, Collection<Expression> expressions) {
+    return prune(input, used(required, expressions, input.getRecordType().fields().size()));
+  }
+
+  private static SortedSet<Integer> used(
+      SortedSet<Integer> required, Collection<Expression> expressions, int fieldCount) {
+    SortedSet<Integer> used = new TreeSet<>(required);
+    for (Expression expression : expressions) {
+      if (!ExpressionFields.isDeterministic(expression)) {
+        return allFields(fieldCount);
+      }
+      used.addAll(ExpressionFields.rootReferences(expression));
+    }
+    return used;
+  }
+
+  private static Expression reindex(Expression expression, Pruned input) {
+    return ExpressionFields.reindex(expression, i -> input.mapping[i]);
+  }
+
+  private static Aggregate.Measure reindex(Aggregate.Measure measure, Pruned input) {
+    AggregateFunctionInvocation function = measure.getFunction();
+    return Aggregate.Measure.builder()
+        .from(measure)
+        .function(
+            AggregateFunctionInvocation.builder()
+                .from(function)
+                .arguments(
+                    function.arguments().stream()
+                        .map(a -> a instanceof Expression ? reindex((Expression) a, input) : a)
+                        .collect(Collectors.toList()))
+                .sort(
+                    function.sort().stream()
+                        .map(
+                            s ->
+                                Expression.SortField.builder()
+                                    .from(s)
+                                    .expr(reindex(s.expr(), input))
+                                    .build())
+                        .collect(Collectors.toList()))
+                .build())
+        .preMeasureFilter(measure.getPreMeasureFilter().map(f -> reindex(f, input)))
+        .build();
+  }
+
+  private static List<Expression> expressions(List<FunctionArg> arguments) {
+    return arguments.stream()
+        .filter(a -> a instanceof Expression)
+        .map(a -> (Expression) a)
+        .collect(Collectors.toList());
+  }
+
+  private static Rel withoutRemap(AbstractReadRel read) {
+    if (!read.getRemap().isPresent()) {
+      return read;
+    }
+    if (read instanceof NamedScan) {
+      return NamedScan.builder().from((NamedScan) read).remap(Optional.empty()).build();
+    } else if (read instanceof LocalFiles) {
+      return LocalFiles.builder().from((LocalFiles) read).remap(Optional.empty()).build();
+    }
+    return ExtensionTable.builder().from((ExtensionTable) read).remap(Optional.empty()).build();
+  }
+
+  private static Rel withRemap(Rel rel, Rel.Remap remap) {
+    if (rel instanceof Project) {
+      return Project.builder().from((Project) rel).remap(remap).build();
+    } else if (rel instanceof Filter) {
+      return Filter.builder().from((Filter) rel).remap(remap).build();
+    } else if (rel instanceof Aggregate) {
+      return Aggregate.builder().from((Aggregate) rel).remap(remap).build();
+    } else if (rel instanceof Join) {
+      return Join.builder().from((Join) rel).remap(remap).build();
+    } else if (rel instanceof Sort) {
+      return Sort.builder().from((Sort) rel).remap(remap).build();
+    } else if (rel instanceof Fetch) {
+      return Fetch.builder().from((Fetch) rel).remap(remap).build();
+    } else if (rel instanceof NamedScan) {
+      return NamedScan.builder().from((NamedScan) rel).remap(remap).build();
+    } else if (rel instanceof LocalFiles) {
+      return LocalFiles.builder().from((LocalFiles) rel).remap(remap).build();
+    } else if (rel instanceof ExtensionTable) {
+      return ExtensionTable.builder().from((ExtensionTable) rel).remap(remap).build();
+    }
+    throw new IllegalStateException("Unexpected relation: " + rel);
+  }
+
+  private static SortedSet<Integer> allFields(Rel rel) {
+    return allFields(rel.getRecordType().fields().size());
+  }
+
+  private static SortedSet<Integer> allFields(int fieldCount) {
+    return IntStream.range(0, fieldCount).boxed().collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  private static int[] identity(int fieldCount) {
+    return IntStream.range(0, fieldCount).toArray();
+  }
+
+  private static int[] unmapped(int fieldCount) {
+    int[] mapping = new int[fieldCount];
+    Arrays.fill(mapping, -1);
+    return mapping;
+  }
+}
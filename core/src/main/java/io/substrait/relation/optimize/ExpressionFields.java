@@ -0,0 +1,255 @@
+package io.substrait.relation.optimize;
+
+import io.substrait.expression.Expression;
+import io.substrait.expression.FieldReference;
+import io.substrait.relation.ExpressionCopyOnWriteVisitor;
+import io.substrait.relation.RelCopyOnWriteVisitor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Utilities for inspecting and rewriting the references an expression makes to the fields of its
+ * input relation.
+ *
+ * <p>Only references to the immediate input are considered. Outer references and the bodies of
+ * subqueries refer to other relations and are left untouched.
+ */
+public final class ExpressionFields {
+
+  /** Names of functions whose result may differ between invocations with the same arguments. */
+  private static final Set<String> NONDETERMINISTIC_FUNCTIONS =
+      new HashSet<>(Arrays.asList("random", "rand", "uuid"));
+
+  private ExpressionFields() {}
+
+  /**
+   * Returns the indices of the input fields referenced by the given expression.
+   *
+   * @param expression the expression to inspect
+   * @return the referenced field indices in ascending order
+   */
+  public static Set<Integer> rootReferences(Expression expression) {
+    Set<Integer> references = new TreeSet<>();
+    expression.accept(
+        new RootReferenceVisitor(
+            index -> {
+              references.add(index);
+              return null;
+            }));
+    return references;
+  }
+
+  /**
+   * Replaces every reference to an input field with the expression returned by the mapping.
+   * References into nested fields are rebuilt on top of the replacement.
+   *
+   * @param expression the expression to rewrite
+   * @param mapping the replacement for each referenced input field index
+   * @return the rewritten expression
+   */
+  public static Expression remap(Expression expression, IntFunction<Expression> mapping) {
+    return expression.accept(new RootReferenceVisitor(mapping)).orElse(expression);
+  }
+
+  /**
+   * Moves every reference to an input field to the index returned by the mapping, keeping the
+   * referenced type.
+   *
+   * @param expression the expression to rewrite
+   * @param mapping the new index of each referenced input field
+   * @return the rewritten expression
+   */
+  public static Expression reindex(Expression expression, IntUnaryOperator mapping) {
+    return expression.accept(new ReindexVisitor(mapping)).orElse(expression);
+  }
+
+  /**
+   * Returns whether the expression can be evaluated at a different position in the plan without
+   * changing its result. Expressions containing subqueries, outer references, window functions or
+   * known nondeterministic functions are not relocatable.
+   */
+  public static boolean isDeterministic(Expression expression) {
+    DeterminismVisitor visitor = new DeterminismVisitor();
+    expression.accept(visitor);
+    return visitor.deterministic;
+  }
+
+  /**
+   * Splits an expression into the operands of its top-level {@code and} calls.
+   *
+   * @param expression a boolean expression
+   * @return the conjuncts of the expression
+   */
+  public static List<Expression> conjuncts(Expression expression) {
+    List<Expression> conjuncts = new ArrayList<>();
+    addConjuncts(expression, conjuncts);
+    return conjuncts;
+  }
+
+  private static void addConjuncts(Expression expression, List<Expression> conjuncts) {
+    if (expression instanceof Expression.ScalarFunctionInvocation) {
+      var invocation = (Expression.ScalarFunctionInvocation) expression;
+      if (invocation.declaration().name().equals("and")
+          && invocation.arguments().stream().allMatch(a -> a instanceof Expression)) {
+        invocation.arguments().forEach(a -> addConjuncts((Expression) a, conjuncts));
+        return;
+      }
+    }
+    conjuncts.add(expression);
+  }
+
+  private static class RootReferenceVisitor extends ExpressionCopyOnWriteVisitor<RuntimeException> {
+    private final IntFunction<Expression> mapping;
+
+    RootReferenceVisitor(IntFunction<Expression> mapping) {
+      super(new RelCopyOnWriteVisitor<>());
+      this.mapping = mapping;
+    }
+
+    @Override
+    public Optional<Expression> visit(FieldReference fieldReference) {
+      if (fieldReference.outerReferenceStepsOut().isPresent()) {
+        return Optional.empty();
+      }
+      if (fieldReference.inputExpression().isPresent()) {
+        return fieldReference
+            .inputExpression()
+            .get()
+            .accept(this)
+            .map(
+                input ->
+                    FieldReference.builder().from(fieldReference).inputExpression(input).build());
+      }
+
+      // segments are ordered from the innermost dereference to the root field
+      List<FieldReference.ReferenceSegment> segments = fieldReference.segments();
+      var root = segments.get(segments.size() - 1);
+      if (!(root instanceof FieldReference.StructField)) {
+        return Optional.empty();
+      }
+      Expression replacement = mapping.apply(((FieldReference.StructField) root).offset());
+      if (replacement == null) {
+        return Optional.empty();
+      }
+      if (segments.size() == 1) {
+        return Optional.of(replacement);
+      }
+
+      List<FieldReference.ReferenceSegment> nested = segments.subList(0, segments.size() - 1);
+      if (replacement instanceof FieldReference
+          && !((FieldReference) replacement).inputExpression().isPresent()
+          && !((FieldReference) replacement).outerReferenceStepsOut().isPresent()) {
+        return Optional.of(
+            FieldReference.builder()
+                .from(fieldReference)
+                .segments(nested)
+                .addAllSegments(((FieldReference) replacement).segments())
+                .build());
+      }
+      return Optional.of(
+          FieldReference.builder()
+              .from(fieldReference)
+              .segments(nested)
+              .inputExpression(replacement)
+              .build());
+    }
+  }
+
+  private static class ReindexVisitor extends ExpressionCopyOnWriteVisitor<RuntimeException> {
+    private final IntUnaryOperator mapping;
+
+    ReindexVisitor(IntUnaryOperator mapping) {
+      super(new RelCopyOnWriteVisitor<>());
+      this.mapping = mapping;
+    }
+
+    @Override
+    public Optional<Expression> visit(FieldReference fieldReference) {
+      if (fieldReference.outerReferenceStepsOut().isPresent()) {
+        return Optional.empty();
+      }
+      if (fieldReference.inputExpression().isPresent()) {
+        return fieldReference
+            .inputExpression()
+            .get()
+            .accept(this)
+            .map(
+                input ->
+                    FieldReference.builder().from(fieldReference).inputExpression(input).build());
+      }
+
+      List<FieldReference.ReferenceSegment> segments = fieldReference.segments();
+      var root = segments.get(segments.size() - 1);
+      if (!(root instanceof FieldReference.StructField)) {
+        return Optional.empty();
+      }
+      int offset = ((FieldReference.StructField) root).offset();
+      int newOffset = mapping.applyAsInt(offset);
+      if (newOffset == offset) {
+        return Optional.empty();
+      }
+      return Optional.of(
+          FieldReference.builder()
+              .from(fieldReference)
+              .segments(segments.subList(0, segments.size() - 1))
+              .addSegments(FieldReference.StructField.of(newOffset))
+              .build());
+    }
+  }
+
+  private static class DeterminismVisitor extends ExpressionCopyOnWriteVisitor<RuntimeException> {
+    private boolean deterministic = true;
+
+    DeterminismVisitor() {
+      super(new RelCopyOnWriteVisitor<>());
+    }
+
+    @Override
+    public Optional<Expression> visit(FieldReference fieldReference) {
+      if (fieldReference.outerReferenceStepsOut().isPresent()) {
+        deterministic = false;
+        return Optional.empty();
+      }
+      return super.visit(fieldReference);
+    }
+
+    @Override
+    public Optional<Expression> visit(Expression.ScalarFunctionInvocation sfi) {
+      if (NONDETERMINISTIC_FUNCTIONS.contains(sfi.declaration().name())) {
+        deterministic = false;
+      }
+      return super.visit(sfi);
+    }
+
+    @Override
+    public Optional<Expression> visit(Expression.WindowFunctionInvocation wfi) {
+      deterministic = false;
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<Expression> visit(Expression.ScalarSubquery scalarSubquery) {
+      deterministic = false;
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<Expression> visit(Expression.InPredicate inPredicate) {
+      deterministic = false;
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<Expression> visit(Expression.SetPredicate setPredicate) {
+      deterministic = false;
+      return Optional.empty();
+    }
+  }
+}
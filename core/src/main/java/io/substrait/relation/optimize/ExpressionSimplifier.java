@@ -0,0 +1,532 @@
+package io.substrait.relation.optimize;
+
+import io.substrait.expression.Expression;
+import io.substrait.expression.ExpressionCreator;
+import io.substrait.expression.FunctionArg;
+import io.substrait.extension.DefaultExtensionCatalog;
+import io.substrait.extension.SimpleExtension;
+import io.substrait.plan.ImmutablePlan;
+import io.substrait.plan.ImmutableRoot;
+import io.substrait.plan.Plan;
+import io.substrait.relation.ExpressionCopyOnWriteVisitor;
+import io.substrait.relation.Rel;
+import io.substrait.relation.RelCopyOnWriteVisitor;
+import io.substrait.type.Type;
+import io.substrait.type.TypeCreator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Simplifies expressions without changing their results.
+ *
+ * <ul>
+ *   <li>Arithmetic, comparison and boolean functions of the default extension catalog are
+ *       evaluated when all their arguments are literals.
+ *   <li>{@code and}, {@code or} and {@code not} are simplified using the boolean literals among
+ *       their arguments.
+ *   <li>Functions of these extensions returning null whenever an argument is null (those with
+ *       {@code MIRROR} nullability) and without options are replaced by a null literal if one of
+ *       their arguments is a null literal.
+ *   <li>Null literals are removed from {@code coalesce}, nested {@code coalesce} calls are
+ *       flattened and arguments following a non-nullable one are dropped.
+ *   <li>Casts of literals between integer, floating point and string types are evaluated.
+ *   <li>{@link Expression.IfThen} and {@link Expression.Switch} expressions with literal
+ *       conditions are reduced to the taken branch.
+ * </ul>
+ *
+ * <p>Folding is skipped whenever the result could depend on the consumer, such as on integer
+ * overflow, division by zero or floating point functions with options.
+ */
+public class ExpressionSimplifier extends ExpressionCopyOnWriteVisitor<RuntimeException> {
+
+  private static final Set<String> FOLDABLE_URIS =
+      new HashSet<>(
+          Arrays.asList(
+              DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC,
+              DefaultExtensionCatalog.FUNCTIONS_BOOLEAN,
+              DefaultExtensionCatalog.FUNCTIONS_COMPARISON));
+
+  /** Functions with mirror nullability that may return a non-null result for null arguments. */
+  private static final Set<String> NULL_TOLERANT_FUNCTIONS =
+      new HashSet<>(
+          Arrays.asList(
+              "and",
+              "or",
+              "and_not",
+              "coalesce",
+              "nullif",
+              "is_null",
+              "is_not_null",
+              "is_distinct_from",
+              "is_not_distinct_from"));
+
+  private static final Pattern INTEGER = Pattern.compile("[+-]?[0-9]+");
+
+  public ExpressionSimplifier() {
+    super(new RelCopyOnWriteVisitor<>());
+  }
+
+  public ExpressionSimplifier(RelCopyOnWriteVisitor<RuntimeException> relCopyOnWriteVisitor) {
+    super(relCopyOnWriteVisitor);
+  }
+
+  public Expression simplify(Expression expression) {
+    return expression.accept(this).orElse(expression);
+  }
+
+  /** Simplifies all the expressions of a relation tree, including those of subqueries. */
+  public Rel apply(Rel rel) {
+    return rel.accept(new RelCopyOnWriteVisitor<RuntimeException>(ExpressionSimplifier::new))
+        .orElse(rel);
+  }
+
+  public Plan apply(Plan plan) {
+    return ImmutablePlan.builder()
+        .from(plan)
+        .roots(
+            plan.getRoots().stream()
+                .map(r -> ImmutableRoot.builder().from(r).input(apply(r.getInput())).build())
+                .collect(Collectors.toList()))
+        .build();
+  }
+
+  @Override
+  public Optional<Expression> visit(Expression.ScalarFunctionInvocation sfi) {
+    Optional<Expression> visited = super.visit(sfi);
+    Expression current = visited.orElse(sfi);
+    if (!(current instanceof Expression.ScalarFunctionInvocation)) {
+      return visited;
+    }
+    return or(simplifyFunction((Expression.ScalarFunctionInvocation) current), visited);
+  }
+
+  @Override
+  public Optional<Expression> visit(Expression.Cast cast) {
+    Optional<Expression> visited = super.visit(cast);
+    Expression.Cast current = (Expression.Cast) visited.orElse(cast);
+    return or(foldCast(current.input(), current.getType()), visited);
+  }
+
+  @Override
+  public Optional<Expression> visit(Expression.IfThen ifThen) {
+    Optional<Expression> visited = super.visit(ifThen);
+    Expression.IfThen current = (Expression.IfThen) visited.orElse(ifThen);
+
+    List<Expression.IfClause> clauses = new ArrayList<>();
+    for (Expression.IfClause clause : current.ifClauses()) {
+      Expression condition = clause.condition();
+      if (isBool(condition, true)) {
+        if (clauses.isEmpty()) {
+          return Optional.of(clause.then());
+        }
+        return Optional.of(
+            Expression.IfThen.builder().ifClauses(clauses).elseClause(clause.then()).build());
+      }
+      if (!isBool(condition, false) && !(condition instanceof Expression.NullLiteral)) {
+        clauses.add(clause);
+      }
+    }
+    if (clauses.isEmpty()) {
+      return Optional.of(current.elseClause());
+    }
+    if (clauses.size() == current.ifClauses().size()) {
+      return visited;
+    }
+    return Optional.of(Expression.IfThen.builder().from(current).ifClauses(clauses).build());
+  }
+
+  @Override
+  public Optional<Expression> visit(Expression.Switch expr) {
+    Optional<Expression> visited = super.visit(expr);
+    Expression.Switch current = (Expression.Switch) visited.orElse(expr);
+    if (current.match() instanceof Expression.NullLiteral) {
+      return Optional.of(current.defaultClause());
+    }
+    Object match = value(current.match());
+    if (match == null) {
+      return visited;
+    }
+    for (Expression.SwitchClause clause : current.switchClauses()) {
+      Object condition = value(clause.condition());
+      if (condition == null) {
+        return visited;
+      }
+      if (match instanceof Double && condition instanceof Double) {
+        // primitive comparison as for equal, so that -0.0 matches 0.0; NaN is left as it is
+        double a = (Double) match;
+        double b = (Double) condition;
+        if (Double.isNaN(a) || Double.isNaN(b)) {
+          return visited;
+        }
+        if (a == b) {
+          return Optional.of(clause.then());
+        }
+      } else if (match.equals(condition)) {
+        return Optional.of(clause.then());
+      }
+    }
+    return Optional.of(current.defaultClause());
+  }
+
+  private Optional<Expression> simplifyFunction(Expression.ScalarFunctionInvocation sfi) {
+    if (!sfi.arguments().stream().allMatch(a -> a instanceof Expression)) {
+      return Optional.empty();
+    }
+    List<Expression> arguments =
+        sfi.arguments().stream().map(a -> (Expression) a).collect(Collectors.toList());
+    SimpleExtension.ScalarFunctionVariant declaration = sfi.declaration();
+    String name = declaration.name();
+    boolean nullable = sfi.getType().nullable();
+
+    if (declaration.uri().equals(DefaultExtensionCatalog.FUNCTIONS_BOOLEAN)) {
+      if (name.equals("and") || name.equals("or")) {
+        return simplifyJunction(sfi, arguments, name.equals("or"));
+      }
+      if (name.equals("not") && arguments.size() == 1) {
+        Expression argument = arguments.get(0);
+        if (argument instanceof Expression.BoolLiteral) {
+          return Optional.of(
+              ExpressionCreator.bool(nullable, !((Expression.BoolLiteral) argument).value()));
+        }
+        if (isCall(argument, DefaultExtensionCatalog.FUNCTIONS_BOOLEAN, "not")) {
+          return Optional.of(
+              (Expression) ((Expression.ScalarFunctionInvocation) argument).arguments().get(0));
+        }
+      }
+    }
+    if (name.equals("coalesce")
+        && declaration.uri().equals(DefaultExtensionCatalog.FUNCTIONS_COMPARISON)) {
+      return simplifyCoalesce(sfi, arguments);
+    }
+    if ((name.equals("is_null") || name.equals("is_not_null"))
+        && declaration.uri().equals(DefaultExtensionCatalog.FUNCTIONS_COMPARISON)
+        && arguments.size() == 1
+        && arguments.get(0) instanceof Expression.Literal) {
+      boolean isNull = arguments.get(0) instanceof Expression.NullLiteral;
+      return Optional.of(ExpressionCreator.bool(nullable, isNull == name.equals("is_null")));
+    }
+
+    if (!FOLDABLE_URIS.contains(declaration.uri())) {
+      return Optional.empty();
+    }
+    if (declaration.nullability() == SimpleExtension.Nullability.MIRROR
+        && !NULL_TOLERANT_FUNCTIONS.contains(name)
+        && sfi.options().isEmpty()
+        && arguments.stream().anyMatch(a -> a instanceof Expression.NullLiteral)) {
+      return Optional.of(ExpressionCreator.typedNull(TypeCreator.asNullable(sfi.getType())));
+    }
+    List<Object> values = new ArrayList<>();
+    for (Expression argument : arguments) {
+      Object value = value(argument);
+      if (value == null) {
+        return Optional.empty();
+      }
+      values.add(value);
+    }
+    return fold(name, values, sfi.getType(), !sfi.options().isEmpty());
+  }
+
+  /** Simplifies {@code and} (when {@code or} is false) and {@code or} calls. */
+  private static Optional<Expression> simplifyJunction(
+      Expression.ScalarFunctionInvocation sfi, List<Expression> arguments, boolean or) {
+    // true for and, false for or
+    boolean identity = !or;
+    List<Expression> remaining = new ArrayList<>();
+    for (Expression argument : arguments) {
+      if (isBool(argument, !identity)) {
+        return Optional.of(ExpressionCreator.bool(sfi.getType().nullable(), !identity));
+      }
+      if (!isBool(argument, identity)) {
+        remaining.add(argument);
+      }
+    }
+    if (remaining.isEmpty()) {
+      return Optional.of(ExpressionCreator.bool(sfi.getType().nullable(), identity));
+    }
+    if (remaining.size() == 1) {
+      return Optional.of(remaining.get(0));
+    }
+    if (remaining.size() == arguments.size()) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        Expression.ScalarFunctionInvocation.builder()
+            .from(sfi)
+            .arguments(new ArrayList<FunctionArg>(remaining))
+            .build());
+  }
+
+  private static Optional<Expression> simplifyCoalesce(
+      Expression.ScalarFunctionInvocation sfi, List<Expression> arguments) {
+    List<Expression> flattened = new ArrayList<>();
+    for (Expression argument : arguments) {
+      if (isCall(argument, sfi.declaration().uri(), "coalesce")
+          && ((Expression.ScalarFunctionInvocation) argument)
+              .arguments().stream().allMatch(a -> a instanceof Expression)) {
+        ((Expression.ScalarFunctionInvocation) argument)
+            .arguments()
+            .forEach(a -> flattened.add((Expression) a));
+      } else {
+        flattened.add(argument);
+      }
+    }
+
+    List<Expression> remaining = new ArrayList<>();
+    for (Expression argument : flattened) {
+      if (argument instanceof Expression.NullLiteral) {
+        continue;
+      }
+      remaining.add(argument);
+      if (!argument.getType().nullable()) {
+        // later arguments are never evaluated
+        break;
+      }
+    }
+    if (remaining.isEmpty()) {
+      return Optional.of(ExpressionCreator.typedNull(TypeCreator.asNullable(sfi.getType())));
+    }
+    if (remaining.size() == 1) {
+      return Optional.of(remaining.get(0));
+    }
+    if (remaining.equals(arguments)) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        Expression.ScalarFunctionInvocation.builder()
+            .from(sfi)
+            .arguments(new ArrayList<FunctionArg>(remaining))
+            .build());
+  }
+
+  private static Optional<Expression> fold(
+      String name, List<Object> values, Type outputType, boolean hasOptions) {
+    switch (name) {
+      case "add":
+      case "subtract":
+      case "multiply":
+      case "divide":
+      case "negate":
+        return foldArithmetic(name, values, outputType, hasOptions);
+      case "equal":
+      case "not_equal":
+      case "lt":
+      case "lte":
+      case "gt":
+      case "gte":
+        return foldComparison(name, values, outputType);
+      case "xor":
+        if (values.size() == 2 && values.stream().allMatch(v -> v instanceof Boolean)) {
+          return literal(outputType, !values.get(0).equals(values.get(1)));
+        }
+        return Optional.empty();
+      default:
+        return Optional.empty();
+    }
+  }
+
+  private static Optional<Expression> foldArithmetic(
+      String name, List<Object> values, Type outputType, boolean hasOptions) {
+    if (values.stream().allMatch(v -> v instanceof Long)) {
+      long a = (Long) values.get(0);
+      try {
+        if (name.equals("negate")) {
+          return values.size() == 1 ? literal(outputType, Math.negateExact(a)) : Optional.empty();
+        }
+        if (values.size() != 2) {
+          return Optional.empty();
+        }
+        long b = (Long) values.get(1);
+        switch (name) {
+          case "add":
+            return literal(outputType, Math.addExact(a, b));
+          case "subtract":
+            return literal(outputType, Math.subtractExact(a, b));
+          case "multiply":
+            return literal(outputType, Math.multiplyExact(a, b));
+          default:
+            if (b == 0 || (a == Long.MIN_VALUE && b == -1)) {
+              return Optional.empty();
+            }
+            return literal(outputType, a / b);
+        }
+      } catch (ArithmeticException e) {
+        // overflow handling is up to the consumer
+        return Optional.empty();
+      }
+    }
+
+    if (hasOptions || !values.stream().allMatch(v -> v instanceof Double)) {
+      return Optional.empty();
+    }
+    double a = (Double) values.get(0);
+    if (name.equals("negate")) {
+      return values.size() == 1 ? literal(outputType, -a) : Optional.empty();
+    }
+    if (values.size() != 2) {
+      return Optional.empty();
+    }
+    double b = (Double) values.get(1);
+    boolean single = outputType instanceof Type.FP32;
+    switch (name) {
+      case "add":
+        return literal(outputType, single ? (double) ((float) a + (float) b) : a + b);
+      case "subtract":
+        return literal(outputType, single ? (double) ((float) a - (float) b) : a - b);
+      case "multiply":
+        return literal(outputType, single ? (double) ((float) a * (float) b) : a * b);
+      default:
+        if (b == 0) {
+          return Optional.empty();
+        }
+        return literal(outputType, single ? (double) ((float) a / (float) b) : a / b);
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Optional<Expression> foldComparison(
+      String name, List<Object> values, Type outputType) {
+    if (values.size() != 2 || !values.get(0).getClass().equals(values.get(1).getClass())) {
+      return Optional.empty();
+    }
+    if (values.get(0) instanceof Double) {
+      // primitive comparisons, so that -0.0 equals 0.0; comparisons with NaN are left as they are
+      double a = (Double) values.get(0);
+      double b = (Double) values.get(1);
+      if (Double.isNaN(a) || Double.isNaN(b)) {
+        return Optional.empty();
+      }
+      return literal(outputType, compare(name, a < b ? -1 : a == b ? 0 : 1));
+    }
+    if (values.get(0) instanceof String && !name.equals("equal") && !name.equals("not_equal")) {
+      // the order of strings depends on their collation
+      return Optional.empty();
+    }
+    return literal(
+        outputType, compare(name, ((Comparable) values.get(0)).compareTo(values.get(1))));
+  }
+
+  private static boolean compare(String name, int comparison) {
+    switch (name) {
+      case "equal":
+        return comparison == 0;
+      case "not_equal":
+        return comparison != 0;
+      case "lt":
+        return comparison < 0;
+      case "lte":
+        return comparison <= 0;
+      case "gt":
+        return comparison > 0;
+      default:
+        return comparison >= 0;
+    }
+  }
+
+  private static Optional<Expression> foldCast(Expression input, Type type) {
+    if (input instanceof Expression.NullLiteral) {
+      return Optional.of(ExpressionCreator.typedNull(TypeCreator.asNullable(type)));
+    }
+    Object value = value(input);
+    if (value instanceof Long) {
+      if (type instanceof Type.Str) {
+        return literal(type, value.toString());
+      }
+      if (type instanceof Type.FP32 || type instanceof Type.FP64) {
+        return literal(type, ((Long) value).doubleValue());
+      }
+      return literal(type, value);
+    }
+    if (value instanceof Double && (type instanceof Type.FP32 || type instanceof Type.FP64)) {
+      return literal(type, value);
+    }
+    if (value instanceof String && INTEGER.matcher((String) value).matches()) {
+      try {
+        return literal(type, Long.parseLong((String) value));
+      } catch (NumberFormatException e) {
+        return Optional.empty();
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Creates a literal of the given type, if the value is of the matching kind and fits the type.
+   */
+  private static Optional<Expression> literal(Type type, Object value) {
+    boolean nullable = type.nullable();
+    if (value instanceof Long) {
+      long v = (Long) value;
+      if (type instanceof Type.I8 && v >= Byte.MIN_VALUE && v <= Byte.MAX_VALUE) {
+        return Optional.of(ExpressionCreator.i8(nullable, (int) v));
+      }
+      if (type instanceof Type.I16 && v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) {
+        return Optional.of(ExpressionCreator.i16(nullable, (int) v));
+      }
+      if (type instanceof Type.I32 && v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE) {
+        return Optional.of(ExpressionCreator.i32(nullable, (int) v));
+      }
+      if (type instanceof Type.I64) {
+        return Optional.of(ExpressionCreator.i64(nullable, v));
+      }
+    } else if (value instanceof Double) {
+      if (type instanceof Type.FP32) {
+        return Optional.of(ExpressionCreator.fp32(nullable, ((Double) value).floatValue()));
+      }
+      if (type instanceof Type.FP64) {
+        return Optional.of(ExpressionCreator.fp64(nullable, (Double) value));
+      }
+    } else if (value instanceof Boolean && type instanceof Type.Bool) {
+      return Optional.of(ExpressionCreator.bool(nullable, (Boolean) value));
+    } else if (value instanceof String && type instanceof Type.Str) {
+      return Optional.of(ExpressionCreator.string(nullable, (String) value));
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Returns the value of a boolean, integer, floating point or string literal as a Boolean, Long,
+   * Double or String, or null for other expressions.
+   */
+  private static Object value(Expression expression) {
+    if (expression instanceof Expression.BoolLiteral) {
+      return ((Expression.BoolLiteral) expression).value();
+    } else if (expression instanceof Expression.I8Literal) {
+      return (long) ((Expression.I8Literal) expression).value();
+    } else if (expression instanceof Expression.I16Literal) {
+      return (long) ((Expression.I16Literal) expression).value();
+    } else if (expression instanceof Expression.I32Literal) {
+      return (long) ((Expression.I32Literal) expression).value();
+    } else if (expression instanceof Expression.I64Literal) {
+      return ((Expression.I64Literal) expression).value();
+    } else if (expression instanceof Expression.FP32Literal) {
+      return (double) ((Expression.FP32Literal) expression).value();
+    } else if (expression instanceof Expression.FP64Literal) {
+      return ((Expression.FP64Literal) expression).value();
+    } else if (expression instanceof Expression.StrLiteral) {
+      return ((Expression.StrLiteral) expression).value();
+    }
+    return null;
+  }
+
+  private static boolean isBool(Expression expression, boolean value) {
+    return expression instanceof Expression.BoolLiteral
+        && Objects.equals(((Expression.BoolLiteral) expression).value(), value);
+  }
+
+  private static boolean isCall(Expression expression, String uri, String name) {
+    return expression instanceof Expression.ScalarFunctionInvocation
+        && ((Expression.ScalarFunctionInvocation) expression).declaration().uri().equals(uri)
+        && ((Expression.ScalarFunctionInvocation) expression).declaration().name().equals(name);
+  }
+
+  private static Optional<Expression> or(Optional<Expression> first, Optional<Expression> second) {
+    return first.isPresent() ? first : second;
+  }
+}
@@ -0,0 +1,424 @@
+package io.substrait.relation.optimize;
+
+import io.substrait.expression.Expression;
+import io.substrait.expression.ExpressionCreator;
+import io.substrait.expression.FieldReference;
+import io.substrait.extension.DefaultExtensionCatalog;
+import io.substrait.extension.SimpleExtension;
+import io.substrait.hint.Hint;
+import io.substrait.plan.ImmutablePlan;
+import io.substrait.plan.ImmutableRoot;
+import io.substrait.plan.Plan;
+import io.substrait.relation.Join;
+import io.substrait.relation.Rel;
+import io.substrait.relation.RelCopyOnWriteVisitor;
+import io.substrait.relation.Sort;
+import io.substrait.relation.physical.HashJoin;
+import io.substrait.relation.physical.MergeJoin;
+import io.substrait.relation.physical.NestedLoopJoin;
+import io.substrait.type.TypeCreator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Rewrites logical {@link Join}s into {@link HashJoin}, {@link MergeJoin} or {@link
+ * NestedLoopJoin}.
+ *
+ * <p>The conjuncts of a join condition comparing a field of the left input with a field of the
+ * right input using {@code equal} become the join keys, and the remaining conjuncts of inner joins
+ * become part of the post-join filter. The physical implementation is chosen by a {@link
+ * Strategy}. Hash joins build their hash table from the right input, so their inputs are swapped
+ * when the row count hints of the inputs show that the left input is smaller, except for semi and
+ * anti joins with a post-join filter.
+ *
+ * <p>Joins are kept logical when the chosen implementation cannot represent them: equi-joins
+ * without keys, outer joins whose condition has conjuncts other than keys, outer nested loop joins
+ * with a post-join filter, and semi or anti joins whose output includes fields of the right input
+ * (the logical {@link Join} outputs them, its physical counterparts do not).
+ */
+public class JoinSelection extends RelCopyOnWriteVisitor<RuntimeException> {
+
+  public enum Algorithm {
+    HASH,
+    MERGE,
+    NESTED_LOOP,
+    /** Keep the logical join. */
+    LOGICAL
+  }
+
+  /** Chooses the physical implementation of a join. */
+  public interface Strategy {
+    /**
+     * @param join the logical join
+     * @param keys the equi-join keys of the join condition
+     * @return the algorithm to use for the join
+     */
+    Algorithm choose(Join join, JoinKeys keys);
+  }
+
+  /**
+   * The equi-join keys of a join, as pairs of left and right input fields, and the conjuncts of
+   * its condition that are not keys.
+   */
+  public static final class JoinKeys {
+    private final List<FieldReference> leftKeys;
+    private final List<FieldReference> rightKeys;
+    private final List<Expression> residual;
+
+    JoinKeys(
+        List<FieldReference> leftKeys, List<FieldReference> rightKeys, List<Expression> residual) {
+      this.leftKeys = leftKeys;
+      this.rightKeys = rightKeys;
+      this.residual = residual;
+    }
+
+    /** References to the key fields of the left input. */
+    public List<FieldReference> getLeftKeys() {
+      return leftKeys;
+    }
+
+    /** References to the key fields of the right input, in the same order as the left keys. */
+    public List<FieldReference> getRightKeys() {
+      return rightKeys;
+    }
+
+    /** The conjuncts of the condition that are not keys, over the fields of both inputs. */
+    public List<Expression> getResidual() {
+      return residual;
+    }
+  }
+
+  /**
+   * Uses a nested loop join when there are no keys, a merge join when both inputs are sorted on
+   * the keys, and a hash join otherwise.
+   */
+  public static final Strategy DEFAULT_STRATEGY =
+      (join, keys) -> {
+        if (keys.getLeftKeys().isEmpty()) {
+          return Algorithm.NESTED_LOOP;
+        }
+        if (isSortedOn(join.getLeft(), keys.getLeftKeys(), join.getRight(), keys.getRightKeys())) {
+          return Algorithm.MERGE;
+        }
+        return Algorithm.HASH;
+      };
+
+  private final SimpleExtension.ScalarFunctionVariant and;
+  private final Strategy strategy;
+
+  public JoinSelection(SimpleExtension.ExtensionCollection extensions) {
+    this(extensions, DEFAULT_STRATEGY);
+  }
+
+  public JoinSelection(SimpleExtension.ExtensionCollection extensions, Strategy strategy) {
+    this.and =
+        extensions.getScalarFunction(
+            SimpleExtension.FunctionAnchor.of(
+                DefaultExtensionCatalog.FUNCTIONS_BOOLEAN, "and:bool"));
+    this.strategy = strategy;
+  }
+
+  public Rel apply(Rel rel) {
+    return rel.accept(this).orElse(rel);
+  }
+
+  public Plan apply(Plan plan) {
+    return ImmutablePlan.builder()
+        .from(plan)
+        .roots(
+            plan.getRoots().stream()
+                .map(r -> ImmutableRoot.builder().from(r).input(apply(r.getInput())).build())
+                .collect(Collectors.toList()))
+        .build();
+  }
+
+  @Override
+  public Optional<Rel> visit(Join join) {
+    Optional<Rel> visited = super.visit(join);
+    Join current = visited.map(Join.class::cast).orElse(join);
+    if (current.getJoinType() == Join.JoinType.UNKNOWN || !semiJoinOutputIsLeft(current)) {
+      return visited;
+    }
+
+    JoinKeys keys = joinKeys(current);
+    Optional<Rel> physical;
+    switch (strategy.choose(current, keys)) {
+      case HASH:
+        physical = hashJoin(current, keys);
+        break;
+      case MERGE:
+        physical = mergeJoin(current, keys);
+        break;
+      case NESTED_LOOP:
+        physical = nestedLoopJoin(current);
+        break;
+      default:
+        physical = Optional.empty();
+    }
+    return physical.isPresent() ? physical : visited;
+  }
+
+  private Optional<Rel> hashJoin(Join join, JoinKeys keys) {
+    if (keys.getLeftKeys().isEmpty() || !canFilterAfterJoin(join, keys)) {
+      return Optional.empty();
+    }
+    Optional<Expression> postJoinFilter = postJoinFilter(join, keys);
+    HashJoin.JoinType joinType = HashJoin.JoinType.valueOf(physicalJoinType(join, false));
+    OptionalDouble leftRows = rowCount(join.getLeft());
+    OptionalDouble rightRows = rowCount(join.getRight());
+    boolean semiOrAnti =
+        join.getJoinType() == Join.JoinType.SEMI || join.getJoinType() == Join.JoinType.ANTI;
+    // a swapped semi or anti join outputs only its right input, so the fields of both inputs
+    // that a post-join filter may reference cannot be mapped onto its output
+    if (!leftRows.isPresent()
+        || !rightRows.isPresent()
+        || leftRows.getAsDouble() >= rightRows.getAsDouble()
+        || (semiOrAnti && postJoinFilter.isPresent())) {
+      return Optional.of(
+          HashJoin.builder()
+              .left(join.getLeft())
+              .right(join.getRight())
+              .leftKeys(keys.getLeftKeys())
+              .rightKeys(keys.getRightKeys())
+              .joinType(joinType)
+              .postJoinFilter(postJoinFilter)
+              .remap(join.getRemap())
+              .hint(join.getHint())
+              .commonExtension(join.getCommonExtension())
+              .extension(join.getExtension())
+              .build());
+    }
+
+    // build the hash table from the smaller left input
+    int leftFields = join.getLeft().getRecordType().fields().size();
+    int rightFields = join.getRight().getRecordType().fields().size();
+    List<Integer> outputs =
+        join.getRemap()
+            .map(Rel.Remap::indices)
+            .orElseGet(
+                () ->
+                    IntStream.range(0, leftFields + rightFields)
+                        .boxed()
+                        .collect(Collectors.toList()));
+    return Optional.of(
+        HashJoin.builder()
+            .left(join.getRight())
+            .right(join.getLeft())
+            .leftKeys(keys.getRightKeys())
+            .rightKeys(keys.getLeftKeys())
+            .joinType(HashJoin.JoinType.valueOf(physicalJoinType(join, true)))
+            .postJoinFilter(
+                postJoinFilter.map(
+                    f -> ExpressionFields.reindex(f, i -> swapped(i, leftFields, rightFields))))
+            .remap(
+                Rel.Remap.of(
+                    outputs.stream()
+                        // swapped semi and anti joins only output the original left input
+                        .map(i -> semiOrAnti ? i : swapped(i, leftFields, rightFields))
+                        .collect(Collectors.toList())))
+            .hint(join.getHint())
+            .commonExtension(join.getCommonExtension())
+            .extension(join.getExtension())
+            .build());
+  }
+
+  private Optional<Rel> mergeJoin(Join join, JoinKeys keys) {
+    if (keys.getLeftKeys().isEmpty() || !canFilterAfterJoin(join, keys)) {
+      return Optional.empty();
+    }
+    Optional<Expression> postJoinFilter = postJoinFilter(join, keys);
+    return Optional.of(
+        MergeJoin.builder()
+            .left(join.getLeft())
+            .right(join.getRight())
+            .leftKeys(keys.getLeftKeys())
+            .rightKeys(keys.getRightKeys())
+            .joinType(MergeJoin.JoinType.valueOf(physicalJoinType(join, false)))
+            .postJoinFilter(postJoinFilter)
+            .remap(join.getRemap())
+            .hint(join.getHint())
+            .commonExtension(join.getCommonExtension())
+            .extension(join.getExtension())
+            .build());
+  }
+
+  private Optional<Rel> nestedLoopJoin(Join join) {
+    List<Expression> conditions = new ArrayList<>();
+    join.getCondition().ifPresent(conditions::add);
+    if (join.getPostJoinFilter().isPresent()) {
+      if (join.getJoinType() != Join.JoinType.INNER) {
+        return Optional.empty();
+      }
+      conditions.add(join.getPostJoinFilter().get());
+    }
+    return Optional.of(
+        NestedLoopJoin.builder()
+            .left(join.getLeft())
+            .right(join.getRight())
+            .condition(
+                conditions.isEmpty() ? ExpressionCreator.bool(false, true) : and(conditions))
+            .joinType(NestedLoopJoin.JoinType.valueOf(physicalJoinType(join, false)))
+            .remap(join.getRemap())
+            .hint(join.getHint())
+            .commonExtension(join.getCommonExtension())
+            .extension(join.getExtension())
+            .build());
+  }
+
+  /**
+   * The residual conjuncts of the condition of an outer, semi or anti join decide which rows are
+   * matched rather than which rows are output, so they cannot be moved into a post-join filter.
+   */
+  private static boolean canFilterAfterJoin(Join join, JoinKeys keys) {
+    return keys.getResidual().isEmpty() || join.getJoinType() == Join.JoinType.INNER;
+  }
+
+  private Optional<Expression> postJoinFilter(Join join, JoinKeys keys) {
+    List<Expression> filters = new ArrayList<>(keys.getResidual());
+    join.getPostJoinFilter().ifPresent(filters::add);
+    return filters.isEmpty() ? Optional.empty() : Optional.of(and(filters));
+  }
+
+  private static JoinKeys joinKeys(Join join) {
+    List<FieldReference> leftKeys = new ArrayList<>();
+    List<FieldReference> rightKeys = new ArrayList<>();
+    List<Expression> residual = new ArrayList<>();
+    if (!join.getCondition().isPresent()) {
+      return new JoinKeys(leftKeys, rightKeys, residual);
+    }
+
+    int leftFields = join.getLeft().getRecordType().fields().size();
+    for (Expression conjunct : ExpressionFields.conjuncts(join.getCondition().get())) {
+      Optional<int[]> operands = equalFields(conjunct);
+      if (operands.isPresent()) {
+        int a = Math.min(operands.get()[0], operands.get()[1]);
+        int b = Math.max(operands.get()[0], operands.get()[1]);
+        if (a < leftFields && b >= leftFields) {
+          leftKeys.add(FieldReference.newInputRelReference(a, join.getLeft()));
+          rightKeys.add(FieldReference.newInputRelReference(b - leftFields, join.getRight()));
+          continue;
+        }
+      }
+      residual.add(conjunct);
+    }
+    return new JoinKeys(leftKeys, rightKeys, residual);
+  }
+
+  /** Returns the input fields compared by an {@code equal} call of two fields of the same type. */
+  private static Optional<int[]> equalFields(Expression expression) {
+    if (!(expression instanceof Expression.ScalarFunctionInvocation)) {
+      return Optional.empty();
+    }
+    var invocation = (Expression.ScalarFunctionInvocation) expression;
+    if (!invocation.declaration().name().equals("equal") || invocation.arguments().size() != 2) {
+      return Optional.empty();
+    }
+    int[] fields = new int[2];
+    for (int i = 0; i < 2; i++) {
+      var argument = invocation.arguments().get(i);
+      if (!(argument instanceof FieldReference)
+          || !((FieldReference) argument).isSimpleRootReference()) {
+        return Optional.empty();
+      }
+      var segment = ((FieldReference) argument).segments().get(0);
+      fields[i] = ((FieldReference.StructField) segment).offset();
+    }
+    Expression left = (Expression) invocation.arguments().get(0);
+    Expression right = (Expression) invocation.arguments().get(1);
+    if (!TypeCreator.asNotNullable(left.getType())
+        .equals(TypeCreator.asNotNullable(right.getType()))) {
+      return Optional.empty();
+    }
+    return Optional.of(fields);
+  }
+
+  /**
+   * Semi and anti joins can only be replaced if the logical join does not output any field of its
+   * right input.
+   */
+  private static boolean semiJoinOutputIsLeft(Join join) {
+    if (join.getJoinType() != Join.JoinType.SEMI && join.getJoinType() != Join.JoinType.ANTI) {
+      return true;
+    }
+    int leftFields = join.getLeft().getRecordType().fields().size();
+    return join.getRemap()
+        .map(remap -> remap.indices().stream().allMatch(i -> i < leftFields))
+        .orElse(leftFields == join.getRecordType().fields().size());
+  }
+
+  private static String physicalJoinType(Join join, boolean swapped) {
+    switch (join.getJoinType()) {
+      case LEFT:
+        return swapped ? "RIGHT" : "LEFT";
+      case RIGHT:
+        return swapped ? "LEFT" : "RIGHT";
+      case SEMI:
+        return swapped ? "RIGHT_SEMI" : "LEFT_SEMI";
+      case ANTI:
+        return swapped ? "RIGHT_ANTI" : "LEFT_ANTI";
+      default:
+        return join.getJoinType().name();
+    }
+  }
+
+  /** Maps a field of the left ++ right output to its position in the right ++ left output. */
+  private static int swapped(int index, int leftFields, int rightFields) {
+    return index < leftFields ? rightFields + index : index - leftFields;
+  }
+
+  private static OptionalDouble rowCount(Rel rel) {
+    return rel.getHint()
+        .flatMap(Hint::getStats)
+        .map(stats -> stats.getRowCount())
+        .filter(rows -> rows > 0)
+        .map(OptionalDouble::of)
+        .orElse(OptionalDouble.empty());
+  }
+
+  private static boolean isSortedOn(
+      Rel left, List<FieldReference> leftKeys, Rel right, List<FieldReference> rightKeys) {
+    if (!(left instanceof Sort) || !(right instanceof Sort)) {
+      return false;
+    }
+    var leftSort = (Sort) left;
+    var rightSort = (Sort) right;
+    if (leftSort.getRemap().isPresent()
+        || rightSort.getRemap().isPresent()
+        || leftSort.getSortFields().size() < leftKeys.size()
+        || rightSort.getSortFields().size() < rightKeys.size()) {
+      return false;
+    }
+    for (int i = 0; i < leftKeys.size(); i++) {
+      Expression.SortField leftField = leftSort.getSortFields().get(i);
+      Expression.SortField rightField = rightSort.getSortFields().get(i);
+      if (leftField.direction() != rightField.direction()
+          || !isReferenceTo(leftField.expr(), leftKeys.get(i))
+          || !isReferenceTo(rightField.expr(), rightKeys.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isReferenceTo(Expression expression, FieldReference key) {
+    return expression instanceof FieldReference
+        && ((FieldReference) expression).isSimpleRootReference()
+        && ((FieldReference) expression).segments().equals(key.segments());
+  }
+
+  private Expression and(List<Expression> conjuncts) {
+    if (conjuncts.size() == 1) {
+      return conjuncts.get(0);
+    }
+    boolean nullable = conjuncts.stream().anyMatch(c -> c.getType().nullable());
+    return Expression.ScalarFunctionInvocation.builder()
+        .declaration(and)
+        .outputType(nullable ? TypeCreator.NULLABLE.BOOLEAN : TypeCreator.REQUIRED.BOOLEAN)
+        .arguments(conjuncts)
+        .build();
+  }
+}
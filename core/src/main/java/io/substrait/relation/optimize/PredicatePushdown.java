@@ -0,0 +1,270 @@
+package io.substrait.relation.optimize;
+
+import io.substrait.expression.Expression;
+import io.substrait.expression.ExpressionCreator;
+import io.substrait.expression.FieldReference;
+import io.substrait.expression.MaskExpression;
+import io.substrait.extension.DefaultExtensionCatalog;
+import io.substrait.extension.SimpleExtension;
+import io.substrait.plan.ImmutablePlan;
+import io.substrait.plan.ImmutableRoot;
+import io.substrait.plan.Plan;
+import io.substrait.relation.AbstractReadRel;
+import io.substrait.relation.Expand;
+import io.substrait.relation.ExtensionTable;
+import io.substrait.relation.Filter;
+import io.substrait.relation.Join;
+import io.substrait.relation.LocalFiles;
+import io.substrait.relation.NamedScan;
+import io.substrait.relation.Project;
+import io.substrait.relation.Rel;
+import io.substrait.relation.RelCopyOnWriteVisitor;
+import io.substrait.type.TypeCreator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes the deterministic conjuncts of {@link Filter} conditions down towards the reads of a
+ * plan, so that consumers can apply them while scanning.
+ *
+ * <p>Conjuncts are moved through {@link Project}s (substituting projected expressions), through
+ * the sides of {@link Join}s that preserve the rows of that side, and into existing {@link
+ * Filter}s. They are finally attached to the filter of {@link NamedScan}, {@link LocalFiles} and
+ * {@link ExtensionTable} reads. Field references are remapped at every step, taking the remap of
+ * each relation into account. Conjuncts that cannot be pushed all the way below a join side are
+ * placed in a new filter directly on top of that side; everything else stays where it was.
+ */
+public class PredicatePushdown extends RelCopyOnWriteVisitor<RuntimeException> {
+
+  private final SimpleExtension.ScalarFunctionVariant and;
+
+  public PredicatePushdown(SimpleExtension.ExtensionCollection extensions) {
+    this.and =
+        extensions.getScalarFunction(
+            SimpleExtension.FunctionAnchor.of(
+                DefaultExtensionCatalog.FUNCTIONS_BOOLEAN, "and:bool"));
+  }
+
+  public Rel apply(Rel rel) {
+    return rel.accept(this).orElse(rel);
+  }
+
+  public Plan apply(Plan plan) {
+    return ImmutablePlan.builder()
+        .from(plan)
+        .roots(
+            plan.getRoots().stream()
+                .map(r -> ImmutableRoot.builder().from(r).input(apply(r.getInput())).build())
+                .collect(Collectors.toList()))
+        .build();
+  }
+
+  @Override
+  public Optional<Rel> visit(Filter filter) {
+    Rel input = filter.getInput().accept(this).orElse(filter.getInput());
+    // subqueries in the condition are optimized too
+    Expression condition =
+        filter
+            .getCondition()
+            .accept(getExpressionCopyOnWriteVisitor())
+            .orElse(filter.getCondition());
+
+    List<Expression> conjuncts = ExpressionFields.conjuncts(condition);
+    List<Expression> remaining = new ArrayList<>();
+    Rel current = input;
+    for (Expression conjunct : conjuncts) {
+      Optional<Rel> pushed =
+          ExpressionFields.isDeterministic(conjunct) ? push(current, conjunct) : Optional.empty();
+      if (pushed.isPresent()) {
+        current = pushed.get();
+      } else {
+        remaining.add(conjunct);
+      }
+    }
+
+    if (remaining.size() == conjuncts.size()) {
+      if (input == filter.getInput() && condition == filter.getCondition()) {
+        return Optional.empty();
+      }
+      return Optional.of(Filter.builder().from(filter).input(input).condition(condition).build());
+    }
+    if (!remaining.isEmpty()) {
+      return Optional.of(
+          Filter.builder().from(filter).input(current).condition(and(remaining)).build());
+    }
+    if (filter.getCommonExtension().isPresent() || filter.getExtension().isPresent()) {
+      // keep the relation to retain its extensions
+      return Optional.of(
+          Filter.builder()
+              .from(filter)
+              .input(current)
+              .condition(ExpressionCreator.bool(false, true))
+              .build());
+    }
+    if (filter.getRemap().isPresent()) {
+      return Optional.of(Project.builder().input(current).remap(filter.getRemap()).build());
+    }
+    return Optional.of(current);
+  }
+
+  @Override
+  public Optional<Rel> visit(Expand expand) {
+    return expand
+        .getInput()
+        .accept(this)
+        .map(input -> Expand.builder().from(expand).input(input).build());
+  }
+
+  /**
+   * Attempts to push a predicate over the output of the given relation into it.
+   *
+   * @return the relation with the predicate applied, or empty if it could not be pushed
+   */
+  private Optional<Rel> push(Rel rel, Expression predicate) {
+    if (rel instanceof AbstractReadRel && hasNestedProjection((AbstractReadRel) rel)) {
+      return Optional.empty();
+    }
+    if (rel instanceof NamedScan) {
+      var scan = (NamedScan) rel;
+      return Optional.of(
+          NamedScan.builder()
+              .from(scan)
+              .filter(withFilter(scan.getFilter(), scan, predicate))
+              .build());
+    }
+    if (rel instanceof LocalFiles) {
+      var files = (LocalFiles) rel;
+      return Optional.of(
+          LocalFiles.builder()
+              .from(files)
+              .filter(withFilter(files.getFilter(), files, predicate))
+              .build());
+    }
+    if (rel instanceof ExtensionTable) {
+      var table = (ExtensionTable) rel;
+      return Optional.of(
+          ExtensionTable.builder()
+              .from(table)
+              .filter(withFilter(table.getFilter(), table, predicate))
+              .build());
+    }
+    if (rel instanceof Filter) {
+      var filter = (Filter) rel;
+      Expression below = throughRemap(filter, predicate);
+      Optional<Rel> pushed = push(filter.getInput(), below);
+      if (pushed.isPresent()) {
+        return Optional.of(Filter.builder().from(filter).input(pushed.get()).build());
+      }
+      return Optional.of(
+          Filter.builder()
+              .from(filter)
+              .condition(and(Arrays.asList(filter.getCondition(), below)))
+              .build());
+    }
+    if (rel instanceof Project) {
+      var project = (Project) rel;
+      Rel input = project.getInput();
+      int inputFields = input.getRecordType().fields().size();
+      Expression below =
+          ExpressionFields.remap(
+              throughRemap(project, predicate),
+              i ->
+                  i < inputFields
+                      ? FieldReference.newInputRelReference(i, input)
+                      : project.getExpressions().get(i - inputFields));
+      if (!ExpressionFields.isDeterministic(below)) {
+        return Optional.empty();
+      }
+      return push(input, below)
+          .map(pushed -> Project.builder().from(project).input(pushed).build());
+    }
+    if (rel instanceof Join) {
+      return pushIntoJoin((Join) rel, throughRemap(rel, predicate));
+    }
+    return Optional.empty();
+  }
+
+  private Optional<Rel> pushIntoJoin(Join join, Expression predicate) {
+    Set<Integer> references = ExpressionFields.rootReferences(predicate);
+    int leftFields = join.getLeft().getRecordType().fields().size();
+    boolean onlyLeft = references.stream().allMatch(i -> i < leftFields);
+    boolean onlyRight = references.stream().allMatch(i -> i >= leftFields);
+
+    Join.JoinType joinType = join.getJoinType();
+    boolean leftPreserving =
+        joinType == Join.JoinType.INNER
+            || joinType == Join.JoinType.LEFT
+            || joinType == Join.JoinType.SEMI
+            || joinType == Join.JoinType.ANTI;
+    boolean rightPreserving =
+        joinType == Join.JoinType.INNER || joinType == Join.JoinType.RIGHT;
+
+    if (onlyLeft && leftPreserving) {
+      Rel left = pushOrFilter(join.getLeft(), predicate);
+      return Optional.of(Join.builder().from(join).left(left).build());
+    }
+    if (onlyRight && rightPreserving && !references.isEmpty()) {
+      Rel right = join.getRight();
+      Expression shifted =
+          ExpressionFields.remap(
+              predicate, i -> FieldReference.newInputRelReference(i - leftFields, right));
+      return Optional.of(Join.builder().from(join).right(pushOrFilter(right, shifted)).build());
+    }
+    return Optional.empty();
+  }
+
+  private Rel pushOrFilter(Rel rel, Expression predicate) {
+    return push(rel, predicate)
+        .orElseGet(() -> Filter.builder().input(rel).condition(predicate).build());
+  }
+
+  /** Rewrites a predicate over the output of a relation into one over its pre-remap fields. */
+  private static Expression throughRemap(Rel rel, Expression predicate) {
+    if (!rel.getRemap().isPresent()) {
+      return predicate;
+    }
+    List<Integer> indices = rel.getRemap().get().indices();
+    var fields = rel.getRecordType().fields();
+    return ExpressionFields.remap(
+        predicate,
+        i -> FieldReference.newRootStructReference(indices.get(i), fields.get(i)));
+  }
+
+  /** Rewrites a predicate over the projected fields of a read into one over its base schema. */
+  private static Expression throughProjection(AbstractReadRel read, Expression predicate) {
+    if (!read.getProjection().isPresent()) {
+      return predicate;
+    }
+    List<MaskExpression.StructItem> items = read.getProjection().get().getSelect().getStructItems();
+    return ExpressionFields.reindex(predicate, i -> items.get(i).getField());
+  }
+
+  private static boolean hasNestedProjection(AbstractReadRel read) {
+    return read.getProjection()
+        .map(p -> p.getSelect().getStructItems().stream().anyMatch(i -> i.getChild().isPresent()))
+        .orElse(false);
+  }
+
+  private Optional<Expression> withFilter(
+      Optional<Expression> existing, AbstractReadRel read, Expression predicate) {
+    // read filters apply to the base schema, before the projection
+    Expression below = throughProjection(read, throughRemap(read, predicate));
+    return Optional.of(existing.map(f -> and(Arrays.asList(f, below))).orElse(below));
+  }
+
+  private Expression and(List<Expression> conjuncts) {
+    if (conjuncts.size() == 1) {
+      return conjuncts.get(0);
+    }
+    boolean nullable = conjuncts.stream().anyMatch(c -> c.getType().nullable());
+    return Expression.ScalarFunctionInvocation.builder()
+        .declaration(and)
+        .outputType(nullable ? TypeCreator.NULLABLE.BOOLEAN : TypeCreator.REQUIRED.BOOLEAN)
+        .arguments(conjuncts)
+        .build();
+  }
+}
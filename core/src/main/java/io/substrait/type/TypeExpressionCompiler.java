@@ -0,0 +1,709 @@
+package io.substrait.type;
+
+import io.substrait.extension.SimpleExtension;
+import io.substrait.function.NullableType;
+import io.substrait.function.ParameterizedType;
+import io.substrait.function.TypeExpression;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles the return type derivation of an extension function into a tree of lambdas over the
+ * argument types.
+ *
+ * <p>Type parameters are resolved at compile time into accessors on the argument list (e.g. {@code
+ * P1} becomes "the precision of the decimal in argument 0"), and parameters that several arguments
+ * bind become checks that the arguments agree. Assignments of multi-line derivations are evaluated
+ * once per application into slots of a frame that each thread reuses, so evaluating a {@link
+ * CompiledTypeExpression} performs only primitive integer arithmetic and allocates nothing beyond
+ * the resulting {@link Type}. Constant derivations of functions whose arguments bind no parameters
+ * return their type directly.
+ */
+public class TypeExpressionCompiler {
+  static final org.slf4j.Logger logger =
+      org.slf4j.LoggerFactory.getLogger(TypeExpressionCompiler.class);
+
+  private int intSlots;
+  private int valueSlots;
+
+  private TypeExpressionCompiler() {}
+
+  /** A compiled return type derivation. */
+  @FunctionalInterface
+  public interface CompiledTypeExpression {
+    /**
+     * @param argumentTypes the types of the value arguments the function is invoked with
+     */
+    Type apply(List<Type> argumentTypes);
+  }
+
+  /** The argument types of one application and the values of the assignments of the derivation. */
+  private static final class Frame {
+    /** The argument types of the application in progress, null when the frame is free. */
+    List<Type> arguments;
+    final int[] ints;
+    final Object[] values;
+    /** The argument a variadic check is applied to. */
+    int variadic;
+
+    Frame(int ints, int values) {
+      this.ints = ints == 0 ? EMPTY_INTS : new int[ints];
+      this.values = values == 0 ? EMPTY_VALUES : new Object[values];
+    }
+
+    private static final int[] EMPTY_INTS = new int[0];
+    private static final Object[] EMPTY_VALUES = new Object[0];
+  }
+
+  @FunctionalInterface
+  private interface IntFn {
+    int apply(Frame frame);
+  }
+
+  @FunctionalInterface
+  private interface BoolFn {
+    boolean apply(Frame frame);
+  }
+
+  @FunctionalInterface
+  private interface TypeFn {
+    Type apply(Frame frame);
+  }
+
+  /** A check of the arguments or the evaluation of an assignment. */
+  @FunctionalInterface
+  private interface Step {
+    void apply(Frame frame);
+  }
+
+  public static CompiledTypeExpression compile(
+      TypeExpression returnExpression, List<SimpleExtension.Argument> arguments) {
+    TypeExpressionCompiler compiler = new TypeExpressionCompiler();
+
+    Map<String, Object> parameters = new HashMap<>();
+    List<Step> checks = new ArrayList<>();
+    ParameterizedType last = null;
+    int idx = 0;
+    for (SimpleExtension.Argument argument : arguments) {
+      ParameterizedType declared = declaredType(argument);
+      if (declared == null) {
+        continue;
+      }
+      last = declared;
+      int argIdx = idx++;
+      compiler.bind(declared, f -> f.arguments.get(argIdx), parameters, checks, argIdx + 1);
+    }
+    // variadic arguments repeat the last declared argument, and must agree with it
+    int variadicFrom = idx;
+    List<Step> variadicChecks = new ArrayList<>();
+    if (last != null) {
+      compiler.bind(
+          last,
+          f -> f.arguments.get(f.variadic),
+          new HashMap<>(parameters),
+          variadicChecks,
+          0);
+    }
+
+    if (returnExpression instanceof Type && checks.isEmpty() && variadicChecks.isEmpty()) {
+      Type type = (Type) returnExpression;
+      return argumentTypes -> type;
+    }
+    TypeFn compiled =
+        returnExpression instanceof Type
+            ? constant((Type) returnExpression)
+            : compiler.type(returnExpression, parameters);
+    int ints = compiler.intSlots;
+    int values = compiler.valueSlots;
+    ThreadLocal<Frame> frames = ThreadLocal.withInitial(() -> new Frame(ints, values));
+    return argumentTypes -> {
+      Frame frame = frames.get();
+      if (frame.arguments != null) {
+        // a nested application on the same thread
+        frame = new Frame(ints, values);
+      }
+      frame.arguments = argumentTypes;
+      try {
+        for (Step check : checks) {
+          check.apply(frame);
+        }
+        if (!variadicChecks.isEmpty()) {
+          for (frame.variadic = variadicFrom;
+              frame.variadic < argumentTypes.size();
+              frame.variadic++) {
+            for (Step check : variadicChecks) {
+              check.apply(frame);
+            }
+          }
+        }
+        return compiled.apply(frame);
+      } catch (ClassCastException | IndexOutOfBoundsException e) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Argument types %s do not match the declared arguments %s.",
+                argumentTypes, arguments),
+            e);
+      } finally {
+        frame.arguments = null;
+      }
+    };
+  }
+
+  private static ParameterizedType declaredType(SimpleExtension.Argument argument) {
+    if (argument instanceof SimpleExtension.ValueArgument) {
+      return ((SimpleExtension.ValueArgument) argument).value();
+    }
+    if (argument instanceof SimpleExtension.TypeArgument) {
+      return ((SimpleExtension.TypeArgument) argument).type();
+    }
+    return null;
+  }
+
+  private static String parameterName(ParameterizedType.StringLiteral literal) {
+    String value = literal.value();
+    return value.endsWith("?") ? value.substring(0, value.length() - 1) : value;
+  }
+
+  private static boolean isInteger(String value) {
+    if (value.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (!(Character.isDigit(c) || (i == 0 && c == '-' && value.length() > 1))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static TypeFn constant(Type type) {
+    return f -> type;
+  }
+
+  /**
+   * Registers accessors for the type parameters found in a declared argument type. A parameter
+   * that is already bound becomes a check that both accessors agree, applied when at least {@code
+   * required} arguments are given, as trailing arguments may be optional.
+   */
+  private void bind(
+      ParameterizedType declared,
+      TypeFn accessor,
+      Map<String, Object> parameters,
+      List<Step> checks,
+      int required) {
+    if (declared instanceof Type) {
+      return;
+    }
+    if (declared instanceof ParameterizedType.StringLiteral) {
+      String name = parameterName((ParameterizedType.StringLiteral) declared);
+      if (!name.equalsIgnoreCase("any")) {
+        TypeFn bound = f -> TypeCreator.asNotNullable(accessor.apply(f));
+        Object existing = parameters.putIfAbsent(name, bound);
+        if (existing != null) {
+          TypeFn first = (TypeFn) existing;
+          checks.add(
+              f -> {
+                if (f.arguments.size() >= required) {
+                  agree(name, first.apply(f), bound.apply(f));
+                }
+              });
+        }
+      }
+      return;
+    }
+    checks.add(
+        f -> {
+          if (f.arguments.size() >= required && !matches(declared, accessor.apply(f))) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "Argument of type %s does not match declared type %s.",
+                    accessor.apply(f), declared));
+          }
+        });
+    if (declared instanceof ParameterizedType.Decimal) {
+      var d = (ParameterizedType.Decimal) declared;
+      bindInt(
+          d.precision(),
+          f -> ((Type.Decimal) accessor.apply(f)).precision(),
+          parameters,
+          checks,
+          required);
+      bindInt(
+          d.scale(), f -> ((Type.Decimal) accessor.apply(f)).scale(), parameters, checks, required);
+    } else if (declared instanceof ParameterizedType.VarChar) {
+      bindInt(
+          ((ParameterizedType.VarChar) declared).length(),
+          f -> ((Type.VarChar) accessor.apply(f)).length(),
+          parameters,
+          checks,
+          required);
+    } else if (declared instanceof ParameterizedType.FixedChar) {
+      bindInt(
+          ((ParameterizedType.FixedChar) declared).length(),
+          f -> ((Type.FixedChar) accessor.apply(f)).length(),
+          parameters,
+          checks,
+          required);
+    } else if (declared instanceof ParameterizedType.FixedBinary) {
+      bindInt(
+          ((ParameterizedType.FixedBinary) declared).length(),
+          f -> ((Type.FixedBinary) accessor.apply(f)).length(),
+          parameters,
+          checks,
+          required);
+    } else if (declared instanceof ParameterizedType.IntervalDay) {
+      bindInt(
+          ((ParameterizedType.IntervalDay) declared).precision(),
+          f -> ((Type.IntervalDay) accessor.apply(f)).precision(),
+          parameters,
+          checks,
+          required);
+    } else if (declared instanceof ParameterizedType.IntervalCompound) {
+      bindInt(
+          ((ParameterizedType.IntervalCompound) declared).precision(),
+          f -> ((Type.IntervalCompound) accessor.apply(f)).precision(),
+          parameters,
+          checks,
+          required);
+    } else if (declared instanceof ParameterizedType.PrecisionTimestamp) {
+      bindInt(
+          ((ParameterizedType.PrecisionTimestamp) declared).precision(),
+          f -> ((Type.PrecisionTimestamp) accessor.apply(f)).precision(),
+          parameters,
+          checks,
+          required);
+    } else if (declared instanceof ParameterizedType.PrecisionTimestampTZ) {
+      bindInt(
+          ((ParameterizedType.PrecisionTimestampTZ) declared).precision(),
+          f -> ((Type.PrecisionTimestampTZ) accessor.apply(f)).precision(),
+          parameters,
+          checks,
+          required);
+    } else if (declared instanceof ParameterizedType.ListType) {
+      bind(
+          ((ParameterizedType.ListType) declared).name(),
+          f -> ((Type.ListType) accessor.apply(f)).elementType(),
+          parameters,
+          checks,
+          required);
+    } else if (declared instanceof ParameterizedType.Map) {
+      var m = (ParameterizedType.Map) declared;
+      bind(m.key(), f -> ((Type.Map) accessor.apply(f)).key(), parameters, checks, required);
+      bind(m.value(), f -> ((Type.Map) accessor.apply(f)).value(), parameters, checks, required);
+    } else if (declared instanceof ParameterizedType.Struct) {
+      var s = (ParameterizedType.Struct) declared;
+      for (int i = 0; i < s.fields().size(); i++) {
+        int fieldIdx = i;
+        bind(
+            s.fields().get(i),
+            f -> ((Type.Struct) accessor.apply(f)).fields().get(fieldIdx),
+            parameters,
+            checks,
+            required);
+      }
+    }
+  }
+
+  private void bindInt(
+      ParameterizedType.StringLiteral parameter,
+      IntFn accessor,
+      Map<String, Object> parameters,
+      List<Step> checks,
+      int required) {
+    String name = parameterName(parameter);
+    if (isInteger(name)) {
+      return;
+    }
+    Object existing = parameters.putIfAbsent(name, accessor);
+    if (existing != null) {
+      IntFn first = (IntFn) existing;
+      checks.add(
+          f -> {
+            if (f.arguments.size() >= required) {
+              agree(name, first.apply(f), accessor.apply(f));
+            }
+          });
+    }
+  }
+
+  private static void agree(String name, Object first, Object second) {
+    if (!first.equals(second)) {
+      throw new IllegalArgumentException(
+          String.format("Type parameter %s is bound to both %s and %s.", name, first, second));
+    }
+  }
+
+  /** Whether an argument type has the shape of a parameterized declared type. */
+  private static boolean matches(ParameterizedType declared, Type actual) {
+    if (declared instanceof ParameterizedType.Decimal) {
+      return actual instanceof Type.Decimal;
+    } else if (declared instanceof ParameterizedType.VarChar) {
+      return actual instanceof Type.VarChar;
+    } else if (declared instanceof ParameterizedType.FixedChar) {
+      return actual instanceof Type.FixedChar;
+    } else if (declared instanceof ParameterizedType.FixedBinary) {
+      return actual instanceof Type.FixedBinary;
+    } else if (declared instanceof ParameterizedType.IntervalDay) {
+      return actual instanceof Type.IntervalDay;
+    } else if (declared instanceof ParameterizedType.IntervalCompound) {
+      return actual instanceof Type.IntervalCompound;
+    } else if (declared instanceof ParameterizedType.PrecisionTimestamp) {
+      return actual instanceof Type.PrecisionTimestamp;
+    } else if (declared instanceof ParameterizedType.PrecisionTimestampTZ) {
+      return actual instanceof Type.PrecisionTimestampTZ;
+    } else if (declared instanceof ParameterizedType.ListType) {
+      return actual instanceof Type.ListType;
+    } else if (declared instanceof ParameterizedType.Map) {
+      return actual instanceof Type.Map;
+    } else if (declared instanceof ParameterizedType.Struct) {
+      return actual instanceof Type.Struct
+          && ((ParameterizedType.Struct) declared).fields().size()
+              == ((Type.Struct) actual).fields().size();
+    }
+    return false;
+  }
+
+  /** Compiles an expression into an {@link IntFn}, {@link BoolFn} or {@link TypeFn}. */
+  private Object expression(TypeExpression expr, Map<String, Object> scope) {
+    if (expr instanceof Type) {
+      Type type = (Type) expr;
+      return constant(type);
+    }
+    if (expr instanceof TypeExpression.IntegerLiteral) {
+      int value = ((TypeExpression.IntegerLiteral) expr).value();
+      return (IntFn) f -> value;
+    }
+    if (expr instanceof ParameterizedType.StringLiteral) {
+      var literal = (ParameterizedType.StringLiteral) expr;
+      String name = parameterName(literal);
+      if (isInteger(name)) {
+        int value = Integer.parseInt(name);
+        return (IntFn) f -> value;
+      }
+      Object fn = scope.get(name);
+      if (fn == null) {
+        throw new IllegalArgumentException(
+            String.format("Type parameter %s is not bound by the function arguments.", name));
+      }
+      if (fn instanceof TypeFn && literal.nullable()) {
+        TypeFn type = (TypeFn) fn;
+        return (TypeFn) f -> TypeCreator.asNullable(type.apply(f));
+      }
+      return fn;
+    }
+    if (expr instanceof TypeExpression.BinaryOperation) {
+      return binary((TypeExpression.BinaryOperation) expr, scope);
+    }
+    if (expr instanceof TypeExpression.NotOperation) {
+      BoolFn inner = bool(((TypeExpression.NotOperation) expr).inner(), scope);
+      return (BoolFn) f -> !inner.apply(f);
+    }
+    if (expr instanceof TypeExpression.IfOperation) {
+      var ifOp = (TypeExpression.IfOperation) expr;
+      BoolFn condition = bool(ifOp.ifCondition(), scope);
+      Object thenFn = expression(ifOp.thenExpr(), scope);
+      Object elseFn = expression(ifOp.elseExpr(), scope);
+      if (thenFn instanceof IntFn && elseFn instanceof IntFn) {
+        IntFn t = (IntFn) thenFn;
+        IntFn e = (IntFn) elseFn;
+        return (IntFn) f -> condition.apply(f) ? t.apply(f) : e.apply(f);
+      }
+      if (thenFn instanceof BoolFn && elseFn instanceof BoolFn) {
+        BoolFn t = (BoolFn) thenFn;
+        BoolFn e = (BoolFn) elseFn;
+        return (BoolFn) f -> condition.apply(f) ? t.apply(f) : e.apply(f);
+      }
+      if (thenFn instanceof TypeFn && elseFn instanceof TypeFn) {
+        TypeFn t = (TypeFn) thenFn;
+        TypeFn e = (TypeFn) elseFn;
+        return (TypeFn) f -> condition.apply(f) ? t.apply(f) : e.apply(f);
+      }
+      throw new IllegalArgumentException("Branches of " + expr + " have different kinds.");
+    }
+    if (expr instanceof TypeExpression.ReturnProgram) {
+      var program = (TypeExpression.ReturnProgram) expr;
+      Map<String, Object> programScope = new HashMap<>(scope);
+      List<Step> steps = new ArrayList<>(program.assignments().size());
+      for (TypeExpression.ReturnProgram.Assignment assignment : program.assignments()) {
+        // each assignment is evaluated once into a slot, which its uses read
+        Object fn = expression(assignment.expr(), programScope);
+        if (fn instanceof IntFn) {
+          IntFn value = (IntFn) fn;
+          int slot = intSlots++;
+          steps.add(f -> f.ints[slot] = value.apply(f));
+          programScope.put(assignment.name(), (IntFn) f -> f.ints[slot]);
+        } else if (fn instanceof BoolFn) {
+          BoolFn value = (BoolFn) fn;
+          int slot = valueSlots++;
+          steps.add(f -> f.values[slot] = value.apply(f));
+          programScope.put(assignment.name(), (BoolFn) f -> (Boolean) f.values[slot]);
+        } else {
+          TypeFn value = (TypeFn) fn;
+          int slot = valueSlots++;
+          steps.add(f -> f.values[slot] = value.apply(f));
+          programScope.put(assignment.name(), (TypeFn) f -> (Type) f.values[slot]);
+        }
+      }
+      Object result = expression(program.finalExpression(), programScope);
+      if (result instanceof IntFn) {
+        IntFn r = (IntFn) result;
+        return (IntFn)
+            f -> {
+              run(steps, f);
+              return r.apply(f);
+            };
+      }
+      if (result instanceof BoolFn) {
+        BoolFn r = (BoolFn) result;
+        return (BoolFn)
+            f -> {
+              run(steps, f);
+              return r.apply(f);
+            };
+      }
+      TypeFn r = (TypeFn) result;
+      return (TypeFn)
+          f -> {
+            run(steps, f);
+            return r.apply(f);
+          };
+    }
+    return typeConstructor(expr, scope);
+  }
+
+  private static void run(List<Step> steps, Frame frame) {
+    for (Step step : steps) {
+      step.apply(frame);
+    }
+  }
+
+  private Object binary(TypeExpression.BinaryOperation expr, Map<String, Object> scope) {
+    switch (expr.opType()) {
+      case AND:
+        {
+          BoolFn l = bool(expr.left(), scope);
+          BoolFn r = bool(expr.right(), scope);
+          return (BoolFn) f -> l.apply(f) && r.apply(f);
+        }
+      case OR:
+        {
+          BoolFn l = bool(expr.left(), scope);
+          BoolFn r = bool(expr.right(), scope);
+          return (BoolFn) f -> l.apply(f) || r.apply(f);
+        }
+      case EQ:
+      case NOT_EQ:
+        {
+          BoolFn eq = equality(expr, scope);
+          return expr.opType() == TypeExpression.BinaryOperation.OpType.EQ
+              ? eq
+              : (BoolFn) f -> !eq.apply(f);
+        }
+      default:
+        break;
+    }
+
+    IntFn l = integer(expr.left(), scope);
+    IntFn r = integer(expr.right(), scope);
+    switch (expr.opType()) {
+      case ADD:
+        return (IntFn) f -> l.apply(f) + r.apply(f);
+      case SUBTRACT:
+        return (IntFn) f -> l.apply(f) - r.apply(f);
+      case MULTIPLY:
+        return (IntFn) f -> l.apply(f) * r.apply(f);
+      case DIVIDE:
+        return (IntFn) f -> l.apply(f) / r.apply(f);
+      case MIN:
+        return (IntFn) f -> Math.min(l.apply(f), r.apply(f));
+      case MAX:
+        return (IntFn) f -> Math.max(l.apply(f), r.apply(f));
+      case LT:
+        return (BoolFn) f -> l.apply(f) < r.apply(f);
+      case GT:
+        return (BoolFn) f -> l.apply(f) > r.apply(f);
+      case LTE:
+        return (BoolFn) f -> l.apply(f) <= r.apply(f);
+      case GTE:
+        return (BoolFn) f -> l.apply(f) >= r.apply(f);
+      default:
+        throw new UnsupportedOperationException(
+            "Unsupported operation in type derivation: " + expr.opType());
+    }
+  }
+
+  private BoolFn equality(TypeExpression.BinaryOperation expr, Map<String, Object> scope) {
+    Object left = expression(expr.left(), scope);
+    Object right = expression(expr.right(), scope);
+    if (left instanceof IntFn && right instanceof IntFn) {
+      IntFn l = (IntFn) left;
+      IntFn r = (IntFn) right;
+      return f -> l.apply(f) == r.apply(f);
+    }
+    if (left instanceof BoolFn && right instanceof BoolFn) {
+      BoolFn l = (BoolFn) left;
+      BoolFn r = (BoolFn) right;
+      return f -> l.apply(f) == r.apply(f);
+    }
+    if (left instanceof TypeFn && right instanceof TypeFn) {
+      TypeFn l = (TypeFn) left;
+      TypeFn r = (TypeFn) right;
+      return f -> l.apply(f).equals(r.apply(f));
+    }
+    return f -> false;
+  }
+
+  private Object typeConstructor(TypeExpression expr, Map<String, Object> scope) {
+    if (!(expr instanceof NullableType)) {
+      throw new UnsupportedOperationException("Unsupported construct in type derivation: " + expr);
+    }
+    TypeCreator creator = Type.withNullability(((NullableType) expr).nullable());
+    if (expr instanceof ParameterizedType.Decimal) {
+      var d = (ParameterizedType.Decimal) expr;
+      IntFn p = integer(d.precision(), scope);
+      IntFn s = integer(d.scale(), scope);
+      return (TypeFn) f -> creator.decimal(p.apply(f), s.apply(f));
+    }
+    if (expr instanceof TypeExpression.Decimal) {
+      var d = (TypeExpression.Decimal) expr;
+      IntFn p = integer(d.precision(), scope);
+      IntFn s = integer(d.scale(), scope);
+      return (TypeFn) f -> creator.decimal(p.apply(f), s.apply(f));
+    }
+    if (expr instanceof ParameterizedType.VarChar || expr instanceof TypeExpression.VarChar) {
+      IntFn len =
+          integer(
+              expr instanceof ParameterizedType.VarChar
+                  ? ((ParameterizedType.VarChar) expr).length()
+                  : ((TypeExpression.VarChar) expr).length(),
+              scope);
+      return (TypeFn) f -> creator.varChar(len.apply(f));
+    }
+    if (expr instanceof ParameterizedType.FixedChar || expr instanceof TypeExpression.FixedChar) {
+      IntFn len =
+          integer(
+              expr instanceof ParameterizedType.FixedChar
+                  ? ((ParameterizedType.FixedChar) expr).length()
+                  : ((TypeExpression.FixedChar) expr).length(),
+              scope);
+      return (TypeFn) f -> creator.fixedChar(len.apply(f));
+    }
+    if (expr instanceof ParameterizedType.FixedBinary
+        || expr instanceof TypeExpression.FixedBinary) {
+      IntFn len =
+          integer(
+              expr instanceof ParameterizedType.FixedBinary
+                  ? ((ParameterizedType.FixedBinary) expr).length()
+                  : ((TypeExpression.FixedBinary) expr).length(),
+              scope);
+      return (TypeFn) f -> creator.fixedBinary(len.apply(f));
+    }
+    if (expr instanceof ParameterizedType.IntervalDay
+        || expr instanceof TypeExpression.IntervalDay) {
+      IntFn p =
+          integer(
+              expr instanceof ParameterizedType.IntervalDay
+                  ? ((ParameterizedType.IntervalDay) expr).precision()
+                  : ((TypeExpression.IntervalDay) expr).precision(),
+              scope);
+      return (TypeFn) f -> creator.intervalDay(p.apply(f));
+    }
+    if (expr instanceof ParameterizedType.IntervalCompound
+        || expr instanceof TypeExpression.IntervalCompound) {
+      IntFn p =
+          integer(
+              expr instanceof ParameterizedType.IntervalCompound
+                  ? ((ParameterizedType.IntervalCompound) expr).precision()
+                  : ((TypeExpression.IntervalCompound) expr).precision(),
+              scope);
+      return (TypeFn) f -> creator.intervalCompound(p.apply(f));
+    }
+    if (expr instanceof ParameterizedType.PrecisionTimestamp
+        || expr instanceof TypeExpression.PrecisionTimestamp) {
+      IntFn p =
+          integer(
+              expr instanceof ParameterizedType.PrecisionTimestamp
+                  ? ((ParameterizedType.PrecisionTimestamp) expr).precision()
+                  : ((TypeExpression.PrecisionTimestamp) expr).precision(),
+              scope);
+      return (TypeFn) f -> creator.precisionTimestamp(p.apply(f));
+    }
+    if (expr instanceof ParameterizedType.PrecisionTimestampTZ
+        || expr instanceof TypeExpression.PrecisionTimestampTZ) {
+      IntFn p =
+          integer(
+              expr instanceof ParameterizedType.PrecisionTimestampTZ
+                  ? ((ParameterizedType.PrecisionTimestampTZ) expr).precision()
+                  : ((TypeExpression.PrecisionTimestampTZ) expr).precision(),
+              scope);
+      return (TypeFn) f -> creator.precisionTimestampTZ(p.apply(f));
+    }
+    if (expr instanceof ParameterizedType.ListType || expr instanceof TypeExpression.ListType) {
+      TypeFn element =
+          type(
+              expr instanceof ParameterizedType.ListType
+                  ? ((ParameterizedType.ListType) expr).name()
+                  : ((TypeExpression.ListType) expr).elementType(),
+              scope);
+      return (TypeFn) f -> creator.list(element.apply(f));
+    }
+    if (expr instanceof ParameterizedType.Map || expr instanceof TypeExpression.Map) {
+      TypeFn key;
+      TypeFn value;
+      if (expr instanceof ParameterizedType.Map) {
+        key = type(((ParameterizedType.Map) expr).key(), scope);
+        value = type(((ParameterizedType.Map) expr).value(), scope);
+      } else {
+        key = type(((TypeExpression.Map) expr).key(), scope);
+        value = type(((TypeExpression.Map) expr).value(), scope);
+      }
+      return (TypeFn) f -> creator.map(key.apply(f), value.apply(f));
+    }
+    if (expr instanceof ParameterizedType.Struct || expr instanceof TypeExpression.Struct) {
+      List<? extends TypeExpression> fields =
+          expr instanceof ParameterizedType.Struct
+              ? ((ParameterizedType.Struct) expr).fields()
+              : ((TypeExpression.Struct) expr).fields();
+      List<TypeFn> fieldFns = new ArrayList<>(fields.size());
+      for (TypeExpression field : fields) {
+        fieldFns.add(type(field, scope));
+      }
+      return (TypeFn)
+          f -> {
+            List<Type> types = new ArrayList<>(fieldFns.size());
+            for (TypeFn fieldFn : fieldFns) {
+              types.add(fieldFn.apply(f));
+            }
+            return creator.struct(types);
+          };
+    }
+    throw new UnsupportedOperationException("Unsupported construct in type derivation: " + expr);
+  }
+
+  private IntFn integer(TypeExpression expr, Map<String, Object> scope) {
+    Object fn = expression(expr, scope);
+    if (fn instanceof IntFn) {
+      return (IntFn) fn;
+    }
+    throw new IllegalArgumentException(String.format("Expected an integer but found %s.", expr));
+  }
+
+  private BoolFn bool(TypeExpression expr, Map<String, Object> scope) {
+    Object fn = expression(expr, scope);
+    if (fn instanceof BoolFn) {
+      return (BoolFn) fn;
+    }
+    throw new IllegalArgumentException(String.format("Expected a boolean but found %s.", expr));
+  }
+
+  private TypeFn type(TypeExpression expr, Map<String, Object> scope) {
+    Object fn = expression(expr, scope);
+    if (fn instanceof TypeFn) {
+      return (TypeFn) fn;
+    }
+    throw new IllegalArgumentException(String.format("Expected a type but found %s.", expr));
+  }
+}
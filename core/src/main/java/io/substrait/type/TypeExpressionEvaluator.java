@@ -4,18 +4,34 @@ import io.substrait.extension.SimpleExtension;
 import io.substrait.function.TypeExpression;
 import java.util.List;
 
+/**
+ * Evaluates the return type derivations of extension functions (as produced by {@link
+ * io.substrait.type.parser.ParseToPojo#typeExpression}) against the concrete types of the
+ * arguments a function is invoked with.
+ *
+ * <p>Type parameters (such as {@code P1} in {@code decimal<P1,S1>} or {@code any1}) are bound by
+ * matching the declared argument types against the actual argument types. The derivation is then
+ * evaluated using integer arithmetic, {@code min}/{@code max}, comparisons, boolean logic and
+ * ternaries.
+ *
+ * <p>Each call compiles the derivation with {@link TypeExpressionCompiler}; callers resolving the
+ * same derivation repeatedly should keep the compiled form instead.
+ */
 public class TypeExpressionEvaluator {
   static final org.slf4j.Logger logger =
       org.slf4j.LoggerFactory.getLogger(TypeExpressionEvaluator.class);
 
+  /**
+   * @param returnExpression the type derivation to evaluate
+   * @param parameterizedTypeList the declared arguments of the function
+   * @param actualTypes the types of the value arguments the function is invoked with. Enum
+   *     arguments carry no type and must not be included.
+   */
   public static Type evaluateExpression(
       TypeExpression returnExpression,
       List<SimpleExtension.Argument> parameterizedTypeList,
       List<Type> actualTypes) {
-
-    if (returnExpression instanceof Type) {
-      return (Type) returnExpression;
-    }
-    throw new UnsupportedOperationException("NYI");
+    return TypeExpressionCompiler.compile(returnExpression, parameterizedTypeList)
+        .apply(actualTypes);
   }
 }
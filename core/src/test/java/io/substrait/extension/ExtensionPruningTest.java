@@ -0,0 +1,110 @@
+package io.substrait.extension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.substrait.TestBase;
+import io.substrait.function.ToTypeExpressionString;
+import io.substrait.plan.Plan;
+import io.substrait.plan.PlanProtoConverter;
+import io.substrait.plan.ProtoPlanConverter;
+import io.substrait.relation.NamedScan;
+import io.substrait.type.parser.TypeStringParser;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+public class ExtensionPruningTest extends TestBase {
+
+  final PlanProtoConverter planProtoConverter = new PlanProtoConverter();
+
+  NamedScan table =
+      b.namedScan(
+          Stream.of("example").collect(Collectors.toList()),
+          Stream.of("a", "b").collect(Collectors.toList()),
+          Stream.of(R.I64, R.I64).collect(Collectors.toList()));
+
+  Plan plan() {
+    return b.plan(
+        b.root(
+            b.aggregate(
+                input -> b.grouping(input, 0),
+                input -> Arrays.asList(b.sum(input, 1)),
+                b.project(
+                    input ->
+                        Arrays.asList(
+                            b.add(b.fieldReference(input, 0), b.fieldReference(input, 1)),
+                            b.fieldReference(input, 1)),
+                    b.remap(2, 3),
+                    b.filter(
+                        input -> b.equal(b.fieldReference(input, 0), b.fieldReference(input, 1)),
+                        table)))));
+  }
+
+  @Test
+  void prunedCollectionOnlyContainsReferencedFunctions() {
+    SimpleExtension.ExtensionCollection pruned = planProtoConverter.extensionCollection(plan());
+
+    assertEquals(
+        new HashSet<>(Arrays.asList("add:i64_i64", "equal:any_any")),
+        pruned.scalarFunctions().stream()
+            .map(SimpleExtension.Function::key)
+            .collect(Collectors.toSet()));
+    assertEquals(
+        Arrays.asList("sum:i64"),
+        pruned.aggregateFunctions().stream()
+            .map(SimpleExtension.Function::key)
+            .collect(Collectors.toList()));
+    assertTrue(pruned.windowFunctions().isEmpty());
+    assertTrue(pruned.types().isEmpty());
+  }
+
+  @Test
+  void roundtripWithPrunedCollection() {
+    Plan plan = plan();
+    SimpleExtension.ExtensionCollection pruned = planProtoConverter.extensionCollection(plan);
+
+    var protoPlan = planProtoConverter.toProto(plan);
+    assertEquals(plan, new ProtoPlanConverter(pruned).from(protoPlan));
+  }
+
+  @Test
+  void roundtripPrunedCollectionThroughYaml() {
+    SimpleExtension.ExtensionCollection pruned = planProtoConverter.extensionCollection(plan());
+
+    Map<String, String> yaml = SimpleExtensionWriter.toYaml(pruned);
+    SimpleExtension.ExtensionCollection reloaded = SimpleExtension.load(yaml);
+
+    assertEquals(
+        pruned.scalarFunctions().stream()
+            .map(SimpleExtension.Function::getAnchor)
+            .collect(Collectors.toSet()),
+        reloaded.scalarFunctions().stream()
+            .map(SimpleExtension.Function::getAnchor)
+            .collect(Collectors.toSet()));
+    assertEquals(
+        pruned.aggregateFunctions().stream()
+            .map(SimpleExtension.Function::getAnchor)
+            .collect(Collectors.toSet()),
+        reloaded.aggregateFunctions().stream()
+            .map(SimpleExtension.Function::getAnchor)
+            .collect(Collectors.toSet()));
+    for (SimpleExtension.ScalarFunctionVariant variant : pruned.scalarFunctions()) {
+      assertEquals(
+          variant.returnType(), reloaded.getScalarFunction(variant.getAnchor()).returnType());
+    }
+  }
+
+  @Test
+  void defaultReturnTypesRoundtripThroughString() {
+    for (SimpleExtension.ScalarFunctionVariant variant :
+        defaultExtensionCollection.scalarFunctions()) {
+      String str = ToTypeExpressionString.apply(variant.returnType());
+      assertEquals(
+          variant.returnType(), TypeStringParser.parseExpression(str, variant.uri()), str);
+    }
+  }
+}
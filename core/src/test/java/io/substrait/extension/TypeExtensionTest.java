@@ -11,6 +11,7 @@ import io.substrait.type.Type;
 import io.substrait.type.TypeCreator;
 import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
@@ -43,6 +44,30 @@ public class TypeExtensionTest {
   final PlanProtoConverter planProtoConverter = new PlanProtoConverter();
   final ProtoPlanConverter protoPlanConverter = new ProtoPlanConverter(extensionCollection);
 
+  @Test
+  void typesRoundtripThroughYaml() {
+    String yaml =
+        "types:\n"
+            + "  - name: point\n"
+            + "    structure:\n"
+            + "      latitude: fp64\n"
+            + "      longitude: fp64\n"
+            + "  - name: fixed_vector\n"
+            + "    parameters:\n"
+            + "      - name: length\n"
+            + "        type: integer\n"
+            + "        min: 1\n"
+            + "    structure: list<fp32>\n";
+    SimpleExtension.ExtensionCollection collection = SimpleExtension.load(Map.of(NAMESPACE, yaml));
+
+    SimpleExtension.ExtensionCollection reloaded =
+        SimpleExtension.load(SimpleExtensionWriter.toYaml(collection));
+    assertEquals(collection.types(), reloaded.types());
+    assertEquals(
+        extensionCollection.types(),
+        SimpleExtension.load(SimpleExtensionWriter.toYaml(extensionCollection)).types());
+  }
+
   @Test
   void roundtripCustomType() {
     // CREATE TABLE example (custom_type_column custom_type1, i64_column BIGINT);
@@ -0,0 +1,190 @@
+package io.substrait.plan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.substrait.TestBase;
+import io.substrait.expression.Expression;
+import io.substrait.expression.ExpressionCreator;
+import io.substrait.expression.FieldReference;
+import io.substrait.extension.DefaultExtensionCatalog;
+import io.substrait.relation.NamedScan;
+import io.substrait.relation.ReferenceRel;
+import io.substrait.relation.Rel;
+import io.substrait.relation.Set;
+import io.substrait.type.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class PlanValidatorTest extends TestBase {
+
+  final PlanValidator validator = new PlanValidator();
+
+  NamedScan scan(String name, Type... types) {
+    return b.namedScan(
+        Arrays.asList(name),
+        IntStream.range(0, types.length).mapToObj(i -> "c" + i).collect(Collectors.toList()),
+        Arrays.asList(types));
+  }
+
+  static void assertErrors(List<PlanValidator.ValidationError> errors, String... paths) {
+    assertEquals(
+        Arrays.asList(paths),
+        errors.stream().map(PlanValidator.ValidationError::getPath).collect(Collectors.toList()),
+        errors::toString);
+  }
+
+  @Test
+  void validPlan() {
+    NamedScan orders = scan("orders", R.I64, R.I64);
+    NamedScan customers = scan("customers", R.I64, R.STRING);
+    Rel join =
+        b.innerJoin(
+            input -> b.equal(b.fieldReference(input, 1), b.fieldReference(input, 2)),
+            orders,
+            customers);
+    Rel filter =
+        b.filter(
+            input -> b.equal(b.fieldReference(input, 0), ExpressionCreator.i64(false, 1)), join);
+    Rel project =
+        b.project(
+            input -> Arrays.asList(b.add(b.fieldReference(input, 0), b.fieldReference(input, 1))),
+            filter);
+
+    assertErrors(validator.validate(b.plan(b.root(project))));
+  }
+
+  @Test
+  void fieldReferenceOutOfBounds() {
+    NamedScan scan = scan("t", R.I64, R.I64);
+    Expression outOfBounds = FieldReference.newRootStructReference(2, R.I64);
+    Rel filter = b.filter(input -> b.equal(outOfBounds, ExpressionCreator.i64(false, 1)), scan);
+
+    List<PlanValidator.ValidationError> errors = validator.validate(b.plan(b.root(filter)));
+    assertErrors(errors, "roots[0](Filter)/condition/arguments[0]");
+    assertTrue(errors.get(0).getMessage().contains("out of the bounds"));
+  }
+
+  @Test
+  void fieldReferenceTypeMismatch() {
+    NamedScan scan = scan("t", R.I64, R.STRING);
+    Rel project =
+        b.project(input -> Arrays.asList(FieldReference.newRootStructReference(1, R.I64)), scan);
+
+    assertErrors(validator.validate(project), "root(Project)/expressions[0]");
+  }
+
+  @Test
+  void nonBooleanConditions() {
+    NamedScan left = scan("l", R.I64);
+    NamedScan right = scan("r", R.I64);
+    Rel filter = b.filter(input -> b.fieldReference(input, 0), left);
+    Rel join =
+        b.innerJoin(
+            input -> b.add(b.fieldReference(input, 0), b.fieldReference(input, 1)), filter, right);
+
+    List<PlanValidator.ValidationError> errors = validator.validate(join);
+    assertErrors(errors, "root(Join)/left(Filter)/condition", "root(Join)/condition");
+    assertTrue(errors.get(0).getMessage().contains("Expected a boolean"));
+  }
+
+  @Test
+  void switchConditionTypes() {
+    NamedScan scan = scan("t", R.I64);
+    Rel project =
+        b.project(
+            input ->
+                Arrays.asList(
+                    b.switchExpression(
+                        b.fieldReference(input, 0),
+                        Arrays.asList(
+                            b.switchClause(
+                                ExpressionCreator.i64(false, 1),
+                                ExpressionCreator.string(false, "a")),
+                            b.switchClause(
+                                ExpressionCreator.string(false, "2"),
+                                ExpressionCreator.string(false, "b"))),
+                        ExpressionCreator.string(false, "c"))),
+            scan);
+
+    List<PlanValidator.ValidationError> errors = validator.validate(project);
+    assertErrors(errors, "root(Project)/expressions[0]/switchClauses[1]/condition");
+    assertTrue(errors.get(0).getMessage().contains("to match"));
+  }
+
+  @Test
+  void sharedSubtreesAreValidatedOnce() {
+    NamedScan scan = scan("t", R.I64);
+    Rel invalid = b.filter(input -> b.fieldReference(input, 0), scan);
+    Rel cross =
+        b.cross(
+            ReferenceRel.builder().subtree(invalid).build(),
+            ReferenceRel.builder().subtree(invalid).build());
+
+    assertErrors(
+        validator.validate(cross), "root(Cross)/inputs[0](ReferenceRel)/subtree(Filter)/condition");
+  }
+
+  @Test
+  void functionArgumentTypes() {
+    NamedScan scan = scan("t", R.I64, R.STRING);
+    Expression add =
+        b.scalarFn(
+            DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC,
+            "add:i32_i32",
+            R.I32,
+            b.fieldReference(scan, 0),
+            b.fieldReference(scan, 1));
+
+    List<PlanValidator.ValidationError> errors = validator.validate(add, scan.getRecordType());
+    assertErrors(errors, "expression/arguments[0]", "expression/arguments[1]");
+    assertTrue(errors.get(1).getMessage().contains("Expected i32"));
+  }
+
+  @Test
+  void functionArgumentCount() {
+    NamedScan scan = scan("t", R.I64);
+    Expression add =
+        b.scalarFn(
+            DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC,
+            "add:i64_i64",
+            R.I64,
+            b.fieldReference(scan, 0));
+
+    assertErrors(validator.validate(add, scan.getRecordType()), "expression");
+  }
+
+  @Test
+  void incompatibleSetInputs() {
+    Rel set =
+        b.set(
+            Set.SetOp.UNION_ALL,
+            scan("a", R.I64, R.STRING),
+            scan("b", R.I64, R.STRING),
+            scan("c", R.STRING, R.I64));
+
+    assertErrors(validator.validate(set), "root(Set)/inputs[2]");
+  }
+
+  @Test
+  void reportsAllErrors() {
+    NamedScan scan = scan("t", R.I64);
+    Rel invalidFilter = b.filter(input -> b.fieldReference(input, 0), scan);
+    Rel invalidProject =
+        b.project(input -> Arrays.asList(FieldReference.newRootStructReference(3, R.I64)), scan);
+    Plan plan =
+        ImmutablePlan.builder()
+            .addRoots(b.root(invalidFilter), b.root(scan), b.root(invalidProject))
+            .build();
+
+    assertErrors(
+        validator.validate(plan),
+        "roots[0](Filter)/condition",
+        "roots[2](Project)/expressions[0]");
+    // a validator can be reused
+    assertErrors(validator.validate(b.plan(b.root(scan))));
+  }
+}
@@ -0,0 +1,104 @@
+package io.substrait.relation.optimize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.substrait.TestBase;
+import io.substrait.expression.MaskExpression;
+import io.substrait.relation.Join;
+import io.substrait.relation.NamedScan;
+import io.substrait.relation.Project;
+import io.substrait.relation.Rel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class ColumnPruningTest extends TestBase {
+
+  final ColumnPruning pruning = new ColumnPruning();
+
+  NamedScan scan(String name, String... columns) {
+    return b.namedScan(
+        Arrays.asList(name),
+        Arrays.asList(columns),
+        Arrays.stream(columns).map(c -> R.I64).collect(Collectors.toList()));
+  }
+
+  NamedScan withProjection(NamedScan scan, Integer... fields) {
+    return NamedScan.builder()
+        .from(scan)
+        .projection(MaskExpression.of(Arrays.asList(fields)))
+        .build();
+  }
+
+  @Test
+  void allFieldsUsed() {
+    NamedScan scan = scan("t", "a", "b");
+    Rel plan =
+        b.filter(input -> b.equal(b.fieldReference(input, 0), b.fieldReference(input, 1)), scan);
+
+    assertEquals(plan, pruning.apply(plan));
+  }
+
+  @Test
+  void projectOverScan() {
+    NamedScan scan = scan("t", "a", "b", "c", "d");
+    // outputs [a + c]
+    Rel plan =
+        b.project(
+            input -> Arrays.asList(b.add(b.fieldReference(input, 0), b.fieldReference(input, 2))),
+            b.remap(4),
+            scan);
+
+    Rel expected =
+        b.project(
+            input -> Arrays.asList(b.add(b.fieldReference(input, 0), b.fieldReference(input, 1))),
+            b.remap(2),
+            withProjection(scan, 0, 2));
+    assertEquals(expected, pruning.apply(plan));
+  }
+
+  @Test
+  void joinSides() {
+    NamedScan left = scan("l", "a", "b");
+    NamedScan right = scan("r", "c", "d");
+    Join join =
+        b.innerJoin(
+            input -> b.equal(b.fieldReference(input, 0), b.fieldReference(input, 2)), left, right);
+    // outputs [d]
+    Project plan = b.project(input -> Collections.emptyList(), b.remap(3), join);
+
+    Join prunedJoin =
+        b.innerJoin(
+            input -> b.equal(b.fieldReference(input, 0), b.fieldReference(input, 1)),
+            withProjection(left, 0),
+            right);
+    Rel expected =
+        Project.builder()
+            .from(plan)
+            .input(Join.builder().from(prunedJoin).remap(b.remap(2)).build())
+            .remap(Optional.empty())
+            .build();
+    assertEquals(expected, pruning.apply(plan));
+  }
+
+  @Test
+  void projectionRoundTrip() {
+    NamedScan scan = withProjection(scan("t", "a", "b", "c"), 2, 0);
+    assertEquals(Arrays.asList(R.I64, R.I64), scan.getRecordType().fields());
+    verifyRoundTrip(scan);
+  }
+
+  @Test
+  void singleFieldStaysStruct() {
+    NamedScan scan = scan("t", "a", "b");
+    // outputs [b]
+    Project plan = b.project(input -> Collections.emptyList(), b.remap(1), scan);
+
+    NamedScan pruned = (NamedScan) pruning.apply(plan).getInputs().get(0);
+    assertEquals(withProjection(scan, 1), pruned);
+    assertTrue(pruned.getProjection().get().getMaintainSingularStruct());
+  }
+}
@@ -0,0 +1,130 @@
+package io.substrait.relation.optimize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.substrait.TestBase;
+import io.substrait.expression.Expression;
+import io.substrait.expression.ExpressionCreator;
+import io.substrait.extension.DefaultExtensionCatalog;
+import io.substrait.relation.Filter;
+import io.substrait.relation.NamedScan;
+import io.substrait.relation.Rel;
+import io.substrait.type.TypeCreator;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+public class ExpressionSimplifierTest extends TestBase {
+
+  final ExpressionSimplifier simplifier = new ExpressionSimplifier();
+
+  final NamedScan scan =
+      b.namedScan(Arrays.asList("t"), Arrays.asList("a", "b"), Arrays.asList(R.I32, R.I32));
+
+  @Test
+  void foldsArithmetic() {
+    Expression expression = b.add(b.multiply(b.i32(2), b.i32(3)), b.i32(4));
+    assertEquals(ExpressionCreator.i32(false, 10), simplifier.simplify(expression));
+  }
+
+  @Test
+  void overflowIsNotFolded() {
+    Expression expression = b.add(b.i32(Integer.MAX_VALUE), b.i32(1));
+    assertEquals(expression, simplifier.simplify(expression));
+  }
+
+  @Test
+  void nullPropagates() {
+    Expression nullI32 = ExpressionCreator.typedNull(TypeCreator.NULLABLE.I32);
+    assertEquals(nullI32, simplifier.simplify(b.add(nullI32, b.i32(1))));
+  }
+
+  @Test
+  void nullsOfOtherExtensionsAreKept() {
+    Expression concat =
+        b.scalarFn(
+            DefaultExtensionCatalog.FUNCTIONS_STRING,
+            "concat:str",
+            TypeCreator.NULLABLE.STRING,
+            ExpressionCreator.string(false, "a"),
+            ExpressionCreator.typedNull(TypeCreator.NULLABLE.STRING));
+    assertEquals(concat, simplifier.simplify(concat));
+  }
+
+  @Test
+  void booleanIdentities() {
+    Expression condition = b.equal(b.fieldReference(scan, 0), b.fieldReference(scan, 1));
+    assertEquals(condition, simplifier.simplify(b.or(b.bool(false), condition)));
+    assertEquals(b.bool(true), simplifier.simplify(b.or(condition, b.bool(true))));
+  }
+
+  @Test
+  void comparisonsFollowTheirTypes() {
+    assertEquals(
+        b.bool(true),
+        simplifier.simplify(
+            b.equal(ExpressionCreator.fp64(false, -0.0), ExpressionCreator.fp64(false, 0.0))));
+    Expression nan =
+        b.equal(ExpressionCreator.fp64(false, Double.NaN), ExpressionCreator.fp64(false, 1.0));
+    assertEquals(nan, simplifier.simplify(nan));
+    // the order of strings depends on their collation
+    Expression lt =
+        b.scalarFn(
+            DefaultExtensionCatalog.FUNCTIONS_COMPARISON,
+            "lt:any_any",
+            R.BOOLEAN,
+            ExpressionCreator.string(false, "a"),
+            ExpressionCreator.string(false, "B"));
+    assertEquals(lt, simplifier.simplify(lt));
+  }
+
+  @Test
+  void castsAreFolded() {
+    assertEquals(
+        ExpressionCreator.string(false, "42"), simplifier.simplify(b.cast(b.i32(42), R.STRING)));
+    assertEquals(
+        ExpressionCreator.i64(false, 12),
+        simplifier.simplify(b.cast(ExpressionCreator.string(false, "12"), R.I64)));
+  }
+
+  @Test
+  void ifThenWithConstantConditions() {
+    Expression expression =
+        b.ifThen(
+            Arrays.asList(
+                b.ifClause(b.bool(false), b.i32(1)),
+                b.ifClause(b.equal(b.i32(1), b.i32(1)), b.i32(2))),
+            b.i32(3));
+    assertEquals(b.i32(2), simplifier.simplify(expression));
+  }
+
+  @Test
+  void switchMatchesFloatingPointAsEquals() {
+    Expression negativeZero =
+        b.switchExpression(
+            ExpressionCreator.fp64(false, -0.0),
+            Arrays.asList(b.switchClause(ExpressionCreator.fp64(false, 0.0), b.i32(1))),
+            b.i32(2));
+    assertEquals(b.i32(1), simplifier.simplify(negativeZero));
+
+    Expression nan =
+        b.switchExpression(
+            ExpressionCreator.fp64(false, Double.NaN),
+            Arrays.asList(b.switchClause(ExpressionCreator.fp64(false, Double.NaN), b.i32(1))),
+            b.i32(2));
+    assertEquals(nan, simplifier.simplify(nan));
+  }
+
+  @Test
+  void simplifiesRelations() {
+    Filter filter =
+        b.filter(
+            input ->
+                b.or(
+                    b.bool(false),
+                    b.equal(b.fieldReference(input, 0), b.add(b.i32(1), b.i32(1)))),
+            scan);
+
+    Rel expected = b.filter(input -> b.equal(b.fieldReference(input, 0), b.i32(2)), scan);
+    assertEquals(expected, simplifier.apply(filter));
+  }
+}
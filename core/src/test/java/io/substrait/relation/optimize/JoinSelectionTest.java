@@ -0,0 +1,150 @@
+package io.substrait.relation.optimize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.substrait.TestBase;
+import io.substrait.expression.Expression;
+import io.substrait.extension.DefaultExtensionCatalog;
+import io.substrait.hint.Hint;
+import io.substrait.relation.Join;
+import io.substrait.relation.NamedScan;
+import io.substrait.relation.Rel;
+import io.substrait.relation.physical.HashJoin;
+import io.substrait.relation.physical.NestedLoopJoin;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class JoinSelectionTest extends TestBase {
+
+  final JoinSelection selection = new JoinSelection(defaultExtensionCollection);
+
+  NamedScan scan(String name, String... columns) {
+    return b.namedScan(
+        Arrays.asList(name),
+        Arrays.asList(columns),
+        Arrays.stream(columns).map(c -> R.I64).collect(Collectors.toList()));
+  }
+
+  NamedScan withRowCount(NamedScan scan, double rowCount) {
+    return NamedScan.builder()
+        .from(scan)
+        .hint(Hint.builder().stats(Hint.Stats.builder().rowCount(rowCount).build()).build())
+        .build();
+  }
+
+  Expression and(Expression... conjuncts) {
+    return b.scalarFn(DefaultExtensionCatalog.FUNCTIONS_BOOLEAN, "and:bool", R.BOOLEAN, conjuncts);
+  }
+
+  @Test
+  void equiJoinToHashJoin() {
+    NamedScan left = scan("l", "a", "b");
+    NamedScan right = scan("r", "c", "d");
+    Expression residual = b.equal(b.fieldReference(left, 0), b.fieldReference(left, 1));
+    Join join =
+        b.innerJoin(
+            input -> and(b.equal(b.fieldReference(input, 2), b.fieldReference(input, 0)), residual),
+            left,
+            right);
+
+    Rel expected =
+        HashJoin.builder()
+            .from(
+                b.hashJoin(
+                    Arrays.asList(0), Arrays.asList(0), HashJoin.JoinType.INNER, left, right))
+            .postJoinFilter(residual)
+            .build();
+    assertEquals(expected, selection.apply(join));
+  }
+
+  @Test
+  void smallerLeftInputIsBuildSide() {
+    NamedScan left = withRowCount(scan("l", "a", "b"), 10);
+    NamedScan right = withRowCount(scan("r", "c", "d"), 1000);
+    Join join =
+        b.innerJoin(
+            input -> b.equal(b.fieldReference(input, 1), b.fieldReference(input, 2)), left, right);
+
+    Rel expected =
+        b.hashJoin(
+            Arrays.asList(0),
+            Arrays.asList(1),
+            HashJoin.JoinType.INNER,
+            Optional.of(b.remap(2, 3, 0, 1)),
+            right,
+            left);
+    assertEquals(expected, selection.apply(join));
+    assertEquals(join.getRecordType(), expected.getRecordType());
+  }
+
+  @Test
+  void nonEquiJoinToNestedLoopJoin() {
+    NamedScan left = scan("l", "a", "b");
+    NamedScan right = scan("r", "c", "d");
+    Join join =
+        b.join(
+            input -> b.equal(b.fieldReference(input, 0), b.fieldReference(input, 1)),
+            Join.JoinType.LEFT,
+            left,
+            right);
+
+    Rel expected =
+        b.nestedLoopJoin(
+            input -> b.equal(b.fieldReference(input, 0), b.fieldReference(input, 1)),
+            NestedLoopJoin.JoinType.LEFT,
+            left,
+            right);
+    assertEquals(expected, selection.apply(join));
+  }
+
+  @Test
+  void semiJoinOutputtingRightFieldsStaysLogical() {
+    NamedScan left = scan("l", "a", "b");
+    NamedScan right = scan("r", "c", "d");
+    Join join =
+        b.join(
+            input -> b.equal(b.fieldReference(input, 0), b.fieldReference(input, 2)),
+            Join.JoinType.SEMI,
+            left,
+            right);
+
+    assertEquals(Optional.empty(), join.accept(selection));
+  }
+
+  @Test
+  void semiJoinWithPostJoinFilterIsNotSwapped() {
+    NamedScan left = withRowCount(scan("l", "a", "b"), 10);
+    NamedScan right = withRowCount(scan("r", "c", "d"), 1000);
+    Join semiJoin =
+        b.join(
+            input -> b.equal(b.fieldReference(input, 0), b.fieldReference(input, 2)),
+            Join.JoinType.SEMI,
+            left,
+            right);
+    // compares a field of each input
+    Expression filter =
+        b.scalarFn(
+            DefaultExtensionCatalog.FUNCTIONS_COMPARISON,
+            "lt:any_any",
+            R.BOOLEAN,
+            b.fieldReference(semiJoin, 1),
+            b.fieldReference(semiJoin, 3));
+    Join join = Join.builder().from(semiJoin).postJoinFilter(filter).remap(b.remap(0, 1)).build();
+
+    Rel expected =
+        HashJoin.builder()
+            .from(
+                b.hashJoin(
+                    Arrays.asList(0),
+                    Arrays.asList(0),
+                    HashJoin.JoinType.LEFT_SEMI,
+                    Optional.of(b.remap(0, 1)),
+                    left,
+                    right))
+            .postJoinFilter(filter)
+            .build();
+    assertEquals(expected, selection.apply(join));
+  }
+}
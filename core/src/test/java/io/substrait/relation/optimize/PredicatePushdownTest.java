@@ -0,0 +1,118 @@
+package io.substrait.relation.optimize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.substrait.TestBase;
+import io.substrait.expression.Expression;
+import io.substrait.extension.DefaultExtensionCatalog;
+import io.substrait.relation.Join;
+import io.substrait.relation.NamedScan;
+import io.substrait.relation.Project;
+import io.substrait.relation.Rel;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class PredicatePushdownTest extends TestBase {
+
+  final PredicatePushdown pushdown = new PredicatePushdown(defaultExtensionCollection);
+
+  NamedScan scan(String name, String... columns) {
+    return b.namedScan(
+        Arrays.asList(name),
+        Arrays.asList(columns),
+        Arrays.stream(columns).map(c -> R.I64).collect(Collectors.toList()));
+  }
+
+  Expression and(Expression... conjuncts) {
+    return b.scalarFn(DefaultExtensionCatalog.FUNCTIONS_BOOLEAN, "and:bool", R.BOOLEAN, conjuncts);
+  }
+
+  @Test
+  void filterIntoScan() {
+    NamedScan scan = scan("t", "a", "b");
+    Rel plan =
+        b.filter(input -> b.equal(b.fieldReference(input, 0), b.fieldReference(input, 1)), scan);
+
+    NamedScan expected =
+        NamedScan.builder()
+            .from(scan)
+            .filter(b.equal(b.fieldReference(scan, 0), b.fieldReference(scan, 1)))
+            .build();
+    assertEquals(expected, pushdown.apply(plan));
+  }
+
+  @Test
+  void filterThroughProjectWithRemap() {
+    NamedScan scan = scan("t", "a", "b", "c");
+    // outputs [c, a + b]
+    Project project =
+        b.project(
+            input -> Arrays.asList(b.add(b.fieldReference(input, 0), b.fieldReference(input, 1))),
+            b.remap(2, 3),
+            scan);
+    Rel plan =
+        b.filter(
+            input -> b.equal(b.fieldReference(input, 1), b.fieldReference(input, 0)), project);
+
+    NamedScan filteredScan =
+        NamedScan.builder()
+            .from(scan)
+            .filter(
+                b.equal(
+                    b.add(b.fieldReference(scan, 0), b.fieldReference(scan, 1)),
+                    b.fieldReference(scan, 2)))
+            .build();
+    assertEquals(Project.builder().from(project).input(filteredScan).build(), pushdown.apply(plan));
+  }
+
+  @Test
+  void conjunctsIntoJoinSides() {
+    NamedScan left = scan("l", "a", "b");
+    NamedScan right = scan("r", "c", "d");
+    Join join =
+        b.innerJoin(
+            input -> b.equal(b.fieldReference(input, 0), b.fieldReference(input, 2)), left, right);
+    Rel plan =
+        b.filter(
+            input ->
+                and(
+                    b.equal(b.fieldReference(input, 0), b.fieldReference(input, 1)),
+                    b.equal(b.fieldReference(input, 2), b.fieldReference(input, 3))),
+            join);
+
+    Join expected =
+        Join.builder()
+            .from(join)
+            .left(
+                NamedScan.builder()
+                    .from(left)
+                    .filter(b.equal(b.fieldReference(left, 0), b.fieldReference(left, 1)))
+                    .build())
+            .right(
+                NamedScan.builder()
+                    .from(right)
+                    .filter(b.equal(b.fieldReference(right, 0), b.fieldReference(right, 1)))
+                    .build())
+            .build();
+    assertEquals(expected, pushdown.apply(plan));
+  }
+
+  @Test
+  void nullSupplyingSideIsNotFiltered() {
+    NamedScan left = scan("l", "a", "b");
+    NamedScan right = scan("r", "c", "d");
+    Join join =
+        b.join(
+            input -> b.equal(b.fieldReference(input, 0), b.fieldReference(input, 2)),
+            Join.JoinType.LEFT,
+            left,
+            right);
+    Rel plan =
+        b.filter(input -> b.equal(b.fieldReference(input, 2), b.fieldReference(input, 3)), join);
+
+    assertEquals(plan, pushdown.apply(plan));
+    assertEquals(Optional.empty(), plan.accept(pushdown));
+  }
+}
@@ -0,0 +1,170 @@
+package io.substrait.type;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.substrait.TestBase;
+import io.substrait.extension.DefaultExtensionCatalog;
+import io.substrait.extension.SimpleExtension;
+import io.substrait.function.TypeExpression;
+import io.substrait.type.parser.TypeStringParser;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class TypeExpressionEvaluatorTest extends TestBase {
+
+  private static final String NAMESPACE = "test";
+
+  static final String DECIMAL_ADD =
+      "init_scale = max(S1,S2)\n"
+          + "init_prec = init_scale + max(P1 - S1, P2 - S2) + 1\n"
+          + "min_scale = min(init_scale, 6)\n"
+          + "delta = init_prec - 38\n"
+          + "prec = min(init_prec, 38)\n"
+          + "scale_after_borrow = max(init_scale - delta, min_scale)\n"
+          + "scale = init_prec > 38 ? scale_after_borrow : init_scale\n"
+          + "DECIMAL<prec, scale>";
+
+  private static List<SimpleExtension.Argument> args(String... types) {
+    return Arrays.stream(types)
+        .map(
+            t ->
+                SimpleExtension.ValueArgument.builder()
+                    .value(TypeStringParser.parseParameterized(t, NAMESPACE))
+                    .build())
+        .collect(Collectors.toList());
+  }
+
+  private static Type evaluate(
+      String expression, List<SimpleExtension.Argument> args, Type... actual) {
+    TypeExpression returnType = TypeStringParser.parseExpression(expression, NAMESPACE);
+    return TypeExpressionEvaluator.evaluateExpression(returnType, args, Arrays.asList(actual));
+  }
+
+  @Test
+  void concreteType() {
+    assertEquals(R.I64, evaluate("i64", args("i32"), R.I32));
+  }
+
+  @Test
+  void decimalArithmetic() {
+    var args = args("decimal<P1,S1>", "decimal<P2,S2>");
+    assertEquals(R.decimal(12, 3), evaluate(DECIMAL_ADD, args, R.decimal(10, 2), R.decimal(5, 3)));
+    // precision overflow borrows from the scale
+    assertEquals(
+        R.decimal(38, 9), evaluate(DECIMAL_ADD, args, R.decimal(38, 10), R.decimal(38, 10)));
+  }
+
+  @Test
+  void parameterArithmetic() {
+    var args = args("varchar<L1>", "varchar<L2>");
+    assertEquals(R.varChar(15), evaluate("varchar<L1 + L2>", args, R.varChar(10), R.varChar(5)));
+  }
+
+  @Test
+  void typeParameter() {
+    var args = args("any1", "any1");
+    assertEquals(R.FP64, evaluate("any1", args, R.FP64, TypeCreator.NULLABLE.FP64));
+    assertEquals(TypeCreator.NULLABLE.FP64, evaluate("any1?", args, R.FP64, R.FP64));
+  }
+
+  @Test
+  void ternary() {
+    var args = args("decimal<P,S>");
+    assertEquals(
+        R.decimal(38, 2),
+        evaluate("(P > 10) ? DECIMAL<38,S> : DECIMAL<18,S>", args, R.decimal(20, 2)));
+    assertEquals(
+        R.decimal(18, 2),
+        evaluate("(P > 10) ? DECIMAL<38,S> : DECIMAL<18,S>", args, R.decimal(5, 2)));
+  }
+
+  @Test
+  void mismatchedArgument() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> evaluate("DECIMAL<P,S>", args("decimal<P,S>"), R.I32));
+  }
+
+  @Test
+  void resolveDefaultFunction() {
+    var add =
+        defaultExtensionCollection.getScalarFunction(
+            SimpleExtension.FunctionAnchor.of(
+                DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC_DECIMAL, "add:dec_dec"));
+    assertEquals(
+        R.decimal(12, 3), add.resolveType(Arrays.asList(R.decimal(10, 2), R.decimal(5, 3))));
+    // nullability mirrors the arguments
+    assertEquals(
+        TypeCreator.NULLABLE.decimal(12, 3),
+        add.resolveType(Arrays.asList(TypeCreator.NULLABLE.decimal(10, 2), R.decimal(5, 3))));
+  }
+
+  @Test
+  void compiledIsReusable() {
+    var args = args("decimal<P1,S1>", "decimal<P2,S2>");
+    TypeExpression returnType = TypeStringParser.parseExpression(DECIMAL_ADD, NAMESPACE);
+    var compiled = TypeExpressionCompiler.compile(returnType, args);
+    assertEquals(
+        R.decimal(12, 3), compiled.apply(Arrays.asList(R.decimal(10, 2), R.decimal(5, 3))));
+    assertEquals(
+        R.decimal(38, 9), compiled.apply(Arrays.asList(R.decimal(38, 10), R.decimal(38, 10))));
+    assertEquals(
+        R.decimal(38, 36), compiled.apply(Arrays.asList(R.decimal(1, 0), R.decimal(38, 38))));
+    // a failed application leaves the frame usable
+    assertThrows(IllegalArgumentException.class, () -> compiled.apply(Arrays.asList(R.I32, R.I32)));
+    assertEquals(
+        R.decimal(12, 3), compiled.apply(Arrays.asList(R.decimal(10, 2), R.decimal(5, 3))));
+
+    var ternary =
+        TypeStringParser.parseExpression("(P > 10) ? DECIMAL<38,S> : DECIMAL<18,S>", NAMESPACE);
+    var compiledTernary = TypeExpressionCompiler.compile(ternary, args("decimal<P,S>"));
+    assertEquals(R.decimal(38, 2), compiledTernary.apply(Arrays.asList(R.decimal(20, 2))));
+    assertEquals(R.decimal(18, 2), compiledTernary.apply(Arrays.asList(R.decimal(5, 2))));
+    assertThrows(
+        IllegalArgumentException.class, () -> compiledTernary.apply(Arrays.asList(R.I32)));
+  }
+
+  @Test
+  void compiledChecksRepeatedParameters() {
+    // any1 binds one type across all arguments, including the variadic repetitions of the last
+    var args = args("any1", "any1");
+    for (String expression : Arrays.asList("boolean", "any1")) {
+      var returnType = TypeStringParser.parseExpression(expression, NAMESPACE);
+      var compiled = TypeExpressionCompiler.compile(returnType, args);
+      for (List<Type> actual :
+          Arrays.asList(
+              Arrays.asList(R.I64, R.STRING),
+              Arrays.asList(R.I64, R.I64, R.STRING),
+              Arrays.asList(R.I64, R.I64, R.I64, R.FP64))) {
+        assertThrows(IllegalArgumentException.class, () -> compiled.apply(actual));
+      }
+      var matching = Arrays.asList(R.I64, TypeCreator.NULLABLE.I64, R.I64);
+      assertEquals(expression.equals("boolean") ? R.BOOLEAN : R.I64, compiled.apply(matching));
+    }
+
+    var decimals = args("decimal<P,S>", "decimal<P,S>");
+    var compiledDecimal =
+        TypeExpressionCompiler.compile(
+            TypeStringParser.parseExpression("DECIMAL<P,S>", NAMESPACE), decimals);
+    assertEquals(R.decimal(10, 2), compiledDecimal.apply(Arrays.asList(R.decimal(10, 2))));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> compiledDecimal.apply(Arrays.asList(R.decimal(10, 2), R.decimal(12, 2))));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> compiledDecimal.apply(Arrays.asList(R.decimal(10, 2), R.decimal(10, 2), R.I32)));
+  }
+
+  @Test
+  void compiledChainedAssignments() {
+    var returnType =
+        TypeStringParser.parseExpression(
+            "a = P1 + 1\nb = a + a\nc = b + b\nd = c + c\nDECIMAL<d, S1>", NAMESPACE);
+    var args = args("decimal<P1,S1>");
+    var actual = Arrays.asList(R.decimal(1, 0));
+    assertEquals(R.decimal(16, 0), TypeExpressionCompiler.compile(returnType, args).apply(actual));
+  }
+}
@@ -0,0 +1,87 @@
+package io.substrait.type.proto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.substrait.TestBase;
+import io.substrait.plan.Plan;
+import io.substrait.plan.PlanProtoConverter;
+import io.substrait.plan.ProtoPlanConverter;
+import io.substrait.proto.PlanRel;
+import io.substrait.relation.Cross;
+import io.substrait.relation.Filter;
+import io.substrait.relation.ReferenceRel;
+import io.substrait.relation.Rel;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+public class ReferenceRelRoundtripTest extends TestBase {
+  final Rel shared =
+      b.filter(
+          input -> b.equal(b.fieldReference(input, 0), b.fieldReference(input, 1)),
+          b.namedScan(
+              Arrays.asList("a_table"),
+              Arrays.asList("column1", "column2"),
+              Arrays.asList(R.I64, R.I64)));
+
+  @Test
+  void sharedSubtree() {
+    Rel left = ReferenceRel.builder().subtree(shared).build();
+    Rel right = ReferenceRel.builder().subtree(shared).build();
+    Plan plan = b.plan(b.root(b.cross(left, b.fetch(0, 10, right))));
+
+    io.substrait.proto.Plan protoPlan = new PlanProtoConverter().toProto(plan);
+    assertEquals(2, protoPlan.getRelationsCount());
+    PlanRel subtree = protoPlan.getRelations(0);
+    assertTrue(subtree.hasRel());
+    io.substrait.proto.CrossRel cross = protoPlan.getRelations(1).getRoot().getInput().getCross();
+    assertEquals(0, cross.getLeft().getReference().getSubtreeOrdinal());
+    assertEquals(0, cross.getRight().getFetch().getInput().getReference().getSubtreeOrdinal());
+
+    Plan planReturned = new ProtoPlanConverter(defaultExtensionCollection).from(protoPlan);
+    assertEquals(plan, planReturned);
+    Cross crossReturned = (Cross) planReturned.getRoots().get(0).getInput();
+    assertSame(
+        ((ReferenceRel) crossReturned.getLeft()).getSubtree(),
+        ((ReferenceRel) crossReturned.getRight().getInputs().get(0)).getSubtree());
+  }
+
+  @Test
+  void nestedSharedSubtrees() {
+    Rel inner = ReferenceRel.builder().subtree(shared).build();
+    Rel outer = ReferenceRel.builder().subtree(b.cross(inner, b.fetch(0, 1, inner))).build();
+    Plan plan = b.plan(b.root(b.cross(outer, outer)));
+
+    io.substrait.proto.Plan protoPlan = new PlanProtoConverter().toProto(plan);
+    // the inner subtree comes first, as the outer subtree references it
+    assertEquals(3, protoPlan.getRelationsCount());
+    assertTrue(protoPlan.getRelations(0).getRel().hasFilter());
+    assertTrue(protoPlan.getRelations(1).getRel().hasCross());
+
+    assertEquals(plan, new ProtoPlanConverter(defaultExtensionCollection).from(protoPlan));
+  }
+
+  @Test
+  void distinctSubtreesAreNotMerged() {
+    Rel copy = Filter.builder().from((Filter) shared).build();
+    Plan plan =
+        b.plan(
+            b.root(
+                b.cross(
+                    ReferenceRel.builder().subtree(shared).build(),
+                    ReferenceRel.builder().subtree(copy).build())));
+
+    io.substrait.proto.Plan protoPlan = new PlanProtoConverter().toProto(plan);
+    // sharing is explicit, so equal subtrees referenced separately are written separately
+    assertEquals(3, protoPlan.getRelationsCount());
+    assertEquals(plan, new ProtoPlanConverter(defaultExtensionCollection).from(protoPlan));
+  }
+
+  @Test
+  void referenceOutsideOfPlan() {
+    Rel reference = ReferenceRel.builder().subtree(shared).build();
+    assertThrows(UnsupportedOperationException.class, () -> relProtoConverter.toProto(reference));
+  }
+}
@@ -0,0 +1,25 @@
+plugins {
+  id("java")
+  id("idea")
+  id("com.diffplug.spotless") version "6.19.0"
+  id("me.champeau.jmh") version "0.7.2"
+}
+
+java {
+  toolchain { languageVersion.set(JavaLanguageVersion.of(17)) }
+  withJavadocJar()
+  withSourcesJar()
+}
+
+val JANINO_VERSION = properties.get("janino.version")
+val JUNIT_VERSION = properties.get("junit.version")
+
+dependencies {
+  implementation(project(":core"))
+  implementation("org.codehaus.janino:janino:${JANINO_VERSION}")
+  testImplementation("org.junit.jupiter:junit-jupiter:${JUNIT_VERSION}")
+  annotationProcessor("com.github.bsideup.jabel:jabel-javac-plugin:0.4.2")
+  compileOnly("com.github.bsideup.jabel:jabel-javac-plugin:0.4.2")
+}
+
+tasks { classes { dependsOn(":core:shadowJar") } }
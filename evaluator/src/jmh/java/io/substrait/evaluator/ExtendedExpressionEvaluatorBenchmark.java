@@ -0,0 +1,156 @@
+package io.substrait.evaluator;
+
+import io.substrait.dsl.SubstraitBuilder;
+import io.substrait.expression.Expression;
+import io.substrait.expression.ExpressionCreator;
+import io.substrait.expression.FieldReference;
+import io.substrait.extendedexpression.ImmutableExpressionReference;
+import io.substrait.extendedexpression.ImmutableExtendedExpression;
+import io.substrait.extension.DefaultExtensionCatalog;
+import io.substrait.extension.SimpleExtension;
+import io.substrait.type.NamedStruct;
+import io.substrait.type.TypeCreator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the rows per second filtered and projected by an {@link ExtendedExpressionEvaluator}
+ * over batches of {@value #ROWS} rows, for filters selecting from 1 to 99 percent of the rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtendedExpressionEvaluatorBenchmark {
+
+  static final int ROWS = 4096;
+
+  static final TypeCreator R = TypeCreator.REQUIRED;
+
+  /** The percentage of rows whose quantity passes the filter. */
+  @Param({"1", "50", "99"})
+  public int selectivity;
+
+  private ColumnBatch batch;
+  private ExtendedExpressionEvaluator filterEvaluator;
+  private ExtendedExpressionEvaluator projectEvaluator;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    SubstraitBuilder b = new SubstraitBuilder(SimpleExtension.loadDefaults());
+    FieldReference quantity = FieldReference.newRootStructReference(0, R.I64);
+    FieldReference price = FieldReference.newRootStructReference(1, R.FP64);
+    FieldReference discount = FieldReference.newRootStructReference(2, R.FP64);
+    FieldReference region = FieldReference.newRootStructReference(3, R.I64);
+    NamedStruct schema =
+        NamedStruct.of(
+            Arrays.asList("quantity", "price", "discount", "region"),
+            R.struct(R.I64, R.FP64, R.FP64, R.I64));
+
+    // quantity < selectivity and (discount >= 0.05 or region in (1, 3, 5))
+    Expression filterExpression =
+        b.scalarFn(
+            DefaultExtensionCatalog.FUNCTIONS_BOOLEAN,
+            "and:bool",
+            R.BOOLEAN,
+            b.scalarFn(
+                DefaultExtensionCatalog.FUNCTIONS_COMPARISON,
+                "lt:any_any",
+                R.BOOLEAN,
+                quantity,
+                ExpressionCreator.i64(false, selectivity)),
+            b.or(
+                b.scalarFn(
+                    DefaultExtensionCatalog.FUNCTIONS_COMPARISON,
+                    "gte:any_any",
+                    R.BOOLEAN,
+                    discount,
+                    ExpressionCreator.fp64(false, 0.05)),
+                b.singleOrList(
+                    region,
+                    ExpressionCreator.i64(false, 1),
+                    ExpressionCreator.i64(false, 3),
+                    ExpressionCreator.i64(false, 5))));
+    // price * (1 - discount)
+    Expression projectExpression =
+        b.scalarFn(
+            DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC,
+            "multiply:fp64_fp64",
+            R.FP64,
+            price,
+            b.scalarFn(
+                DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC,
+                "subtract:fp64_fp64",
+                R.FP64,
+                ExpressionCreator.fp64(false, 1),
+                discount));
+    filterEvaluator = compile(schema, filterExpression);
+    projectEvaluator = compile(schema, projectExpression);
+
+    Random random = new Random(42);
+    long[] quantities = new long[ROWS];
+    double[] prices = new double[ROWS];
+    double[] discounts = new double[ROWS];
+    long[] regions = new long[ROWS];
+    for (int i = 0; i < ROWS; i++) {
+      quantities[i] = random.nextInt(100);
+      prices[i] = random.nextDouble() * 1000;
+      discounts[i] = random.nextInt(11) / 100.0;
+      regions[i] = random.nextInt(10);
+    }
+    batch =
+        ColumnBatch.of(
+            ROWS,
+            Column.ofLongs(quantities),
+            Column.ofDoubles(prices),
+            Column.ofDoubles(discounts),
+            Column.ofLongs(regions));
+  }
+
+  private static ExtendedExpressionEvaluator compile(NamedStruct schema, Expression expression) {
+    return ExtendedExpressionEvaluator.compile(
+        ImmutableExtendedExpression.builder()
+            .baseSchema(schema)
+            .addReferredExpressions(
+                ImmutableExpressionReference.builder()
+                    .expression(expression)
+                    .addOutputNames("result")
+                    .build())
+            .build());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public SelectionVector filter() {
+    return filterEvaluator.filter(batch);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public List<Column> project() {
+    return projectEvaluator.project(batch);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public List<Column> filterThenProject() {
+    return projectEvaluator.project(batch, filterEvaluator.filter(batch));
+  }
+}
@@ -0,0 +1,644 @@
+package io.substrait.evaluator;
+
+import io.substrait.expression.AbstractExpressionVisitor;
+import io.substrait.expression.Expression;
+import io.substrait.expression.FieldReference;
+import io.substrait.extension.DefaultExtensionCatalog;
+import io.substrait.type.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the Java statements evaluating an expression over a {@link Row} named {@code row}.
+ *
+ * <p>Each expression is computed into a pair of local variables, a {@code boolean} telling whether
+ * it is null and a primitive or {@link String} value which is only meaningful if it is not.
+ * Literals are inlined instead. The operands of {@code and}, {@code or}, {@code coalesce} and the
+ * branches of conditionals are only evaluated when needed.
+ */
+final class CodeGenerator
+    extends AbstractExpressionVisitor<CodeGenerator.Value, RuntimeException> {
+
+  enum JavaType {
+    LONG("long", "0L", "Long.valueOf(%s)"),
+    DOUBLE("double", "0.0", "Double.valueOf(%s)"),
+    BOOLEAN("boolean", "false", "Boolean.valueOf(%s)"),
+    STRING("String", "((String) null)", "%s");
+
+    final String name;
+    final String zero;
+    final String box;
+
+    JavaType(String name, String zero, String box) {
+      this.name = name;
+      this.zero = zero;
+      this.box = box;
+    }
+
+    static JavaType of(Type type) {
+      Class<? extends Column> columnClass = Column.columnClass(type);
+      if (columnClass == Column.Longs.class) {
+        return LONG;
+      } else if (columnClass == Column.Doubles.class) {
+        return DOUBLE;
+      } else if (columnClass == Column.Booleans.class) {
+        return BOOLEAN;
+      }
+      return STRING;
+    }
+  }
+
+  /** The Java expressions of whether a value is null and of the value. */
+  static final class Value {
+    final String isNull;
+    final String value;
+    final JavaType javaType;
+
+    Value(String isNull, String value, JavaType javaType) {
+      this.isNull = isNull;
+      this.value = value;
+      this.javaType = javaType;
+    }
+  }
+
+  private final Type.Struct inputType;
+  private final StringBuilder code = new StringBuilder();
+  private int indent = 1;
+  private int variables;
+
+  CodeGenerator(Type.Struct inputType) {
+    this.inputType = inputType;
+  }
+
+  /** Appends the statements computing an expression, and returns its value. */
+  Value generate(Expression expression) {
+    return expression.accept(this);
+  }
+
+  String code() {
+    return code.toString();
+  }
+
+  @Override
+  public Value visitFallback(Expression expr) {
+    throw new UnsupportedOperationException("Unsupported expression: " + expr);
+  }
+
+  @Override
+  public Value visit(Expression.NullLiteral expr) {
+    JavaType javaType = JavaType.of(expr.type());
+    return new Value("true", javaType.zero, javaType);
+  }
+
+  @Override
+  public Value visit(Expression.BoolLiteral expr) {
+    return new Value("false", String.valueOf(expr.value()), JavaType.BOOLEAN);
+  }
+
+  @Override
+  public Value visit(Expression.I8Literal expr) {
+    return longLiteral(expr.value());
+  }
+
+  @Override
+  public Value visit(Expression.I16Literal expr) {
+    return longLiteral(expr.value());
+  }
+
+  @Override
+  public Value visit(Expression.I32Literal expr) {
+    return longLiteral(expr.value());
+  }
+
+  @Override
+  public Value visit(Expression.I64Literal expr) {
+    return longLiteral(expr.value());
+  }
+
+  @Override
+  public Value visit(Expression.DateLiteral expr) {
+    return longLiteral(expr.value());
+  }
+
+  @Override
+  public Value visit(Expression.FP32Literal expr) {
+    return doubleLiteral(expr.value());
+  }
+
+  @Override
+  public Value visit(Expression.FP64Literal expr) {
+    return doubleLiteral(expr.value());
+  }
+
+  @Override
+  public Value visit(Expression.StrLiteral expr) {
+    return stringLiteral(expr.value());
+  }
+
+  @Override
+  public Value visit(Expression.FixedCharLiteral expr) {
+    return stringLiteral(expr.value());
+  }
+
+  @Override
+  public Value visit(Expression.VarCharLiteral expr) {
+    return stringLiteral(expr.value());
+  }
+
+  @Override
+  public Value visit(FieldReference expr) {
+    if (!expr.isSimpleRootReference()
+        || expr.outerReferenceStepsOut().isPresent()
+        || !(expr.segments().get(0) instanceof FieldReference.StructField)) {
+      return visitFallback(expr);
+    }
+    int index = ((FieldReference.StructField) expr.segments().get(0)).offset();
+    if (index >= inputType.fields().size()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Field %d is out of the bounds of a schema with %d fields",
+              index, inputType.fields().size()));
+    }
+    Type type = inputType.fields().get(index);
+    JavaType javaType = JavaType.of(type);
+    String getter =
+        String.format(
+            "row.get%s%s(%d)",
+            Character.toUpperCase(javaType.name.charAt(0)), javaType.name.substring(1), index);
+    if (!type.nullable()) {
+      String value = "value" + variables++;
+      line("%s %s = %s;", javaType.name, value, getter);
+      return new Value("false", value, javaType);
+    }
+    Value result = declare(javaType, String.format("row.isNull(%d)", index));
+    line("if (!%s) {", result.isNull);
+    indent++;
+    line("%s = %s;", result.value, getter);
+    indent--;
+    line("}");
+    return result;
+  }
+
+  @Override
+  public Value visit(Expression.ScalarFunctionInvocation expr) {
+    List<Expression> arguments = new ArrayList<>();
+    for (Object argument : expr.arguments()) {
+      if (!(argument instanceof Expression)) {
+        return visitFallback(expr);
+      }
+      arguments.add((Expression) argument);
+    }
+    String uri = expr.declaration().uri();
+    String name = expr.declaration().name();
+    JavaType resultType = JavaType.of(expr.getType());
+
+    if (uri.equals(DefaultExtensionCatalog.FUNCTIONS_BOOLEAN)) {
+      if ((name.equals("and") || name.equals("or")) && !arguments.isEmpty()) {
+        return junction(arguments, name.equals("or"));
+      }
+      if (name.equals("not") && arguments.size() == 1) {
+        Value input = generate(arguments.get(0));
+        return strict(JavaType.BOOLEAN, "!" + input.value, input);
+      }
+    } else if (uri.equals(DefaultExtensionCatalog.FUNCTIONS_COMPARISON)) {
+      if ((name.equals("is_null") || name.equals("is_not_null")) && arguments.size() == 1) {
+        Value input = generate(arguments.get(0));
+        String isNull = name.equals("is_null") ? input.isNull : "!" + input.isNull;
+        return new Value("false", "(" + isNull + ")", JavaType.BOOLEAN);
+      }
+      if (name.equals("coalesce") && sameJavaType(arguments, resultType)) {
+        return coalesce(arguments, resultType);
+      }
+      if (arguments.size() == 2
+          && sameJavaType(arguments, JavaType.of(arguments.get(0).getType()))) {
+        Value left = generate(arguments.get(0));
+        Value right = generate(arguments.get(1));
+        String comparison = comparison(name, left, right);
+        if (comparison != null) {
+          return strict(JavaType.BOOLEAN, comparison, left, right);
+        }
+      }
+    } else if (uri.equals(DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC)
+        && (resultType == JavaType.LONG || resultType == JavaType.DOUBLE)
+        && sameJavaType(arguments, resultType)) {
+      Kernels.Arithmetic.Overflow overflow = Kernels.Arithmetic.Overflow.of(expr);
+      int bits = KernelCompiler.integerBits(expr.getType());
+      if (name.equals("negate") && arguments.size() == 1) {
+        Value input = generate(arguments.get(0));
+        String value =
+            resultType == JavaType.DOUBLE
+                ? "-" + input.value
+                : integer("-", "0L", input.value, overflow, bits);
+        return strict(resultType, value, input);
+      }
+      if (name.equals("abs") && arguments.size() == 1) {
+        Value input = generate(arguments.get(0));
+        return strict(resultType, "Math.abs(" + input.value + ")", input);
+      }
+      if (arguments.size() == 2) {
+        return arithmetic(name, resultType, arguments, overflow, bits);
+      }
+    }
+    return visitFallback(expr);
+  }
+
+  @Override
+  public Value visit(Expression.IfThen expr) {
+    JavaType javaType = JavaType.of(expr.getType());
+    Value result = declare(javaType, "false");
+    int branches = 0;
+    for (Expression.IfClause clause : expr.ifClauses()) {
+      checkJavaType(clause.then(), javaType);
+      Value condition = generate(clause.condition());
+      line("if (!%s && %s) {", condition.isNull, condition.value);
+      indent++;
+      assign(result, generate(clause.then()));
+      indent--;
+      line("} else {");
+      indent++;
+      branches++;
+    }
+    checkJavaType(expr.elseClause(), javaType);
+    assign(result, generate(expr.elseClause()));
+    close(branches);
+    return result;
+  }
+
+  @Override
+  public Value visit(Expression.Switch expr) {
+    JavaType javaType = JavaType.of(expr.getType());
+    Value match = generate(expr.match());
+    Value result = declare(javaType, "false");
+    int branches = 0;
+    for (Expression.SwitchClause clause : expr.switchClauses()) {
+      checkJavaType(clause.condition(), match.javaType);
+      checkJavaType(clause.then(), javaType);
+      Value condition = generate(clause.condition());
+      line("if (!%s && %s) {", match.isNull, equal(match, condition));
+      indent++;
+      assign(result, generate(clause.then()));
+      indent--;
+      line("} else {");
+      indent++;
+      branches++;
+    }
+    checkJavaType(expr.defaultClause(), javaType);
+    assign(result, generate(expr.defaultClause()));
+    close(branches);
+    return result;
+  }
+
+  @Override
+  public Value visit(Expression.Cast expr) {
+    Type target = expr.getType();
+    Type source = expr.input().getType();
+    String conversion = conversion(source, target);
+    if (conversion == null) {
+      return visitFallback(expr);
+    }
+    Value input = generate(expr.input());
+    Value result = declare(JavaType.of(target), input.isNull);
+    line("if (!%s) {", result.isNull);
+    indent++;
+    String assignment =
+        String.format("%s = %s;", result.value, String.format(conversion, input.value));
+    if (expr.failureBehavior() == Expression.FailureBehavior.RETURN_NULL) {
+      line("try {");
+      indent++;
+      line("%s", assignment);
+      indent--;
+      line("} catch (IllegalArgumentException e) {");
+      indent++;
+      line("%s = true;", result.isNull);
+      indent--;
+      line("}");
+    } else {
+      line("%s", assignment);
+    }
+    indent--;
+    line("}");
+    return result;
+  }
+
+  /**
+   * Returns the Java expression converting a value to the target type, with {@code %s} standing
+   * for the value, or null if the cast is not supported.
+   */
+  private static String conversion(Type source, Type target) {
+    JavaType from = JavaType.of(source);
+    boolean fromDate = source instanceof Type.Date;
+    if (target instanceof Type.Date) {
+      return fromDate ? "%s" : from == JavaType.STRING ? "parseDate(%s)" : null;
+    }
+    switch (JavaType.of(target)) {
+      case LONG:
+        if (fromDate) {
+          return null;
+        }
+        long[] range = range(target);
+        if (from == JavaType.DOUBLE || (from != JavaType.BOOLEAN && !within(source, range))) {
+          String value = from == JavaType.STRING ? "parseLong(%s)" : "%s";
+          return String.format("narrow(%s, %s, %s)", value, bound(range[0]), bound(range[1]));
+        }
+        return from == JavaType.LONG
+            ? "%s"
+            : from == JavaType.BOOLEAN ? "(%s ? 1L : 0L)" : "parseLong(%s)";
+      case DOUBLE:
+        if (fromDate) {
+          return null;
+        }
+        return from == JavaType.LONG
+            ? "(double) %s"
+            : from == JavaType.DOUBLE
+                ? "%s"
+                : from == JavaType.BOOLEAN ? "(%s ? 1.0 : 0.0)" : "parseDouble(%s)";
+      case BOOLEAN:
+        if (fromDate) {
+          return null;
+        }
+        return from == JavaType.LONG || from == JavaType.DOUBLE
+            ? "(%s != 0)"
+            : from == JavaType.BOOLEAN ? "%s" : "parseBoolean(%s)";
+      default:
+        return fromDate ? "formatDate(%s)" : from == JavaType.STRING ? "%s" : "String.valueOf(%s)";
+    }
+  }
+
+  /** Returns the bounds of an integer type, those of i64 for other types. */
+  private static long[] range(Type type) {
+    if (type instanceof Type.I8) {
+      return new long[] {Byte.MIN_VALUE, Byte.MAX_VALUE};
+    } else if (type instanceof Type.I16) {
+      return new long[] {Short.MIN_VALUE, Short.MAX_VALUE};
+    } else if (type instanceof Type.I32) {
+      return new long[] {Integer.MIN_VALUE, Integer.MAX_VALUE};
+    }
+    return new long[] {Long.MIN_VALUE, Long.MAX_VALUE};
+  }
+
+  /** Returns whether all the values of a type are within bounds. */
+  private static boolean within(Type type, long[] range) {
+    long[] bounds = range(type);
+    return bounds[0] >= range[0] && bounds[1] <= range[1];
+  }
+
+  /** A bound as a literal, spelling those of i64 as constants. */
+  private static String bound(long value) {
+    return value == Long.MIN_VALUE
+        ? "Long.MIN_VALUE"
+        : value == Long.MAX_VALUE ? "Long.MAX_VALUE" : value + "L";
+  }
+
+  /** Three-valued {@code and} and {@code or}, evaluating operands until the result is known. */
+  private Value junction(List<Expression> arguments, boolean or) {
+    for (Expression argument : arguments) {
+      checkJavaType(argument, JavaType.BOOLEAN);
+    }
+    Value result = declare(JavaType.BOOLEAN, "false");
+    line("%s = %s;", result.value, !or);
+    int branches = 0;
+    for (Expression argument : arguments) {
+      Value operand = generate(argument);
+      line("if (!%s && %s%s) {", operand.isNull, or ? "" : "!", operand.value);
+      indent++;
+      line("%s = %s;", result.value, or);
+      line("%s = false;", result.isNull);
+      indent--;
+      line("} else {");
+      indent++;
+      line("%s = %s || %s;", result.isNull, result.isNull, operand.isNull);
+      branches++;
+    }
+    close(branches);
+    return result;
+  }
+
+  private Value coalesce(List<Expression> arguments, JavaType javaType) {
+    Value result = declare(javaType, "true");
+    for (Expression argument : arguments) {
+      line("if (%s) {", result.isNull);
+      indent++;
+      assign(result, generate(argument));
+    }
+    close(arguments.size());
+    return result;
+  }
+
+  private Value arithmetic(
+      String name,
+      JavaType javaType,
+      List<Expression> arguments,
+      Kernels.Arithmetic.Overflow overflow,
+      int bits) {
+    String operator;
+    switch (name) {
+      case "add":
+        operator = "+";
+        break;
+      case "subtract":
+        operator = "-";
+        break;
+      case "multiply":
+        operator = "*";
+        break;
+      case "divide":
+        operator = "/";
+        break;
+      case "modulus":
+        operator = "%";
+        break;
+      default:
+        throw new UnsupportedOperationException("Unsupported arithmetic function: " + name);
+    }
+    Value left = generate(arguments.get(0));
+    Value right = generate(arguments.get(1));
+    String value =
+        javaType == JavaType.DOUBLE
+            ? String.format("%s %s %s", left.value, operator, right.value)
+            : integer(operator, left.value, right.value, overflow, bits);
+    if (javaType == JavaType.DOUBLE || !(operator.equals("/") || operator.equals("%"))) {
+      return strict(javaType, value, left, right);
+    }
+
+    // integer division by zero returns null
+    Value result = declare(javaType, left.isNull + " || " + right.isNull);
+    line("if (!%s) {", result.isNull);
+    indent++;
+    line("if (%s == 0L) {", right.value);
+    indent++;
+    line("%s = true;", result.isNull);
+    indent--;
+    line("} else {");
+    indent++;
+    line("%s = %s;", result.value, value);
+    close(2);
+    return result;
+  }
+
+  /**
+   * Integer arithmetic following the overflow option: operands of narrower types cannot overflow
+   * 64 bits, so their result is brought within the range of the result type afterwards.
+   */
+  private static String integer(
+      String operator, String left, String right, Kernels.Arithmetic.Overflow overflow, int bits) {
+    if (bits == 64) {
+      return overflow == Kernels.Arithmetic.Overflow.SILENT
+          ? String.format("%s %s %s", left, operator, right)
+          : String.format(
+              "exact(%s, %s, '%s', %s)",
+              left, right, operator, overflow == Kernels.Arithmetic.Overflow.SATURATE);
+    }
+    String function =
+        overflow == Kernels.Arithmetic.Overflow.SILENT
+            ? "wrap"
+            : overflow == Kernels.Arithmetic.Overflow.SATURATE ? "saturate" : "checked";
+    return String.format("%s(%s %s %s, %d)", function, left, operator, right, bits);
+  }
+
+  private static String comparison(String name, Value left, Value right) {
+    String l = left.value;
+    String r = right.value;
+    if (left.javaType == JavaType.LONG || left.javaType == JavaType.DOUBLE) {
+      String operator = comparisonOperator(name);
+      return operator == null ? null : String.format("%s %s %s", l, operator, r);
+    }
+    String compareTo =
+        left.javaType == JavaType.BOOLEAN
+            ? String.format("Boolean.compare(%s, %s)", l, r)
+            : String.format("%s.compareTo(%s)", l, r);
+    switch (name) {
+      case "equal":
+        return equal(left, right);
+      case "not_equal":
+        return "!" + equal(left, right);
+      default:
+        String operator = comparisonOperator(name);
+        return operator == null ? null : String.format("%s %s 0", compareTo, operator);
+    }
+  }
+
+  private static String comparisonOperator(String name) {
+    switch (name) {
+      case "equal":
+        return "==";
+      case "not_equal":
+        return "!=";
+      case "lt":
+        return "<";
+      case "lte":
+        return "<=";
+      case "gt":
+        return ">";
+      case "gte":
+        return ">=";
+      default:
+        return null;
+    }
+  }
+
+  private static String equal(Value left, Value right) {
+    return left.javaType == JavaType.STRING
+        ? String.format("%s.equals(%s)", left.value, right.value)
+        : String.format("(%s == %s)", left.value, right.value);
+  }
+
+  /** Computes a value which is null if any of the inputs is. */
+  private Value strict(JavaType javaType, String value, Value... inputs) {
+    List<String> isNull = new ArrayList<>();
+    for (Value input : inputs) {
+      if (!input.isNull.equals("false")) {
+        isNull.add(input.isNull);
+      }
+    }
+    if (isNull.isEmpty()) {
+      String variable = "value" + variables++;
+      line("%s %s = %s;", javaType.name, variable, value);
+      return new Value("false", variable, javaType);
+    }
+    Value result = declare(javaType, String.join(" || ", isNull));
+    line("if (!%s) {", result.isNull);
+    indent++;
+    line("%s = %s;", result.value, value);
+    indent--;
+    line("}");
+    return result;
+  }
+
+  private static boolean sameJavaType(List<Expression> arguments, JavaType javaType) {
+    for (Expression argument : arguments) {
+      if (JavaType.of(argument.getType()) != javaType) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void checkJavaType(Expression expression, JavaType javaType) {
+    if (JavaType.of(expression.getType()) != javaType) {
+      throw new UnsupportedOperationException(
+          String.format("Expected a %s value: %s", javaType.name, expression));
+    }
+  }
+
+  private Value declare(JavaType javaType, String isNull) {
+    int variable = variables++;
+    Value value = new Value("isNull" + variable, "value" + variable, javaType);
+    line("boolean %s = %s;", value.isNull, isNull);
+    line("%s %s = %s;", javaType.name, value.value, javaType.zero);
+    return value;
+  }
+
+  private void assign(Value target, Value source) {
+    line("%s = %s;", target.isNull, source.isNull);
+    line("%s = %s;", target.value, source.value);
+  }
+
+  /** Closes nested blocks. */
+  private void close(int blocks) {
+    for (int i = 0; i < blocks; i++) {
+      indent--;
+      line("}");
+    }
+  }
+
+  private void line(String format, Object... args) {
+    for (int i = 0; i < indent; i++) {
+      code.append("  ");
+    }
+    code.append(String.format(format, args)).append('\n');
+  }
+
+  private static Value longLiteral(long value) {
+    return new Value("false", "(" + value + "L)", JavaType.LONG);
+  }
+
+  private static Value doubleLiteral(double value) {
+    String literal;
+    if (Double.isNaN(value)) {
+      literal = "Double.NaN";
+    } else if (Double.isInfinite(value)) {
+      literal = value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+    } else {
+      literal = "(" + value + ")";
+    }
+    return new Value("false", literal, JavaType.DOUBLE);
+  }
+
+  /**
+   * Returns a Java string literal. Characters which could end the literal, or be altered by the
+   * translation of unicode escapes before parsing, are written as octal escapes.
+   */
+  private static Value stringLiteral(String value) {
+    StringBuilder literal = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      if (c == '"' || c == '\\' || c < 0x20 || c == 0x7f) {
+        literal.append(String.format("\\%03o", (int) c));
+      } else if (c > 0x7f) {
+        literal.append(String.format("\\u%04x", (int) c));
+      } else {
+        literal.append(c);
+      }
+    }
+    return new Value("false", literal.append('"').toString(), JavaType.STRING);
+  }
+}
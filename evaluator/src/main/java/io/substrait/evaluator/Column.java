@@ -0,0 +1,205 @@
+package io.substrait.evaluator;
+
+import io.substrait.type.Type;
+
+/**
+ * A column of values backed by a primitive array, with an optional array flagging null values.
+ *
+ * <p>Integer and date values are stored as {@code long}s, floating point values as {@code
+ * double}s.
+ */
+public abstract class Column {
+
+  /** Whether each row is null, or null if no row is null. */
+  final boolean[] nulls;
+
+  Column(boolean[] nulls) {
+    this.nulls = nulls;
+  }
+
+  public abstract int size();
+
+  public boolean isNull(int row) {
+    return nulls != null && nulls[row];
+  }
+
+  /** Returns the values of the selected rows, in the order of the selection. */
+  abstract Column compact(SelectionVector selection);
+
+  public static Longs ofLongs(long[] values) {
+    return new Longs(values, null);
+  }
+
+  public static Longs ofLongs(long[] values, boolean[] nulls) {
+    return new Longs(values, nulls);
+  }
+
+  public static Doubles ofDoubles(double[] values) {
+    return new Doubles(values, null);
+  }
+
+  public static Doubles ofDoubles(double[] values, boolean[] nulls) {
+    return new Doubles(values, nulls);
+  }
+
+  public static Booleans ofBooleans(boolean[] values) {
+    return new Booleans(values, null);
+  }
+
+  public static Booleans ofBooleans(boolean[] values, boolean[] nulls) {
+    return new Booleans(values, nulls);
+  }
+
+  /** Creates a column of strings, in which nulls are null values. */
+  public static Strings ofStrings(String[] values) {
+    boolean[] nulls = null;
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] == null) {
+        if (nulls == null) {
+          nulls = new boolean[values.length];
+        }
+        nulls[i] = true;
+      }
+    }
+    return new Strings(values, nulls);
+  }
+
+  /** Returns the column class holding values of the given type. */
+  static Class<? extends Column> columnClass(Type type) {
+    if (type instanceof Type.I8
+        || type instanceof Type.I16
+        || type instanceof Type.I32
+        || type instanceof Type.I64
+        || type instanceof Type.Date) {
+      return Longs.class;
+    } else if (type instanceof Type.FP32 || type instanceof Type.FP64) {
+      return Doubles.class;
+    } else if (type instanceof Type.Bool) {
+      return Booleans.class;
+    } else if (type instanceof Type.Str
+        || type instanceof Type.VarChar
+        || type instanceof Type.FixedChar) {
+      return Strings.class;
+    }
+    throw new UnsupportedOperationException("Unsupported type: " + type);
+  }
+
+  static boolean[] compactNulls(boolean[] nulls, SelectionVector selection) {
+    if (nulls == null) {
+      return null;
+    }
+    boolean[] compacted = new boolean[selection.size()];
+    for (int k = 0; k < compacted.length; k++) {
+      compacted[k] = nulls[selection.get(k)];
+    }
+    return compacted;
+  }
+
+  public static final class Longs extends Column {
+    final long[] values;
+
+    Longs(long[] values, boolean[] nulls) {
+      super(nulls);
+      this.values = values;
+    }
+
+    public long get(int row) {
+      return values[row];
+    }
+
+    @Override
+    public int size() {
+      return values.length;
+    }
+
+    @Override
+    Longs compact(SelectionVector selection) {
+      long[] compacted = new long[selection.size()];
+      for (int k = 0; k < compacted.length; k++) {
+        compacted[k] = values[selection.get(k)];
+      }
+      return new Longs(compacted, compactNulls(nulls, selection));
+    }
+  }
+
+  public static final class Doubles extends Column {
+    final double[] values;
+
+    Doubles(double[] values, boolean[] nulls) {
+      super(nulls);
+      this.values = values;
+    }
+
+    public double get(int row) {
+      return values[row];
+    }
+
+    @Override
+    public int size() {
+      return values.length;
+    }
+
+    @Override
+    Doubles compact(SelectionVector selection) {
+      double[] compacted = new double[selection.size()];
+      for (int k = 0; k < compacted.length; k++) {
+        compacted[k] = values[selection.get(k)];
+      }
+      return new Doubles(compacted, compactNulls(nulls, selection));
+    }
+  }
+
+  public static final class Booleans extends Column {
+    final boolean[] values;
+
+    Booleans(boolean[] values, boolean[] nulls) {
+      super(nulls);
+      this.values = values;
+    }
+
+    public boolean get(int row) {
+      return values[row];
+    }
+
+    @Override
+    public int size() {
+      return values.length;
+    }
+
+    @Override
+    Booleans compact(SelectionVector selection) {
+      boolean[] compacted = new boolean[selection.size()];
+      for (int k = 0; k < compacted.length; k++) {
+        compacted[k] = values[selection.get(k)];
+      }
+      return new Booleans(compacted, compactNulls(nulls, selection));
+    }
+  }
+
+  public static final class Strings extends Column {
+    final String[] values;
+
+    Strings(String[] values, boolean[] nulls) {
+      super(nulls);
+      this.values = values;
+    }
+
+    public String get(int row) {
+      return values[row];
+    }
+
+    @Override
+    public int size() {
+      return values.length;
+    }
+
+    @Override
+    Strings compact(SelectionVector selection) {
+      String[] compacted = new String[selection.size()];
+      for (int k = 0; k < compacted.length; k++) {
+        compacted[k] = values[selection.get(k)];
+      }
+      return new Strings(compacted, compactNulls(nulls, selection));
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package io.substrait.evaluator;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** The columns of a batch of rows, in the order of the fields of a base schema. */
+public final class ColumnBatch {
+
+  private final int rowCount;
+  private final List<Column> columns;
+
+  public ColumnBatch(int rowCount, List<Column> columns) {
+    for (Column column : columns) {
+      if (column.size() < rowCount) {
+        throw new IllegalArgumentException(
+            String.format("Column with %d values in a batch of %d rows", column.size(), rowCount));
+      }
+    }
+    this.rowCount = rowCount;
+    this.columns = columns;
+  }
+
+  public static ColumnBatch of(int rowCount, Column... columns) {
+    return new ColumnBatch(rowCount, Arrays.asList(columns));
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public List<Column> getColumns() {
+    return columns;
+  }
+
+  public Column getColumn(int index) {
+    return columns.get(index);
+  }
+}
@@ -0,0 +1,129 @@
+package io.substrait.evaluator;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * An expression compiled by an {@link ExpressionCompiler} into a generated subclass, evaluating
+ * rows without boxing intermediate values.
+ *
+ * <p>Compiled expressions hold no state and can be shared between threads.
+ */
+public abstract class CompiledExpression {
+
+  protected CompiledExpression() {}
+
+  /**
+   * Evaluates the expression for a row.
+   *
+   * @return a {@link Long}, {@link Double}, {@link Boolean} or {@link String} following the value
+   *     representation of {@link Row}, or null
+   */
+  public abstract Object evaluate(Row row);
+
+  /**
+   * Returns whether a boolean expression is true for a row, null being false.
+   *
+   * @throws IllegalStateException if the expression is not a boolean
+   */
+  public boolean test(Row row) {
+    throw new IllegalStateException("Not a boolean expression");
+  }
+
+  // conversions called by the generated code of casts, throwing IllegalArgumentException on failure
+
+  protected static long parseLong(String value) {
+    return Long.parseLong(value.trim());
+  }
+
+  protected static long narrow(long value, long min, long max) {
+    if (value < min || value > max) {
+      throw new IllegalArgumentException("Cannot cast " + value + ": out of range");
+    }
+    return value;
+  }
+
+  protected static long narrow(double value, long min, long max) {
+    // truncated - 1 < max rather than truncated <= max as (double) Long.MAX_VALUE rounds up to 2^63
+    double truncated = value < 0 ? Math.ceil(value) : Math.floor(value);
+    if (!(truncated >= min && truncated - 1 < max)) {
+      throw new IllegalArgumentException("Cannot cast " + value + ": out of range");
+    }
+    return (long) truncated;
+  }
+
+  protected static double parseDouble(String value) {
+    return Double.parseDouble(value.trim());
+  }
+
+  protected static boolean parseBoolean(String value) {
+    String string = value.trim();
+    if (string.equalsIgnoreCase("true") || string.equalsIgnoreCase("false")) {
+      return Boolean.parseBoolean(string);
+    }
+    throw new IllegalArgumentException("Cannot cast " + value + " to boolean");
+  }
+
+  protected static long parseDate(String value) {
+    try {
+      return LocalDate.parse(value.trim()).toEpochDay();
+    } catch (DateTimeException e) {
+      throw new IllegalArgumentException("Cannot cast " + value + " to date", e);
+    }
+  }
+
+  protected static String formatDate(long epochDay) {
+    return LocalDate.ofEpochDay(epochDay).toString();
+  }
+
+  // integer arithmetic called by the generated code, following the overflow option of the function
+
+  /**
+   * Applies an operator to 64-bit integers, saturating or throwing {@link ArithmeticException} on
+   * overflow.
+   */
+  protected static long exact(long a, long b, char operator, boolean saturate) {
+    try {
+      switch (operator) {
+        case '+':
+          return Math.addExact(a, b);
+        case '-':
+          return Math.subtractExact(a, b);
+        case '*':
+          return Math.multiplyExact(a, b);
+        case '/':
+          if (a == Long.MIN_VALUE && b == -1) {
+            throw new ArithmeticException("long overflow");
+          }
+          return a / b;
+        default:
+          return a % b;
+      }
+    } catch (ArithmeticException e) {
+      if (!saturate) {
+        throw e;
+      }
+      boolean negative = operator == '*' || operator == '/' ? (a < 0) != (b < 0) : a < 0;
+      return negative ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+  }
+
+  /** Wraps a result to the width of an integer type narrower than 64 bits. */
+  protected static long wrap(long value, int bits) {
+    return value << (64 - bits) >> (64 - bits);
+  }
+
+  /** Clamps a result to the range of an integer type narrower than 64 bits. */
+  protected static long saturate(long value, int bits) {
+    long max = (1L << (bits - 1)) - 1;
+    return Math.max(-max - 1, Math.min(max, value));
+  }
+
+  /** Checks that a result is within the range of an integer type narrower than 64 bits. */
+  protected static long checked(long value, int bits) {
+    if (wrap(value, bits) != value) {
+      throw new ArithmeticException(String.format("%d overflows a %d-bit integer", value, bits));
+    }
+    return value;
+  }
+}
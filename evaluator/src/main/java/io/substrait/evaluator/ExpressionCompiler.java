@@ -0,0 +1,73 @@
+package io.substrait.evaluator;
+
+import io.substrait.expression.Expression;
+import io.substrait.type.Type;
+import java.lang.reflect.InvocationTargetException;
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.janino.ClassBodyEvaluator;
+
+/**
+ * Compiles expressions over the fields of a base schema into generated subclasses of {@link
+ * CompiledExpression}, for consumers evaluating them a row at a time.
+ *
+ * <p>The generated code reads the fields of a {@link Row} with primitive getters and tracks the
+ * nullability of each intermediate value in a local variable, so that the JIT compiler sees
+ * straight-line code without virtual calls on expression nodes nor boxing.
+ *
+ * <p>Supported expressions are field references to the base schema, literals, the arithmetic,
+ * comparison and boolean functions of the default extension catalog, {@link Expression.IfThen},
+ * {@link Expression.Switch} and {@link Expression.Cast}, on integer, floating point, boolean,
+ * string and date values. Integer results that do not fit the result type wrap, saturate or throw
+ * {@link ArithmeticException} following the {@code overflow} option, and integer division by zero
+ * returns null.
+ */
+public class ExpressionCompiler {
+
+  private final Type.Struct baseSchema;
+
+  public ExpressionCompiler(Type.Struct baseSchema) {
+    this.baseSchema = baseSchema;
+  }
+
+  /**
+   * @throws UnsupportedOperationException if the expression is not supported
+   */
+  public CompiledExpression compile(Expression expression) {
+    String source = generate(expression);
+    ClassBodyEvaluator evaluator = new ClassBodyEvaluator();
+    evaluator.setParentClassLoader(CompiledExpression.class.getClassLoader());
+    evaluator.setExtendedClass(CompiledExpression.class);
+    evaluator.setDefaultImports(Row.class.getName());
+    try {
+      evaluator.cook(source);
+      return (CompiledExpression) evaluator.getClazz().getDeclaredConstructor().newInstance();
+    } catch (CompileException
+        | InstantiationException
+        | IllegalAccessException
+        | InvocationTargetException
+        | NoSuchMethodException e) {
+      throw new IllegalStateException("Failed to compile the generated code:\n" + source, e);
+    }
+  }
+
+  /** Returns the body of the generated class. */
+  String generate(Expression expression) {
+    CodeGenerator generator = new CodeGenerator(baseSchema);
+    CodeGenerator.Value result = generator.generate(expression);
+    String code = generator.code();
+
+    StringBuilder source = new StringBuilder();
+    source.append("public Object evaluate(Row row) {\n");
+    source.append(code);
+    String boxed = String.format(result.javaType.box, result.value);
+    source.append(String.format("  return %s ? null : %s;\n", result.isNull, boxed));
+    source.append("}\n");
+    if (result.javaType == CodeGenerator.JavaType.BOOLEAN) {
+      source.append("\npublic boolean test(Row row) {\n");
+      source.append(code);
+      source.append(String.format("  return !%s && %s;\n", result.isNull, result.value));
+      source.append("}\n");
+    }
+    return source.toString();
+  }
+}
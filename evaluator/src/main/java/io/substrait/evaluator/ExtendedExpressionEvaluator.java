@@ -0,0 +1,129 @@
+package io.substrait.evaluator;
+
+import io.substrait.extendedexpression.ExtendedExpression;
+import io.substrait.type.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Evaluates the expressions of an {@link ExtendedExpression} over batches of columns.
+ *
+ * <p>The expressions are compiled once into kernels, loops over the primitive arrays of the
+ * columns which only visit the rows of a {@link SelectionVector}. Filters evaluate the operands of
+ * {@code and} and {@code or} on the rows whose result they may still change.
+ *
+ * <p>Supported expressions are field references to the base schema, literals, the arithmetic,
+ * comparison and boolean functions of the default extension catalog and {@link
+ * io.substrait.expression.Expression.SingleOrList} with literal options, on integer, floating
+ * point, boolean, string and date values. Integer division by zero returns null, and integer
+ * results overflowing their type wrap, saturate or throw an {@link ArithmeticException} following
+ * the {@code overflow} option of the function, wrapping without it.
+ *
+ * <p>An evaluator is thread-safe.
+ */
+public final class ExtendedExpressionEvaluator {
+
+  private final List<Class<? extends Column>> columnClasses;
+  private final List<Kernel> kernels;
+  private final List<Class<? extends Column>> resultClasses;
+
+  private ExtendedExpressionEvaluator(
+      List<Class<? extends Column>> columnClasses,
+      List<Kernel> kernels,
+      List<Class<? extends Column>> resultClasses) {
+    this.columnClasses = columnClasses;
+    this.kernels = kernels;
+    this.resultClasses = resultClasses;
+  }
+
+  /**
+   * @throws UnsupportedOperationException if an expression or a type of the base schema is not
+   *     supported
+   */
+  public static ExtendedExpressionEvaluator compile(ExtendedExpression extendedExpression) {
+    Type.Struct baseSchema = extendedExpression.getBaseSchema().struct();
+    List<Class<? extends Column>> columnClasses = new ArrayList<>();
+    for (Type field : baseSchema.fields()) {
+      columnClasses.add(Column.columnClass(field));
+    }
+
+    KernelCompiler compiler = new KernelCompiler(baseSchema);
+    List<Kernel> kernels = new ArrayList<>();
+    List<Class<? extends Column>> resultClasses = new ArrayList<>();
+    for (ExtendedExpression.ExpressionReferenceBase reference :
+        extendedExpression.getReferredExpressions()) {
+      if (!(reference instanceof ExtendedExpression.ExpressionReference)) {
+        throw new UnsupportedOperationException("Unsupported expression reference: " + reference);
+      }
+      ExtendedExpression.ExpressionReference expressionReference =
+          (ExtendedExpression.ExpressionReference) reference;
+      kernels.add(compiler.compile(expressionReference.getExpression()));
+      resultClasses.add(Column.columnClass(expressionReference.getExpression().getType()));
+    }
+    return new ExtendedExpressionEvaluator(
+        Collections.unmodifiableList(columnClasses),
+        Collections.unmodifiableList(kernels),
+        Collections.unmodifiableList(resultClasses));
+  }
+
+  /** Returns the rows of a batch for which all the expressions are true. */
+  public SelectionVector filter(ColumnBatch batch) {
+    return filter(batch, SelectionVector.all(batch.getRowCount()));
+  }
+
+  /**
+   * Returns the rows of a selection for which all the expressions are true.
+   *
+   * @throws IllegalStateException if an expression is not boolean
+   */
+  public SelectionVector filter(ColumnBatch batch, SelectionVector selection) {
+    check(batch);
+    for (int i = 0; i < kernels.size(); i++) {
+      if (resultClasses.get(i) != Column.Booleans.class) {
+        throw new IllegalStateException(String.format("Expression %d is not a boolean", i));
+      }
+    }
+    for (Kernel kernel : kernels) {
+      if (selection.size() == 0) {
+        break;
+      }
+      selection = kernel.select(batch, selection);
+    }
+    return selection;
+  }
+
+  /** Returns the values of each expression for all the rows of a batch. */
+  public List<Column> project(ColumnBatch batch) {
+    return project(batch, SelectionVector.all(batch.getRowCount()));
+  }
+
+  /** Returns the values of each expression for the rows of a selection, in its order. */
+  public List<Column> project(ColumnBatch batch, SelectionVector selection) {
+    check(batch);
+    List<Column> columns = new ArrayList<>();
+    for (Kernel kernel : kernels) {
+      columns.add(kernel.evaluate(batch, selection).compact(selection));
+    }
+    return columns;
+  }
+
+  private void check(ColumnBatch batch) {
+    if (batch.getColumns().size() != columnClasses.size()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Batch with %d columns for a base schema with %d fields",
+              batch.getColumns().size(), columnClasses.size()));
+    }
+    for (int i = 0; i < columnClasses.size(); i++) {
+      if (!columnClasses.get(i).isInstance(batch.getColumn(i))) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Column %d is a %s, expected %s",
+                i,
+                batch.getColumn(i).getClass().getSimpleName(),
+                columnClasses.get(i).getSimpleName()));
+      }
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package io.substrait.evaluator;
+
+/** An expression compiled into loops over the columns of a batch. */
+abstract class Kernel {
+
+  /**
+   * Evaluates the selected rows of a batch.
+   *
+   * @return a column with a value for each row of the batch, those of the rows that are not
+   *     selected are undefined
+   */
+  abstract Column evaluate(ColumnBatch batch, SelectionVector selection);
+
+  /** Returns the selected rows for which this boolean kernel is true. */
+  SelectionVector select(ColumnBatch batch, SelectionVector selection) {
+    Column.Booleans result = (Column.Booleans) evaluate(batch, selection);
+    int[] rows = new int[selection.size];
+    int size = 0;
+    for (int k = 0; k < selection.size; k++) {
+      int row = selection.rows[k];
+      if (result.values[row] && !result.isNull(row)) {
+        rows[size++] = row;
+      }
+    }
+    return new SelectionVector(rows, size);
+  }
+
+  /** Returns which rows have a null in any of the columns, or null if none can. */
+  static boolean[] nulls(Column left, Column right, SelectionVector selection, int rowCount) {
+    if (left.nulls == null && right.nulls == null) {
+      return null;
+    }
+    boolean[] nulls = new boolean[rowCount];
+    for (int k = 0; k < selection.size; k++) {
+      int row = selection.rows[k];
+      nulls[row] = left.isNull(row) || right.isNull(row);
+    }
+    return nulls;
+  }
+}
@@ -0,0 +1,256 @@
+package io.substrait.evaluator;
+
+import io.substrait.expression.AbstractExpressionVisitor;
+import io.substrait.expression.Expression;
+import io.substrait.expression.FieldReference;
+import io.substrait.extension.DefaultExtensionCatalog;
+import io.substrait.type.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Compiles expressions over the fields of a base schema into kernels. */
+class KernelCompiler extends AbstractExpressionVisitor<Kernel, RuntimeException> {
+
+  private final Type.Struct baseSchema;
+
+  KernelCompiler(Type.Struct baseSchema) {
+    this.baseSchema = baseSchema;
+  }
+
+  Kernel compile(Expression expression) {
+    return expression.accept(this);
+  }
+
+  @Override
+  public Kernel visitFallback(Expression expr) {
+    throw new UnsupportedOperationException("Unsupported expression: " + expr);
+  }
+
+  @Override
+  public Kernel visit(Expression.NullLiteral expr) {
+    return constant(expr);
+  }
+
+  @Override
+  public Kernel visit(Expression.BoolLiteral expr) {
+    return constant(expr);
+  }
+
+  @Override
+  public Kernel visit(Expression.I8Literal expr) {
+    return constant(expr);
+  }
+
+  @Override
+  public Kernel visit(Expression.I16Literal expr) {
+    return constant(expr);
+  }
+
+  @Override
+  public Kernel visit(Expression.I32Literal expr) {
+    return constant(expr);
+  }
+
+  @Override
+  public Kernel visit(Expression.I64Literal expr) {
+    return constant(expr);
+  }
+
+  @Override
+  public Kernel visit(Expression.FP32Literal expr) {
+    return constant(expr);
+  }
+
+  @Override
+  public Kernel visit(Expression.FP64Literal expr) {
+    return constant(expr);
+  }
+
+  @Override
+  public Kernel visit(Expression.StrLiteral expr) {
+    return constant(expr);
+  }
+
+  @Override
+  public Kernel visit(Expression.FixedCharLiteral expr) {
+    return constant(expr);
+  }
+
+  @Override
+  public Kernel visit(Expression.VarCharLiteral expr) {
+    return constant(expr);
+  }
+
+  @Override
+  public Kernel visit(Expression.DateLiteral expr) {
+    return constant(expr);
+  }
+
+  @Override
+  public Kernel visit(FieldReference expr) {
+    if (!expr.isSimpleRootReference()
+        || expr.outerReferenceStepsOut().isPresent()
+        || !(expr.segments().get(0) instanceof FieldReference.StructField)) {
+      return visitFallback(expr);
+    }
+    int index = ((FieldReference.StructField) expr.segments().get(0)).offset();
+    if (index >= baseSchema.fields().size()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Field %d is out of the bounds of a schema with %d fields",
+              index, baseSchema.fields().size()));
+    }
+    return new Kernels.Field(index);
+  }
+
+  @Override
+  public Kernel visit(Expression.SingleOrList expr) {
+    List<Object> options = new ArrayList<>();
+    for (Expression option : expr.options()) {
+      if (!(option instanceof Expression.Literal) || !sameColumnClass(expr.condition(), option)) {
+        return visitFallback(expr);
+      }
+      options.add(value((Expression.Literal) option));
+    }
+    return new Kernels.InList(compile(expr.condition()), options);
+  }
+
+  @Override
+  public Kernel visit(Expression.ScalarFunctionInvocation expr) {
+    List<Expression> arguments = new ArrayList<>();
+    for (Object argument : expr.arguments()) {
+      if (!(argument instanceof Expression)) {
+        return visitFallback(expr);
+      }
+      arguments.add((Expression) argument);
+    }
+    String uri = expr.declaration().uri();
+    String name = expr.declaration().name();
+
+    if (uri.equals(DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC)) {
+      Class<? extends Column> resultClass = Column.columnClass(expr.getType());
+      boolean numeric = resultClass == Column.Longs.class || resultClass == Column.Doubles.class;
+      Kernels.Arithmetic.Overflow overflow = Kernels.Arithmetic.Overflow.of(expr);
+      int bits = integerBits(expr.getType());
+      if (numeric && name.equals("negate") && arguments.size() == 1) {
+        return new Kernels.Negate(compile(arguments.get(0)), overflow, bits);
+      }
+      Kernels.Arithmetic.Op op = arithmeticOp(name);
+      if (numeric && op != null && binary(arguments)) {
+        return new Kernels.Arithmetic(
+            op, compile(arguments.get(0)), compile(arguments.get(1)), overflow, bits);
+      }
+    } else if (uri.equals(DefaultExtensionCatalog.FUNCTIONS_COMPARISON)) {
+      if ((name.equals("is_null") || name.equals("is_not_null")) && arguments.size() == 1) {
+        return new Kernels.IsNull(compile(arguments.get(0)), name.equals("is_not_null"));
+      }
+      Kernels.Comparison.Op op = comparisonOp(name);
+      if (op != null && binary(arguments)) {
+        return new Kernels.Comparison(op, compile(arguments.get(0)), compile(arguments.get(1)));
+      }
+    } else if (uri.equals(DefaultExtensionCatalog.FUNCTIONS_BOOLEAN)) {
+      if ((name.equals("and") || name.equals("or")) && !arguments.isEmpty()) {
+        List<Kernel> children = new ArrayList<>();
+        for (Expression argument : arguments) {
+          children.add(compile(argument));
+        }
+        return new Kernels.Junction(children, name.equals("or"));
+      }
+      if (name.equals("not") && arguments.size() == 1) {
+        return new Kernels.Not(compile(arguments.get(0)));
+      }
+    }
+    return visitFallback(expr);
+  }
+
+  /** The width in bits of an integer type, 64 for the other types. */
+  static int integerBits(Type type) {
+    if (type instanceof Type.I8) {
+      return 8;
+    } else if (type instanceof Type.I16) {
+      return 16;
+    } else if (type instanceof Type.I32) {
+      return 32;
+    }
+    return 64;
+  }
+
+  /** Whether there are two arguments whose values are held in the same column class. */
+  private static boolean binary(List<Expression> arguments) {
+    return arguments.size() == 2 && sameColumnClass(arguments.get(0), arguments.get(1));
+  }
+
+  private static boolean sameColumnClass(Expression left, Expression right) {
+    return Column.columnClass(left.getType()) == Column.columnClass(right.getType());
+  }
+
+  private static Kernels.Arithmetic.Op arithmeticOp(String name) {
+    switch (name) {
+      case "add":
+        return Kernels.Arithmetic.Op.ADD;
+      case "subtract":
+        return Kernels.Arithmetic.Op.SUBTRACT;
+      case "multiply":
+        return Kernels.Arithmetic.Op.MULTIPLY;
+      case "divide":
+        return Kernels.Arithmetic.Op.DIVIDE;
+      case "modulus":
+        return Kernels.Arithmetic.Op.MODULUS;
+      default:
+        return null;
+    }
+  }
+
+  private static Kernels.Comparison.Op comparisonOp(String name) {
+    switch (name) {
+      case "equal":
+        return Kernels.Comparison.Op.EQUAL;
+      case "not_equal":
+        return Kernels.Comparison.Op.NOT_EQUAL;
+      case "lt":
+        return Kernels.Comparison.Op.LT;
+      case "lte":
+        return Kernels.Comparison.Op.LTE;
+      case "gt":
+        return Kernels.Comparison.Op.GT;
+      case "gte":
+        return Kernels.Comparison.Op.GTE;
+      default:
+        return null;
+    }
+  }
+
+  private static Kernel constant(Expression.Literal literal) {
+    return new Kernels.Constant(value(literal), Column.columnClass(literal.getType()));
+  }
+
+  /** Returns the value of a literal as stored in a column, or null for a null literal. */
+  static Object value(Expression.Literal literal) {
+    if (literal instanceof Expression.NullLiteral) {
+      return null;
+    } else if (literal instanceof Expression.BoolLiteral) {
+      return ((Expression.BoolLiteral) literal).value();
+    } else if (literal instanceof Expression.I8Literal) {
+      return (long) ((Expression.I8Literal) literal).value();
+    } else if (literal instanceof Expression.I16Literal) {
+      return (long) ((Expression.I16Literal) literal).value();
+    } else if (literal instanceof Expression.I32Literal) {
+      return (long) ((Expression.I32Literal) literal).value();
+    } else if (literal instanceof Expression.I64Literal) {
+      return ((Expression.I64Literal) literal).value();
+    } else if (literal instanceof Expression.FP32Literal) {
+      return (double) ((Expression.FP32Literal) literal).value();
+    } else if (literal instanceof Expression.FP64Literal) {
+      return ((Expression.FP64Literal) literal).value();
+    } else if (literal instanceof Expression.StrLiteral) {
+      return ((Expression.StrLiteral) literal).value();
+    } else if (literal instanceof Expression.FixedCharLiteral) {
+      return ((Expression.FixedCharLiteral) literal).value();
+    } else if (literal instanceof Expression.VarCharLiteral) {
+      return ((Expression.VarCharLiteral) literal).value();
+    } else if (literal instanceof Expression.DateLiteral) {
+      return (long) ((Expression.DateLiteral) literal).value();
+    }
+    throw new UnsupportedOperationException("Unsupported literal: " + literal);
+  }
+}
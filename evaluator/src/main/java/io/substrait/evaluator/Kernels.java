@@ -0,0 +1,653 @@
+package io.substrait.evaluator;
+
+import io.substrait.expression.Expression;
+import io.substrait.expression.FunctionOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/** The kernels of the supported expressions. */
+final class Kernels {
+
+  private Kernels() {}
+
+  /** A field of the base schema. */
+  static final class Field extends Kernel {
+    private final int index;
+
+    Field(int index) {
+      this.index = index;
+    }
+
+    @Override
+    Column evaluate(ColumnBatch batch, SelectionVector selection) {
+      return batch.getColumn(index);
+    }
+  }
+
+  /** A literal, materialized once for batches of up to the largest size seen. */
+  static final class Constant extends Kernel {
+    final Object value;
+    private final Class<? extends Column> columnClass;
+    private volatile Column column;
+
+    /**
+     * @param value a {@link Long}, {@link Double}, {@link Boolean} or {@link String} matching the
+     *     column class, or null
+     */
+    Constant(Object value, Class<? extends Column> columnClass) {
+      this.value = value;
+      this.columnClass = columnClass;
+    }
+
+    @Override
+    Column evaluate(ColumnBatch batch, SelectionVector selection) {
+      Column current = column;
+      if (current == null || current.size() < batch.getRowCount()) {
+        current = fill(batch.getRowCount());
+        column = current;
+      }
+      return current;
+    }
+
+    private Column fill(int rowCount) {
+      boolean[] nulls = null;
+      if (value == null) {
+        nulls = new boolean[rowCount];
+        Arrays.fill(nulls, true);
+      }
+      if (columnClass == Column.Longs.class) {
+        long[] values = new long[rowCount];
+        Arrays.fill(values, value == null ? 0 : (Long) value);
+        return Column.ofLongs(values, nulls);
+      } else if (columnClass == Column.Doubles.class) {
+        double[] values = new double[rowCount];
+        Arrays.fill(values, value == null ? 0 : (Double) value);
+        return Column.ofDoubles(values, nulls);
+      } else if (columnClass == Column.Booleans.class) {
+        boolean[] values = new boolean[rowCount];
+        Arrays.fill(values, value != null && (Boolean) value);
+        return Column.ofBooleans(values, nulls);
+      }
+      String[] values = new String[rowCount];
+      Arrays.fill(values, (String) value);
+      return Column.ofStrings(values);
+    }
+  }
+
+  /**
+   * Integer and floating point arithmetic. Integer division by zero returns null, and integer
+   * results that do not fit the result type follow the {@link Overflow} of the function.
+   */
+  static final class Arithmetic extends Kernel {
+    enum Op {
+      ADD,
+      SUBTRACT,
+      MULTIPLY,
+      DIVIDE,
+      MODULUS
+    }
+
+    /** What integer results that do not fit the result type become. */
+    enum Overflow {
+      /** Wrapped to the width of the result type, the default without an overflow option. */
+      SILENT,
+      /** Clamped to the range of the result type. */
+      SATURATE,
+      /** An {@link ArithmeticException}. */
+      ERROR;
+
+      /** Returns the first supported value of the overflow option of a function, or SILENT. */
+      static Overflow of(Expression.ScalarFunctionInvocation function) {
+        for (FunctionOption option : function.options()) {
+          if (option.getName().equals("overflow")) {
+            for (String value : option.values()) {
+              for (Overflow overflow : values()) {
+                if (overflow.name().equals(value)) {
+                  return overflow;
+                }
+              }
+            }
+          }
+        }
+        return SILENT;
+      }
+    }
+
+    private final Op op;
+    private final Kernel left;
+    private final Kernel right;
+    private final Overflow overflow;
+
+    /** The width in bits of integer results. */
+    private final int bits;
+
+    Arithmetic(Op op, Kernel left, Kernel right, Overflow overflow, int bits) {
+      this.op = op;
+      this.left = left;
+      this.right = right;
+      this.overflow = overflow;
+      this.bits = bits;
+    }
+
+    @Override
+    Column evaluate(ColumnBatch batch, SelectionVector selection) {
+      Column l = left.evaluate(batch, selection);
+      Column r = right.evaluate(batch, selection);
+      boolean[] nulls = nulls(l, r, selection, batch.getRowCount());
+      int[] rows = selection.rows;
+      int n = selection.size;
+
+      if (l instanceof Column.Longs) {
+        long[] a = ((Column.Longs) l).values;
+        long[] b = ((Column.Longs) r).values;
+        long[] out = new long[batch.getRowCount()];
+        if (bits == 64 && overflow != Overflow.SILENT) {
+          for (int k = 0; k < n; k++) {
+            int i = rows[k];
+            if (nulls == null || !nulls[i]) {
+              if (op == Op.DIVIDE || op == Op.MODULUS) {
+                if (b[i] == 0) {
+                  if (nulls == null) {
+                    nulls = new boolean[batch.getRowCount()];
+                  }
+                  nulls[i] = true;
+                  continue;
+                }
+              }
+              out[i] = exact(a[i], b[i]);
+            }
+          }
+          return Column.ofLongs(out, nulls);
+        }
+        switch (op) {
+          case ADD:
+            for (int k = 0; k < n; k++) {
+              int i = rows[k];
+              out[i] = a[i] + b[i];
+            }
+            break;
+          case SUBTRACT:
+            for (int k = 0; k < n; k++) {
+              int i = rows[k];
+              out[i] = a[i] - b[i];
+            }
+            break;
+          case MULTIPLY:
+            for (int k = 0; k < n; k++) {
+              int i = rows[k];
+              out[i] = a[i] * b[i];
+            }
+            break;
+          default:
+            for (int k = 0; k < n; k++) {
+              int i = rows[k];
+              if (b[i] == 0) {
+                if (nulls == null) {
+                  nulls = new boolean[batch.getRowCount()];
+                }
+                nulls[i] = true;
+              } else {
+                out[i] = op == Op.DIVIDE ? a[i] / b[i] : a[i] % b[i];
+              }
+            }
+        }
+        if (bits < 64) {
+          narrow(out, nulls, selection, bits, overflow);
+        }
+        return Column.ofLongs(out, nulls);
+      }
+
+      double[] a = ((Column.Doubles) l).values;
+      double[] b = ((Column.Doubles) r).values;
+      double[] out = new double[batch.getRowCount()];
+      switch (op) {
+        case ADD:
+          for (int k = 0; k < n; k++) {
+            int i = rows[k];
+            out[i] = a[i] + b[i];
+          }
+          break;
+        case SUBTRACT:
+          for (int k = 0; k < n; k++) {
+            int i = rows[k];
+            out[i] = a[i] - b[i];
+          }
+          break;
+        case MULTIPLY:
+          for (int k = 0; k < n; k++) {
+            int i = rows[k];
+            out[i] = a[i] * b[i];
+          }
+          break;
+        case DIVIDE:
+          for (int k = 0; k < n; k++) {
+            int i = rows[k];
+            out[i] = a[i] / b[i];
+          }
+          break;
+        default:
+          for (int k = 0; k < n; k++) {
+            int i = rows[k];
+            out[i] = a[i] % b[i];
+          }
+      }
+      return Column.ofDoubles(out, nulls);
+    }
+
+    /** Computes a 64-bit result, saturating or throwing on overflow. */
+    private long exact(long a, long b) {
+      try {
+        switch (op) {
+          case ADD:
+            return Math.addExact(a, b);
+          case SUBTRACT:
+            return Math.subtractExact(a, b);
+          case MULTIPLY:
+            return Math.multiplyExact(a, b);
+          case DIVIDE:
+            if (a == Long.MIN_VALUE && b == -1) {
+              throw new ArithmeticException("long overflow");
+            }
+            return a / b;
+          default:
+            return a % b;
+        }
+      } catch (ArithmeticException e) {
+        if (overflow == Overflow.ERROR) {
+          throw e;
+        }
+        // the sign of the exact result: that of a, unless it is a product or a quotient
+        boolean negative = op == Op.MULTIPLY || op == Op.DIVIDE ? (a < 0) != (b < 0) : a < 0;
+        return negative ? Long.MIN_VALUE : Long.MAX_VALUE;
+      }
+    }
+  }
+
+  /**
+   * Brings the integer results of the selected rows within the range of a result type narrower
+   * than 64 bits.
+   */
+  private static void narrow(
+      long[] out,
+      boolean[] nulls,
+      SelectionVector selection,
+      int bits,
+      Arithmetic.Overflow overflow) {
+    long max = (1L << (bits - 1)) - 1;
+    long min = -max - 1;
+    for (int k = 0; k < selection.size; k++) {
+      int i = selection.rows[k];
+      long value = out[i];
+      if ((value < min || value > max) && (nulls == null || !nulls[i])) {
+        switch (overflow) {
+          case SILENT:
+            out[i] = value << (64 - bits) >> (64 - bits);
+            break;
+          case SATURATE:
+            out[i] = value < min ? min : max;
+            break;
+          default:
+            throw new ArithmeticException(
+                String.format("%d overflows a %d-bit integer", value, bits));
+        }
+      }
+    }
+  }
+
+  /** Negation, whose integer results overflow as those of {@link Arithmetic} do. */
+  static final class Negate extends Kernel {
+    private final Kernel input;
+    private final Arithmetic.Overflow overflow;
+    private final int bits;
+
+    Negate(Kernel input, Arithmetic.Overflow overflow, int bits) {
+      this.input = input;
+      this.overflow = overflow;
+      this.bits = bits;
+    }
+
+    @Override
+    Column evaluate(ColumnBatch batch, SelectionVector selection) {
+      Column column = input.evaluate(batch, selection);
+      if (column instanceof Column.Longs) {
+        long[] a = ((Column.Longs) column).values;
+        long[] out = new long[batch.getRowCount()];
+        for (int k = 0; k < selection.size; k++) {
+          int i = selection.rows[k];
+          out[i] = -a[i];
+        }
+        if (bits < 64) {
+          narrow(out, column.nulls, selection, bits, overflow);
+        } else if (overflow != Arithmetic.Overflow.SILENT) {
+          for (int k = 0; k < selection.size; k++) {
+            int i = selection.rows[k];
+            if (a[i] == Long.MIN_VALUE && (column.nulls == null || !column.nulls[i])) {
+              if (overflow == Arithmetic.Overflow.ERROR) {
+                throw new ArithmeticException("long overflow");
+              }
+              out[i] = Long.MAX_VALUE;
+            }
+          }
+        }
+        return Column.ofLongs(out, column.nulls);
+      }
+      double[] a = ((Column.Doubles) column).values;
+      double[] out = new double[batch.getRowCount()];
+      for (int k = 0; k < selection.size; k++) {
+        int i = selection.rows[k];
+        out[i] = -a[i];
+      }
+      return Column.ofDoubles(out, column.nulls);
+    }
+  }
+
+  static final class Comparison extends Kernel {
+    enum Op {
+      EQUAL,
+      NOT_EQUAL,
+      LT,
+      LTE,
+      GT,
+      GTE
+    }
+
+    private final Op op;
+    private final Kernel left;
+    private final Kernel right;
+
+    Comparison(Op op, Kernel left, Kernel right) {
+      // only equal, not_equal, lt and lte are implemented, gt and gte swap their operands
+      this.op = op == Op.GT ? Op.LT : op == Op.GTE ? Op.LTE : op;
+      boolean swap = op == Op.GT || op == Op.GTE;
+      this.left = swap ? right : left;
+      this.right = swap ? left : right;
+    }
+
+    @Override
+    Column evaluate(ColumnBatch batch, SelectionVector selection) {
+      Column l = left.evaluate(batch, selection);
+      Column r = right.evaluate(batch, selection);
+      boolean[] nulls = nulls(l, r, selection, batch.getRowCount());
+      boolean[] out = new boolean[batch.getRowCount()];
+      int[] rows = selection.rows;
+      int n = selection.size;
+
+      if (l instanceof Column.Longs) {
+        long[] a = ((Column.Longs) l).values;
+        long[] b = ((Column.Longs) r).values;
+        switch (op) {
+          case EQUAL:
+            for (int k = 0; k < n; k++) {
+              int i = rows[k];
+              out[i] = a[i] == b[i];
+            }
+            break;
+          case NOT_EQUAL:
+            for (int k = 0; k < n; k++) {
+              int i = rows[k];
+              out[i] = a[i] != b[i];
+            }
+            break;
+          case LT:
+            for (int k = 0; k < n; k++) {
+              int i = rows[k];
+              out[i] = a[i] < b[i];
+            }
+            break;
+          default:
+            for (int k = 0; k < n; k++) {
+              int i = rows[k];
+              out[i] = a[i] <= b[i];
+            }
+        }
+      } else if (l instanceof Column.Doubles) {
+        double[] a = ((Column.Doubles) l).values;
+        double[] b = ((Column.Doubles) r).values;
+        switch (op) {
+          case EQUAL:
+            for (int k = 0; k < n; k++) {
+              int i = rows[k];
+              out[i] = a[i] == b[i];
+            }
+            break;
+          case NOT_EQUAL:
+            for (int k = 0; k < n; k++) {
+              int i = rows[k];
+              out[i] = a[i] != b[i];
+            }
+            break;
+          case LT:
+            for (int k = 0; k < n; k++) {
+              int i = rows[k];
+              out[i] = a[i] < b[i];
+            }
+            break;
+          default:
+            for (int k = 0; k < n; k++) {
+              int i = rows[k];
+              out[i] = a[i] <= b[i];
+            }
+        }
+      } else {
+        for (int k = 0; k < n; k++) {
+          int i = rows[k];
+          if (!l.isNull(i) && !r.isNull(i)) {
+            out[i] = test(compare(l, r, i));
+          }
+        }
+      }
+      return Column.ofBooleans(out, nulls);
+    }
+
+    private boolean test(int comparison) {
+      switch (op) {
+        case EQUAL:
+          return comparison == 0;
+        case NOT_EQUAL:
+          return comparison != 0;
+        case LT:
+          return comparison < 0;
+        default:
+          return comparison <= 0;
+      }
+    }
+
+    private static int compare(Column l, Column r, int row) {
+      if (l instanceof Column.Booleans) {
+        return Boolean.compare(
+            ((Column.Booleans) l).values[row], ((Column.Booleans) r).values[row]);
+      }
+      return ((Column.Strings) l).values[row].compareTo(((Column.Strings) r).values[row]);
+    }
+  }
+
+  /** Three-valued {@code and} (when {@code or} is false) and {@code or}. */
+  static final class Junction extends Kernel {
+    private final List<Kernel> children;
+    private final boolean or;
+
+    Junction(List<Kernel> children, boolean or) {
+      this.children = children;
+      this.or = or;
+    }
+
+    @Override
+    Column evaluate(ColumnBatch batch, SelectionVector selection) {
+      int rowCount = batch.getRowCount();
+      // whether a child is true for or, or false for and, which decides the result
+      boolean[] decided = new boolean[rowCount];
+      boolean[] sawNull = new boolean[rowCount];
+      for (Kernel child : children) {
+        Column.Booleans column = (Column.Booleans) child.evaluate(batch, selection);
+        for (int k = 0; k < selection.size; k++) {
+          int i = selection.rows[k];
+          if (column.isNull(i)) {
+            sawNull[i] = true;
+          } else if (column.values[i] == or) {
+            decided[i] = true;
+          }
+        }
+      }
+      boolean[] out = new boolean[rowCount];
+      boolean[] nulls = new boolean[rowCount];
+      for (int k = 0; k < selection.size; k++) {
+        int i = selection.rows[k];
+        out[i] = decided[i] == or;
+        nulls[i] = !decided[i] && sawNull[i];
+      }
+      return Column.ofBooleans(out, nulls);
+    }
+
+    /**
+     * Evaluates each child of {@code and} only on the rows for which the previous ones are true,
+     * and each child of {@code or} only on the rows for which the previous ones are not.
+     */
+    @Override
+    SelectionVector select(ColumnBatch batch, SelectionVector selection) {
+      if (!or) {
+        for (Kernel child : children) {
+          if (selection.size == 0) {
+            break;
+          }
+          selection = child.select(batch, selection);
+        }
+        return selection;
+      }
+
+      boolean[] selected = new boolean[batch.getRowCount()];
+      SelectionVector remaining = selection;
+      for (Kernel child : children) {
+        if (remaining.size == 0) {
+          break;
+        }
+        SelectionVector matches = child.select(batch, remaining);
+        for (int k = 0; k < matches.size; k++) {
+          selected[matches.rows[k]] = true;
+        }
+        remaining = filter(remaining, selected, false);
+      }
+      return filter(selection, selected, true);
+    }
+
+    /** Returns the rows of a selection whose flag has the given value. */
+    private static SelectionVector filter(
+        SelectionVector selection, boolean[] flags, boolean value) {
+      int[] rows = new int[selection.size];
+      int size = 0;
+      for (int k = 0; k < selection.size; k++) {
+        int row = selection.rows[k];
+        if (flags[row] == value) {
+          rows[size++] = row;
+        }
+      }
+      return new SelectionVector(rows, size);
+    }
+  }
+
+  static final class Not extends Kernel {
+    private final Kernel input;
+
+    Not(Kernel input) {
+      this.input = input;
+    }
+
+    @Override
+    Column evaluate(ColumnBatch batch, SelectionVector selection) {
+      Column.Booleans column = (Column.Booleans) input.evaluate(batch, selection);
+      boolean[] out = new boolean[batch.getRowCount()];
+      for (int k = 0; k < selection.size; k++) {
+        int i = selection.rows[k];
+        out[i] = !column.values[i];
+      }
+      return Column.ofBooleans(out, column.nulls);
+    }
+  }
+
+  /** {@code is_null}, or {@code is_not_null} when negated. */
+  static final class IsNull extends Kernel {
+    private final Kernel input;
+    private final boolean negated;
+
+    IsNull(Kernel input, boolean negated) {
+      this.input = input;
+      this.negated = negated;
+    }
+
+    @Override
+    Column evaluate(ColumnBatch batch, SelectionVector selection) {
+      Column column = input.evaluate(batch, selection);
+      boolean[] out = new boolean[batch.getRowCount()];
+      for (int k = 0; k < selection.size; k++) {
+        int i = selection.rows[k];
+        out[i] = column.isNull(i) != negated;
+      }
+      return Column.ofBooleans(out);
+    }
+  }
+
+  /**
+   * Membership in a list of literals. The result is null for a null value, and for a value that is
+   * not in the list if the list contains a null.
+   */
+  static final class InList extends Kernel {
+    private final Kernel input;
+    private final boolean hasNull;
+    private final long[] longs;
+    private final double[] doubles;
+    private final Set<Object> others = new HashSet<>();
+
+    InList(Kernel input, List<Object> options) {
+      this.input = input;
+      this.hasNull = options.contains(null);
+      this.longs =
+          options.stream()
+              .filter(o -> o instanceof Long)
+              .mapToLong(o -> (Long) o)
+              .sorted()
+              .toArray();
+      this.doubles =
+          options.stream()
+              .filter(o -> o instanceof Double)
+              .mapToDouble(o -> (Double) o)
+              .filter(d -> !Double.isNaN(d))
+              .map(d -> d + 0.0)
+              .sorted()
+              .toArray();
+      options.stream()
+          .filter(o -> o instanceof Boolean || o instanceof String)
+          .forEach(others::add);
+    }
+
+    @Override
+    Column evaluate(ColumnBatch batch, SelectionVector selection) {
+      Column column = input.evaluate(batch, selection);
+      boolean[] out = new boolean[batch.getRowCount()];
+      boolean[] nulls = new boolean[batch.getRowCount()];
+      for (int k = 0; k < selection.size; k++) {
+        int i = selection.rows[k];
+        if (column.isNull(i)) {
+          nulls[i] = true;
+        } else {
+          out[i] = contains(column, i);
+          nulls[i] = !out[i] && hasNull;
+        }
+      }
+      return Column.ofBooleans(out, nulls);
+    }
+
+    private boolean contains(Column column, int row) {
+      if (column instanceof Column.Longs) {
+        return Arrays.binarySearch(longs, ((Column.Longs) column).values[row]) >= 0;
+      } else if (column instanceof Column.Doubles) {
+        // matches as == does: -0.0 is normalized to 0.0 and NaN is in no list
+        double value = ((Column.Doubles) column).values[row];
+        return !Double.isNaN(value) && Arrays.binarySearch(doubles, value + 0.0) >= 0;
+      } else if (column instanceof Column.Booleans) {
+        return others.contains(((Column.Booleans) column).values[row]);
+      }
+      return others.contains(((Column.Strings) column).values[row]);
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package io.substrait.evaluator;
+
+/**
+ * A row of values of the fields of a base schema, as read by a {@link CompiledExpression}.
+ *
+ * <p>Integer and date values are read as {@code long}s, floating point values as {@code double}s.
+ * The getters are only called for fields which are not null.
+ */
+public interface Row {
+
+  boolean isNull(int field);
+
+  long getLong(int field);
+
+  double getDouble(int field);
+
+  boolean getBoolean(int field);
+
+  String getString(int field);
+}
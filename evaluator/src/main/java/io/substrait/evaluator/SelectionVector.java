@@ -0,0 +1,48 @@
+package io.substrait.evaluator;
+
+import java.util.Arrays;
+
+/** The indices, in increasing order, of the rows of a batch to evaluate. */
+public final class SelectionVector {
+
+  final int[] rows;
+  final int size;
+
+  SelectionVector(int[] rows, int size) {
+    this.rows = rows;
+    this.size = size;
+  }
+
+  /** Selects all the rows of a batch. */
+  public static SelectionVector all(int rowCount) {
+    int[] rows = new int[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      rows[i] = i;
+    }
+    return new SelectionVector(rows, rowCount);
+  }
+
+  /**
+   * @param rows row indices in increasing order
+   */
+  public static SelectionVector of(int... rows) {
+    return new SelectionVector(rows.clone(), rows.length);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int get(int index) {
+    return rows[index];
+  }
+
+  public int[] toArray() {
+    return Arrays.copyOf(rows, size);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(toArray());
+  }
+}
@@ -0,0 +1,273 @@
+package io.substrait.evaluator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.substrait.dsl.SubstraitBuilder;
+import io.substrait.expression.Expression;
+import io.substrait.expression.ExpressionCreator;
+import io.substrait.expression.FieldReference;
+import io.substrait.extension.DefaultExtensionCatalog;
+import io.substrait.extension.SimpleExtension;
+import io.substrait.type.Type;
+import io.substrait.type.TypeCreator;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+public class ExpressionCompilerTest {
+
+  static final TypeCreator R = TypeCreator.REQUIRED;
+  static final TypeCreator N = TypeCreator.NULLABLE;
+
+  final SubstraitBuilder b;
+
+  final ExpressionCompiler compiler =
+      new ExpressionCompiler(R.struct(R.I64, N.FP64, N.STRING, R.BOOLEAN));
+
+  final FieldReference id = FieldReference.newRootStructReference(0, R.I64);
+  final FieldReference price = FieldReference.newRootStructReference(1, N.FP64);
+  final FieldReference city = FieldReference.newRootStructReference(2, N.STRING);
+  final FieldReference active = FieldReference.newRootStructReference(3, R.BOOLEAN);
+
+  ExpressionCompilerTest() throws IOException {
+    b = new SubstraitBuilder(SimpleExtension.loadDefaults());
+  }
+
+  /** A row of {@link Long}, {@link Double}, {@link String} and {@link Boolean} values. */
+  static Row row(Object... values) {
+    return new Row() {
+      @Override
+      public boolean isNull(int field) {
+        return values[field] == null;
+      }
+
+      @Override
+      public long getLong(int field) {
+        return (Long) values[field];
+      }
+
+      @Override
+      public double getDouble(int field) {
+        return (Double) values[field];
+      }
+
+      @Override
+      public boolean getBoolean(int field) {
+        return (Boolean) values[field];
+      }
+
+      @Override
+      public String getString(int field) {
+        return (String) values[field];
+      }
+    };
+  }
+
+  Expression.ScalarFunctionInvocation fn(String uri, String key, Type type, Expression... args) {
+    return b.scalarFn(uri, key, type, args);
+  }
+
+  @Test
+  void filters() {
+    // active and (price > 10.0 or city = 'Paris')
+    CompiledExpression filter =
+        compiler.compile(
+            fn(
+                DefaultExtensionCatalog.FUNCTIONS_BOOLEAN,
+                "and:bool",
+                N.BOOLEAN,
+                active,
+                b.or(
+                    fn(
+                        DefaultExtensionCatalog.FUNCTIONS_COMPARISON,
+                        "gt:any_any",
+                        N.BOOLEAN,
+                        price,
+                        ExpressionCreator.fp64(false, 10.0)),
+                    b.equal(city, ExpressionCreator.string(false, "Paris")))));
+
+    assertTrue(filter.test(row(1L, 20.0, "Oslo", true)));
+    assertTrue(filter.test(row(1L, null, "Paris", true)));
+    assertFalse(filter.test(row(1L, 20.0, "Paris", false)));
+    // null or false is null
+    assertFalse(filter.test(row(1L, null, "Oslo", true)));
+    assertNull(filter.evaluate(row(1L, null, "Oslo", true)));
+    assertEquals(false, filter.evaluate(row(1L, null, "Oslo", false)));
+  }
+
+  @Test
+  void arithmetic() {
+    CompiledExpression remainder =
+        compiler.compile(
+            fn(
+                DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC,
+                "modulus:i64_i64",
+                R.I64,
+                b.add(id, ExpressionCreator.i64(false, 3)),
+                ExpressionCreator.i64(false, 4)));
+    assertEquals(2L, remainder.evaluate(row(7L, null, null, true)));
+
+    CompiledExpression ratio =
+        compiler.compile(
+            fn(
+                DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC,
+                "divide:i64_i64",
+                N.I64,
+                ExpressionCreator.i64(false, 10),
+                id));
+    assertEquals(5L, ratio.evaluate(row(2L, null, null, true)));
+    assertNull(ratio.evaluate(row(0L, null, null, true)));
+
+    CompiledExpression negated = compiler.compile(b.negate(price));
+    assertEquals(-1.5, negated.evaluate(row(0L, 1.5, null, true)));
+    assertNull(negated.evaluate(row(0L, null, null, true)));
+    assertThrows(IllegalStateException.class, () -> negated.test(row(0L, 1.5, null, true)));
+  }
+
+  @Test
+  void conditionals() {
+    // if price < 5 then 'cheap' else if price is null then 'unknown' else city
+    CompiledExpression ifThen =
+        compiler.compile(
+            b.ifThen(
+                Arrays.asList(
+                    b.ifClause(
+                        fn(
+                            DefaultExtensionCatalog.FUNCTIONS_COMPARISON,
+                            "lt:any_any",
+                            N.BOOLEAN,
+                            price,
+                            ExpressionCreator.fp64(false, 5)),
+                        ExpressionCreator.string(false, "cheap")),
+                    b.ifClause(
+                        fn(
+                            DefaultExtensionCatalog.FUNCTIONS_COMPARISON,
+                            "is_null:any",
+                            R.BOOLEAN,
+                            price),
+                        ExpressionCreator.string(false, "unknown"))),
+                city));
+    assertEquals("cheap", ifThen.evaluate(row(0L, 1.0, "Oslo", true)));
+    assertEquals("unknown", ifThen.evaluate(row(0L, null, "Oslo", true)));
+    assertEquals("Oslo", ifThen.evaluate(row(0L, 9.0, "Oslo", true)));
+    assertNull(ifThen.evaluate(row(0L, 9.0, null, true)));
+
+    CompiledExpression switchExpression =
+        compiler.compile(
+            b.switchExpression(
+                id,
+                Arrays.asList(
+                    b.switchClause(
+                        ExpressionCreator.i64(false, 1), ExpressionCreator.string(false, "one")),
+                    b.switchClause(
+                        ExpressionCreator.i64(false, 2), ExpressionCreator.string(false, "two"))),
+                ExpressionCreator.string(false, "many")));
+    assertEquals("two", switchExpression.evaluate(row(2L, null, null, true)));
+    assertEquals("many", switchExpression.evaluate(row(7L, null, null, true)));
+  }
+
+  @Test
+  void casts() {
+    CompiledExpression toLong = compiler.compile(b.cast(city, R.I64));
+    assertEquals(42L, toLong.evaluate(row(0L, null, " 42", true)));
+    assertThrows(NumberFormatException.class, () -> toLong.evaluate(row(0L, null, "x", true)));
+
+    CompiledExpression lenient =
+        compiler.compile(
+            Expression.Cast.builder()
+                .input(city)
+                .type(N.FP64)
+                .failureBehavior(Expression.FailureBehavior.RETURN_NULL)
+                .build());
+    assertEquals(2.5, lenient.evaluate(row(0L, null, "2.5", true)));
+    assertNull(lenient.evaluate(row(0L, null, "x", true)));
+
+    assertEquals("7", compiler.compile(b.cast(id, R.STRING)).evaluate(row(7L, null, null, true)));
+    assertEquals(1L, compiler.compile(b.cast(active, R.I32)).evaluate(row(0L, null, null, true)));
+  }
+
+  @Test
+  void narrowingCastsCheckRanges() {
+    CompiledExpression toByte = compiler.compile(b.cast(id, R.I8));
+    assertEquals(-128L, toByte.evaluate(row(-128L, null, null, true)));
+    assertThrows(
+        IllegalArgumentException.class, () -> toByte.evaluate(row(128L, null, null, true)));
+
+    CompiledExpression toInt = compiler.compile(b.cast(price, N.I32));
+    assertEquals(3L, toInt.evaluate(row(0L, 3.9, null, true)));
+    assertThrows(IllegalArgumentException.class, () -> toInt.evaluate(row(0L, 1e10, null, true)));
+    assertThrows(
+        IllegalArgumentException.class, () -> toInt.evaluate(row(0L, Double.NaN, null, true)));
+
+    CompiledExpression toLong = compiler.compile(b.cast(price, N.I64));
+    assertEquals(-3L, toLong.evaluate(row(0L, -3.9, null, true)));
+    assertThrows(
+        IllegalArgumentException.class, () -> toLong.evaluate(row(0L, 0x1p63, null, true)));
+    assertThrows(
+        IllegalArgumentException.class, () -> toLong.evaluate(row(0L, Double.NaN, null, true)));
+
+    CompiledExpression lenient =
+        compiler.compile(
+            Expression.Cast.builder()
+                .input(city)
+                .type(N.I16)
+                .failureBehavior(Expression.FailureBehavior.RETURN_NULL)
+                .build());
+    assertEquals(-7L, lenient.evaluate(row(0L, null, "-7", true)));
+    assertNull(lenient.evaluate(row(0L, null, "40000", true)));
+  }
+
+  @Test
+  void integerOverflowFollowsTheResultType() {
+    Expression.ScalarFunctionInvocation sum =
+        fn(
+            DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC,
+            "add:i32_i32",
+            R.I32,
+            b.cast(id, R.I32),
+            ExpressionCreator.i32(false, Integer.MAX_VALUE));
+    assertEquals(
+        (long) Integer.MIN_VALUE, compiler.compile(sum).evaluate(row(1L, null, null, true)));
+
+    CompiledExpression saturated =
+        compiler.compile(ExtendedExpressionEvaluatorTest.withOverflow(sum, "SATURATE"));
+    assertEquals((long) Integer.MAX_VALUE, saturated.evaluate(row(1L, null, null, true)));
+
+    CompiledExpression failing =
+        compiler.compile(ExtendedExpressionEvaluatorTest.withOverflow(sum, "ERROR"));
+    assertEquals((long) Integer.MAX_VALUE, failing.evaluate(row(0L, null, null, true)));
+    assertThrows(ArithmeticException.class, () -> failing.evaluate(row(1L, null, null, true)));
+
+    Expression.ScalarFunctionInvocation product =
+        fn(
+            DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC,
+            "multiply:i64_i64",
+            R.I64,
+            id,
+            ExpressionCreator.i64(false, Long.MAX_VALUE));
+    CompiledExpression clamped =
+        compiler.compile(ExtendedExpressionEvaluatorTest.withOverflow(product, "SATURATE"));
+    assertEquals(Long.MIN_VALUE, clamped.evaluate(row(-2L, null, null, true)));
+  }
+
+  @Test
+  void stringLiteralsAreEscaped() {
+    String value = "quote \" backslash \\ newline \n unicode \u00e9 \u2603 \\u0022";
+    CompiledExpression literal = compiler.compile(ExpressionCreator.string(false, value));
+
+    assertEquals(value, literal.evaluate(row(0L, null, null, true)));
+  }
+
+  @Test
+  void rejectsUnsupportedExpressions() {
+    assertThrows(
+        UnsupportedOperationException.class,
+        () ->
+            compiler.compile(
+                fn(DefaultExtensionCatalog.FUNCTIONS_STRING, "concat:str", R.STRING, city, city)));
+  }
+}
@@ -0,0 +1,271 @@
+package io.substrait.evaluator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.substrait.dsl.SubstraitBuilder;
+import io.substrait.expression.Expression;
+import io.substrait.expression.ExpressionCreator;
+import io.substrait.expression.FieldReference;
+import io.substrait.expression.FunctionOption;
+import io.substrait.extendedexpression.ImmutableExpressionReference;
+import io.substrait.extendedexpression.ImmutableExtendedExpression;
+import io.substrait.extension.DefaultExtensionCatalog;
+import io.substrait.extension.SimpleExtension;
+import io.substrait.type.NamedStruct;
+import io.substrait.type.TypeCreator;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ExtendedExpressionEvaluatorTest {
+
+  static final TypeCreator R = TypeCreator.REQUIRED;
+  static final TypeCreator N = TypeCreator.NULLABLE;
+
+  static final NamedStruct SCHEMA =
+      NamedStruct.of(
+          Arrays.asList("id", "price", "city", "quantity"),
+          R.struct(R.I64, R.FP64, R.STRING, N.I32));
+
+  final SubstraitBuilder b;
+
+  final FieldReference id = FieldReference.newRootStructReference(0, R.I64);
+  final FieldReference price = FieldReference.newRootStructReference(1, R.FP64);
+  final FieldReference city = FieldReference.newRootStructReference(2, R.STRING);
+  final FieldReference quantity = FieldReference.newRootStructReference(3, N.I32);
+
+  final ColumnBatch batch =
+      ColumnBatch.of(
+          5,
+          Column.ofLongs(new long[] {1, 2, 3, 4, 5}),
+          Column.ofDoubles(new double[] {10.0, 25.5, 7.25, 100.0, 3.0}),
+          Column.ofStrings(new String[] {"Paris", "Oslo", "Paris", "Rome", "Oslo"}),
+          Column.ofLongs(
+              new long[] {2, 0, 4, 0, 1}, new boolean[] {false, true, false, false, false}));
+
+  ExtendedExpressionEvaluatorTest() throws IOException {
+    b = new SubstraitBuilder(SimpleExtension.loadDefaults());
+  }
+
+  static ExtendedExpressionEvaluator compile(Expression... expressions) {
+    ImmutableExtendedExpression.Builder builder =
+        ImmutableExtendedExpression.builder().baseSchema(SCHEMA);
+    for (int i = 0; i < expressions.length; i++) {
+      builder.addReferredExpressions(
+          ImmutableExpressionReference.builder()
+              .expression(expressions[i])
+              .addOutputNames("e" + i)
+              .build());
+    }
+    return ExtendedExpressionEvaluator.compile(builder.build());
+  }
+
+  Expression.ScalarFunctionInvocation compare(String name, Expression left, Expression right) {
+    return b.scalarFn(
+        DefaultExtensionCatalog.FUNCTIONS_COMPARISON,
+        name + ":any_any",
+        left.getType().nullable() || right.getType().nullable() ? N.BOOLEAN : R.BOOLEAN,
+        left,
+        right);
+  }
+
+  Expression.ScalarFunctionInvocation and(Expression... args) {
+    return b.scalarFn(DefaultExtensionCatalog.FUNCTIONS_BOOLEAN, "and:bool", N.BOOLEAN, args);
+  }
+
+  @Test
+  void filtersWithComparisons() {
+    ExtendedExpressionEvaluator evaluator =
+        compile(compare("gt", price, ExpressionCreator.fp64(false, 8.0)));
+
+    assertArrayEquals(new int[] {0, 1, 3}, evaluator.filter(batch).toArray());
+    assertArrayEquals(
+        new int[] {3}, evaluator.filter(batch, SelectionVector.of(2, 3, 4)).toArray());
+  }
+
+  @Test
+  void filtersWithJunctions() {
+    // city = 'Paris' and id > 1 or price >= 100
+    Expression parisAfterFirst =
+        and(
+            b.equal(city, ExpressionCreator.string(false, "Paris")),
+            compare("gt", id, ExpressionCreator.i64(false, 1)));
+    ExtendedExpressionEvaluator evaluator =
+        compile(b.or(parisAfterFirst, compare("gte", price, ExpressionCreator.fp64(false, 100))));
+
+    assertArrayEquals(new int[] {2, 3}, evaluator.filter(batch).toArray());
+  }
+
+  @Test
+  void multipleExpressionsAreConjunctions() {
+    ExtendedExpressionEvaluator evaluator =
+        compile(
+            compare("lt", id, ExpressionCreator.i64(false, 5)),
+            compare("not_equal", city, ExpressionCreator.string(false, "Oslo")));
+
+    assertArrayEquals(new int[] {0, 2, 3}, evaluator.filter(batch).toArray());
+  }
+
+  @Test
+  void projectsArithmetic() {
+    Expression total =
+        b.scalarFn(
+            DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC,
+            "multiply:i32_i32",
+            N.I32,
+            quantity,
+            ExpressionCreator.i32(false, 3));
+    Expression half =
+        b.scalarFn(
+            DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC,
+            "divide:fp64_fp64",
+            R.FP64,
+            price,
+            ExpressionCreator.fp64(false, 2));
+    List<Column> columns = compile(total, half).project(batch, SelectionVector.of(0, 1, 4));
+
+    Column.Longs totals = (Column.Longs) columns.get(0);
+    assertEquals(3, totals.size());
+    assertEquals(6, totals.get(0));
+    assertTrue(totals.isNull(1));
+    assertEquals(3, totals.get(2));
+
+    Column.Doubles halves = (Column.Doubles) columns.get(1);
+    assertEquals(5.0, halves.get(0));
+    assertEquals(12.75, halves.get(1));
+    assertEquals(1.5, halves.get(2));
+  }
+
+  @Test
+  void integerDivisionByZeroIsNull() {
+    Expression ratio =
+        b.scalarFn(
+            DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC, "divide:i64_i64", N.I64, id, quantity);
+
+    Column.Longs ratios = (Column.Longs) compile(ratio).project(batch).get(0);
+
+    assertEquals(0, ratios.get(0));
+    assertTrue(ratios.isNull(1));
+    assertEquals(0, ratios.get(2));
+    assertTrue(ratios.isNull(3));
+    assertEquals(5, ratios.get(4));
+  }
+
+  @Test
+  void integerOverflowFollowsTheResultType() {
+    Expression.ScalarFunctionInvocation sum =
+        b.scalarFn(
+            DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC,
+            "add:i32_i32",
+            N.I32,
+            quantity,
+            ExpressionCreator.i32(false, Integer.MAX_VALUE));
+
+    Column.Longs wrapped = (Column.Longs) compile(sum).project(batch).get(0);
+    assertEquals(Integer.MIN_VALUE + 1, wrapped.get(0));
+    assertTrue(wrapped.isNull(1));
+    assertEquals(Integer.MAX_VALUE, wrapped.get(3));
+
+    Column.Longs saturated =
+        (Column.Longs) compile(withOverflow(sum, "SATURATE")).project(batch).get(0);
+    assertEquals(Integer.MAX_VALUE, saturated.get(0));
+
+    ExtendedExpressionEvaluator failing = compile(withOverflow(sum, "ERROR"));
+    assertThrows(ArithmeticException.class, () -> failing.project(batch));
+  }
+
+  static Expression withOverflow(Expression.ScalarFunctionInvocation function, String overflow) {
+    return Expression.ScalarFunctionInvocation.builder()
+        .from(function)
+        .addOptions(FunctionOption.builder().name("overflow").addValues(overflow).build())
+        .build();
+  }
+
+  @Test
+  void inLists() {
+    ExtendedExpressionEvaluator evaluator =
+        compile(
+            b.singleOrList(
+                id,
+                ExpressionCreator.i64(false, 5),
+                ExpressionCreator.i64(false, 2),
+                ExpressionCreator.i64(false, 9)));
+    assertArrayEquals(new int[] {1, 4}, evaluator.filter(batch).toArray());
+
+    Column.Booleans withNull =
+        (Column.Booleans)
+            compile(
+                    b.singleOrList(
+                        city,
+                        ExpressionCreator.string(false, "Rome"),
+                        ExpressionCreator.typedNull(N.STRING)))
+                .project(batch)
+                .get(0);
+    assertTrue(withNull.isNull(0));
+    assertTrue(withNull.get(3));
+    assertFalse(withNull.isNull(3));
+  }
+
+  @Test
+  void floatingPointInListsMatchAsEquals() {
+    ColumnBatch doubles =
+        ColumnBatch.of(
+            4,
+            Column.ofLongs(new long[] {1, 2, 3, 4}),
+            Column.ofDoubles(new double[] {-0.0, 0.0, Double.NaN, 1.0}),
+            Column.ofStrings(new String[] {"Paris", "Oslo", "Paris", "Rome"}),
+            Column.ofLongs(new long[] {1, 2, 3, 4}));
+    ExtendedExpressionEvaluator evaluator =
+        compile(
+            b.singleOrList(
+                price,
+                ExpressionCreator.fp64(false, -0.0),
+                ExpressionCreator.fp64(false, Double.NaN)));
+    assertArrayEquals(new int[] {0, 1}, evaluator.filter(doubles).toArray());
+  }
+
+  @Test
+  void nullsAreNotSelected() {
+    Expression isNull =
+        b.scalarFn(
+            DefaultExtensionCatalog.FUNCTIONS_COMPARISON, "is_null:any", R.BOOLEAN, quantity);
+    Expression positive = compare("gt", quantity, ExpressionCreator.i32(false, 0));
+
+    assertArrayEquals(new int[] {1}, compile(isNull).filter(batch).toArray());
+    assertArrayEquals(new int[] {0, 2, 4}, compile(positive).filter(batch).toArray());
+    // null or true is true, null and true is null
+    assertArrayEquals(
+        new int[] {0, 1, 2, 4},
+        compile(b.or(positive, compare("lt", id, ExpressionCreator.i64(false, 3))))
+            .filter(batch)
+            .toArray());
+    assertArrayEquals(
+        new int[] {0},
+        compile(and(positive, compare("lt", id, ExpressionCreator.i64(false, 3))))
+            .filter(batch)
+            .toArray());
+  }
+
+  @Test
+  void rejectsUnsupportedExpressionsAndBatches() {
+    Expression concat =
+        b.scalarFn(DefaultExtensionCatalog.FUNCTIONS_STRING, "concat:str", R.STRING, city, city);
+    assertThrows(UnsupportedOperationException.class, () -> compile(concat));
+
+    ExtendedExpressionEvaluator evaluator = compile(id);
+    assertThrows(IllegalStateException.class, () -> evaluator.filter(batch));
+    ColumnBatch wrongTypes =
+        ColumnBatch.of(
+            1,
+            Column.ofDoubles(new double[] {1}),
+            Column.ofDoubles(new double[] {1}),
+            Column.ofStrings(new String[] {"a"}),
+            Column.ofLongs(new long[] {1}));
+    assertThrows(IllegalArgumentException.class, () -> evaluator.project(wrongTypes));
+  }
+}
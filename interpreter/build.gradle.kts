@@ -0,0 +1,34 @@
+plugins {
+  id("java")
+  id("idea")
+  id("com.diffplug.spotless") version "6.19.0"
+}
+
+java {
+  toolchain { languageVersion.set(JavaLanguageVersion.of(17)) }
+  withJavadocJar()
+  withSourcesJar()
+}
+
+val ARROW_VERSION = properties.get("arrow.version")
+val IMMUTABLES_VERSION = properties.get("immutables.version")
+val JUNIT_VERSION = properties.get("junit.version")
+val SLF4J_VERSION = properties.get("slf4j.version")
+
+dependencies {
+  implementation(project(":core"))
+  implementation("org.apache.arrow:arrow-vector:${ARROW_VERSION}")
+  runtimeOnly("org.apache.arrow:arrow-memory-netty:${ARROW_VERSION}")
+  implementation("org.immutables:value-annotations:${IMMUTABLES_VERSION}")
+  implementation("org.slf4j:slf4j-api:${SLF4J_VERSION}")
+  testImplementation("org.junit.jupiter:junit-jupiter:${JUNIT_VERSION}")
+  annotationProcessor("com.github.bsideup.jabel:jabel-javac-plugin:0.4.2")
+  compileOnly("com.github.bsideup.jabel:jabel-javac-plugin:0.4.2")
+}
+
+tasks {
+  classes { dependsOn(":core:shadowJar") }
+
+  // Arrow accesses direct buffers through reflection
+  test { jvmArgs("--add-opens=java.base/java.nio=ALL-UNNAMED") }
+}
@@ -0,0 +1,192 @@
+package io.substrait.interpreter;
+
+import io.substrait.expression.AggregateFunctionInvocation;
+import io.substrait.extension.DefaultExtensionCatalog;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/** Implementations of the aggregate functions of the default extension catalog. */
+final class AggregateKernels {
+
+  /** Accumulates the values of a group. */
+  interface Accumulator {
+    /** Adds the normalized argument values of a row. */
+    void add(Object[] args);
+
+    Object result();
+  }
+
+  private static final Set<String> URIS =
+      new HashSet<>(
+          Arrays.asList(
+              DefaultExtensionCatalog.FUNCTIONS_AGGREGATE_GENERIC,
+              DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC,
+              DefaultExtensionCatalog.FUNCTIONS_BOOLEAN));
+
+  private static final Map<String, Supplier<Accumulator>> ACCUMULATORS = new HashMap<>();
+
+  static {
+    ACCUMULATORS.put("count", Count::new);
+    ACCUMULATORS.put("sum", () -> new Sum(false));
+    ACCUMULATORS.put("sum0", () -> new Sum(true));
+    ACCUMULATORS.put("avg", Avg::new);
+    ACCUMULATORS.put("min", () -> new Extreme(-1));
+    ACCUMULATORS.put("max", () -> new Extreme(1));
+    ACCUMULATORS.put("any_value", AnyValue::new);
+    ACCUMULATORS.put("bool_and", () -> new BoolJunction(false));
+    ACCUMULATORS.put("bool_or", () -> new BoolJunction(true));
+  }
+
+  private AggregateKernels() {}
+
+  static Accumulator accumulator(AggregateFunctionInvocation function) {
+    Supplier<Accumulator> supplier = ACCUMULATORS.get(function.declaration().name());
+    if (!URIS.contains(function.declaration().uri()) || supplier == null) {
+      throw new UnsupportedOperationException(
+          String.format(
+              "Unsupported aggregate function %s from %s",
+              function.declaration().key(), function.declaration().uri()));
+    }
+    return supplier.get();
+  }
+
+  /** Counts the rows, or the rows with a non-null argument. */
+  private static class Count implements Accumulator {
+    private long count;
+
+    @Override
+    public void add(Object[] args) {
+      if (args.length == 0 || args[0] != null) {
+        count++;
+      }
+    }
+
+    @Override
+    public Object result() {
+      return count;
+    }
+  }
+
+  private static class Sum implements Accumulator {
+    /** Whether the sum of no values is 0 rather than null. */
+    private final boolean zeroIfEmpty;
+
+    private long longSum;
+    private double doubleSum;
+    private boolean isDouble;
+    private boolean empty = true;
+
+    Sum(boolean zeroIfEmpty) {
+      this.zeroIfEmpty = zeroIfEmpty;
+    }
+
+    @Override
+    public void add(Object[] args) {
+      if (args[0] instanceof Long) {
+        longSum += (long) args[0];
+      } else if (args[0] instanceof Double) {
+        doubleSum += (double) args[0];
+        isDouble = true;
+      } else {
+        return;
+      }
+      empty = false;
+    }
+
+    @Override
+    public Object result() {
+      if (empty) {
+        return zeroIfEmpty ? (Object) 0L : null;
+      }
+      return isDouble ? (Object) doubleSum : (Object) longSum;
+    }
+  }
+
+  private static class Avg implements Accumulator {
+    private final Sum sum = new Sum(false);
+    private long count;
+
+    @Override
+    public void add(Object[] args) {
+      if (args[0] != null) {
+        sum.add(args);
+        count++;
+      }
+    }
+
+    @Override
+    public Object result() {
+      Object total = sum.result();
+      if (total == null) {
+        return null;
+      }
+      // the average of integers is an integer of the same type
+      return total instanceof Long ? (Object) ((long) total / count) : (double) total / count;
+    }
+  }
+
+  private static class Extreme implements Accumulator {
+    private final int sign;
+    private Object result;
+
+    Extreme(int sign) {
+      this.sign = sign;
+    }
+
+    @Override
+    public void add(Object[] args) {
+      if (args[0] != null
+          && (result == null || Integer.signum(ScalarKernels.compare(args[0], result)) == sign)) {
+        result = args[0];
+      }
+    }
+
+    @Override
+    public Object result() {
+      return result;
+    }
+  }
+
+  private static class AnyValue implements Accumulator {
+    private Object result;
+
+    @Override
+    public void add(Object[] args) {
+      if (result == null) {
+        result = args[0];
+      }
+    }
+
+    @Override
+    public Object result() {
+      return result;
+    }
+  }
+
+  /** {@code bool_and} (when {@code or} is false) and {@code bool_or}, ignoring nulls. */
+  private static class BoolJunction implements Accumulator {
+    private final boolean or;
+    private Boolean result;
+
+    BoolJunction(boolean or) {
+      this.or = or;
+    }
+
+    @Override
+    public void add(Object[] args) {
+      if (args[0] != null) {
+        boolean value = (Boolean) args[0];
+        result = result == null ? value : or ? result || value : result && value;
+      }
+    }
+
+    @Override
+    public Object result() {
+      return result;
+    }
+  }
+}
@@ -0,0 +1,180 @@
+package io.substrait.interpreter;
+
+import io.substrait.expression.AbstractExpressionVisitor;
+import io.substrait.expression.Expression;
+import io.substrait.expression.FieldReference;
+import io.substrait.expression.FunctionArg;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+/**
+ * Evaluates expressions over all the rows of a batch at once. Every evaluation returns a new vector
+ * owned by the caller.
+ */
+class ExpressionEvaluator extends AbstractExpressionVisitor<FieldVector, RuntimeException> {
+
+  private final VectorSchemaRoot batch;
+  private final BufferAllocator allocator;
+
+  ExpressionEvaluator(VectorSchemaRoot batch, BufferAllocator allocator) {
+    this.batch = batch;
+    this.allocator = allocator;
+  }
+
+  FieldVector evaluate(Expression expression) {
+    return expression.accept(this);
+  }
+
+  @Override
+  public FieldVector visitFallback(Expression expr) {
+    if (expr instanceof Expression.Literal) {
+      Object value = Vectors.value((Expression.Literal) expr);
+      List<Object> values = Collections.nCopies(batch.getRowCount(), value);
+      return Vectors.of("literal", expr.getType(), values, allocator);
+    }
+    throw new UnsupportedOperationException(
+        "Unsupported expression: " + expr.getClass().getSimpleName());
+  }
+
+  @Override
+  public FieldVector visit(FieldReference expr) {
+    if (!expr.isSimpleRootReference()
+        || expr.outerReferenceStepsOut().isPresent()
+        || !(expr.segments().get(0) instanceof FieldReference.StructField)) {
+      throw new UnsupportedOperationException("Only root struct field references are supported");
+    }
+    int offset = ((FieldReference.StructField) expr.segments().get(0)).offset();
+    FieldVector vector = batch.getVector(offset);
+    return Vectors.copy(vector, vector.getName(), allocator);
+  }
+
+  @Override
+  public FieldVector visit(Expression.ScalarFunctionInvocation expr) {
+    ScalarKernels.checkSupported(expr);
+    List<FieldVector> arguments = evaluateAll(expr.arguments());
+    try {
+      return ScalarKernels.apply(expr, arguments, batch.getRowCount(), allocator);
+    } finally {
+      close(arguments);
+    }
+  }
+
+  @Override
+  public FieldVector visit(Expression.Cast expr) {
+    try (FieldVector input = evaluate(expr.input())) {
+      List<Object> values = new ArrayList<>(batch.getRowCount());
+      for (int i = 0; i < batch.getRowCount(); i++) {
+        Object value = Vectors.get(input, i);
+        values.add(ScalarKernels.cast(value, expr.getType(), expr.failureBehavior()));
+      }
+      return Vectors.of("cast", expr.getType(), values, allocator);
+    }
+  }
+
+  @Override
+  public FieldVector visit(Expression.IfThen expr) {
+    List<FieldVector> conditions = new ArrayList<>();
+    List<FieldVector> thens = new ArrayList<>();
+    try (FieldVector otherwise = evaluate(expr.elseClause())) {
+      for (Expression.IfClause clause : expr.ifClauses()) {
+        conditions.add(evaluate(clause.condition()));
+        thens.add(evaluate(clause.then()));
+      }
+      List<Object> values = new ArrayList<>(batch.getRowCount());
+      for (int row = 0; row < batch.getRowCount(); row++) {
+        FieldVector taken = otherwise;
+        for (int i = 0; i < conditions.size(); i++) {
+          if (Boolean.TRUE.equals(Vectors.get(conditions.get(i), row))) {
+            taken = thens.get(i);
+            break;
+          }
+        }
+        values.add(Vectors.get(taken, row));
+      }
+      return Vectors.of("if_then", expr.getType(), values, allocator);
+    } finally {
+      close(conditions);
+      close(thens);
+    }
+  }
+
+  @Override
+  public FieldVector visit(Expression.Switch expr) {
+    List<FieldVector> thens = new ArrayList<>();
+    try (FieldVector match = evaluate(expr.match());
+        FieldVector otherwise = evaluate(expr.defaultClause())) {
+      List<Object> conditions = new ArrayList<>();
+      for (Expression.SwitchClause clause : expr.switchClauses()) {
+        conditions.add(Vectors.value(clause.condition()));
+        thens.add(evaluate(clause.then()));
+      }
+      List<Object> values = new ArrayList<>(batch.getRowCount());
+      for (int row = 0; row < batch.getRowCount(); row++) {
+        Object value = Vectors.get(match, row);
+        int clause = value == null ? -1 : conditions.indexOf(value);
+        values.add(Vectors.get(clause < 0 ? otherwise : thens.get(clause), row));
+      }
+      return Vectors.of("switch", expr.getType(), values, allocator);
+    } finally {
+      close(thens);
+    }
+  }
+
+  @Override
+  public FieldVector visit(Expression.SingleOrList expr) {
+    List<FieldVector> options = new ArrayList<>();
+    try (FieldVector condition = evaluate(expr.condition())) {
+      for (Expression option : expr.options()) {
+        options.add(evaluate(option));
+      }
+      List<Object> values = new ArrayList<>(batch.getRowCount());
+      for (int row = 0; row < batch.getRowCount(); row++) {
+        values.add(in(Vectors.get(condition, row), options, row));
+      }
+      return Vectors.of("in", expr.getType(), values, allocator);
+    } finally {
+      close(options);
+    }
+  }
+
+  /** Three-valued membership: null if the value is null or only matches null options. */
+  private static Boolean in(Object value, List<FieldVector> options, int row) {
+    if (value == null) {
+      return null;
+    }
+    boolean anyNull = false;
+    for (FieldVector option : options) {
+      Object optionValue = Vectors.get(option, row);
+      if (optionValue == null) {
+        anyNull = true;
+      } else if (ScalarKernels.equal(value, optionValue)) {
+        return true;
+      }
+    }
+    return anyNull ? null : false;
+  }
+
+  private List<FieldVector> evaluateAll(List<FunctionArg> arguments) {
+    List<FieldVector> vectors = new ArrayList<>(arguments.size());
+    try {
+      for (FunctionArg argument : arguments) {
+        if (!(argument instanceof Expression)) {
+          throw new UnsupportedOperationException("Unsupported function argument: " + argument);
+        }
+        vectors.add(evaluate((Expression) argument));
+      }
+      return vectors;
+    } catch (RuntimeException e) {
+      close(vectors);
+      throw e;
+    }
+  }
+
+  private static void close(List<FieldVector> vectors) {
+    vectors.forEach(FieldVector::close);
+  }
+}
@@ -0,0 +1,596 @@
+package io.substrait.interpreter;
+
+import io.substrait.expression.AggregateFunctionInvocation;
+import io.substrait.expression.Expression;
+import io.substrait.expression.FunctionArg;
+import io.substrait.plan.Plan;
+import io.substrait.relation.AbstractReadRel;
+import io.substrait.relation.AbstractRelVisitor;
+import io.substrait.relation.Aggregate;
+import io.substrait.relation.Cross;
+import io.substrait.relation.EmptyScan;
+import io.substrait.relation.Fetch;
+import io.substrait.relation.Filter;
+import io.substrait.relation.Join;
+import io.substrait.relation.NamedScan;
+import io.substrait.relation.Project;
+import io.substrait.relation.Rel;
+import io.substrait.relation.Set;
+import io.substrait.relation.Sort;
+import io.substrait.relation.VirtualTableScan;
+import io.substrait.type.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+/**
+ * Executes relation trees over Arrow batches, as a reference for validating plans and running
+ * small queries locally.
+ *
+ * <p>Every relation is materialized into a single batch and expressions are evaluated one column at
+ * a time. Joins compare all pairs of rows, so their inputs should be small. Relations, expressions
+ * and functions that are not supported raise an {@link UnsupportedOperationException}.
+ */
+public class Interpreter {
+
+  private final BufferAllocator allocator;
+  private final TableProvider tableProvider;
+
+  /**
+   * @param allocator the allocator of all the batches created during execution
+   * @param tableProvider the source of the tables read by named scans
+   */
+  public Interpreter(BufferAllocator allocator, TableProvider tableProvider) {
+    this.allocator = allocator;
+    this.tableProvider = tableProvider;
+  }
+
+  /**
+   * Executes a relation. The fields of the result are named {@code $0}, {@code $1}...
+   *
+   * @return a batch owned, and closed, by the caller
+   */
+  public VectorSchemaRoot execute(Rel rel) {
+    VectorSchemaRoot result = rel.accept(new Executor());
+    List<String> names =
+        IntStream.range(0, result.getFieldVectors().size())
+            .mapToObj(i -> "$" + i)
+            .collect(Collectors.toList());
+    return rename(result, names);
+  }
+
+  /**
+   * Executes the relation of a plan root, naming the fields of the result with the names of the
+   * root.
+   *
+   * @return a batch owned, and closed, by the caller
+   */
+  public VectorSchemaRoot execute(Plan.Root root) {
+    VectorSchemaRoot result = execute(root.getInput());
+    if (root.getNames().size() != result.getFieldVectors().size()) {
+      // the names include those of nested struct fields
+      return result;
+    }
+    return rename(result, root.getNames());
+  }
+
+  private VectorSchemaRoot rename(VectorSchemaRoot batch, List<String> names) {
+    List<FieldVector> vectors = new ArrayList<>();
+    for (int i = 0; i < names.size(); i++) {
+      vectors.add(Vectors.rename(batch.getVector(i), names.get(i), allocator));
+    }
+    int rowCount = batch.getRowCount();
+    batch.close();
+    return Vectors.root(vectors, rowCount);
+  }
+
+  private class Executor extends AbstractRelVisitor<VectorSchemaRoot, RuntimeException> {
+
+    @Override
+    public VectorSchemaRoot visitFallback(Rel rel) {
+      throw new UnsupportedOperationException(
+          "Unsupported relation: " + rel.getClass().getSimpleName());
+    }
+
+    @Override
+    public VectorSchemaRoot visit(NamedScan namedScan) {
+      return read(namedScan, tableProvider.scan(namedScan.getNames(), allocator));
+    }
+
+    @Override
+    public VectorSchemaRoot visit(VirtualTableScan virtualTableScan) {
+      List<Type> types = virtualTableScan.getInitialSchema().struct().fields();
+      List<FieldVector> vectors = new ArrayList<>();
+      for (int i = 0; i < types.size(); i++) {
+        int field = i;
+        List<Object> values =
+            virtualTableScan.getRows().stream()
+                .map(row -> Vectors.value(row.fields().get(field)))
+                .collect(Collectors.toList());
+        vectors.add(Vectors.of("$" + i, types.get(i), values, allocator));
+      }
+      return read(virtualTableScan, Vectors.root(vectors, virtualTableScan.getRows().size()));
+    }
+
+    @Override
+    public VectorSchemaRoot visit(EmptyScan emptyScan) {
+      List<Type> types = emptyScan.getInitialSchema().struct().fields();
+      List<FieldVector> vectors = new ArrayList<>();
+      for (int i = 0; i < types.size(); i++) {
+        vectors.add(Vectors.of("$" + i, types.get(i), Collections.emptyList(), allocator));
+      }
+      return read(emptyScan, Vectors.root(vectors, 0));
+    }
+
+    @Override
+    public VectorSchemaRoot visit(Filter filter) {
+      return remap(filter, filter(filter.getInput().accept(this), filter.getCondition()));
+    }
+
+    @Override
+    public VectorSchemaRoot visit(Project project) {
+      VectorSchemaRoot input = project.getInput().accept(this);
+      List<FieldVector> vectors = new ArrayList<>(input.getFieldVectors());
+      for (Expression expression : project.getExpressions()) {
+        // expressions may refer to the results of the previous ones
+        VectorSchemaRoot current = Vectors.root(vectors, input.getRowCount());
+        vectors.add(new ExpressionEvaluator(current, allocator).evaluate(expression));
+      }
+      return remap(project, Vectors.root(vectors, input.getRowCount()));
+    }
+
+    @Override
+    public VectorSchemaRoot visit(Aggregate aggregate) {
+      if (aggregate.getGroupings().size() > 1) {
+        throw new UnsupportedOperationException("Grouping sets are not supported");
+      }
+      List<Expression> keys =
+          aggregate.getGroupings().isEmpty()
+              ? Collections.emptyList()
+              : aggregate.getGroupings().get(0).getExpressions();
+      try (VectorSchemaRoot input = aggregate.getInput().accept(this)) {
+        return remap(aggregate, aggregate(input, keys, aggregate.getMeasures()));
+      }
+    }
+
+    @Override
+    public VectorSchemaRoot visit(Join join) {
+      try (VectorSchemaRoot left = join.getLeft().accept(this);
+          VectorSchemaRoot right = join.getRight().accept(this)) {
+        VectorSchemaRoot joined = join(left, right, join.getJoinType(), join.getCondition());
+        if (join.getPostJoinFilter().isPresent()) {
+          joined = filter(joined, join.getPostJoinFilter().get());
+        }
+        return remap(join, joined);
+      }
+    }
+
+    @Override
+    public VectorSchemaRoot visit(Cross cross) {
+      try (VectorSchemaRoot left = cross.getLeft().accept(this);
+          VectorSchemaRoot right = cross.getRight().accept(this)) {
+        return remap(cross, join(left, right, Join.JoinType.INNER, Optional.empty()));
+      }
+    }
+
+    @Override
+    public VectorSchemaRoot visit(Sort sort) {
+      try (VectorSchemaRoot input = sort.getInput().accept(this)) {
+        int[] indices = sortedIndices(input, sort.getSortFields());
+        return remap(sort, Vectors.take(input, indices, allocator));
+      }
+    }
+
+    @Override
+    public VectorSchemaRoot visit(Fetch fetch) {
+      try (VectorSchemaRoot input = fetch.getInput().accept(this)) {
+        long from = Math.min(fetch.getOffset(), input.getRowCount());
+        long to =
+            fetch.getCount().isPresent()
+                ? Math.min(input.getRowCount(), from + fetch.getCount().getAsLong())
+                : input.getRowCount();
+        int[] indices = IntStream.range((int) from, (int) to).toArray();
+        return remap(fetch, Vectors.take(input, indices, allocator));
+      }
+    }
+
+    @Override
+    public VectorSchemaRoot visit(Set set) {
+      List<VectorSchemaRoot> inputs = new ArrayList<>();
+      try {
+        for (Rel input : set.getInputs()) {
+          inputs.add(input.accept(this));
+        }
+        return remap(set, set(inputs, set.getSetOp()));
+      } finally {
+        inputs.forEach(VectorSchemaRoot::close);
+      }
+    }
+  }
+
+  /** Applies the filter and the projection of a read to the content of its table. */
+  private VectorSchemaRoot read(AbstractReadRel read, VectorSchemaRoot table) {
+    VectorSchemaRoot filtered =
+        read.getFilter().isPresent() ? filter(table, read.getFilter().get()) : table;
+    if (read.getProjection().isPresent()) {
+      List<Integer> fields = new ArrayList<>();
+      read.getProjection()
+          .get()
+          .getSelect()
+          .getStructItems()
+          .forEach(
+              item -> {
+                if (item.getChild().isPresent()) {
+                  throw new UnsupportedOperationException(
+                      "Projections of nested fields are not supported");
+                }
+                fields.add(item.getField());
+              });
+      filtered = select(filtered, fields);
+    }
+    return remap(read, filtered);
+  }
+
+  /** Keeps the rows of a batch for which the condition is true, closing the input batch. */
+  private VectorSchemaRoot filter(VectorSchemaRoot batch, Expression condition) {
+    try (batch;
+        FieldVector matches = new ExpressionEvaluator(batch, allocator).evaluate(condition)) {
+      int[] indices =
+          IntStream.range(0, batch.getRowCount())
+              .filter(i -> Boolean.TRUE.equals(Vectors.get(matches, i)))
+              .toArray();
+      return Vectors.take(batch, indices, allocator);
+    }
+  }
+
+  private VectorSchemaRoot aggregate(
+      VectorSchemaRoot input, List<Expression> keys, List<Aggregate.Measure> measures) {
+    ExpressionEvaluator evaluator = new ExpressionEvaluator(input, allocator);
+    List<FieldVector> keyVectors = new ArrayList<>();
+    List<List<FieldVector>> argumentVectors = new ArrayList<>();
+    List<FieldVector> filterVectors = new ArrayList<>();
+    try {
+      for (Expression key : keys) {
+        keyVectors.add(evaluator.evaluate(key));
+      }
+      for (Aggregate.Measure measure : measures) {
+        List<FieldVector> arguments = new ArrayList<>();
+        argumentVectors.add(arguments);
+        for (FunctionArg argument : measure.getFunction().arguments()) {
+          if (!(argument instanceof Expression)) {
+            throw new UnsupportedOperationException("Unsupported function argument: " + argument);
+          }
+          arguments.add(evaluator.evaluate((Expression) argument));
+        }
+        filterVectors.add(measure.getPreMeasureFilter().map(evaluator::evaluate).orElse(null));
+      }
+
+      Map<List<Object>, Group> groups = new LinkedHashMap<>();
+      if (keys.isEmpty()) {
+        // a global aggregate returns a row even without input rows
+        groups.put(Collections.emptyList(), new Group(measures, -1));
+      }
+      for (int row = 0; row < input.getRowCount(); row++) {
+        List<Object> key = new ArrayList<>(keyVectors.size());
+        for (FieldVector keyVector : keyVectors) {
+          key.add(Vectors.key(Vectors.get(keyVector, row)));
+        }
+        int firstRow = row;
+        Group group = groups.computeIfAbsent(key, k -> new Group(measures, firstRow));
+        for (int m = 0; m < measures.size(); m++) {
+          FieldVector filterVector = filterVectors.get(m);
+          if (filterVector == null || Boolean.TRUE.equals(Vectors.get(filterVector, row))) {
+            group.add(m, argumentVectors.get(m), row);
+          }
+        }
+      }
+
+      // the key values of a group are those of its first row
+      int[] firstRows = groups.values().stream().mapToInt(group -> group.firstRow).toArray();
+      List<FieldVector> vectors = new ArrayList<>();
+      for (int k = 0; k < keys.size(); k++) {
+        FieldVector values = Vectors.take(keyVectors.get(k), firstRows, allocator);
+        vectors.add(Vectors.rename(values, "$" + k, allocator));
+      }
+      for (int m = 0; m < measures.size(); m++) {
+        int measure = m;
+        List<Object> values =
+            groups.values().stream()
+                .map(group -> group.accumulators[measure].result())
+                .collect(Collectors.toList());
+        AggregateFunctionInvocation function = measures.get(m).getFunction();
+        vectors.add(Vectors.of("$" + (keys.size() + m), function.getType(), values, allocator));
+      }
+      return Vectors.root(vectors, groups.size());
+    } finally {
+      keyVectors.forEach(FieldVector::close);
+      argumentVectors.forEach(arguments -> arguments.forEach(FieldVector::close));
+      filterVectors.stream().filter(v -> v != null).forEach(FieldVector::close);
+    }
+  }
+
+  /** The accumulators of the measures of a group. */
+  private static class Group {
+    /** The first input row of the group, -1 for the group of a global aggregate. */
+    final int firstRow;
+
+    final AggregateKernels.Accumulator[] accumulators;
+
+    /** The keys of the arguments seen by each DISTINCT measure, null for the other measures. */
+    final java.util.Set<List<Object>>[] seen;
+
+    @SuppressWarnings("unchecked")
+    Group(List<Aggregate.Measure> measures, int firstRow) {
+      this.firstRow = firstRow;
+      accumulators = new AggregateKernels.Accumulator[measures.size()];
+      seen = new java.util.Set[measures.size()];
+      for (int m = 0; m < measures.size(); m++) {
+        AggregateFunctionInvocation function = measures.get(m).getFunction();
+        accumulators[m] = AggregateKernels.accumulator(function);
+        if (function.invocation() == Expression.AggregationInvocation.DISTINCT) {
+          seen[m] = new HashSet<>();
+        }
+      }
+    }
+
+    void add(int measure, List<FieldVector> arguments, int row) {
+      Object[] args = new Object[arguments.size()];
+      List<Object> key = new ArrayList<>(args.length);
+      for (int i = 0; i < args.length; i++) {
+        args[i] = Vectors.get(arguments.get(i), row);
+        key.add(Vectors.key(args[i]));
+      }
+      if (seen[measure] == null || seen[measure].add(key)) {
+        accumulators[measure].add(args);
+      }
+    }
+  }
+
+  /**
+   * Joins two batches by comparing all the pairs of rows. The right fields of semi and anti joins
+   * are null.
+   */
+  private VectorSchemaRoot join(
+      VectorSchemaRoot left,
+      VectorSchemaRoot right,
+      Join.JoinType joinType,
+      Optional<Expression> condition) {
+    int leftCount = left.getRowCount();
+    int rightCount = right.getRowCount();
+    int[] pairLeft = new int[Math.multiplyExact(leftCount, rightCount)];
+    int[] pairRight = new int[pairLeft.length];
+    for (int i = 0; i < leftCount; i++) {
+      for (int j = 0; j < rightCount; j++) {
+        pairLeft[i * rightCount + j] = i;
+        pairRight[i * rightCount + j] = j;
+      }
+    }
+
+    boolean[] pairMatches = new boolean[pairLeft.length];
+    if (condition.isPresent()) {
+      try (VectorSchemaRoot pairs = concat(left, pairLeft, right, pairRight);
+          FieldVector matches =
+              new ExpressionEvaluator(pairs, allocator).evaluate(condition.get())) {
+        for (int p = 0; p < pairMatches.length; p++) {
+          pairMatches[p] = Boolean.TRUE.equals(Vectors.get(matches, p));
+        }
+      }
+    } else {
+      Arrays.fill(pairMatches, true);
+    }
+
+    boolean[] leftMatched = new boolean[leftCount];
+    boolean[] rightMatched = new boolean[rightCount];
+    List<int[]> output = new ArrayList<>();
+    for (int p = 0; p < pairMatches.length; p++) {
+      if (pairMatches[p]) {
+        leftMatched[pairLeft[p]] = true;
+        rightMatched[pairRight[p]] = true;
+        output.add(new int[] {pairLeft[p], pairRight[p]});
+      }
+    }
+
+    switch (joinType) {
+      case INNER:
+        break;
+      case LEFT:
+      case RIGHT:
+      case OUTER:
+        if (joinType != Join.JoinType.RIGHT) {
+          addUnmatched(output, leftMatched, false, 0);
+        }
+        if (joinType != Join.JoinType.LEFT) {
+          addUnmatched(output, rightMatched, false, 1);
+        }
+        break;
+      case SEMI:
+      case ANTI:
+        output.clear();
+        addUnmatched(output, leftMatched, joinType == Join.JoinType.SEMI, 0);
+        break;
+      default:
+        throw new UnsupportedOperationException("Unsupported join type: " + joinType);
+    }
+
+    return concat(
+        left,
+        output.stream().mapToInt(pair -> pair[0]).toArray(),
+        right,
+        output.stream().mapToInt(pair -> pair[1]).toArray());
+  }
+
+  /**
+   * Adds a row to the output for each row of a side whose matched flag is {@code matched}, with
+   * nulls for the other side.
+   */
+  private static void addUnmatched(
+      List<int[]> output, boolean[] matches, boolean matched, int side) {
+    for (int i = 0; i < matches.length; i++) {
+      if (matches[i] == matched) {
+        int[] pair = {-1, -1};
+        pair[side] = i;
+        output.add(pair);
+      }
+    }
+  }
+
+  /** Combines the given rows of two batches side by side. */
+  private VectorSchemaRoot concat(
+      VectorSchemaRoot left, int[] leftIndices, VectorSchemaRoot right, int[] rightIndices) {
+    List<FieldVector> vectors = new ArrayList<>();
+    for (FieldVector vector : left.getFieldVectors()) {
+      vectors.add(Vectors.take(vector, leftIndices, allocator));
+    }
+    for (FieldVector vector : right.getFieldVectors()) {
+      vectors.add(Vectors.take(vector, rightIndices, allocator));
+    }
+    return Vectors.root(vectors, leftIndices.length);
+  }
+
+  private int[] sortedIndices(VectorSchemaRoot input, List<Expression.SortField> sortFields) {
+    ExpressionEvaluator evaluator = new ExpressionEvaluator(input, allocator);
+    List<FieldVector> keys = new ArrayList<>();
+    try {
+      Comparator<Integer> comparator = (a, b) -> 0;
+      for (Expression.SortField sortField : sortFields) {
+        FieldVector key = evaluator.evaluate(sortField.expr());
+        keys.add(key);
+        comparator = comparator.thenComparing(comparator(key, sortField.direction()));
+      }
+      Integer[] indices = IntStream.range(0, input.getRowCount()).boxed().toArray(Integer[]::new);
+      // a stable sort keeps the input order of equal rows
+      Arrays.sort(indices, comparator);
+      return Arrays.stream(indices).mapToInt(Integer::intValue).toArray();
+    } finally {
+      keys.forEach(FieldVector::close);
+    }
+  }
+
+  private static Comparator<Integer> comparator(
+      FieldVector key, Expression.SortDirection direction) {
+    if (direction == Expression.SortDirection.CLUSTERED) {
+      return (a, b) -> 0;
+    }
+    boolean descending =
+        direction == Expression.SortDirection.DESC_NULLS_FIRST
+            || direction == Expression.SortDirection.DESC_NULLS_LAST;
+    boolean nullsFirst =
+        direction == Expression.SortDirection.ASC_NULLS_FIRST
+            || direction == Expression.SortDirection.DESC_NULLS_FIRST;
+    return (a, b) -> {
+      Object left = Vectors.get(key, a);
+      Object right = Vectors.get(key, b);
+      if (left == null || right == null) {
+        int nulls = Boolean.compare(right == null, left == null);
+        return nullsFirst ? nulls : -nulls;
+      }
+      int comparison = ScalarKernels.compare(left, right);
+      return descending ? -comparison : comparison;
+    };
+  }
+
+  private VectorSchemaRoot set(List<VectorSchemaRoot> inputs, Set.SetOp setOp) {
+    // the rows to output, as pairs of input and row indices
+    List<int[]> output = new ArrayList<>();
+    VectorSchemaRoot primary = inputs.get(0);
+    switch (setOp) {
+      case UNION_ALL:
+        for (int i = 0; i < inputs.size(); i++) {
+          for (int row = 0; row < inputs.get(i).getRowCount(); row++) {
+            output.add(new int[] {i, row});
+          }
+        }
+        break;
+      case UNION_DISTINCT:
+        {
+          java.util.Set<List<Object>> seen = new HashSet<>();
+          for (int i = 0; i < inputs.size(); i++) {
+            for (int row = 0; row < inputs.get(i).getRowCount(); row++) {
+              if (seen.add(Vectors.key(inputs.get(i), row))) {
+                output.add(new int[] {i, row});
+              }
+            }
+          }
+          break;
+        }
+      case MINUS_PRIMARY:
+      case INTERSECTION_PRIMARY:
+      case INTERSECTION_MULTISET:
+        {
+          List<java.util.Set<List<Object>>> secondaries = new ArrayList<>();
+          for (VectorSchemaRoot secondary : inputs.subList(1, inputs.size())) {
+            java.util.Set<List<Object>> keys = new HashSet<>();
+            for (int row = 0; row < secondary.getRowCount(); row++) {
+              keys.add(Vectors.key(secondary, row));
+            }
+            secondaries.add(keys);
+          }
+          java.util.Set<List<Object>> seen = new HashSet<>();
+          for (int row = 0; row < primary.getRowCount(); row++) {
+            List<Object> values = Vectors.key(primary, row);
+            boolean keep;
+            if (setOp == Set.SetOp.MINUS_PRIMARY) {
+              keep = secondaries.stream().noneMatch(s -> s.contains(values));
+            } else if (setOp == Set.SetOp.INTERSECTION_PRIMARY) {
+              keep = secondaries.stream().anyMatch(s -> s.contains(values));
+            } else {
+              keep = secondaries.stream().allMatch(s -> s.contains(values));
+            }
+            if (keep && seen.add(values)) {
+              output.add(new int[] {0, row});
+            }
+          }
+          break;
+        }
+      default:
+        throw new UnsupportedOperationException("Unsupported set operation: " + setOp);
+    }
+
+    List<FieldVector> vectors = new ArrayList<>();
+    for (int field = 0; field < primary.getFieldVectors().size(); field++) {
+      FieldVector vector = primary.getVector(field).getField().createVector(allocator);
+      vector.setInitialCapacity(output.size());
+      vector.allocateNew();
+      for (int i = 0; i < output.size(); i++) {
+        int[] source = output.get(i);
+        vector.copyFromSafe(source[1], i, inputs.get(source[0]).getVector(field));
+      }
+      vector.setValueCount(output.size());
+      vectors.add(vector);
+    }
+    return Vectors.root(vectors, output.size());
+  }
+
+  /** Keeps the given fields of a batch, closing the other ones. */
+  private VectorSchemaRoot select(VectorSchemaRoot batch, List<Integer> fields) {
+    List<FieldVector> vectors = batch.getFieldVectors();
+    boolean[] used = new boolean[vectors.size()];
+    List<FieldVector> selected = new ArrayList<>();
+    for (int field : fields) {
+      FieldVector vector = vectors.get(field);
+      selected.add(used[field] ? Vectors.copy(vector, vector.getName(), allocator) : vector);
+      used[field] = true;
+    }
+    for (int i = 0; i < vectors.size(); i++) {
+      if (!used[i]) {
+        vectors.get(i).close();
+      }
+    }
+    return Vectors.root(selected, batch.getRowCount());
+  }
+
+  private VectorSchemaRoot remap(Rel rel, VectorSchemaRoot batch) {
+    return rel.getRemap().map(remap -> select(batch, remap.indices())).orElse(batch);
+  }
+}
@@ -0,0 +1,506 @@
+package io.substrait.interpreter;
+
+import io.substrait.expression.Expression;
+import io.substrait.expression.FunctionArg;
+import io.substrait.extension.DefaultExtensionCatalog;
+import io.substrait.function.ToTypeString;
+import io.substrait.type.Type;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
+import java.util.regex.Pattern;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BaseIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.FloatingPointVector;
+
+/**
+ * Column-at-a-time implementations of the scalar functions of the default extension catalog.
+ *
+ * <p>Arithmetic and comparisons of integer or floating point vectors run as typed loops over the
+ * Arrow vectors. The other functions are applied row by row to the normalized values of their
+ * arguments.
+ *
+ * <p>Function options are not interpreted: integer overflow wraps, and integer division by zero
+ * and integer powers of zero with a negative exponent return null.
+ */
+final class ScalarKernels {
+
+  /** Computes the result of a function for one row from the normalized values of its arguments. */
+  @FunctionalInterface
+  interface Kernel {
+    Object apply(Object[] args);
+  }
+
+  @FunctionalInterface
+  private interface LongComparison {
+    boolean test(long a, long b);
+  }
+
+  @FunctionalInterface
+  private interface DoubleComparison {
+    boolean test(double a, double b);
+  }
+
+  private static final Set<String> URIS =
+      new HashSet<>(
+          Arrays.asList(
+              DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC,
+              DefaultExtensionCatalog.FUNCTIONS_BOOLEAN,
+              DefaultExtensionCatalog.FUNCTIONS_COMPARISON,
+              DefaultExtensionCatalog.FUNCTIONS_LOGARITHMIC,
+              DefaultExtensionCatalog.FUNCTIONS_ROUNDING,
+              DefaultExtensionCatalog.FUNCTIONS_STRING));
+
+  /** Kernels of functions returning null if any argument is null. They get no null arguments. */
+  private static final Map<String, Kernel> STRICT = new HashMap<>();
+
+  /** Kernels of functions handling null arguments themselves. */
+  private static final Map<String, Kernel> NULL_AWARE = new HashMap<>();
+
+  /** Binary arithmetic over integer vectors, other than division. */
+  private static final Map<String, LongBinaryOperator> LONG_ARITHMETIC = new HashMap<>();
+
+  /** Binary arithmetic over floating point vectors. */
+  private static final Map<String, DoubleBinaryOperator> DOUBLE_ARITHMETIC = new HashMap<>();
+
+  private static final Map<String, LongComparison> LONG_COMPARISONS = new HashMap<>();
+
+  private static final Map<String, DoubleComparison> DOUBLE_COMPARISONS = new HashMap<>();
+
+  private static final Map<String, Pattern> LIKE_PATTERNS = new ConcurrentHashMap<>();
+
+  static {
+    LONG_ARITHMETIC.put("add", (a, b) -> a + b);
+    LONG_ARITHMETIC.put("subtract", (a, b) -> a - b);
+    LONG_ARITHMETIC.put("multiply", (a, b) -> a * b);
+    DOUBLE_ARITHMETIC.put("add", (a, b) -> a + b);
+    DOUBLE_ARITHMETIC.put("subtract", (a, b) -> a - b);
+    DOUBLE_ARITHMETIC.put("multiply", (a, b) -> a * b);
+    DOUBLE_ARITHMETIC.put("divide", (a, b) -> a / b);
+    DOUBLE_ARITHMETIC.put("modulus", (a, b) -> a % b);
+    LONG_COMPARISONS.put("equal", (a, b) -> a == b);
+    LONG_COMPARISONS.put("not_equal", (a, b) -> a != b);
+    LONG_COMPARISONS.put("lt", (a, b) -> a < b);
+    LONG_COMPARISONS.put("lte", (a, b) -> a <= b);
+    LONG_COMPARISONS.put("gt", (a, b) -> a > b);
+    LONG_COMPARISONS.put("gte", (a, b) -> a >= b);
+    DOUBLE_COMPARISONS.put("equal", (a, b) -> a == b);
+    DOUBLE_COMPARISONS.put("not_equal", (a, b) -> a != b);
+    DOUBLE_COMPARISONS.put("lt", (a, b) -> a < b);
+    DOUBLE_COMPARISONS.put("lte", (a, b) -> a <= b);
+    DOUBLE_COMPARISONS.put("gt", (a, b) -> a > b);
+    DOUBLE_COMPARISONS.put("gte", (a, b) -> a >= b);
+
+    STRICT.put("add", arithmetic("add"));
+    STRICT.put("subtract", arithmetic("subtract"));
+    STRICT.put("multiply", arithmetic("multiply"));
+    STRICT.put("divide", args -> divide(args, false));
+    STRICT.put("modulus", args -> divide(args, true));
+    STRICT.put("negate", unary(a -> -a, a -> -a));
+    STRICT.put("abs", unary(Math::abs, Math::abs));
+    STRICT.put("sign", unary(Long::signum, Math::signum));
+    STRICT.put(
+        "power",
+        args ->
+            args[0] instanceof Long
+                ? power((long) args[0], (long) args[1])
+                : (Object) Math.pow((double) args[0], (double) args[1]));
+    STRICT.put("sqrt", args -> Math.sqrt(((Number) args[0]).doubleValue()));
+    STRICT.put("exp", args -> Math.exp(((Number) args[0]).doubleValue()));
+    STRICT.put("ln", args -> Math.log(((Number) args[0]).doubleValue()));
+    STRICT.put("log10", args -> Math.log10(((Number) args[0]).doubleValue()));
+    STRICT.put("ceil", unary(a -> a, Math::ceil));
+    STRICT.put("floor", unary(a -> a, Math::floor));
+
+    STRICT.put("equal", comparison("equal", c -> c == 0));
+    STRICT.put("not_equal", comparison("not_equal", c -> c != 0));
+    STRICT.put("lt", comparison("lt", c -> c < 0));
+    STRICT.put("lte", comparison("lte", c -> c <= 0));
+    STRICT.put("gt", comparison("gt", c -> c > 0));
+    STRICT.put("gte", comparison("gte", c -> c >= 0));
+    STRICT.put(
+        "between",
+        args ->
+            args[0] instanceof Double
+                ? (double) args[0] >= (double) args[1] && (double) args[0] <= (double) args[2]
+                : compare(args[0], args[1]) >= 0 && compare(args[0], args[2]) <= 0);
+    STRICT.put("is_nan", args -> Double.isNaN((double) args[0]));
+    STRICT.put("least", args -> extreme(args, -1));
+    STRICT.put("greatest", args -> extreme(args, 1));
+    NULL_AWARE.put("is_null", args -> args[0] == null);
+    NULL_AWARE.put("is_not_null", args -> args[0] != null);
+    NULL_AWARE.put("is_distinct_from", args -> !Objects.equals(args[0], args[1]));
+    NULL_AWARE.put("is_not_distinct_from", args -> Objects.equals(args[0], args[1]));
+    NULL_AWARE.put(
+        "coalesce",
+        args -> Arrays.stream(args).filter(Objects::nonNull).findFirst().orElse(null));
+
+    NULL_AWARE.put("and", args -> junction(args, false));
+    NULL_AWARE.put("or", args -> junction(args, true));
+    NULL_AWARE.put(
+        "and_not",
+        args ->
+            junction(new Object[] {args[0], args[1] == null ? null : !(Boolean) args[1]}, false));
+    STRICT.put("not", args -> !(Boolean) args[0]);
+    STRICT.put("xor", args -> !args[0].equals(args[1]));
+
+    STRICT.put(
+        "concat", args -> String.join("", Arrays.copyOf(args, args.length, String[].class)));
+    STRICT.put("upper", args -> ((String) args[0]).toUpperCase());
+    STRICT.put("lower", args -> ((String) args[0]).toLowerCase());
+    STRICT.put("char_length", args -> ((String) args[0]).codePoints().count());
+    STRICT.put("substring", ScalarKernels::substring);
+    STRICT.put("starts_with", args -> ((String) args[0]).startsWith((String) args[1]));
+    STRICT.put("ends_with", args -> ((String) args[0]).endsWith((String) args[1]));
+    STRICT.put("contains", args -> ((String) args[0]).contains((String) args[1]));
+    STRICT.put("replace", args -> ((String) args[0]).replace((String) args[1], (String) args[2]));
+    STRICT.put(
+        "like",
+        args ->
+            LIKE_PATTERNS
+                .computeIfAbsent((String) args[1], ScalarKernels::likePattern)
+                .matcher((String) args[0])
+                .matches());
+  }
+
+  private ScalarKernels() {}
+
+  static void checkSupported(Expression.ScalarFunctionInvocation function) {
+    String name = function.declaration().name();
+    if (!URIS.contains(function.declaration().uri())
+        || !(STRICT.containsKey(name) || NULL_AWARE.containsKey(name))) {
+      throw new UnsupportedOperationException(
+          String.format(
+              "Unsupported function %s from %s",
+              function.declaration().key(), function.declaration().uri()));
+    }
+    for (FunctionArg argument : function.arguments()) {
+      if (!(argument instanceof Expression)) {
+        throw new UnsupportedOperationException(
+            String.format(
+                "Unsupported argument %s of function %s", argument, function.declaration().key()));
+      }
+      Type type = ((Expression) argument).getType();
+      if (!Vectors.isSupported(type)) {
+        throw new UnsupportedOperationException(
+            String.format(
+                "Unsupported argument type %s of function %s",
+                type.accept(ToTypeString.INSTANCE), function.declaration().key()));
+      }
+    }
+  }
+
+  /**
+   * Applies a function to each row of its evaluated arguments.
+   *
+   * @return a new vector owned by the caller
+   */
+  static FieldVector apply(
+      Expression.ScalarFunctionInvocation function,
+      List<FieldVector> arguments,
+      int rowCount,
+      BufferAllocator allocator) {
+    checkSupported(function);
+    String name = function.declaration().name();
+    Kernel strict = STRICT.get(name);
+    Kernel kernel = strict != null ? strict : NULL_AWARE.get(name);
+
+    FieldVector result = Vectors.allocate(name, function.getType(), rowCount, allocator);
+    if (arguments.size() == 2 && applyTyped(name, arguments.get(0), arguments.get(1), result)) {
+      result.setValueCount(rowCount);
+      return result;
+    }
+    Object[] args = new Object[arguments.size()];
+    for (int row = 0; row < rowCount; row++) {
+      boolean anyNull = false;
+      for (int i = 0; i < args.length; i++) {
+        args[i] = Vectors.get(arguments.get(i), row);
+        anyNull |= args[i] == null;
+      }
+      Vectors.set(result, row, strict != null && anyNull ? null : kernel.apply(args));
+    }
+    result.setValueCount(rowCount);
+    return result;
+  }
+
+  /**
+   * Applies binary arithmetic or a comparison with a typed loop, if both arguments are integer or
+   * both are floating point vectors. The rows left unset in the new result vector are null.
+   *
+   * @return whether the function was applied
+   */
+  private static boolean applyTyped(
+      String name, FieldVector left, FieldVector right, FieldVector result) {
+    int rowCount = left.getValueCount();
+    if (left instanceof BaseIntVector && right instanceof BaseIntVector) {
+      BaseIntVector a = (BaseIntVector) left;
+      BaseIntVector b = (BaseIntVector) right;
+      LongBinaryOperator op = LONG_ARITHMETIC.get(name);
+      boolean division = name.equals("divide") || name.equals("modulus");
+      LongComparison comparison = LONG_COMPARISONS.get(name);
+      if ((op != null || division) && result instanceof BaseIntVector) {
+        BaseIntVector out = (BaseIntVector) result;
+        for (int row = 0; row < rowCount; row++) {
+          if (left.isNull(row) || right.isNull(row)) {
+            continue;
+          }
+          long x = a.getValueAsLong(row);
+          long y = b.getValueAsLong(row);
+          if (!division) {
+            out.setWithPossibleTruncate(row, op.applyAsLong(x, y));
+          } else if (y != 0) {
+            // integer division by zero is null
+            out.setWithPossibleTruncate(row, name.equals("divide") ? x / y : x % y);
+          }
+        }
+        return true;
+      }
+      if (comparison != null && result instanceof BitVector) {
+        BitVector out = (BitVector) result;
+        for (int row = 0; row < rowCount; row++) {
+          if (!left.isNull(row) && !right.isNull(row)) {
+            out.setSafe(row, comparison.test(a.getValueAsLong(row), b.getValueAsLong(row)) ? 1 : 0);
+          }
+        }
+        return true;
+      }
+    } else if (left instanceof FloatingPointVector && right instanceof FloatingPointVector) {
+      FloatingPointVector a = (FloatingPointVector) left;
+      FloatingPointVector b = (FloatingPointVector) right;
+      DoubleBinaryOperator op = DOUBLE_ARITHMETIC.get(name);
+      DoubleComparison comparison = DOUBLE_COMPARISONS.get(name);
+      if (op != null && result instanceof FloatingPointVector) {
+        FloatingPointVector out = (FloatingPointVector) result;
+        for (int row = 0; row < rowCount; row++) {
+          if (!left.isNull(row) && !right.isNull(row)) {
+            out.setSafeWithPossibleTruncate(
+                row, op.applyAsDouble(a.getValueAsDouble(row), b.getValueAsDouble(row)));
+          }
+        }
+        return true;
+      }
+      if (comparison != null && result instanceof BitVector) {
+        BitVector out = (BitVector) result;
+        for (int row = 0; row < rowCount; row++) {
+          if (!left.isNull(row) && !right.isNull(row)) {
+            out.setSafe(
+                row, comparison.test(a.getValueAsDouble(row), b.getValueAsDouble(row)) ? 1 : 0);
+          }
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Converts a normalized value to the given type. */
+  static Object cast(Object value, Type type, Expression.FailureBehavior failureBehavior) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return cast(value, type);
+    } catch (IllegalArgumentException | DateTimeException e) {
+      if (failureBehavior == Expression.FailureBehavior.RETURN_NULL) {
+        return null;
+      }
+      throw e;
+    }
+  }
+
+  private static Object cast(Object value, Type type) {
+    if (type instanceof Type.Str
+        || type instanceof Type.VarChar
+        || type instanceof Type.FixedChar) {
+      return value instanceof Integer
+          ? LocalDate.ofEpochDay((Integer) value).toString()
+          : String.valueOf(value);
+    } else if (type instanceof Type.I8
+        || type instanceof Type.I16
+        || type instanceof Type.I32
+        || type instanceof Type.I64) {
+      if (value instanceof String) {
+        return Long.parseLong(((String) value).trim());
+      } else if (value instanceof Boolean) {
+        return (Boolean) value ? 1L : 0L;
+      }
+      // floating point values are truncated
+      return ((Number) value).longValue();
+    } else if (type instanceof Type.FP32 || type instanceof Type.FP64) {
+      if (value instanceof String) {
+        return Double.parseDouble(((String) value).trim());
+      } else if (value instanceof Boolean) {
+        return (Boolean) value ? 1.0 : 0.0;
+      }
+      return ((Number) value).doubleValue();
+    } else if (type instanceof Type.Bool) {
+      if (value instanceof String) {
+        String string = ((String) value).trim();
+        if (string.equalsIgnoreCase("true") || string.equalsIgnoreCase("false")) {
+          return Boolean.parseBoolean(string);
+        }
+        throw new IllegalArgumentException("Cannot cast " + value + " to boolean");
+      } else if (value instanceof Number) {
+        return ((Number) value).doubleValue() != 0;
+      }
+      return value;
+    } else if (type instanceof Type.Date) {
+      if (value instanceof String) {
+        return (int) LocalDate.parse(((String) value).trim()).toEpochDay();
+      }
+      return value;
+    }
+    throw new UnsupportedOperationException("Unsupported cast to " + type);
+  }
+
+  /**
+   * Orders two normalized values of the same type. Floating point values are totally ordered, with
+   * -0.0 before 0.0 and NaN last, which suits sorting but not SQL comparisons: use {@link #equal}
+   * and the comparison kernels for those.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  static int compare(Object a, Object b) {
+    return ((Comparable) a).compareTo(b);
+  }
+
+  /** Whether two normalized values are equal, comparing floating point values numerically. */
+  static boolean equal(Object a, Object b) {
+    return a instanceof Double ? (double) a == (double) b : compare(a, b) == 0;
+  }
+
+  private static Kernel arithmetic(String name) {
+    LongBinaryOperator longOp = LONG_ARITHMETIC.get(name);
+    DoubleBinaryOperator doubleOp = DOUBLE_ARITHMETIC.get(name);
+    return args ->
+        args[0] instanceof Long
+            ? (Object) longOp.applyAsLong((long) args[0], (long) args[1])
+            : (Object) doubleOp.applyAsDouble((double) args[0], (double) args[1]);
+  }
+
+  private static Kernel unary(LongUnaryOperator longOp, DoubleUnaryOperator doubleOp) {
+    return args ->
+        args[0] instanceof Long
+            ? (Object) longOp.applyAsLong((long) args[0])
+            : (Object) doubleOp.applyAsDouble((double) args[0]);
+  }
+
+  private static Kernel comparison(String name, IntPredicate test) {
+    LongComparison longTest = LONG_COMPARISONS.get(name);
+    DoubleComparison doubleTest = DOUBLE_COMPARISONS.get(name);
+    return args ->
+        args[0] instanceof Double
+            ? doubleTest.test((double) args[0], (double) args[1])
+            : args[0] instanceof Long
+                ? longTest.test((long) args[0], (long) args[1])
+                : test.test(compare(args[0], args[1]));
+  }
+
+  private static Object divide(Object[] args, boolean remainder) {
+    if (args[0] instanceof Long) {
+      long a = (long) args[0];
+      long b = (long) args[1];
+      if (b == 0) {
+        return null;
+      }
+      return remainder ? a % b : a / b;
+    }
+    double a = (double) args[0];
+    double b = (double) args[1];
+    return remainder ? a % b : a / b;
+  }
+
+  /**
+   * Integer power. Negative exponents truncate the fractional result toward zero, like integer
+   * division, and are null for a zero base.
+   */
+  private static Long power(long base, long exponent) {
+    if (exponent < 0) {
+      if (base == 0) {
+        return null;
+      }
+      if (base == 1 || base == -1) {
+        return base == -1 && (exponent & 1) == 1 ? -1L : 1L;
+      }
+      return 0L;
+    }
+    long result = 1;
+    while (exponent > 0) {
+      if ((exponent & 1) == 1) {
+        result *= base;
+      }
+      base *= base;
+      exponent >>= 1;
+    }
+    return result;
+  }
+
+  /** The least (sign -1) or greatest (sign 1) argument, comparing floating point numerically. */
+  private static Object extreme(Object[] args, int sign) {
+    Object result = args[0];
+    for (Object arg : args) {
+      boolean replaces =
+          arg instanceof Double
+              ? (sign < 0 ? (double) arg < (double) result : (double) arg > (double) result)
+              : Integer.signum(compare(arg, result)) == sign;
+      if (replaces) {
+        result = arg;
+      }
+    }
+    return result;
+  }
+
+  /** Three-valued {@code and} (when {@code or} is false) and {@code or}. */
+  private static Boolean junction(Object[] args, boolean or) {
+    boolean anyNull = false;
+    for (Object arg : args) {
+      if (arg == null) {
+        anyNull = true;
+      } else if ((Boolean) arg == or) {
+        return or;
+      }
+    }
+    return anyNull ? null : !or;
+  }
+
+  /** Returns the characters from a 1-based start, with an optional length. */
+  private static Object substring(Object[] args) {
+    String string = (String) args[0];
+    int[] codePoints = string.codePoints().toArray();
+    long start = (long) args[1];
+    // negative starts count from the end of the string
+    int from = (int) Math.max(0, start > 0 ? start - 1 : codePoints.length + start);
+    int to =
+        args.length > 2
+            ? (int) Math.min(codePoints.length, Math.max(from, from + (long) args[2]))
+            : codePoints.length;
+    return from >= codePoints.length ? "" : new String(codePoints, from, to - from);
+  }
+
+  private static Pattern likePattern(String pattern) {
+    StringBuilder regex = new StringBuilder();
+    for (char c : pattern.toCharArray()) {
+      if (c == '%') {
+        regex.append(".*");
+      } else if (c == '_') {
+        regex.append('.');
+      } else {
+        regex.append(Pattern.quote(String.valueOf(c)));
+      }
+    }
+    return Pattern.compile(regex.toString(), Pattern.DOTALL);
+  }
+}
@@ -0,0 +1,19 @@
+package io.substrait.interpreter;
+
+import java.util.List;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+/** Supplies the data of the tables read by {@link io.substrait.relation.NamedScan}s. */
+@FunctionalInterface
+public interface TableProvider {
+
+  /**
+   * Returns the content of a table. The caller owns, and closes, the returned batch.
+   *
+   * @param names the qualified name of the table
+   * @param allocator the allocator to create the batch with
+   * @return a batch with the fields of the table in the order of its schema
+   */
+  VectorSchemaRoot scan(List<String> names, BufferAllocator allocator);
+}
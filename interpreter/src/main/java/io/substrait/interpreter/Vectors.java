@@ -0,0 +1,286 @@
+package io.substrait.interpreter;
+
+import io.substrait.expression.Expression;
+import io.substrait.type.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BaseFixedWidthVector;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.util.Text;
+import org.apache.arrow.vector.util.TransferPair;
+
+/**
+ * Conversions between Substrait types and Arrow vectors.
+ *
+ * <p>Values are read from and written to vectors in a normalized form, so that kernels only need
+ * to handle a few Java types: {@link Boolean} for booleans, {@link Long} for integers, {@link
+ * Double} for floating point numbers, {@link String} for strings, {@link Integer} days for dates
+ * and {@code byte[]} for binaries. Nulls are represented by {@code null}.
+ */
+final class Vectors {
+
+  private Vectors() {}
+
+  /** Whether values of the type can be held in vectors. */
+  static boolean isSupported(Type type) {
+    return arrowTypeOrNull(type) != null;
+  }
+
+  static ArrowType arrowType(Type type) {
+    ArrowType arrowType = arrowTypeOrNull(type);
+    if (arrowType == null) {
+      throw new UnsupportedOperationException("Unsupported type: " + type);
+    }
+    return arrowType;
+  }
+
+  private static ArrowType arrowTypeOrNull(Type type) {
+    if (type instanceof Type.Bool) {
+      return ArrowType.Bool.INSTANCE;
+    } else if (type instanceof Type.I8) {
+      return new ArrowType.Int(8, true);
+    } else if (type instanceof Type.I16) {
+      return new ArrowType.Int(16, true);
+    } else if (type instanceof Type.I32) {
+      return new ArrowType.Int(32, true);
+    } else if (type instanceof Type.I64) {
+      return new ArrowType.Int(64, true);
+    } else if (type instanceof Type.FP32) {
+      return new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE);
+    } else if (type instanceof Type.FP64) {
+      return new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+    } else if (type instanceof Type.Str
+        || type instanceof Type.VarChar
+        || type instanceof Type.FixedChar) {
+      return ArrowType.Utf8.INSTANCE;
+    } else if (type instanceof Type.Binary || type instanceof Type.FixedBinary) {
+      return ArrowType.Binary.INSTANCE;
+    } else if (type instanceof Type.Date) {
+      return new ArrowType.Date(DateUnit.DAY);
+    }
+    return null;
+  }
+
+  /** Creates an empty vector with capacity for the given number of values. */
+  static FieldVector allocate(String name, Type type, int capacity, BufferAllocator allocator) {
+    FieldVector vector = Field.nullable(name, arrowType(type)).createVector(allocator);
+    vector.setInitialCapacity(capacity);
+    vector.allocateNew();
+    return vector;
+  }
+
+  /** Creates a vector from normalized values. */
+  static FieldVector of(String name, Type type, List<?> values, BufferAllocator allocator) {
+    FieldVector vector = allocate(name, type, values.size(), allocator);
+    for (int i = 0; i < values.size(); i++) {
+      set(vector, i, values.get(i));
+    }
+    vector.setValueCount(values.size());
+    return vector;
+  }
+
+  static Object get(FieldVector vector, int index) {
+    if (vector.isNull(index)) {
+      return null;
+    }
+    Object value = vector.getObject(index);
+    if (value instanceof Byte || value instanceof Short) {
+      return ((Number) value).longValue();
+    } else if (value instanceof Integer && !(vector instanceof DateDayVector)) {
+      return ((Integer) value).longValue();
+    } else if (value instanceof Float) {
+      return ((Float) value).doubleValue();
+    } else if (value instanceof Text) {
+      return value.toString();
+    }
+    return value;
+  }
+
+  /**
+   * Writes a normalized value. Integers are narrowed to the width of the vector, wrapping on
+   * overflow.
+   */
+  static void set(FieldVector vector, int index, Object value) {
+    if (value == null) {
+      if (vector instanceof BaseFixedWidthVector) {
+        ((BaseFixedWidthVector) vector).setNull(index);
+      } else if (vector instanceof BaseVariableWidthVector) {
+        ((BaseVariableWidthVector) vector).setNull(index);
+      } else {
+        throw new UnsupportedOperationException("Unsupported vector: " + vector.getField());
+      }
+    } else if (vector instanceof BitVector) {
+      ((BitVector) vector).setSafe(index, (Boolean) value ? 1 : 0);
+    } else if (vector instanceof TinyIntVector) {
+      ((TinyIntVector) vector).setSafe(index, (byte) ((Number) value).longValue());
+    } else if (vector instanceof SmallIntVector) {
+      ((SmallIntVector) vector).setSafe(index, (short) ((Number) value).longValue());
+    } else if (vector instanceof IntVector) {
+      ((IntVector) vector).setSafe(index, (int) ((Number) value).longValue());
+    } else if (vector instanceof BigIntVector) {
+      ((BigIntVector) vector).setSafe(index, ((Number) value).longValue());
+    } else if (vector instanceof Float4Vector) {
+      ((Float4Vector) vector).setSafe(index, ((Number) value).floatValue());
+    } else if (vector instanceof Float8Vector) {
+      ((Float8Vector) vector).setSafe(index, ((Number) value).doubleValue());
+    } else if (vector instanceof VarCharVector) {
+      ((VarCharVector) vector).setSafe(index, value.toString().getBytes(StandardCharsets.UTF_8));
+    } else if (vector instanceof VarBinaryVector) {
+      ((VarBinaryVector) vector).setSafe(index, (byte[]) value);
+    } else if (vector instanceof DateDayVector) {
+      ((DateDayVector) vector).setSafe(index, ((Number) value).intValue());
+    } else {
+      throw new UnsupportedOperationException("Unsupported vector: " + vector.getField());
+    }
+  }
+
+  /** Returns the normalized value of a literal. */
+  static Object value(Expression.Literal literal) {
+    if (literal instanceof Expression.NullLiteral) {
+      return null;
+    } else if (literal instanceof Expression.BoolLiteral) {
+      return ((Expression.BoolLiteral) literal).value();
+    } else if (literal instanceof Expression.I8Literal) {
+      return (long) ((Expression.I8Literal) literal).value();
+    } else if (literal instanceof Expression.I16Literal) {
+      return (long) ((Expression.I16Literal) literal).value();
+    } else if (literal instanceof Expression.I32Literal) {
+      return (long) ((Expression.I32Literal) literal).value();
+    } else if (literal instanceof Expression.I64Literal) {
+      return ((Expression.I64Literal) literal).value();
+    } else if (literal instanceof Expression.FP32Literal) {
+      return (double) ((Expression.FP32Literal) literal).value();
+    } else if (literal instanceof Expression.FP64Literal) {
+      return ((Expression.FP64Literal) literal).value();
+    } else if (literal instanceof Expression.StrLiteral) {
+      return ((Expression.StrLiteral) literal).value();
+    } else if (literal instanceof Expression.VarCharLiteral) {
+      return ((Expression.VarCharLiteral) literal).value();
+    } else if (literal instanceof Expression.FixedCharLiteral) {
+      return ((Expression.FixedCharLiteral) literal).value();
+    } else if (literal instanceof Expression.BinaryLiteral) {
+      return ((Expression.BinaryLiteral) literal).value().toByteArray();
+    } else if (literal instanceof Expression.FixedBinaryLiteral) {
+      return ((Expression.FixedBinaryLiteral) literal).value().toByteArray();
+    } else if (literal instanceof Expression.DateLiteral) {
+      return ((Expression.DateLiteral) literal).value();
+    }
+    throw new UnsupportedOperationException("Unsupported literal: " + literal);
+  }
+
+  /** Copies a vector under a new name. */
+  static FieldVector copy(FieldVector vector, String name, BufferAllocator allocator) {
+    int valueCount = vector.getValueCount();
+    FieldVector copy =
+        new Field(name, vector.getField().getFieldType(), vector.getField().getChildren())
+            .createVector(allocator);
+    copy.setInitialCapacity(valueCount);
+    copy.allocateNew();
+    for (int i = 0; i < valueCount; i++) {
+      copy.copyFromSafe(i, i, vector);
+    }
+    copy.setValueCount(valueCount);
+    return copy;
+  }
+
+  /** Moves the content of a vector to a new vector with another name. */
+  static FieldVector rename(FieldVector vector, String name, BufferAllocator allocator) {
+    TransferPair transfer = vector.getTransferPair(name, allocator);
+    transfer.transfer();
+    return (FieldVector) transfer.getTo();
+  }
+
+  /**
+   * Gathers the rows at the given indices of a vector. A negative index produces a null.
+   *
+   * @return a new vector owned by the caller
+   */
+  static FieldVector take(FieldVector vector, int[] indices, BufferAllocator allocator) {
+    FieldVector taken = vector.getField().createVector(allocator);
+    taken.setInitialCapacity(indices.length);
+    taken.allocateNew();
+    for (int i = 0; i < indices.length; i++) {
+      if (indices[i] >= 0) {
+        taken.copyFromSafe(indices[i], i, vector);
+      }
+    }
+    taken.setValueCount(indices.length);
+    return taken;
+  }
+
+  /** Gathers the rows at the given indices of each vector of a batch. */
+  static VectorSchemaRoot take(VectorSchemaRoot batch, int[] indices, BufferAllocator allocator) {
+    return root(
+        batch.getFieldVectors().stream()
+            .map(v -> take(v, indices, allocator))
+            .collect(Collectors.toList()),
+        indices.length);
+  }
+
+  static VectorSchemaRoot root(List<FieldVector> vectors, int rowCount) {
+    List<Field> fields = vectors.stream().map(FieldVector::getField).collect(Collectors.toList());
+    return new VectorSchemaRoot(fields, vectors, rowCount);
+  }
+
+  /**
+   * Returns a normalized value as a key of a hash set or map, with the equality of grouping and
+   * set operations: -0.0 is the key of 0.0, as they are equal, and binaries are compared by
+   * content. All NaNs share a key, as SQL engines group them together although NaN is not equal to
+   * itself.
+   */
+  static Object key(Object value) {
+    if (value instanceof Double && (Double) value == 0.0) {
+      return 0.0;
+    } else if (value instanceof byte[]) {
+      return ByteBuffer.wrap((byte[]) value);
+    }
+    return value;
+  }
+
+  /** Returns the keys of the values of a row, see {@link #key}. */
+  static List<Object> key(VectorSchemaRoot batch, int index) {
+    List<Object> key = new ArrayList<>(batch.getFieldVectors().size());
+    for (FieldVector vector : batch.getFieldVectors()) {
+      key.add(key(get(vector, index)));
+    }
+    return key;
+  }
+
+  /** Returns the normalized values of a row. */
+  static List<Object> row(VectorSchemaRoot batch, int index) {
+    List<Object> row = new ArrayList<>(batch.getFieldVectors().size());
+    for (FieldVector vector : batch.getFieldVectors()) {
+      row.add(get(vector, index));
+    }
+    return row;
+  }
+
+  /** Returns the normalized values of all the rows of a batch. */
+  static List<List<Object>> rows(VectorSchemaRoot batch) {
+    List<List<Object>> rows = new ArrayList<>(batch.getRowCount());
+    for (int i = 0; i < batch.getRowCount(); i++) {
+      rows.add(row(batch, i));
+    }
+    return rows;
+  }
+}
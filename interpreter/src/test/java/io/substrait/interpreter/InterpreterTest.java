@@ -0,0 +1,267 @@
+package io.substrait.interpreter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.substrait.dsl.SubstraitBuilder;
+import io.substrait.expression.Expression;
+import io.substrait.expression.ExpressionCreator;
+import io.substrait.extension.DefaultExtensionCatalog;
+import io.substrait.extension.SimpleExtension;
+import io.substrait.relation.Aggregate;
+import io.substrait.relation.Join;
+import io.substrait.relation.NamedScan;
+import io.substrait.relation.Rel;
+import io.substrait.relation.Set;
+import io.substrait.relation.VirtualTableScan;
+import io.substrait.type.NamedStruct;
+import io.substrait.type.Type;
+import io.substrait.type.TypeCreator;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class InterpreterTest {
+
+  static final TypeCreator R = TypeCreator.REQUIRED;
+
+  final SubstraitBuilder b;
+
+  final NamedScan orders;
+
+  final VirtualTableScan customers =
+      VirtualTableScan.builder()
+          .initialSchema(
+              NamedStruct.of(Arrays.asList("name", "city"), R.struct(R.STRING, R.STRING)))
+          .addRows(row("alice", "Paris"), row("bob", "Oslo"))
+          .build();
+
+  BufferAllocator allocator;
+  Interpreter interpreter;
+
+  InterpreterTest() throws IOException {
+    b = new SubstraitBuilder(SimpleExtension.loadDefaults());
+    orders =
+        b.namedScan(
+            Arrays.asList("orders"),
+            Arrays.asList("id", "customer", "amount"),
+            Arrays.asList(R.I64, R.STRING, R.FP64));
+  }
+
+  static Expression.StructLiteral row(String... values) {
+    return ExpressionCreator.struct(
+        false,
+        Arrays.stream(values)
+            .map(v -> ExpressionCreator.string(false, v))
+            .collect(Collectors.toList()));
+  }
+
+  @BeforeEach
+  void setUp() {
+    allocator = new RootAllocator();
+    interpreter =
+        new Interpreter(allocator, (names, tableAllocator) -> ordersTable(tableAllocator));
+  }
+
+  @AfterEach
+  void tearDown() {
+    // fails if any batch was not closed
+    allocator.close();
+  }
+
+  static VectorSchemaRoot ordersTable(BufferAllocator allocator) {
+    List<Type> types = Arrays.asList(R.I64, R.STRING, R.FP64);
+    List<List<Object>> columns =
+        Arrays.asList(
+            Arrays.asList(1L, 2L, 3L, 4L),
+            Arrays.asList("alice", "bob", "alice", "carol"),
+            Arrays.asList(20.0, 5.0, 12.5, 30.0));
+    List<FieldVector> vectors = new ArrayList<>();
+    for (int i = 0; i < types.size(); i++) {
+      vectors.add(Vectors.of("c" + i, types.get(i), columns.get(i), allocator));
+    }
+    return Vectors.root(vectors, 4);
+  }
+
+  List<List<Object>> execute(Rel rel) {
+    try (VectorSchemaRoot result = interpreter.execute(rel)) {
+      return Vectors.rows(result);
+    }
+  }
+
+  Expression gt(Expression left, Expression right) {
+    return b.scalarFn(
+        DefaultExtensionCatalog.FUNCTIONS_COMPARISON, "gt:any_any", R.BOOLEAN, left, right);
+  }
+
+  @Test
+  void filterProjectSortFetch() {
+    Rel filter = b.filter(input -> gt(b.fieldReference(input, 2), b.fp64(10)), orders);
+    Rel project =
+        b.project(
+            input -> Arrays.asList(b.multiply(b.fieldReference(input, 2), b.fp64(2))),
+            b.remap(0, 3),
+            filter);
+    Rel sort =
+        b.sort(
+            input ->
+                Arrays.asList(
+                    b.sortField(
+                        b.fieldReference(input, 1), Expression.SortDirection.DESC_NULLS_LAST)),
+            project);
+
+    assertEquals(
+        Arrays.asList(Arrays.asList(4L, 60.0), Arrays.asList(1L, 40.0)),
+        execute(b.limit(2, sort)));
+  }
+
+  @Test
+  void groupedAggregate() {
+    Rel aggregate =
+        b.aggregate(
+            input -> b.grouping(input, 1),
+            input -> Arrays.asList(b.sum(input, 2), b.count(input, 0)),
+            orders);
+
+    assertEquals(
+        Arrays.asList(
+            Arrays.asList("alice", 32.5, 2L),
+            Arrays.asList("bob", 5.0, 1L),
+            Arrays.asList("carol", 30.0, 1L)),
+        execute(aggregate));
+  }
+
+  @Test
+  void leftJoin() {
+    Rel join =
+        b.join(
+            input -> b.equal(b.fieldReference(input, 1), b.fieldReference(input, 3)),
+            Join.JoinType.LEFT,
+            b.remap(0, 4),
+            orders,
+            customers);
+
+    assertEquals(
+        Arrays.asList(
+            Arrays.asList(1L, "Paris"),
+            Arrays.asList(2L, "Oslo"),
+            Arrays.asList(3L, "Paris"),
+            Arrays.asList(4L, null)),
+        execute(join));
+  }
+
+  @Test
+  void unionDistinct() {
+    Rel customerNames = b.project(input -> Collections.emptyList(), b.remap(1), orders);
+    Rel knownNames = b.project(input -> Collections.emptyList(), b.remap(0), customers);
+
+    assertEquals(
+        Arrays.asList(Arrays.asList("alice"), Arrays.asList("bob"), Arrays.asList("carol")),
+        execute(b.set(Set.SetOp.UNION_DISTINCT, customerNames, knownNames)));
+  }
+
+  @Test
+  void groupingSetsAreUnsupported() {
+    Aggregate aggregate =
+        b.aggregate(
+            input -> b.grouping(input, 1), input -> Arrays.asList(b.count(input, 0)), orders);
+    Rel groupingSets =
+        Aggregate.builder().from(aggregate).addGroupings(b.grouping(orders, 0)).build();
+
+    assertThrows(UnsupportedOperationException.class, () -> interpreter.execute(groupingSets));
+  }
+
+  @Test
+  void floatingPointComparisonsAndIntegerPowers() {
+    Expression nan = b.fp64(Double.NaN);
+    Rel project =
+        b.project(
+            input ->
+                Arrays.asList(
+                    b.scalarFn(
+                        DefaultExtensionCatalog.FUNCTIONS_COMPARISON,
+                        "equal:any_any",
+                        R.BOOLEAN,
+                        b.fp64(-0.0),
+                        b.fp64(0.0)),
+                    gt(nan, b.fp64(1)),
+                    b.scalarFn(
+                        DefaultExtensionCatalog.FUNCTIONS_COMPARISON,
+                        "not_equal:any_any",
+                        R.BOOLEAN,
+                        nan,
+                        nan),
+                    power(2, 10),
+                    power(2, -1),
+                    power(-1, -3)),
+            b.remap(3, 4, 5, 6, 7, 8),
+            orders);
+
+    assertEquals(
+        Arrays.asList(Arrays.asList(true, false, true, 1024L, 0L, -1L)),
+        execute(b.limit(1, project)));
+  }
+
+  @Test
+  void floatingPointKeysGroupEqualValues() {
+    VirtualTableScan values =
+        VirtualTableScan.builder()
+            .initialSchema(NamedStruct.of(Arrays.asList("d"), R.struct(R.FP64)))
+            .addRows(fp64Row(0.0), fp64Row(-0.0), fp64Row(Double.NaN), fp64Row(Double.NaN))
+            .build();
+    Rel aggregate =
+        b.aggregate(
+            input -> b.grouping(input, 0), input -> Arrays.asList(b.count(input, 0)), values);
+
+    assertEquals(
+        Arrays.asList(Arrays.asList(0.0, 2L), Arrays.asList(Double.NaN, 2L)), execute(aggregate));
+    assertEquals(
+        Arrays.asList(Arrays.asList(0.0), Arrays.asList(Double.NaN)),
+        execute(b.set(Set.SetOp.UNION_DISTINCT, values, values)));
+  }
+
+  @Test
+  void unsupportedArgumentTypes() {
+    Expression decimal = ExpressionCreator.decimal(false, BigDecimal.ONE, 10, 2);
+    Rel project =
+        b.project(
+            input ->
+                Arrays.asList(
+                    b.scalarFn(
+                        DefaultExtensionCatalog.FUNCTIONS_COMPARISON,
+                        "equal:any_any",
+                        R.BOOLEAN,
+                        decimal,
+                        decimal)),
+            orders);
+
+    UnsupportedOperationException e =
+        assertThrows(UnsupportedOperationException.class, () -> interpreter.execute(project));
+    assertTrue(e.getMessage().contains("Unsupported argument type"), e.getMessage());
+  }
+
+  static Expression.StructLiteral fp64Row(double value) {
+    return ExpressionCreator.struct(false, ExpressionCreator.fp64(false, value));
+  }
+
+  Expression power(long base, long exponent) {
+    return b.scalarFn(
+        DefaultExtensionCatalog.FUNCTIONS_ARITHMETIC,
+        "power:i64_i64",
+        R.I64,
+        ExpressionCreator.i64(false, base),
+        ExpressionCreator.i64(false, exponent));
+  }
+}
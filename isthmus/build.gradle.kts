@@ -6,6 +6,7 @@ plugins {
   id("idea")
   id("com.diffplug.spotless") version "6.19.0"
   id("com.github.johnrengelman.shadow") version "8.1.1"
+  id("me.champeau.jmh") version "0.7.2"
   signing
 }
 
@@ -102,6 +103,7 @@ dependencies {
   implementation("org.slf4j:slf4j-api:${SLF4J_VERSION}")
   annotationProcessor("org.immutables:value:${IMMUTABLES_VERSION}")
   testImplementation("org.apache.calcite:calcite-plus:${CALCITE_VERSION}")
+  jmhImplementation("org.apache.calcite:calcite-plus:${CALCITE_VERSION}")
   annotationProcessor("com.github.bsideup.jabel:jabel-javac-plugin:0.4.2")
   compileOnly("com.github.bsideup.jabel:jabel-javac-plugin:0.4.2")
 }
@@ -116,3 +118,8 @@ tasks {
 }
 
 tasks { build { dependsOn(shadowJar) } }
+
+jmh {
+  // benchmarks read the TPC-H and TPC-DS queries from the test resources
+  includeTests.set(true)
+}
@@ -0,0 +1,101 @@
+package io.substrait.isthmus;
+
+import com.google.protobuf.Message;
+import io.substrait.proto.Plan;
+import io.substrait.proto.Rel;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.calcite.adapter.tpcds.TpcdsSchema;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to convert TPC-H and TPC-DS queries to Substrait at each {@link
+ * OptimizationLevel}. The number of relations of each resulting plan is reported next to the time,
+ * as the {@code relations} secondary result, to compare plan sizes between levels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OptimizationLevelBenchmark {
+
+  @Param({"NONE", "BASIC", "FULL"})
+  public OptimizationLevel level;
+
+  @Param({
+    "tpch/01", "tpch/03", "tpch/05", "tpch/09", "tpch/18", "tpch/21", "tpcds/03", "tpcds/07",
+    "tpcds/19", "tpcds/42", "tpcds/55", "tpcds/96"
+  })
+  public String query;
+
+  /** Reports the number of relations of the converted plan. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class PlanSize {
+    public int relations;
+  }
+
+  private SqlToSubstrait converter;
+  private String sql;
+  private List<String> tpchSchema;
+  private TpcdsSchema tpcdsSchema;
+  private int relations;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    converter =
+        new SqlToSubstrait(ImmutableFeatureBoard.builder().optimizationLevel(level).build());
+    String[] suiteAndNumber = query.split("/");
+    sql =
+        PlanTestBase.asString(
+            String.format("%s/queries/%s.sql", suiteAndNumber[0], suiteAndNumber[1]));
+    tpchSchema = PlanTestBase.tpchSchemaCreateStatements();
+    tpcdsSchema = new TpcdsSchema(1.0);
+
+    relations = relationCount(execute());
+  }
+
+  @Benchmark
+  public Plan convert(PlanSize size) throws Exception {
+    size.relations = relations;
+    return execute();
+  }
+
+  private Plan execute() throws Exception {
+    if (query.startsWith("tpch")) {
+      return converter.execute(sql, tpchSchema);
+    }
+    return converter.execute(sql, "tpcds", tpcdsSchema);
+  }
+
+  /** Counts the relations of a message, including those of subqueries. */
+  private static int relationCount(Message message) {
+    int count = message instanceof Rel ? 1 : 0;
+    for (Object value : message.getAllFields().values()) {
+      for (Object element : valuesOf(value)) {
+        if (element instanceof Message) {
+          count += relationCount((Message) element);
+        }
+      }
+    }
+    return count;
+  }
+
+  private static List<?> valuesOf(Object fieldValue) {
+    return fieldValue instanceof List ? (List<?>) fieldValue : List.of(fieldValue);
+  }
+}
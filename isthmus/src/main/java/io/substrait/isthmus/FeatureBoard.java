@@ -39,4 +39,21 @@ public abstract class FeatureBoard {
   public CrossJoinPolicy crossJoinPolicy() {
     return CrossJoinPolicy.KEEP_AS_CROSS_JOIN;
   }
+
+  /**
+   * @return true if relations should carry the row count and record size estimates of Calcite's
+   *     metadata as hint statistics
+   */
+  @Value.Default
+  public boolean includesStatistics() {
+    return false;
+  }
+
+  /**
+   * @return the Calcite rewrites applied to the plan converted from SQL
+   */
+  @Value.Default
+  public OptimizationLevel optimizationLevel() {
+    return OptimizationLevel.NONE;
+  }
 }
@@ -0,0 +1,140 @@
+package io.substrait.isthmus;
+
+import java.util.Arrays;
+import java.util.List;
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.hep.HepPlanner;
+import org.apache.calcite.plan.hep.HepProgram;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Correlate;
+import org.apache.calcite.rel.core.Filter;
+import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rel.core.RelFactories;
+import org.apache.calcite.rel.rules.CoreRules;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.sql2rel.RelDecorrelator;
+import org.apache.calcite.sql2rel.RelFieldTrimmer;
+
+/**
+ * Controls the Calcite rewrites applied to the plan produced by Calcite's SqlToRelConverter before
+ * it is converted to Substrait.
+ */
+public enum OptimizationLevel {
+  /** Convert the plan as produced from the SQL. */
+  NONE,
+
+  /**
+   * Merge adjacent filters and projects, remove trivial projects, push filters into joins, reduce
+   * constant expressions and trim the fields that are not used from the inputs of relations.
+   */
+  BASIC,
+
+  /**
+   * In addition to {@link #BASIC}, rewrite subqueries into decorrelated joins, push projects and
+   * aggregates below joins and merge aggregates with their input projects.
+   */
+  FULL;
+
+  private static final List<RelOptRule> BASIC_RULES =
+      Arrays.asList(
+          CoreRules.FILTER_MERGE,
+          CoreRules.PROJECT_MERGE,
+          CoreRules.PROJECT_REMOVE,
+          CoreRules.FILTER_PROJECT_TRANSPOSE,
+          CoreRules.FILTER_INTO_JOIN,
+          CoreRules.JOIN_CONDITION_PUSH,
+          CoreRules.FILTER_REDUCE_EXPRESSIONS,
+          CoreRules.PROJECT_REDUCE_EXPRESSIONS,
+          CoreRules.JOIN_REDUCE_EXPRESSIONS);
+
+  private static final List<RelOptRule> SUB_QUERY_RULES =
+      Arrays.asList(
+          CoreRules.FILTER_SUB_QUERY_TO_CORRELATE,
+          CoreRules.PROJECT_SUB_QUERY_TO_CORRELATE,
+          CoreRules.JOIN_SUB_QUERY_TO_CORRELATE);
+
+  private static final List<RelOptRule> FULL_RULES =
+      Arrays.asList(
+          CoreRules.PROJECT_JOIN_TRANSPOSE,
+          CoreRules.AGGREGATE_PROJECT_MERGE,
+          CoreRules.AGGREGATE_JOIN_TRANSPOSE,
+          CoreRules.AGGREGATE_REMOVE,
+          CoreRules.UNION_MERGE);
+
+  /**
+   * Applies the rewrites of this level to the plan.
+   *
+   * @param rel the plan produced from the SQL
+   * @return an equivalent plan with the same row type
+   */
+  public RelNode optimize(RelNode rel) {
+    switch (this) {
+      case BASIC:
+        return trim(run(HepProgram.builder().addRuleCollection(BASIC_RULES).build(), rel));
+      case FULL:
+        return trim(
+            run(
+                HepProgram.builder()
+                    .addRuleCollection(BASIC_RULES)
+                    .addRuleCollection(FULL_RULES)
+                    .addRuleCollection(BASIC_RULES)
+                    .build(),
+                decorrelate(rel)));
+      default:
+        return rel;
+    }
+  }
+
+  /**
+   * Removes the fields that relations do not use from their inputs, then merges the projects that
+   * the trimming introduces. Plans with subqueries are not trimmed, as the fields a subquery refers
+   * to through correlation variables are not seen as used.
+   */
+  private static RelNode trim(RelNode rel) {
+    if (containsSubQuery(rel)) {
+      return rel;
+    }
+    RelNode trimmed =
+        new RelFieldTrimmer(null, RelFactories.LOGICAL_BUILDER.create(rel.getCluster(), null))
+            .trim(rel);
+    return run(
+        HepProgram.builder()
+            .addRuleInstance(CoreRules.PROJECT_MERGE)
+            .addRuleInstance(CoreRules.PROJECT_REMOVE)
+            .build(),
+        trimmed);
+  }
+
+  /**
+   * Rewrites subqueries into joins. Substrait has no correlated join, so the plan with subqueries
+   * is kept if Calcite cannot decorrelate the resulting joins.
+   */
+  private static RelNode decorrelate(RelNode rel) {
+    RelNode correlated =
+        run(HepProgram.builder().addRuleCollection(SUB_QUERY_RULES).build(), rel);
+    RelNode decorrelated =
+        RelDecorrelator.decorrelateQuery(
+            correlated, RelFactories.LOGICAL_BUILDER.create(rel.getCluster(), null));
+    return containsCorrelate(decorrelated) ? rel : decorrelated;
+  }
+
+  private static boolean containsCorrelate(RelNode rel) {
+    return rel instanceof Correlate
+        || rel.getInputs().stream().anyMatch(OptimizationLevel::containsCorrelate);
+  }
+
+  private static boolean containsSubQuery(RelNode rel) {
+    return rel instanceof Correlate
+        || (rel instanceof Filter && RexUtil.SubQueryFinder.containsSubQuery((Filter) rel))
+        || (rel instanceof Project && RexUtil.SubQueryFinder.containsSubQuery((Project) rel))
+        || (rel instanceof Join && RexUtil.SubQueryFinder.containsSubQuery((Join) rel))
+        || rel.getInputs().stream().anyMatch(OptimizationLevel::containsSubQuery);
+  }
+
+  private static RelNode run(HepProgram program, RelNode rel) {
+    HepPlanner hepPlanner = new HepPlanner(program);
+    hepPlanner.setRoot(rel);
+    return hepPlanner.findBestExp();
+  }
+}
@@ -8,8 +8,6 @@ import io.substrait.relation.RelProtoConverter;
 import io.substrait.type.NamedStruct;
 import java.util.List;
 import java.util.function.Function;
-import org.apache.calcite.plan.hep.HepPlanner;
-import org.apache.calcite.plan.hep.HepProgram;
 import org.apache.calcite.prepare.CalciteCatalogReader;
 import org.apache.calcite.rel.RelRoot;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
@@ -102,7 +100,7 @@ public class SqlToSubstrait extends SqlConverterBase {
     SqlToRelConverter converter = createSqlToRelConverter(validator, catalogReader);
     List<RelRoot> roots =
         parsedList.stream()
-            .map(parsed -> getBestExpRelRoot(converter, parsed))
+            .map(parsed -> getBestExpRelRoot(converter, parsed, featureBoard.optimizationLevel()))
             .collect(java.util.stream.Collectors.toList());
     return roots;
   }
@@ -123,13 +121,13 @@ public class SqlToSubstrait extends SqlConverterBase {
 
   @VisibleForTesting
   static RelRoot getBestExpRelRoot(SqlToRelConverter converter, SqlNode parsed) {
+    return getBestExpRelRoot(converter, parsed, OptimizationLevel.NONE);
+  }
+
+  @VisibleForTesting
+  static RelRoot getBestExpRelRoot(
+      SqlToRelConverter converter, SqlNode parsed, OptimizationLevel optimizationLevel) {
     RelRoot root = converter.convertQuery(parsed, true, true);
-    {
-      var program = HepProgram.builder().build();
-      HepPlanner hepPlanner = new HepPlanner(program);
-      hepPlanner.setRoot(root.rel);
-      root = root.withRel(hepPlanner.findBestExp());
-    }
-    return root;
+    return root.withRel(optimizationLevel.optimize(root.rel));
   }
 }
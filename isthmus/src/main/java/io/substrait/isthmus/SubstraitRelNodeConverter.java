@@ -3,6 +3,7 @@ package io.substrait.isthmus;
 import static io.substrait.isthmus.SqlToSubstrait.EXTENSION_COLLECTION;
 
 import io.substrait.expression.Expression;
+import io.substrait.expression.MaskExpression;
 import io.substrait.extension.SimpleExtension;
 import io.substrait.isthmus.expression.AggregateFunctionConverter;
 import io.substrait.isthmus.expression.ExpressionRexConverter;
@@ -144,6 +145,14 @@ public class SubstraitRelNodeConverter extends AbstractRelVisitor<RelNode, Runti
   @Override
   public RelNode visit(NamedScan namedScan) throws RuntimeException {
     RelNode node = relBuilder.scan(namedScan.getNames()).build();
+    // the filter applies to the base schema of the read, before its projection
+    if (namedScan.getFilter().isPresent()) {
+      RexNode condition = namedScan.getFilter().get().accept(expressionRexConverter);
+      node = relBuilder.push(node).filter(condition).build();
+    }
+    if (namedScan.getProjection().isPresent()) {
+      node = applyProjection(node, namedScan.getProjection().get());
+    }
     return applyRemap(node, namedScan.getRemap());
   }
 
@@ -413,6 +422,18 @@ public class SubstraitRelNodeConverter extends AbstractRelVisitor<RelNode, Runti
     return relNode;
   }
 
+  private RelNode applyProjection(RelNode relNode, MaskExpression projection) {
+    List<Integer> fields = new ArrayList<>();
+    for (MaskExpression.StructItem item : projection.getSelect().getStructItems()) {
+      if (item.getChild().isPresent()) {
+        throw new UnsupportedOperationException(
+            "Nested struct selections in read projections are not supported: " + projection);
+      }
+      fields.add(item.getField());
+    }
+    return applyRemap(relNode, Rel.Remap.of(fields));
+  }
+
   private RelNode applyRemap(RelNode relNode, Rel.Remap remap) {
     var rowType = relNode.getRowType();
     var fieldNames = rowType.getFieldNames();
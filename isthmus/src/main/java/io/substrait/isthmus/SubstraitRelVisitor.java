@@ -6,6 +6,7 @@ import io.substrait.expression.Expression;
 import io.substrait.expression.ExpressionCreator;
 import io.substrait.expression.FieldReference;
 import io.substrait.extension.SimpleExtension;
+import io.substrait.hint.Hint;
 import io.substrait.isthmus.expression.AggregateFunctionConverter;
 import io.substrait.isthmus.expression.CallConverters;
 import io.substrait.isthmus.expression.LiteralConverter;
@@ -36,6 +37,7 @@ import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.RelRoot;
 import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rex.RexBuilder;
 import org.apache.calcite.rex.RexFieldAccess;
@@ -373,7 +375,53 @@ public class SubstraitRelVisitor extends RelNodeVisitor<Rel, RuntimeException> {
   }
 
   public Rel apply(RelNode r) {
-    return reverseAccept(r);
+    Rel rel = reverseAccept(r);
+    return featureBoard.includesStatistics() ? withStatistics(rel, r) : rel;
+  }
+
+  /** Attaches Calcite's row count and record size estimates for the node as hint statistics. */
+  private static Rel withStatistics(Rel rel, RelNode node) {
+    RelMetadataQuery mq = node.getCluster().getMetadataQuery();
+    Double rowCount = mq.getRowCount(node);
+    if (rowCount == null) {
+      return rel;
+    }
+    var stats = Hint.Stats.builder().rowCount(rowCount);
+    Double recordSize = mq.getAverageRowSize(node);
+    if (recordSize != null) {
+      stats.recordSize(recordSize);
+    }
+    Hint hint =
+        Hint.builder()
+            .from(rel.getHint().orElseGet(() -> Hint.builder().build()))
+            .stats(stats.build())
+            .build();
+
+    if (rel instanceof NamedScan scan) {
+      return NamedScan.builder().from(scan).hint(hint).build();
+    } else if (rel instanceof EmptyScan scan) {
+      return EmptyScan.builder().from(scan).hint(hint).build();
+    } else if (rel instanceof VirtualTableScan scan) {
+      return VirtualTableScan.builder().from(scan).hint(hint).build();
+    } else if (rel instanceof Filter filter) {
+      return Filter.builder().from(filter).hint(hint).build();
+    } else if (rel instanceof Project project) {
+      return Project.builder().from(project).hint(hint).build();
+    } else if (rel instanceof Join join) {
+      return Join.builder().from(join).hint(hint).build();
+    } else if (rel instanceof Cross cross) {
+      return Cross.builder().from(cross).hint(hint).build();
+    } else if (rel instanceof Set set) {
+      return Set.builder().from(set).hint(hint).build();
+    } else if (rel instanceof Aggregate aggregate) {
+      return Aggregate.builder().from(aggregate).hint(hint).build();
+    } else if (rel instanceof Sort sort) {
+      return Sort.builder().from(sort).hint(hint).build();
+    } else if (rel instanceof Fetch fetch) {
+      return Fetch.builder().from(fetch).hint(hint).build();
+    }
+    logger.debug("Statistics are not attached to relation of type {}", rel.getClass());
+    return rel;
   }
 
   public List<Rel> apply(List<RelNode> inputs) {
@@ -0,0 +1,93 @@
+package io.substrait.isthmus;
+
+import static io.substrait.isthmus.SqlConverterBase.EXTENSION_COLLECTION;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.substrait.plan.Plan;
+import io.substrait.plan.ProtoPlanConverter;
+import io.substrait.relation.Join;
+import io.substrait.relation.Rel;
+import java.io.IOException;
+import org.apache.calcite.sql.parser.SqlParseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+public class OptimizationLevelTest extends PlanTestBase {
+
+  static SqlToSubstrait converter(OptimizationLevel level) {
+    return new SqlToSubstrait(ImmutableFeatureBoard.builder().optimizationLevel(level).build());
+  }
+
+  static io.substrait.proto.Plan execute(String query, OptimizationLevel level)
+      throws IOException, SqlParseException {
+    return converter(level).execute(query, tpchSchemaCreateStatements());
+  }
+
+  static int relCount(Rel rel) {
+    return 1 + rel.getInputs().stream().mapToInt(OptimizationLevelTest::relCount).sum();
+  }
+
+  static int relCount(io.substrait.proto.Plan protoPlan) {
+    Plan plan = new ProtoPlanConverter(EXTENSION_COLLECTION).from(protoPlan);
+    return plan.getRoots().stream().mapToInt(root -> relCount(root.getInput())).sum();
+  }
+
+  @Test
+  void basicMergesFiltersAndProjects() throws IOException, SqlParseException {
+    String query =
+        "select l_orderkey from "
+            + "(select l_orderkey, l_quantity from lineitem where l_quantity > 10) "
+            + "where l_orderkey > 5";
+    assertTrue(
+        relCount(execute(query, OptimizationLevel.BASIC))
+            < relCount(execute(query, OptimizationLevel.NONE)));
+  }
+
+  static Join findJoin(Rel rel) {
+    if (rel instanceof Join) {
+      return (Join) rel;
+    }
+    return rel.getInputs().stream()
+        .map(OptimizationLevelTest::findJoin)
+        .filter(join -> join != null)
+        .findFirst()
+        .orElse(null);
+  }
+
+  static int joinInputFields(io.substrait.proto.Plan protoPlan) {
+    Plan plan = new ProtoPlanConverter(EXTENSION_COLLECTION).from(protoPlan);
+    Join join = findJoin(plan.getRoots().get(0).getInput());
+    assertNotNull(join);
+    return join.getLeft().getRecordType().fields().size()
+        + join.getRight().getRecordType().fields().size();
+  }
+
+  @Test
+  void basicTrimsUnusedFields() throws IOException, SqlParseException {
+    String query = "select o_orderkey from orders join lineitem on o_orderkey = l_orderkey";
+    assertTrue(
+        joinInputFields(execute(query, OptimizationLevel.BASIC))
+            < joinInputFields(execute(query, OptimizationLevel.NONE)));
+  }
+
+  @Test
+  void fullDecorrelatesSubqueries() throws IOException, SqlParseException {
+    String query =
+        "select o_orderkey from orders "
+            + "where exists (select 1 from lineitem where l_orderkey = o_orderkey)";
+    assertTrue(execute(query, OptimizationLevel.NONE).toString().contains("subquery"));
+    assertFalse(execute(query, OptimizationLevel.FULL).toString().contains("subquery"));
+  }
+
+  @ParameterizedTest
+  @EnumSource(OptimizationLevel.class)
+  void tpchRoundTrip(OptimizationLevel level) throws IOException, SqlParseException {
+    for (int query : new int[] {1, 3, 5, 6, 10}) {
+      assertProtoPlanRoundrip(
+          asString(String.format("tpch/queries/%02d.sql", query)), converter(level));
+    }
+  }
+}
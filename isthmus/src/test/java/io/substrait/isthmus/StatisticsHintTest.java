@@ -0,0 +1,41 @@
+package io.substrait.isthmus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.substrait.hint.Hint;
+import io.substrait.plan.Plan;
+import io.substrait.relation.Rel;
+import io.substrait.relation.SingleInputRel;
+import java.io.IOException;
+import java.util.Optional;
+import org.apache.calcite.sql.parser.SqlParseException;
+import org.junit.jupiter.api.Test;
+
+public class StatisticsHintTest extends PlanTestBase {
+
+  static final String QUERY = "select l_orderkey from lineitem where l_orderkey > 10";
+
+  @Test
+  void statisticsFromMetadata() throws IOException, SqlParseException {
+    FeatureBoard features = ImmutableFeatureBoard.builder().includesStatistics(true).build();
+    Plan plan = assertProtoPlanRoundrip(QUERY, new SqlToSubstrait(features));
+
+    Rel rel = plan.getRoots().get(0).getInput();
+    while (true) {
+      Hint.Stats stats = rel.getHint().flatMap(Hint::getStats).orElseThrow();
+      assertTrue(stats.getRowCount() > 0, rel.toString());
+      assertTrue(stats.getRecordSize() > 0, rel.toString());
+      if (!(rel instanceof SingleInputRel)) {
+        break;
+      }
+      rel = ((SingleInputRel) rel).getInput();
+    }
+  }
+
+  @Test
+  void noStatisticsByDefault() throws IOException, SqlParseException {
+    Plan plan = assertProtoPlanRoundrip(QUERY);
+    assertEquals(Optional.empty(), plan.getRoots().get(0).getInput().getHint());
+  }
+}
@@ -1,7 +1,11 @@
 package io.substrait.isthmus;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
 import io.substrait.dsl.SubstraitBuilder;
 import io.substrait.plan.Plan;
+import io.substrait.relation.ImmutableNamedScan;
 import io.substrait.relation.Join.JoinType;
 import io.substrait.relation.Rel;
 import io.substrait.relation.Set.SetOp;
@@ -10,6 +14,9 @@ import io.substrait.type.TypeCreator;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.apache.calcite.rel.RelRoot;
+import org.apache.calcite.rel.logical.LogicalFilter;
+import org.apache.calcite.sql.SqlKind;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
@@ -206,6 +213,21 @@ public class SubstraitRelNodeConverterTest extends PlanTestBase {
       var relNode = converter.convert(root.getInput());
       assertRowMatch(relNode.getRowType(), R.FP32);
     }
+
+    @Test
+    public void filter() {
+      var scan = b.namedScan(List.of("example"), List.of("a", "b"), List.of(R.I32, R.FP32));
+      var condition = b.equal(b.fieldReference(scan, 0), b.i32(1));
+      Rel filtered = ImmutableNamedScan.builder().from(scan).filter(condition).build();
+
+      var relNode = converter.convert(filtered);
+      assertInstanceOf(LogicalFilter.class, relNode);
+      assertRowMatch(relNode.getRowType(), R.I32, R.FP32);
+
+      // Calcite has no filter on its scans, so the filter comes back as a Filter relation
+      var pojo = SubstraitRelVisitor.convert(RelRoot.of(relNode, SqlKind.SELECT), extensions);
+      assertEquals(b.filter(input -> condition, scan), pojo);
+    }
   }
 
   @Nested
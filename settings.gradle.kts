@@ -1,6 +1,15 @@
 rootProject.name = "substrait"
 
-include("bom", "core", "isthmus", "isthmus-cli", "spark", "examples:substrait-spark")
+include(
+  "bom",
+  "core",
+  "evaluator",
+  "interpreter",
+  "isthmus",
+  "isthmus-cli",
+  "spark",
+  "examples:substrait-spark"
+)
 
 pluginManagement {
   plugins {
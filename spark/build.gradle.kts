@@ -4,6 +4,7 @@ plugins {
   id("scala")
   id("idea")
   id("com.diffplug.spotless") version "6.19.0"
+  id("me.champeau.jmh") version "0.7.2"
   signing
 }
 
@@ -82,6 +83,7 @@ tasks.withType<ScalaCompile>() {
 var SLF4J_VERSION = properties.get("slf4j.version")
 var SPARKBUNDLE_VERSION = properties.get("sparkbundle.version")
 var SPARK_VERSION = properties.get("spark.version")
+var PROTOBUF_VERSION = properties.get("protobuf.version")
 
 sourceSets {
   main { scala { setSrcDirs(listOf("src/main/scala", "src/main/spark-${SPARKBUNDLE_VERSION}")) } }
@@ -95,7 +97,9 @@ dependencies {
   implementation("org.apache.spark:spark-sql_2.12:${SPARK_VERSION}")
   implementation("org.apache.spark:spark-catalyst_2.12:${SPARK_VERSION}")
   implementation("org.slf4j:slf4j-api:${SLF4J_VERSION}")
+  implementation("com.google.protobuf:protobuf-java:${PROTOBUF_VERSION}")
 
+  testImplementation(project(":interpreter"))
   testImplementation("org.scalatest:scalatest_2.12:3.2.18")
   testRuntimeOnly("org.junit.platform:junit-platform-engine:1.10.0")
   testRuntimeOnly("org.junit.platform:junit-platform-launcher:1.10.0")
@@ -118,3 +122,9 @@ tasks {
     useJUnitPlatform { includeEngines("scalatest") }
   }
 }
+
+jmh {
+  // benchmarks use the TPC schemas and queries of the test classpath
+  includeTests.set(true)
+  profilers.add("gc")
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.substrait.spark
+
+import io.substrait.spark.logical.{ToLogicalPlan, ToSubstraitRel}
+
+import org.apache.spark.sql.{SparkSession, TPCDSSchema, TPCHSchema}
+import org.apache.spark.sql.catalyst.plans.logical.LogicalPlan
+import org.apache.spark.sql.catalyst.util.resourceToString
+import org.apache.spark.sql.internal.SQLConf
+
+import io.substrait.plan.Plan
+import io.substrait.proto
+import org.openjdk.jmh.annotations._
+
+import java.nio.file.{Files, Path}
+import java.util.Comparator
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures the conversions of TPC-H and TPC-DS queries between Spark and Substrait, against empty
+ * tables of their schemas: Spark to Substrait, Spark to serialized Substrait, parsing of serialized
+ * Substrait and Substrait to Spark. The analysis and optimization of the queries by Spark is
+ * measured too, as a reference for the cost of the conversions.
+ *
+ * The benchmarks sample the time of each call, so that JMH reports its percentiles, and run with
+ * the GC profiler, which reports the allocations per call. Run them with `gradle :spark:jmh`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.SampleTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+class ConversionBenchmark {
+
+  @Param(
+    Array(
+      "tpch/q1",
+      "tpch/q3",
+      "tpch/q5",
+      "tpch/q9",
+      "tpch/q18",
+      "tpch/q21",
+      "tpcds/q3",
+      "tpcds/q7",
+      "tpcds/q19",
+      "tpcds/q42",
+      "tpcds/q55",
+      "tpcds/q96"))
+  var query: String = _
+
+  private var warehouse: Path = _
+  private var spark: SparkSession = _
+  private var context: ConverterContext = _
+  private var sql: String = _
+  private var optimized: LogicalPlan = _
+  private var plan: Plan = _
+  private var bytes: Array[Byte] = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    warehouse = Files.createTempDirectory("substrait-benchmark")
+    spark = SparkSession
+      .builder()
+      .master("local[1]")
+      .config(SQLConf.WAREHOUSE_PATH.key, warehouse.toUri.toString)
+      .config(SQLConf.DYNAMIC_PARTITION_PRUNING_ENABLED.key, "false")
+      .config(SQLConf.LEGACY_CHAR_VARCHAR_AS_STRING.key, "true")
+      .config("spark.sql.readSideCharPadding", "false")
+      .getOrCreate()
+    spark.sparkContext.setLogLevel("WARN")
+    if (query.startsWith("tpch/")) {
+      ConversionBenchmark.Tpch.createTables(spark)
+    } else {
+      ConversionBenchmark.Tpcds.createTables(spark)
+    }
+    context = new ConverterContext(spark)
+
+    sql = resourceToString(
+      s"$query.sql",
+      classLoader = Thread.currentThread().getContextClassLoader)
+    optimized = planQuery()
+    plan = toSubstrait()
+    bytes = toSubstraitBytes()
+  }
+
+  @TearDown(Level.Trial)
+  def tearDown(): Unit = {
+    spark.stop()
+    Files.walk(warehouse).sorted(Comparator.reverseOrder[Path]()).forEach(Files.delete(_))
+  }
+
+  @Benchmark
+  def planQuery(): LogicalPlan = spark.sql(sql).queryExecution.optimizedPlan
+
+  @Benchmark
+  def toSubstrait(): Plan = new ToSubstraitRel().convert(optimized)
+
+  @Benchmark
+  def toSubstraitBytes(): Array[Byte] = new ToSubstraitRel().toProtoSubstrait(optimized)
+
+  @Benchmark
+  def parseSubstrait(): Plan = new SparkProtoPlanConverter().from(proto.Plan.parseFrom(bytes))
+
+  @Benchmark
+  def toLogicalPlan(): LogicalPlan = new ToLogicalPlan(context).convert(plan)
+}
+
+object ConversionBenchmark {
+
+  private object Tpch extends TPCHSchema {
+    def createTables(spark: SparkSession): Unit = tpchCreateTable.values.foreach(spark.sql)
+  }
+
+  private object Tpcds extends TPCDSSchema {
+    def createTables(spark: SparkSession): Unit = tableNames.foreach(createTable(spark, _))
+  }
+}
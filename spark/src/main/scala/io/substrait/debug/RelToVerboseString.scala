@@ -122,6 +122,13 @@ class RelToVerboseString(addSuffix: Boolean) extends DefaultRelVisitor[String] {
       })
   }
 
+  override def visit(reference: ReferenceRel): String = {
+    withBuilder(reference, 13)(
+      builder => {
+        builder.append("subtree=").append(reference.getSubtree.accept(this))
+      })
+  }
+
   override def visit(project: Project): String = {
     withBuilder(project, 8)(
       builder => {
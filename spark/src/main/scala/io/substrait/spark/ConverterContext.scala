@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.substrait.spark
+
+import org.apache.spark.sql.SparkSession
+import org.apache.spark.sql.catalyst.analysis.{MultiInstanceRelation, UnresolvedRelation}
+import org.apache.spark.sql.catalyst.plans.logical.{LogicalPlan, SubqueryAlias}
+import org.apache.spark.sql.execution.QueryExecution
+
+import java.util.Locale
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * What the conversions of the plans of a Spark session share: the analyzed relations of the tables
+ * that plans read by name. The extensions are shared by all sessions, through [[SparkExtension]].
+ *
+ * The relations are analyzed once per table, and later reads get new instances of them. The
+ * context does not follow changes to the catalog nor to the data: [[invalidate]] must be called
+ * when a table is redefined, and also when data is written to it, as the file index of a cached
+ * relation keeps the files listed at its analysis. Relations that cannot be instantiated again,
+ * such as views, are analyzed on every read.
+ *
+ * A converter created from a session has a context of its own. To share one between the
+ * conversions of a session, create it with the session and give it to each converter.
+ */
+class ConverterContext(val spark: SparkSession) {
+
+  /** The analyzed relations by qualified table name. */
+  private val relations = new ConcurrentHashMap[Seq[String], LogicalPlan]()
+
+  /** The analyzed relation of the table with the given name, with new attribute ids. */
+  def relation(names: Seq[String]): LogicalPlan = {
+    val key = keyOf(names)
+    val analyzed = relations.get(key) match {
+      case null =>
+        new QueryExecution(spark, UnresolvedRelation(names)).analyzed match {
+          case SubqueryAlias(_, child) => child
+          case other => other
+        }
+      case cached => cached
+    }
+    analyzed match {
+      case relation: MultiInstanceRelation =>
+        relations.putIfAbsent(key, analyzed)
+        relation.newInstance()
+      case other => other
+    }
+  }
+
+  /**
+   * Forgets the relation of the table with the given name. Names are qualified with the current
+   * catalog and namespace, so a table read as `t` is forgotten by `default.t` too.
+   */
+  def invalidate(names: Seq[String]): Unit = relations.remove(keyOf(names))
+
+  def invalidateAll(): Unit = relations.clear()
+
+  private def keyOf(names: Seq[String]): Seq[String] = {
+    val catalogManager = spark.sessionState.catalogManager
+    val catalog = catalogManager.currentCatalog.name
+    val qualified = names.length match {
+      case 1 => (catalog +: catalogManager.currentNamespace.toSeq) ++ names
+      case 2 => catalog +: names
+      case _ => names
+    }
+    if (spark.sessionState.conf.caseSensitiveAnalysis) qualified
+    else qualified.map(_.toLowerCase(Locale.ROOT))
+  }
+}
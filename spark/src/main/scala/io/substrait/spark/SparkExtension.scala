@@ -16,7 +16,7 @@
  */
 package io.substrait.spark
 
-import io.substrait.spark.expression.{ToAggregateFunction, ToWindowFunction}
+import io.substrait.spark.expression.{ToAggregateFunction, ToScalarFunction, ToWindowFunction}
 
 import io.substrait.extension.SimpleExtension
 
@@ -25,28 +25,26 @@ import java.util.Collections
 import scala.collection.JavaConverters
 import scala.collection.JavaConverters.asScalaBufferConverter
 
+/**
+ * The extensions of the Spark converters: the default Substrait extensions and the Spark specific
+ * functions of `spark.yml`, loaded and merged once, and the function converters built from them.
+ * The function converters hold no conversion state, so all conversions share them.
+ */
 object SparkExtension {
   final val uri = "/spark.yml"
 
-  private val SparkImpls: SimpleExtension.ExtensionCollection =
-    SimpleExtension.load(Collections.singletonList(uri))
-
-  private val EXTENSION_COLLECTION: SimpleExtension.ExtensionCollection =
-    SimpleExtension.loadDefaults()
+  val COLLECTION: SimpleExtension.ExtensionCollection =
+    SimpleExtension.loadDefaults().merge(SimpleExtension.load(Collections.singletonList(uri)))
 
-  val COLLECTION: SimpleExtension.ExtensionCollection = EXTENSION_COLLECTION.merge(SparkImpls)
+  lazy val SparkScalarFunctions: Seq[SimpleExtension.ScalarFunctionVariant] =
+    COLLECTION.scalarFunctions().asScala
 
-  lazy val SparkScalarFunctions: Seq[SimpleExtension.ScalarFunctionVariant] = {
-    val ret = new collection.mutable.ArrayBuffer[SimpleExtension.ScalarFunctionVariant]()
-    ret.appendAll(EXTENSION_COLLECTION.scalarFunctions().asScala)
-    ret.appendAll(SparkImpls.scalarFunctions().asScala)
-    ret
-  }
+  lazy val toScalarFunction: ToScalarFunction = ToScalarFunction(SparkScalarFunctions)
 
   val toAggregateFunction: ToAggregateFunction = ToAggregateFunction(
-    JavaConverters.asScalaBuffer(EXTENSION_COLLECTION.aggregateFunctions()))
+    JavaConverters.asScalaBuffer(COLLECTION.aggregateFunctions()))
 
   val toWindowFunction: ToWindowFunction = ToWindowFunction(
-    JavaConverters.asScalaBuffer(EXTENSION_COLLECTION.windowFunctions())
+    JavaConverters.asScalaBuffer(COLLECTION.windowFunctions())
   )
 }
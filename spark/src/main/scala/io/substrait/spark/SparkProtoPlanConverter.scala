@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.substrait.spark
+
+import io.substrait.spark.logical.{FileLayout, SparkFragment}
+
+import com.google.protobuf.{Any => ProtoAny}
+import io.substrait.extension.ExtensionLookup
+import io.substrait.plan.ProtoPlanConverter
+import io.substrait.relation.{Extension, ProtoRelConverter}
+
+/**
+ * Converts plans produced by [[io.substrait.spark.logical.ToSubstraitRel]] from protobuf, decoding
+ * the extensions it emits, such as the [[FileLayout]] of partitioned and bucketed files and the
+ * [[SparkFragment]] placeholders of partially converted plans.
+ */
+class SparkProtoPlanConverter extends ProtoPlanConverter(SparkExtension.COLLECTION) {
+
+  override protected def getProtoRelConverter(functionLookup: ExtensionLookup): ProtoRelConverter =
+    new ProtoRelConverter(functionLookup, extensionCollection) {
+      override protected def enhancementFromAdvancedExtension(
+          any: ProtoAny): Extension.Enhancement =
+        FileLayout
+          .fromProto(any)
+          .getOrElse(super.enhancementFromAdvancedExtension(any))
+
+      override protected def detailFromExtensionLeafRel(any: ProtoAny): Extension.LeafRelDetail =
+        SparkFragment.fromProto(any).getOrElse(super.detailFromExtensionLeafRel(any))
+
+      override protected def detailFromExtensionSingleRel(
+          any: ProtoAny): Extension.SingleRelDetail =
+        SparkFragment.fromProto(any).getOrElse(super.detailFromExtensionSingleRel(any))
+
+      override protected def detailFromExtensionMultiRel(
+          any: ProtoAny): Extension.MultiRelDetail =
+        SparkFragment.fromProto(any).getOrElse(super.detailFromExtensionMultiRel(any))
+    }
+}
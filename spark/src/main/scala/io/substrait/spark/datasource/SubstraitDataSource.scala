@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.substrait.spark.datasource
+
+import org.apache.spark.sql.SparkSession
+import org.apache.spark.sql.connector.catalog.{SupportsRead, Table, TableCapability, TableProvider}
+import org.apache.spark.sql.connector.expressions.Transform
+import org.apache.spark.sql.connector.read.ScanBuilder
+import org.apache.spark.sql.execution.datasources.LogicalRelation
+import org.apache.spark.sql.sources.DataSourceRegister
+import org.apache.spark.sql.types.StructType
+import org.apache.spark.sql.util.CaseInsensitiveStringMap
+
+import java.util
+
+import scala.collection.JavaConverters.{mapAsScalaMapConverter, setAsJavaSetConverter}
+
+/**
+ * A data source which reads files through a Substrait engine rather than through Spark.
+ *
+ * The files are described by the usual options of a Spark file format: `format` names the format,
+ * `parquet` by default, `path` the files, and other options are passed to the format. The filters,
+ * columns, aggregates and limit Spark pushes to the scan are expressed as a Substrait plan over the
+ * files, and each partition of the scan runs the plan with the [[SubstraitExecutor]] named by the
+ * `executor` option.
+ *
+ * {{{
+ *   spark.read
+ *     .format("substrait")
+ *     .option("format", "parquet")
+ *     .option("executor", classOf[MyExecutor].getName)
+ *     .load("/data/lineitem")
+ * }}}
+ */
+class SubstraitDataSource extends TableProvider with DataSourceRegister {
+
+  override def shortName(): String = "substrait"
+
+  override def inferSchema(options: CaseInsensitiveStringMap): StructType =
+    SubstraitTable(options).schema()
+
+  override def getTable(
+      schema: StructType,
+      partitioning: Array[Transform],
+      properties: util.Map[String, String]): Table =
+    SubstraitTable(new CaseInsensitiveStringMap(properties))
+}
+
+object SubstraitDataSource {
+  val FORMAT = "format"
+  val PATH = "path"
+  val EXECUTOR = "executor"
+
+  private val DefaultFormat = "parquet"
+}
+
+/** The files of a [[SubstraitDataSource]], read through the Spark format which describes them. */
+case class SubstraitTable(options: CaseInsensitiveStringMap) extends Table with SupportsRead {
+  import SubstraitDataSource._
+
+  private val path = required(PATH)
+
+  private[datasource] val executorClass = required(EXECUTOR)
+
+  /** The relation of the files in Spark, which is converted to a `LocalFiles` relation. */
+  private[datasource] lazy val relation: LogicalRelation = {
+    val spark = SparkSession.active
+    val formatOptions = options.asScala.filterKeys {
+      key => !Set(FORMAT, PATH, EXECUTOR).contains(key.toLowerCase)
+    }
+    spark.read
+      .format(options.getOrDefault(FORMAT, DefaultFormat))
+      .options(formatOptions.toMap)
+      .load(path)
+      .queryExecution
+      .analyzed match {
+      case relation: LogicalRelation => relation
+      case other =>
+        throw new UnsupportedOperationException(
+          s"Format ${options.get(FORMAT)} is not read as files, the relation is: $other")
+    }
+  }
+
+  private def required(option: String): String = {
+    if (!options.containsKey(option)) {
+      throw new IllegalArgumentException(s"Option '$option' is required")
+    }
+    options.get(option)
+  }
+
+  override def name(): String = s"substrait($path)"
+
+  override def schema(): StructType = relation.schema
+
+  override def capabilities(): util.Set[TableCapability] =
+    Set(TableCapability.BATCH_READ).asJava
+
+  override def newScanBuilder(options: CaseInsensitiveStringMap): ScanBuilder =
+    new SubstraitScanBuilder(this)
+}
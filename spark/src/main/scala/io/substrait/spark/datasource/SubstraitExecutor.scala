@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.substrait.spark.datasource
+
+import org.apache.spark.sql.types.StructType
+import org.apache.spark.sql.vectorized.ColumnarBatch
+
+import io.substrait.plan.Plan
+
+/**
+ * A local engine which runs the Substrait plans of a [[SubstraitDataSource]] scan.
+ *
+ * One instance is created in each task, through a public no-argument constructor, and is given the
+ * plan of the partition read by the task: the pushed filters, projection, aggregation and limit
+ * over a `LocalFiles` relation holding the files of that partition only. The batches returned must
+ * have the schema given, in the order of its fields.
+ *
+ * Executors which hold resources, such as native memory, should return an iterator which is also
+ * [[java.io.Closeable]]; it is closed when the task has consumed it.
+ */
+trait SubstraitExecutor {
+
+  def execute(plan: Plan, schema: StructType): Iterator[ColumnarBatch]
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.substrait.spark.datasource
+
+import io.substrait.spark.SparkProtoPlanConverter
+
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.connector.read.{Batch, InputPartition, PartitionReader, PartitionReaderFactory, Scan}
+import org.apache.spark.sql.types.StructType
+import org.apache.spark.sql.vectorized.ColumnarBatch
+
+import io.substrait.plan.{ImmutablePlan, ImmutableRoot, Plan, PlanProtoConverter}
+import io.substrait.relation.{LocalFiles, Rel, RelCopyOnWriteVisitor}
+
+import java.io.Closeable
+import java.util.Optional
+
+import scala.collection.JavaConverters.{asScalaBufferConverter, seqAsJavaListConverter}
+import scala.collection.mutable
+
+/**
+ * A scan running a Substrait plan in a [[SubstraitExecutor]].
+ *
+ * There is one input partition for each partition index of the files in the `LocalFiles` relation
+ * of the plan, holding a copy of the plan which only reads the files of that partition.
+ */
+case class SubstraitScan(executorClass: String, plan: Plan, schema: StructType)
+  extends Scan
+  with Batch {
+
+  override def readSchema(): StructType = schema
+
+  override def toBatch: Batch = this
+
+  override def planInputPartitions(): Array[InputPartition] = {
+    val converter = new PlanProtoConverter
+    SubstraitScan
+      .partitionIndexes(plan)
+      .map {
+        index =>
+          val partitionPlan = SubstraitScan.restrict(plan, index)
+          SubstraitInputPartition(converter.toProto(partitionPlan).toByteArray)
+      }
+      .toArray
+  }
+
+  override def createReaderFactory(): PartitionReaderFactory =
+    SubstraitReaderFactory(executorClass, schema)
+}
+
+object SubstraitScan {
+
+  /** Returns the partition indexes of the files read by a plan, in order. */
+  private def partitionIndexes(plan: Plan): Seq[Long] = {
+    val indexes = mutable.SortedSet.empty[Long]
+    mapLocalFiles(plan) {
+      localFiles =>
+        indexes ++= localFiles.getItems.asScala.map(_.getPartitionIndex)
+        localFiles
+    }
+    indexes.toSeq
+  }
+
+  /** Returns a copy of a plan which only reads the files of one partition. */
+  private def restrict(plan: Plan, partitionIndex: Long): Plan =
+    mapLocalFiles(plan) {
+      localFiles =>
+        LocalFiles
+          .builder()
+          .from(localFiles)
+          .items(localFiles.getItems.asScala.filter(_.getPartitionIndex == partitionIndex).asJava)
+          .build()
+    }
+
+  private def mapLocalFiles(plan: Plan)(f: LocalFiles => LocalFiles): Plan = {
+    val visitor = new RelCopyOnWriteVisitor[RuntimeException] {
+      override def visit(localFiles: LocalFiles): Optional[Rel] = Optional.of(f(localFiles))
+    }
+    val roots = plan.getRoots.asScala.map {
+      root =>
+        ImmutableRoot
+          .builder()
+          .from(root)
+          .input(root.getInput.accept(visitor).orElse(root.getInput))
+          .build()
+    }
+    ImmutablePlan.builder().from(plan).roots(roots.asJava).build()
+  }
+}
+
+/** The plan of one partition of a [[SubstraitScan]], serialized to protobuf. */
+case class SubstraitInputPartition(plan: Array[Byte]) extends InputPartition
+
+/** Creates an executor in each task and reads the batches it returns for the partition. */
+case class SubstraitReaderFactory(executorClass: String, schema: StructType)
+  extends PartitionReaderFactory {
+
+  override def supportColumnarReads(partition: InputPartition): Boolean = true
+
+  override def createReader(partition: InputPartition): PartitionReader[InternalRow] =
+    throw new UnsupportedOperationException("Substrait scans only read columnar batches")
+
+  override def createColumnarReader(partition: InputPartition): PartitionReader[ColumnarBatch] = {
+    val bytes = partition.asInstanceOf[SubstraitInputPartition].plan
+    val plan = new SparkProtoPlanConverter().from(io.substrait.proto.Plan.parseFrom(bytes))
+    val executor = Class
+      .forName(executorClass, true, Thread.currentThread().getContextClassLoader)
+      .getConstructor()
+      .newInstance()
+      .asInstanceOf[SubstraitExecutor]
+    new SubstraitPartitionReader(executor.execute(plan, schema))
+  }
+}
+
+private class SubstraitPartitionReader(batches: Iterator[ColumnarBatch])
+  extends PartitionReader[ColumnarBatch] {
+
+  private var current: ColumnarBatch = _
+
+  override def next(): Boolean = {
+    current = if (batches.hasNext) batches.next() else null
+    current != null
+  }
+
+  override def get(): ColumnarBatch = current
+
+  override def close(): Unit = batches match {
+    case closeable: Closeable => closeable.close()
+    case _ =>
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.substrait.spark.datasource
+
+import io.substrait.spark.SparkExtension
+import io.substrait.spark.expression.{ToScalarFunction, ToSubstraitExpression}
+import io.substrait.spark.logical.ToSubstraitRel
+
+import org.apache.spark.sql.SparkSession
+import org.apache.spark.sql.catalyst.expressions.{Alias, And, Attribute, Contains, EndsWith, EqualNullSafe, EqualTo, Expression, GreaterThan, GreaterThanOrEqual, In, IsNotNull, IsNull, LessThan, LessThanOrEqual, Literal, NamedExpression, Not, Or, StartsWith}
+import org.apache.spark.sql.catalyst.expressions.aggregate.{AggregateExpression, AggregateFunction, Complete, Count, Max, Min, Sum}
+import org.apache.spark.sql.catalyst.plans.logical.{Aggregate, Filter, Limit, LogicalPlan, Project}
+import org.apache.spark.sql.connector.expressions.{aggregate => v2, Expression => V2Expression, NamedReference}
+import org.apache.spark.sql.connector.expressions.aggregate.{AggregateFunc, Aggregation}
+import org.apache.spark.sql.connector.read.{Scan, ScanBuilder, SupportsPushDownAggregates, SupportsPushDownFilters, SupportsPushDownLimit, SupportsPushDownRequiredColumns}
+import org.apache.spark.sql.sources
+import org.apache.spark.sql.types.StructType
+
+import scala.util.Try
+
+/**
+ * Builds the Substrait plan of a [[SubstraitTable]] scan from what Spark pushes down to it.
+ *
+ * The plan is built as a Spark logical plan over the relation of the files, optimized and
+ * converted by [[ToSubstraitRel]]: the pushed filters, then either the aggregation or the required
+ * columns, then the limit. Filters are only accepted when they translate to Spark expressions that
+ * convert to Substrait, and they are then evaluated entirely by the engine; the others are left to
+ * Spark.
+ *
+ * Each partition runs the plan over its own files, so aggregates are pushed partially, to be
+ * merged by Spark, and limits are applied again by Spark over all partitions.
+ */
+class SubstraitScanBuilder(table: SubstraitTable)
+  extends ScanBuilder
+  with SupportsPushDownFilters
+  with SupportsPushDownRequiredColumns
+  with SupportsPushDownAggregates
+  with SupportsPushDownLimit {
+
+  private val relation = table.relation
+
+  private val toSubstraitExpression = new ToSubstraitExpression {
+    override protected val toScalarFunction: ToScalarFunction = SparkExtension.toScalarFunction
+  }
+
+  private var filters: Seq[(sources.Filter, Expression)] = Nil
+  private var requiredSchema: StructType = relation.schema
+  private var aggregation: Option[(Seq[Attribute], Seq[NamedExpression])] = None
+  private var limit: Option[Int] = None
+
+  override def pushFilters(filters: Array[sources.Filter]): Array[sources.Filter] = {
+    val (translated, remaining) = filters
+      .map(filter => (filter, translateFilter(filter).filter(isConvertible)))
+      .partition(_._2.isDefined)
+    this.filters = translated.map { case (filter, expression) => (filter, expression.get) }
+    remaining.map(_._1)
+  }
+
+  override def pushedFilters(): Array[sources.Filter] = filters.map(_._1).toArray
+
+  override def pruneColumns(requiredSchema: StructType): Unit = {
+    this.requiredSchema = requiredSchema
+  }
+
+  override def pushAggregation(aggregation: Aggregation): Boolean = {
+    val groupBy = aggregation.groupByExpressions().map(translateColumn)
+    val aggregates = aggregation.aggregateExpressions().map(translateAggregate)
+    if (groupBy.exists(_.isEmpty) || aggregates.exists(_.isEmpty)) {
+      return false
+    }
+    val aggregateExpressions = aggregates.zipWithIndex.map {
+      case (function, i) =>
+        Alias(AggregateExpression(function.get, Complete, isDistinct = false), s"agg$i")()
+    }
+    val groupByColumns = groupBy.map(_.get).toSeq
+    this.aggregation = Some((groupByColumns, groupByColumns ++ aggregateExpressions))
+    true
+  }
+
+  override def pushLimit(limit: Int): Boolean = {
+    this.limit = Some(limit)
+    true
+  }
+
+  override def build(): Scan = {
+    var plan: LogicalPlan = relation
+    if (filters.nonEmpty) {
+      plan = Filter(filters.map(_._2).reduce(And), plan)
+    }
+    plan = aggregation match {
+      case Some((groupBy, outputs)) => Aggregate(groupBy, outputs, plan)
+      case None => Project(requiredSchema.fieldNames.map(column(_).get).toSeq, plan)
+    }
+    limit.foreach(n => plan = Limit(Literal(n), plan))
+
+    val optimized = SparkSession.active.sessionState.optimizer.execute(plan)
+    val substraitPlan = new ToSubstraitRel().convert(optimized)
+    SubstraitScan(table.executorClass, substraitPlan, optimized.schema)
+  }
+
+  private def isConvertible(expression: Expression): Boolean =
+    Try(toSubstraitExpression.convert(expression, relation.output))
+      .toOption
+      .exists(_.isDefined)
+
+  private def column(name: String): Option[Attribute] =
+    relation.output.find(_.name.equalsIgnoreCase(name))
+
+  private def translateColumn(expression: V2Expression): Option[Attribute] = expression match {
+    case ref: NamedReference if ref.fieldNames().length == 1 => column(ref.fieldNames().head)
+    case _ => None
+  }
+
+  /** Translates aggregates whose partial results Spark can merge; distinct ones cannot be. */
+  private def translateAggregate(function: AggregateFunc): Option[AggregateFunction] =
+    function match {
+      case _: v2.CountStar => Some(Count(Literal(1)))
+      case count: v2.Count if !count.isDistinct => translateColumn(count.column).map(Count(_))
+      case sum: v2.Sum if !sum.isDistinct => translateColumn(sum.column).map(Sum(_))
+      case min: v2.Min => translateColumn(min.column).map(Min(_))
+      case max: v2.Max => translateColumn(max.column).map(Max(_))
+      case _ => None
+    }
+
+  private def translateFilter(filter: sources.Filter): Option[Expression] = {
+    def comparison(
+        attribute: String,
+        value: Any,
+        build: (Expression, Expression) => Expression): Option[Expression] =
+      column(attribute).map(a => build(a, Literal.create(value, a.dataType)))
+
+    filter match {
+      case sources.EqualTo(a, v) => comparison(a, v, EqualTo(_, _))
+      case sources.EqualNullSafe(a, v) => comparison(a, v, EqualNullSafe(_, _))
+      case sources.GreaterThan(a, v) => comparison(a, v, GreaterThan(_, _))
+      case sources.GreaterThanOrEqual(a, v) => comparison(a, v, GreaterThanOrEqual(_, _))
+      case sources.LessThan(a, v) => comparison(a, v, LessThan(_, _))
+      case sources.LessThanOrEqual(a, v) => comparison(a, v, LessThanOrEqual(_, _))
+      case sources.StringStartsWith(a, v) => comparison(a, v, StartsWith(_, _))
+      case sources.StringEndsWith(a, v) => comparison(a, v, EndsWith(_, _))
+      case sources.StringContains(a, v) => comparison(a, v, Contains(_, _))
+      case sources.In(a, values) =>
+        column(a).map(c => In(c, values.map(Literal.create(_, c.dataType))))
+      case sources.IsNull(a) => column(a).map(IsNull(_))
+      case sources.IsNotNull(a) => column(a).map(IsNotNull(_))
+      case sources.And(left, right) =>
+        for (l <- translateFilter(left); r <- translateFilter(right)) yield And(l, r)
+      case sources.Or(left, right) =>
+        for (l <- translateFilter(left); r <- translateFilter(right)) yield Or(l, r)
+      case sources.Not(child) => translateFilter(child).map(Not(_))
+      case _ => None
+    }
+  }
+}
@@ -25,6 +25,7 @@ import org.apache.spark.sql.catalyst.expressions.{Expression, WindowExpression}
 import org.apache.spark.sql.catalyst.expressions.aggregate.AggregateExpression
 import org.apache.spark.sql.types.DataType
 
+import com.google.common.cache.CacheBuilder
 import com.google.common.collect.{ArrayListMultimap, Multimap}
 import io.substrait.`type`.Type
 import io.substrait.expression.{Expression => SExpression, ExpressionCreator, FunctionArg}
@@ -227,6 +228,41 @@ object FunctionFinder extends SQLConfHelper {
   def chained[F <: SimpleExtension.Function](
       matchers: Seq[SingularArgumentMatcher[F]]): SingularArgumentMatcher[F] =
     (inputType: Type, outputType: Type) => collectFirst(matchers, inputType, outputType)
+
+  /** The outcome of matching a function call's operand types against the available variants. */
+  sealed trait Resolution[+F]
+  case class DirectMatch[+F](variant: F) extends Resolution[F]
+  case class CoercedMatch[+F](variant: F, coercedType: Type) extends Resolution[F]
+  case object NoMatch extends Resolution[Nothing]
+
+  case class ResolutionKey(
+      expressionClass: Class[_],
+      operandTypes: Seq[Type],
+      childTypes: Seq[DataType],
+      childrenNullable: Boolean,
+      outputType: Type,
+      ansiEnabled: Boolean)
+
+  /**
+   * The number of operand type combinations whose resolution a finder remembers, the least
+   * recently used ones being dropped first. The converters of [[io.substrait.spark.SparkExtension]]
+   * are singletons, so their finders are shared by every conversion in the JVM: the resolutions
+   * are process-wide, bounded by this number for each function name rather than per plan or
+   * session. Session settings the resolution depends on, such as ANSI mode, are part of the key.
+   */
+  val MaxResolutions = 1024
+
+  def children(expression: Expression): Seq[Expression] = expression match {
+    case agg: AggregateExpression => agg.aggregateFunction.children
+    case win: WindowExpression => win.windowFunction.children
+    case other => other.children
+  }
+
+  def expressionClass(expression: Expression): Class[_] = expression match {
+    case agg: AggregateExpression => agg.aggregateFunction.getClass
+    case win: WindowExpression => win.windowFunction.getClass
+    case other => other.getClass
+  }
 }
 
 trait SingularArgumentMatcher[F <: SimpleExtension.Function] extends ((Type, Type) => Option[F])
@@ -237,9 +273,59 @@ class FunctionFinder[F <: SimpleExtension.Function, T](
     val singularInputType: Option[SingularArgumentMatcher[F]],
     val parent: FunctionConverter[F, T]) {
 
+  /** Resolutions by operand types, shared by all users of the converter (see `MaxResolutions`). */
+  private val resolutions =
+    CacheBuilder
+      .newBuilder()
+      .maximumSize(FunctionFinder.MaxResolutions)
+      .build[FunctionFinder.ResolutionKey, FunctionFinder.Resolution[F]]()
+
   def attemptMatch(expression: Expression, operands: Seq[SExpression]): Option[T] = {
     val opTypes = operands.map(_.getType)
     val outputType = ToSubstraitType.apply(expression.dataType, expression.nullable)
+    val children = FunctionFinder.children(expression)
+    val key = FunctionFinder.ResolutionKey(
+      FunctionFinder.expressionClass(expression),
+      opTypes,
+      children.map(_.dataType),
+      children.exists(e => e.nullable),
+      outputType,
+      FunctionFinder.conf.ansiEnabled)
+
+    var resolution = resolutions.getIfPresent(key)
+    if (resolution == null) {
+      resolution = resolve(opTypes, children, outputType)
+      resolutions.put(key, resolution)
+    }
+
+    resolution match {
+      case FunctionFinder.DirectMatch(variant) =>
+        variant.validateOutputType(JavaConverters.bufferAsJavaList(operands.toBuffer), outputType)
+        val funcArgs: Seq[FunctionArg] = operands
+        Option(parent.generateBinding(expression, variant, funcArgs, outputType))
+      case FunctionFinder.CoercedMatch(variant, coercedType) =>
+        val coercedArgs = coerceArguments(operands, coercedType)
+        variant.validateOutputType(
+          JavaConverters.bufferAsJavaList(coercedArgs.toBuffer),
+          outputType)
+        val funcArgs: Seq[FunctionArg] = coercedArgs
+        Option(parent.generateBinding(expression, variant, funcArgs, outputType))
+      case _ => None
+    }
+  }
+
+  /**
+   * Determines the variant matching the given operand types. The result only depends on the types
+   * (and the ANSI mode used for least-restrictive coercion), so it is cached by [[attemptMatch]].
+   */
+  private def resolve(
+      opTypes: Seq[Type],
+      children: Seq[Expression],
+      outputType: Type): FunctionFinder.Resolution[F] = {
+    if (opTypes.isEmpty) {
+      return FunctionFinder.DirectMatch(directMap(name + ":"))
+    }
+
     val opTypesStr = opTypes.map(t => t.accept(ToTypeString.INSTANCE))
 
     val possibleKeys =
@@ -249,21 +335,9 @@ class FunctionFinder[F <: SimpleExtension.Function, T](
       .map(name + ":" + _)
       .find(k => directMap.contains(k))
 
-    if (operands.isEmpty) {
-      val variant = directMap(name + ":")
-      variant.validateOutputType(JavaConverters.bufferAsJavaList(operands.toBuffer), outputType)
-      Option(parent.generateBinding(expression, variant, operands, outputType))
-    } else if (directMatchKey.isDefined) {
-      val variant = directMap(directMatchKey.get)
-      variant.validateOutputType(JavaConverters.bufferAsJavaList(operands.toBuffer), outputType)
-      val funcArgs: Seq[FunctionArg] = operands
-      Option(parent.generateBinding(expression, variant, funcArgs, outputType))
+    if (directMatchKey.isDefined) {
+      FunctionFinder.DirectMatch(directMap(directMatchKey.get))
     } else if (singularInputType.isDefined) {
-      val children = expression match {
-        case agg: AggregateExpression => agg.aggregateFunction.children
-        case win: WindowExpression => win.windowFunction.children
-        case other => other.children
-      }
       val types = children.map(_.dataType)
       val nullable = children.exists(e => e.nullable)
       FunctionFinder
@@ -275,17 +349,11 @@ class FunctionFinder[F <: SimpleExtension.Function, T](
             singularInputType
               .flatMap(f => f(leastRestrictiveSubstraitT, outputType))
               .map(
-                declaration => {
-                  val coercedArgs = coerceArguments(operands, leastRestrictiveSubstraitT)
-                  declaration.validateOutputType(
-                    JavaConverters.bufferAsJavaList(coercedArgs.toBuffer),
-                    outputType)
-                  val funcArgs: Seq[FunctionArg] = coercedArgs
-                  parent.generateBinding(expression, declaration, funcArgs, outputType)
-                })
+                declaration => FunctionFinder.CoercedMatch(declaration, leastRestrictiveSubstraitT))
           })
+        .getOrElse(FunctionFinder.NoMatch)
     } else {
-      None
+      FunctionFinder.NoMatch
     }
   }
 
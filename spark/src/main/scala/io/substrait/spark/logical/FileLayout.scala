@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.substrait.spark.logical
+
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.catalyst.catalog.BucketSpec
+import org.apache.spark.sql.catalyst.expressions.{Cast, Literal}
+import org.apache.spark.sql.execution.datasources.{BucketingUtils, HadoopFsRelation}
+import org.apache.spark.sql.types.{StringType, StructType}
+
+import com.google.protobuf.{Any => ProtoAny, ListValue, NullValue, Struct, Value}
+import io.substrait.relation.Extension
+import org.apache.hadoop.fs.Path
+
+import scala.collection.JavaConverters.{asScalaBufferConverter, mapAsScalaMapConverter, seqAsJavaListConverter}
+
+/**
+ * How the files of a `LocalFiles` relation are laid out by Spark: the partition columns, which are
+ * the last fields of its schema and whose values are taken from the paths of the files rather than
+ * read from them, and the bucketing of the files.
+ *
+ * The Substrait spec has no field for these, so they are carried as an enhancement in the
+ * `AdvancedExtension` of the relation, encoded as a `google.protobuf.Struct`. Partition values are
+ * stored as strings, as in the paths of partitioned tables.
+ */
+case class FileLayout(
+    partitionColumns: Seq[String],
+    bucketSpec: Option[BucketSpec],
+    files: Seq[FileLayout.FileEntry])
+  extends Extension.Enhancement {
+
+  /** Returns the partition values of each file, keyed by path. */
+  def partitionValues(partitionSchema: StructType, timeZoneId: String): Map[String, InternalRow] =
+    files.map {
+      file =>
+        val values = partitionSchema.fields.zip(file.partitionValues).map {
+          case (field, value) =>
+            value.map(v => Cast(Literal(v), field.dataType, Some(timeZoneId)).eval()).orNull
+        }
+        file.path -> InternalRow.fromSeq(values)
+    }.toMap
+
+  override def toProto: ProtoAny = {
+    import FileLayout._
+    val fields = Map.newBuilder[String, Value]
+    fields += TypeKey -> string(TypeName)
+    fields += "partitionColumns" -> list(partitionColumns.map(string))
+    bucketSpec.foreach {
+      spec =>
+        fields += "bucketSpec" -> struct(
+          Map(
+            "numBuckets" -> number(spec.numBuckets),
+            "bucketColumns" -> list(spec.bucketColumnNames.map(string)),
+            "sortColumns" -> list(spec.sortColumnNames.map(string))
+          ))
+    }
+    fields += "files" -> list(files.map {
+      file =>
+        val entry = Map.newBuilder[String, Value]
+        entry += "path" -> string(file.path)
+        entry += "partitionValues" -> list(file.partitionValues.map(_.map(string).getOrElse(NULL)))
+        file.bucketId.foreach(id => entry += "bucketId" -> number(id))
+        struct(entry.result())
+    })
+    ProtoAny.pack(fields.result().foldLeft(Struct.newBuilder) {
+      case (builder, (key, value)) => builder.putFields(key, value)
+    }.build())
+  }
+}
+
+object FileLayout {
+
+  /**
+   * The files of a partitioned table.
+   *
+   * @param partitionValues
+   *   the string values of the partition columns, None for nulls
+   * @param bucketId
+   *   the bucket of the file, for bucketed tables
+   */
+  case class FileEntry(path: String, partitionValues: Seq[Option[String]], bucketId: Option[Int])
+
+  private val TypeKey = "type"
+  private val TypeName = "io.substrait.spark.FileLayout"
+
+  private val NULL = Value.newBuilder.setNullValue(NullValue.NULL_VALUE).build
+
+  private def string(value: String): Value = Value.newBuilder.setStringValue(value).build
+
+  private def number(value: Int): Value = Value.newBuilder.setNumberValue(value).build
+
+  private def list(values: Seq[Value]): Value =
+    Value.newBuilder.setListValue(ListValue.newBuilder.addAllValues(values.asJava)).build
+
+  private def struct(fields: Map[String, Value]): Value =
+    Value.newBuilder.setStructValue(fields.foldLeft(Struct.newBuilder) {
+      case (builder, (key, value)) => builder.putFields(key, value)
+    }).build
+
+  /** Returns the layout of a partitioned or bucketed relation, None for other relations. */
+  private[logical] def of(
+      fsRelation: HadoopFsRelation,
+      splits: Seq[FileSplitter.FileSplit]): Option[FileLayout] = {
+    if (fsRelation.partitionSchema.isEmpty && fsRelation.bucketSpec.isEmpty) {
+      return None
+    }
+    val partitionSchema = fsRelation.partitionSchema
+    val timeZoneId = Some(fsRelation.sparkSession.sessionState.conf.sessionLocalTimeZone)
+    val files = splits.map(split => split.path -> split.partitionValues).distinct.map {
+      case (path, values) =>
+        val partitionValues = partitionSchema.fields.indices.map {
+          i =>
+            val dataType = partitionSchema(i).dataType
+            val value = Literal(values.get(i, dataType), dataType)
+            Option(Cast(value, StringType, timeZoneId).eval()).map(_.toString)
+        }
+        val bucketId = fsRelation.bucketSpec.flatMap(
+          _ => BucketingUtils.getBucketId(new Path(path).getName))
+        FileEntry(path, partitionValues, bucketId)
+    }
+    Some(FileLayout(partitionSchema.fieldNames, fsRelation.bucketSpec, files))
+  }
+
+  /** Returns the layout encoded in an enhancement, None if it holds something else. */
+  def fromProto(any: ProtoAny): Option[FileLayout] = {
+    if (!any.is(classOf[Struct])) {
+      return None
+    }
+    val fields = any.unpack(classOf[Struct]).getFieldsMap.asScala
+    if (!fields.get(TypeKey).map(_.getStringValue).contains(TypeName)) {
+      return None
+    }
+    def strings(value: Value): Seq[String] =
+      value.getListValue.getValuesList.asScala.map(_.getStringValue)
+
+    val bucketSpec = fields.get("bucketSpec").map {
+      value =>
+        val spec = value.getStructValue.getFieldsMap.asScala
+        BucketSpec(
+          spec("numBuckets").getNumberValue.toInt,
+          strings(spec("bucketColumns")),
+          strings(spec("sortColumns")))
+    }
+    val files = fields("files").getListValue.getValuesList.asScala.map {
+      value =>
+        val entry = value.getStructValue.getFieldsMap.asScala
+        FileEntry(
+          entry("path").getStringValue,
+          entry("partitionValues").getListValue.getValuesList.asScala.map {
+            v => if (v.getKindCase == Value.KindCase.NULL_VALUE) None else Some(v.getStringValue)
+          },
+          entry.get("bucketId").map(_.getNumberValue.toInt)
+        )
+    }
+    Some(FileLayout(strings(fields("partitionColumns")), bucketSpec, files))
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.substrait.spark.logical
+
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.catalyst.catalog.BucketSpec
+import org.apache.spark.sql.execution.datasources.{BucketingUtils, HadoopFsRelation}
+
+import org.apache.hadoop.fs.FileStatus
+
+/**
+ * Splits the files of a [[HadoopFsRelation]] into byte ranges and groups them into partitions the
+ * way Spark plans a file scan (see `FilePartition.maxSplitBytes` and
+ * `FilePartition.getFilePartitions`), so that a Substrait consumer can run as many parallel tasks
+ * as Spark would.
+ *
+ * Splits are at most `maxSplitBytes` long, derived from `spark.sql.files.maxPartitionBytes`,
+ * `spark.sql.files.openCostInBytes` and the expected parallelism. Files in formats which cannot be
+ * split, such as compressed CSV, are read whole. Splits are packed into partitions largest first,
+ * each file costing its length plus the open cost.
+ *
+ * The files of a bucketed relation are rather read whole and grouped by the bucket id found in
+ * their names, one partition per bucket as in `FileSourceScanExec.createBucketedReadRDD`, so that
+ * consumers see each bucket in a single partition.
+ */
+private[logical] object FileSplitter {
+
+  case class FileSplit(
+      path: String,
+      start: Long,
+      length: Long,
+      partitionIndex: Int,
+      partitionValues: InternalRow)
+
+  def split(fsRelation: HadoopFsRelation): Seq[FileSplit] = {
+    val files = fsRelation.location
+      .listFiles(Nil, Nil)
+      .flatMap(partition => partition.files.map(file => (partition.values, file)))
+    val maxSplitBytes = this.maxSplitBytes(fsRelation, files.map(_._2))
+    bucketSpec(fsRelation) match {
+      case Some(_) =>
+        files
+          .flatMap {
+            case (values, file) =>
+              val bucketId = BucketingUtils
+                .getBucketId(file.getPath.getName)
+                .getOrElse(throw new IllegalStateException(s"Invalid bucket file ${file.getPath}"))
+              splitFile(fsRelation, values, file, maxSplitBytes)
+                .map(_.copy(partitionIndex = bucketId))
+          }
+          .sortBy(_.partitionIndex)
+      case None =>
+        val splits = files
+          .flatMap { case (values, file) => splitFile(fsRelation, values, file, maxSplitBytes) }
+          .sortBy(-_.length)
+        pack(splits, maxSplitBytes, openCostInBytes(fsRelation))
+    }
+  }
+
+  /** The bucketing Spark plans the scan with, None when bucketing is disabled. */
+  private def bucketSpec(fsRelation: HadoopFsRelation): Option[BucketSpec] =
+    fsRelation.bucketSpec.filter(_ => fsRelation.sparkSession.sessionState.conf.bucketingEnabled)
+
+  private def openCostInBytes(fsRelation: HadoopFsRelation): Long =
+    fsRelation.sparkSession.sessionState.conf.filesOpenCostInBytes
+
+  private def maxSplitBytes(fsRelation: HadoopFsRelation, files: Seq[FileStatus]): Long = {
+    val spark = fsRelation.sparkSession
+    val conf = spark.sessionState.conf
+    val openCost = openCostInBytes(fsRelation)
+    val minPartitionNum = conf.filesMinPartitionNum.getOrElse(
+      spark.conf
+        .getOption("spark.sql.leafNodeDefaultParallelism")
+        .map(_.toInt)
+        .getOrElse(spark.sparkContext.defaultParallelism))
+    val totalBytes = files.map(_.getLen + openCost).sum
+    val bytesPerCore = totalBytes / minPartitionNum
+    Math.min(conf.filesMaxPartitionBytes, Math.max(openCost, bytesPerCore))
+  }
+
+  private def splitFile(
+      fsRelation: HadoopFsRelation,
+      partitionValues: InternalRow,
+      file: FileStatus,
+      maxSplitBytes: Long): Seq[FileSplit] = {
+    val path = file.getPath.toUri.toString
+    val splitable = bucketSpec(fsRelation).isEmpty && fsRelation.fileFormat.isSplitable(
+      fsRelation.sparkSession,
+      fsRelation.options,
+      file.getPath)
+    if (splitable && file.getLen > 0) {
+      (0L until file.getLen by maxSplitBytes).map {
+        offset =>
+          val remaining = file.getLen - offset
+          FileSplit(path, offset, Math.min(remaining, maxSplitBytes), 0, partitionValues)
+      }
+    } else {
+      Seq(FileSplit(path, 0, file.getLen, 0, partitionValues))
+    }
+  }
+
+  private def pack(splits: Seq[FileSplit], maxSplitBytes: Long, openCost: Long): Seq[FileSplit] = {
+    var partitionIndex = 0
+    var currentSize = 0L
+    var currentCount = 0
+    splits.map {
+      split =>
+        if (currentCount > 0 && currentSize + split.length > maxSplitBytes) {
+          partitionIndex += 1
+          currentSize = 0
+          currentCount = 0
+        }
+        currentSize += split.length + openCost
+        currentCount += 1
+        split.copy(partitionIndex = partitionIndex)
+    }
+  }
+}
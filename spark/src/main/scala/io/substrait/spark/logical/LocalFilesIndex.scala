@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.substrait.spark.logical
+
+import org.apache.spark.sql.SparkSession
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.catalyst.expressions.{And, AttributeReference, BoundReference, Expression, Predicate}
+import org.apache.spark.sql.execution.datasources.{FileIndex, InMemoryFileIndex, PartitionDirectory}
+import org.apache.spark.sql.types.StructType
+
+import io.substrait.relation.files.FileOrFiles
+import org.apache.hadoop.fs.{FileStatus, Path}
+
+import scala.collection.mutable
+
+/**
+ * A [[FileIndex]] over the items of a Substrait `LocalFiles` relation, which trusts the paths and
+ * byte ranges of `uri_file` items in the plan rather than listing and stating the files on the
+ * driver. Other items, folders, globs and paths that may be either, are listed by an
+ * [[InMemoryFileIndex]].
+ *
+ * The size of each file is the end of its last range. Spark plans file scans over whole files, so
+ * the ranges of a file must cover it from its start without gaps; the files are listed in the order
+ * of their first partition index.
+ *
+ * Files of partitioned tables are grouped by their partition values, given by the path of the
+ * item, and partitions are pruned by evaluating the partition filters on these values.
+ */
+class LocalFilesIndex(
+    spark: SparkSession,
+    items: Seq[FileOrFiles],
+    override val partitionSchema: StructType = new StructType(),
+    partitionValues: Map[String, InternalRow] = Map.empty)
+  extends FileIndex {
+
+  /** The files by the path of the item they belong to. */
+  private val files: Seq[(String, FileStatus)] = {
+    val (uriFiles, listed) =
+      items.partition(item => item.pathType.orElse(null) == FileOrFiles.PathType.URI_FILE)
+    val statedFiles = uriFiles
+      .groupBy(item => item.getPath.get())
+      .map {
+        case (path, ranges) =>
+          val sorted = ranges.sortBy(_.getStart)
+          var end = 0L
+          sorted.foreach {
+            range =>
+              if (range.getStart != end) {
+                throw new UnsupportedOperationException(
+                  s"Byte ranges of $path must cover the file without gaps," +
+                    s" found a range at ${range.getStart} after $end")
+              }
+              end = range.getStart + range.getLength
+          }
+          val firstPartition = ranges.map(_.getPartitionIndex).min
+          (firstPartition, path, Seq(new FileStatus(end, false, 0, 0, 0, new Path(path))))
+      }
+    val listedFiles = listed
+      .groupBy(item => item.getPath.get())
+      .map {
+        case (path, items) =>
+          val index = new InMemoryFileIndex(spark, Seq(new Path(path)), Map(), None)
+          (items.map(_.getPartitionIndex).min, path, index.allFiles())
+      }
+    (statedFiles ++ listedFiles).toSeq
+      .sortBy(file => (file._1, file._2))
+      .flatMap { case (_, path, statuses) => statuses.map(status => (path, status)) }
+  }
+
+  private val partitions: Seq[PartitionDirectory] = {
+    if (partitionSchema.isEmpty) {
+      Seq(PartitionDirectory(InternalRow.empty, files.map(_._2)))
+    } else {
+      val filesByValues = mutable.LinkedHashMap.empty[InternalRow, mutable.ArrayBuffer[FileStatus]]
+      files.foreach {
+        case (path, file) =>
+          val values = partitionValues.getOrElse(
+            path,
+            throw new IllegalArgumentException(s"No partition values for $path"))
+          filesByValues.getOrElseUpdate(values, mutable.ArrayBuffer.empty) += file
+      }
+      filesByValues.map { case (values, files) => PartitionDirectory(values, files) }.toSeq
+    }
+  }
+
+  override def rootPaths: Seq[Path] = files.map(_._2.getPath)
+
+  override def listFiles(
+      partitionFilters: Seq[Expression],
+      dataFilters: Seq[Expression]): Seq[PartitionDirectory] = {
+    if (partitionFilters.isEmpty) {
+      partitions
+    } else {
+      val predicate = Predicate.createInterpreted(partitionFilters.reduce(And).transform {
+        case a: AttributeReference =>
+          val index = partitionSchema.indexWhere(_.name.equalsIgnoreCase(a.name))
+          BoundReference(index, partitionSchema(index).dataType, nullable = true)
+      })
+      partitions.filter(partition => predicate.eval(partition.values))
+    }
+  }
+
+  override def inputFiles: Array[String] = files.map(_._2.getPath.toUri.toString).toArray
+
+  override def refresh(): Unit = {}
+
+  override def sizeInBytes: Long = files.map(_._2.getLen).sum
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.substrait.spark.logical
+
+import org.apache.spark.sql.catalyst.plans.logical.LogicalPlan
+
+import io.substrait.plan.Plan
+
+/**
+ * A Spark plan converted by [[ToSubstraitRel.convertPartially]]: the Substrait plan, in which each
+ * node that could not be converted is replaced by a [[SparkFragment]] placeholder, and those nodes
+ * by fragment id.
+ *
+ * @param nodes
+ *   the number of nodes of the Spark plan, including those of its subqueries
+ */
+case class PartialPlan(plan: Plan, fragments: IndexedSeq[PartialPlan.Fragment], nodes: Int) {
+
+  /** The share of the nodes of the Spark plan that were converted. */
+  def coverage: Double = if (nodes == 0) 1.0 else (nodes - fragments.size).toDouble / nodes
+
+  /** Describes the nodes that were not converted and why. */
+  def report: String = {
+    val converted = f"Converted ${nodes - fragments.size} of $nodes nodes (${coverage * 100}%.1f%%)"
+    (converted +: fragments.indices.map {
+      id => s"  fragment $id: ${fragments(id).plan.nodeName}: ${fragments(id).reason}"
+    }).mkString("\n")
+  }
+}
+
+object PartialPlan {
+
+  /**
+   * A node of the Spark plan that could not be converted.
+   *
+   * @param plan
+   *   the node, whose children are the inputs of its placeholder
+   * @param reason
+   *   the message of the failed conversion
+   */
+  case class Fragment(plan: LogicalPlan, reason: String)
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.substrait.spark.logical
+
+import io.substrait.spark.ToSubstraitType
+
+import org.apache.spark.sql.types.{DataType, StructType}
+
+import com.google.protobuf.{Any => ProtoAny, Struct, Value}
+import io.substrait.`type`.Type
+import io.substrait.relation.{Extension, Rel}
+
+import java.util
+
+import scala.collection.JavaConverters.mapAsScalaMapConverter
+
+/**
+ * Stands for a node of a Spark plan that could not be converted to Substrait, in a plan converted
+ * by [[ToSubstraitRel.convertPartially]]. It is the detail of the `ExtensionLeaf`,
+ * `ExtensionSingle` or `ExtensionMulti` relation that replaces the node, whose inputs are the
+ * converted children of the node.
+ *
+ * The node itself stays with Spark, as the fragment `id` of the [[PartialPlan]]. The detail is
+ * encoded as a `google.protobuf.Struct`, with the schema of the node as Spark JSON, so that the
+ * output of the relation is known when reading the plan back.
+ */
+case class SparkFragment(id: Int, nodeName: String, schema: StructType)
+  extends Extension.LeafRelDetail
+  with Extension.SingleRelDetail
+  with Extension.MultiRelDetail {
+
+  private lazy val recordType: Type.Struct = ToSubstraitType.toNamedStruct(schema).struct()
+
+  override def deriveRecordType(): Type.Struct = recordType
+
+  override def deriveRecordType(input: Rel): Type.Struct = recordType
+
+  override def deriveRecordType(inputs: util.List[Rel]): Type.Struct = recordType
+
+  override def toProto: ProtoAny = {
+    import SparkFragment._
+    ProtoAny.pack(
+      Struct.newBuilder
+        .putFields(TypeKey, string(TypeName))
+        .putFields("id", Value.newBuilder.setNumberValue(id).build)
+        .putFields("nodeName", string(nodeName))
+        .putFields("schema", string(schema.json))
+        .build())
+  }
+}
+
+object SparkFragment {
+
+  private val TypeKey = "type"
+  private val TypeName = "io.substrait.spark.SparkFragment"
+
+  private def string(value: String): Value = Value.newBuilder.setStringValue(value).build
+
+  /** Returns the fragment encoded in a relation detail, None if it holds something else. */
+  def fromProto(any: ProtoAny): Option[SparkFragment] = {
+    if (!any.is(classOf[Struct])) {
+      return None
+    }
+    val fields = any.unpack(classOf[Struct]).getFieldsMap.asScala
+    if (!fields.get(TypeKey).map(_.getStringValue).contains(TypeName)) {
+      return None
+    }
+    Some(
+      SparkFragment(
+        fields("id").getNumberValue.toInt,
+        fields("nodeName").getStringValue,
+        DataType.fromJson(fields("schema").getStringValue).asInstanceOf[StructType]))
+  }
+}
@@ -16,19 +16,16 @@
  */
 package io.substrait.spark.logical
 
-import io.substrait.spark.{DefaultRelVisitor, SparkExtension, ToSubstraitType}
+import io.substrait.spark.{ConverterContext, DefaultRelVisitor, SparkExtension, ToSubstraitType}
 import io.substrait.spark.expression._
 
 import org.apache.spark.sql.SparkSession
-import org.apache.spark.sql.catalyst.InternalRow
-import org.apache.spark.sql.catalyst.analysis.{MultiInstanceRelation, UnresolvedRelation}
 import org.apache.spark.sql.catalyst.expressions._
 import org.apache.spark.sql.catalyst.expressions.aggregate.{AggregateExpression, AggregateFunction}
 import org.apache.spark.sql.catalyst.plans.{FullOuter, Inner, LeftAnti, LeftOuter, LeftSemi, RightOuter}
 import org.apache.spark.sql.catalyst.plans.logical._
 import org.apache.spark.sql.catalyst.util.toPrettySQL
-import org.apache.spark.sql.execution.QueryExecution
-import org.apache.spark.sql.execution.datasources.{HadoopFsRelation, InMemoryFileIndex, LogicalRelation}
+import org.apache.spark.sql.execution.datasources.{HadoopFsRelation, LogicalRelation}
 import org.apache.spark.sql.execution.datasources.csv.CSVFileFormat
 import org.apache.spark.sql.execution.datasources.orc.OrcFileFormat
 import org.apache.spark.sql.execution.datasources.parquet.ParquetFileFormat
@@ -43,19 +40,29 @@ import io.substrait.relation.Expand.{ConsistentField, SwitchingField}
 import io.substrait.relation.LocalFiles
 import io.substrait.relation.Set.SetOp
 import io.substrait.relation.files.FileFormat
-import org.apache.hadoop.fs.Path
 
 import scala.collection.JavaConverters.asScalaBufferConverter
+import scala.collection.mutable
 import scala.collection.mutable.ArrayBuffer
 
 /**
  * RelVisitor to convert Substrait Rel plan to [[LogicalPlan]]. Unsupported Rel node will call
  * visitFallback and throw UnsupportedOperationException.
+ *
+ * The tables read by name are resolved through the [[ConverterContext]], which converters of the
+ * same session can share.
  */
-class ToLogicalPlan(spark: SparkSession) extends DefaultRelVisitor[LogicalPlan] {
+class ToLogicalPlan(context: ConverterContext) extends DefaultRelVisitor[LogicalPlan] {
+
+  def this(spark: SparkSession) = this(new ConverterContext(spark))
+
+  private val spark = context.spark
 
   private val expressionConverter =
-    new ToSparkExpression(ToScalarFunction(SparkExtension.SparkScalarFunctions), Some(this))
+    new ToSparkExpression(SparkExtension.toScalarFunction, Some(this))
+
+  /** The common table expressions of the shared relations of the root being converted. */
+  private val ctes = mutable.LinkedHashMap[relation.Rel, CTERelationDef]()
 
   private def fromMeasure(measure: relation.Aggregate.Measure): AggregateExpression = {
     // this functions is called in createParentwithChild
@@ -309,25 +316,60 @@ class ToLogicalPlan(spark: SparkSession) extends DefaultRelVisitor[LogicalPlan]
     }
   }
 
+  override def visit(reference: relation.ReferenceRel): LogicalPlan = {
+    val subtree = reference.getSubtree
+    val cteDef = ctes.get(subtree) match {
+      case Some(cteDef) => cteDef
+      case None =>
+        // the subtree is converted first, so that the relations it shares are defined before it
+        val cteDef = CTERelationDef(subtree.accept(this))
+        ctes.put(subtree, cteDef)
+        cteDef
+    }
+    CTERelationRef(cteDef.id, _resolved = true, cteDef.output.map(_.newInstance()))
+  }
+
   override def visit(emptyScan: relation.EmptyScan): LogicalPlan = {
-    LocalRelation(ToSubstraitType.toAttributeSeq(emptyScan.getInitialSchema))
+    withFilterAndProjection(
+      emptyScan,
+      LocalRelation(ToSubstraitType.toAttributeSeq(emptyScan.getInitialSchema)))
   }
 
   override def visit(virtualTableScan: relation.VirtualTableScan): LogicalPlan = {
-    val rows = virtualTableScan.getRows.asScala.map(
-      row =>
-        InternalRow.fromSeq(
-          row
-            .fields()
-            .asScala
-            .map(field => field.accept(expressionConverter).asInstanceOf[Literal].value)))
-    LocalRelation(ToSubstraitType.toAttributeSeq(virtualTableScan.getInitialSchema), rows)
+    val output = ToSubstraitType.toAttributeSeq(virtualTableScan.getInitialSchema)
+    val rows = VirtualTables.toRows(
+      ToSubstraitType.toStructType(virtualTableScan.getInitialSchema),
+      virtualTableScan.getRows,
+      literal => literal.accept(expressionConverter).asInstanceOf[Literal].value)
+    withFilterAndProjection(virtualTableScan, LocalRelation(output, rows))
   }
 
   override def visit(namedScan: relation.NamedScan): LogicalPlan = {
-    resolve(UnresolvedRelation(namedScan.getNames.asScala)) match {
-      case m: MultiInstanceRelation => m.newInstance()
-      case other => other
+    withFilterAndProjection(namedScan, context.relation(namedScan.getNames.asScala))
+  }
+
+  /**
+   * Applies the filter and the projection of a read to the plan reading its initial schema. Spark
+   * pushes them back into the scan.
+   */
+  private def withFilterAndProjection(
+      read: relation.AbstractReadRel,
+      scan: LogicalPlan): LogicalPlan = {
+    val filtered = if (read.getFilter.isPresent) {
+      withChild(scan) {
+        Filter(read.getFilter.get.accept(expressionConverter), scan)
+      }
+    } else {
+      scan
+    }
+    if (read.getProjection.isPresent) {
+      val items = read.getProjection.get.getSelect.getStructItems.asScala
+      if (items.exists(_.getChild.isPresent)) {
+        throw new UnsupportedOperationException("Projections of nested fields are not supported")
+      }
+      Project(items.map(item => filtered.output(item.getField)), filtered)
+    } else {
+      filtered
     }
   }
 
@@ -361,16 +403,27 @@ class ToLogicalPlan(spark: SparkSession) extends DefaultRelVisitor[LogicalPlan]
       case format =>
         throw new UnsupportedOperationException(s"File format not currently supported: $format")
     }
-    new LogicalRelation(
+    val layout = Option(localFiles.getExtension.orElse(null))
+      .flatMap(extension => Option(extension.getEnhancement.orElse(null)))
+      .map {
+        case layout: FileLayout => layout
+        case other => throw new UnsupportedOperationException(s"Unsupported enhancement: $other")
+      }
+    val partitionColumns = layout.map(_.partitionColumns).getOrElse(Nil)
+    val partitionSchema = StructType(partitionColumns.map(schema(_)))
+    val partitionValues = layout
+      .map(_.partitionValues(partitionSchema, spark.sessionState.conf.sessionLocalTimeZone))
+      .getOrElse(Map.empty)
+    val logicalRelation = new LogicalRelation(
       relation = HadoopFsRelation(
-        location = new InMemoryFileIndex(
+        location = new LocalFilesIndex(
           spark,
-          localFiles.getItems.asScala.map(i => new Path(i.getPath.get())),
-          Map(),
-          Some(schema)),
-        partitionSchema = new StructType(),
-        dataSchema = schema,
-        bucketSpec = None,
+          localFiles.getItems.asScala,
+          partitionSchema,
+          partitionValues),
+        partitionSchema = partitionSchema,
+        dataSchema = StructType(schema.filterNot(f => partitionColumns.contains(f.name))),
+        bucketSpec = layout.flatMap(_.bucketSpec),
         fileFormat = format,
         options = options
       )(spark),
@@ -378,6 +431,7 @@ class ToLogicalPlan(spark: SparkSession) extends DefaultRelVisitor[LogicalPlan]
       catalogTable = None,
       isStreaming = false
     )
+    withFilterAndProjection(localFiles, logicalRelation)
   }
 
   private def withChild(child: LogicalPlan*)(body: => LogicalPlan): LogicalPlan = {
@@ -393,19 +447,16 @@ class ToLogicalPlan(spark: SparkSession) extends DefaultRelVisitor[LogicalPlan]
       expressionConverter.popOutput()
     }
   }
-  private def resolve(plan: LogicalPlan): LogicalPlan = {
-    val qe = new QueryExecution(spark, plan)
-    qe.analyzed match {
-      case SubqueryAlias(_, child) => child
-      case other => other
-    }
-  }
+  def convert(plan: Plan): LogicalPlan = convertRoot(plan.getRoots.get(0))
 
-  def convert(plan: Plan): LogicalPlan = {
-    val root = plan.getRoots.get(0)
+  /** Converts each root of the plan, in order. */
+  def convertAll(plan: Plan): Seq[LogicalPlan] = plan.getRoots.asScala.map(convertRoot)
+
+  private def convertRoot(root: Plan.Root): LogicalPlan = {
+    ctes.clear()
     val names = root.getNames.asScala
     val output = names.map(name => AttributeReference(name, DataTypes.StringType)())
-    withOutput(output) {
+    val wrapper = withOutput(output) {
       val logicalPlan = root.getInput.accept(this);
       val projectList: List[NamedExpression] = logicalPlan.output.zipWithIndex
         .map(
@@ -422,5 +473,8 @@ class ToLogicalPlan(spark: SparkSession) extends DefaultRelVisitor[LogicalPlan]
       require(wrapper.resolved)
       wrapper
     }
+    val cteDefs = ctes.values.toList
+    ctes.clear()
+    if (cteDefs.isEmpty) wrapper else WithCTE(wrapper, cteDefs)
   }
 }
@@ -29,34 +29,121 @@ import org.apache.spark.sql.execution.datasources.{HadoopFsRelation, LogicalRela
 import org.apache.spark.sql.execution.datasources.csv.CSVFileFormat
 import org.apache.spark.sql.execution.datasources.orc.OrcFileFormat
 import org.apache.spark.sql.execution.datasources.parquet.ParquetFileFormat
-import org.apache.spark.sql.execution.datasources.v2.{DataSourceV2Relation, DataSourceV2ScanRelation}
+import org.apache.spark.sql.execution.datasources.v2.{DataSourceV2Relation, DataSourceV2ScanRelation, FileScan}
 import org.apache.spark.sql.types.{NullType, StructType}
 
 import ToSubstraitType.toNamedStruct
-import io.substrait.{proto, relation}
+import io.substrait.relation
 import io.substrait.debug.TreePrinter
-import io.substrait.expression.{Expression => SExpression, ExpressionCreator}
-import io.substrait.extension.ExtensionCollector
+import io.substrait.expression.{Expression => SExpression, ExpressionCreator, MaskExpression}
+import io.substrait.extension.AdvancedExtension
 import io.substrait.hint.Hint
-import io.substrait.plan.{ImmutablePlan, ImmutableRoot, Plan}
-import io.substrait.relation.RelProtoConverter
+import io.substrait.plan.{ImmutablePlan, ImmutableRoot, Plan, PlanProtoConverter}
 import io.substrait.relation.Set.SetOp
 import io.substrait.relation.files.{FileFormat, ImmutableFileOrFiles}
 import io.substrait.relation.files.FileOrFiles.PathType
 
+import java.util
 import java.util.{Collections, Optional}
 
 import scala.collection.JavaConverters.asJavaIterableConverter
 import scala.collection.mutable
-import scala.collection.mutable.ArrayBuffer
 
-class ToSubstraitRel extends AbstractLogicalPlanVisitor with Logging {
+/**
+ * Converts Spark logical plans to Substrait plans.
+ *
+ * Common table expressions become relations shared by [[relation.ReferenceRel]]s. With
+ * `shareRepeatedSubtrees`, so do the deterministic subtrees that occur several times in the plans
+ * being converted, such as the scans of a self join, so that consumers compute them once.
+ *
+ * [[convertPartially]] converts what it can of a plan, and leaves the rest to Spark.
+ */
+class ToSubstraitRel(shareRepeatedSubtrees: Boolean = false)
+  extends AbstractLogicalPlanVisitor
+  with Logging {
 
   private val toSubstraitExp = new WithLogicalSubQuery(this)
 
+  /** The relations of the common table expressions in scope, by id. */
+  private val ctes = mutable.HashMap[Long, relation.Rel]()
+
+  /** How often the canonicalized subtrees that occur more than once occur in the plans. */
+  private var occurrences = Map.empty[LogicalPlan, Int]
+  private val sharedSubtrees = mutable.HashMap[LogicalPlan, relation.Rel]()
+  private var enclosingOccurrences = 1
+
+  /** The nodes that could not be converted, during a partial conversion. */
+  private var fragments: Option[mutable.ArrayBuffer[PartialPlan.Fragment]] = None
+  private val partiallyConverted = new util.IdentityHashMap[LogicalPlan, relation.Rel]()
+
   private val TRUE = ExpressionCreator.bool(false, true)
 
+  override def visit(p: LogicalPlan): relation.Rel = {
+    // the occurrences of a nondeterministic subtree may produce different rows
+    if (occurrences.isEmpty || !p.deterministic) {
+      convertNode(p)
+    } else {
+      val key = p.canonicalized
+      val count = occurrences.getOrElse(key, 1)
+      // a subtree that occurs only as often as the enclosing shared subtree is shared with it
+      if (count <= enclosingOccurrences) {
+        convertNode(p)
+      } else {
+        sharedSubtrees.get(key) match {
+          case Some(reference) => reference
+          case None =>
+            val enclosing = enclosingOccurrences
+            enclosingOccurrences = count
+            val subtree =
+              try {
+                convertNode(p)
+              } finally {
+                enclosingOccurrences = enclosing
+              }
+            val reference = relation.ReferenceRel.builder().subtree(subtree).build()
+            sharedSubtrees.put(key, reference)
+            reference
+        }
+      }
+    }
+  }
+
+  private def convertNode(p: LogicalPlan): relation.Rel = fragments match {
+    case None => super.visit(p)
+    case Some(unsupported) =>
+      // the children converted before their parent failed are reused by its placeholder
+      val converted = partiallyConverted.get(p)
+      if (converted != null) {
+        converted
+      } else {
+        val rel =
+          try {
+            super.visit(p)
+          } catch {
+            case e: UnsupportedOperationException =>
+              logDebug(s"Leaving ${p.nodeName} to Spark: ${e.getMessage}")
+              val inputs = p.children.map(visit)
+              val fragment = SparkFragment(unsupported.size, p.nodeName, p.schema)
+              unsupported += PartialPlan.Fragment(p, e.getMessage)
+              inputs match {
+                case Seq() => relation.ExtensionLeaf.from(fragment).build()
+                case Seq(input) => relation.ExtensionSingle.from(fragment, input).build()
+                case _ => relation.ExtensionMulti.from(fragment, inputs: _*).build()
+              }
+          }
+        partiallyConverted.put(p, rel)
+        rel
+      }
+  }
+
+  override def visitWithCTE(p: WithCTE): relation.Rel = {
+    p.cteDefs.foreach(cteDef => ctes.put(cteDef.id, visit(cteDef.child)))
+    visit(p.plan)
+  }
+
   override def default(p: LogicalPlan): relation.Rel = p match {
+    case ref: CTERelationRef =>
+      relation.ReferenceRel.builder().subtree(ctes(ref.cteId)).build()
     case p: LeafNode => convertReadOperator(p)
     case s: SubqueryAlias => visit(s.child)
     case other => t(other)
@@ -248,9 +335,20 @@ class ToSubstraitRel extends AbstractLogicalPlanVisitor with Logging {
 
   override def visitFilter(p: Filter): relation.Rel = {
     val condition = toExpression(p.child.output)(p.condition)
-    relation.Filter.builder().condition(condition).input(visit(p.child)).build()
+    // push the condition into the read, as Spark pushes it into the scan
+    visit(p.child) match {
+      case scan: relation.NamedScan if isPlainRead(scan) =>
+        relation.NamedScan.builder.from(scan).filter(condition).build
+      case files: relation.LocalFiles if isPlainRead(files) =>
+        relation.LocalFiles.builder.from(files).filter(condition).build
+      case input => relation.Filter.builder().condition(condition).input(input).build()
+    }
   }
 
+  /** Whether a read outputs its initial schema unfiltered, such that its filter can be set. */
+  private def isPlainRead(read: relation.AbstractReadRel): Boolean =
+    !read.getFilter.isPresent && !read.getProjection.isPresent
+
   private def toSubstraitJoin(joinType: JoinType): relation.Join.JoinType = joinType match {
     case Inner | Cross => relation.Join.JoinType.INNER
     case LeftOuter => relation.Join.JoinType.LEFT
@@ -283,15 +381,56 @@ class ToSubstraitRel extends AbstractLogicalPlanVisitor with Logging {
   }
 
   override def visitProject(p: Project): relation.Rel = {
-    val expressions = p.projectList.map(toExpression(p.child.output)).toList
+    val child = visit(p.child)
+    val childOutput = p.child.output
+    val (input, output) = child match {
+      case read: relation.AbstractReadRel if isPrunable(read) =>
+        if (
+          p.projectList.nonEmpty &&
+          p.projectList.forall(e => e.isInstanceOf[Attribute] && childOutput.contains(e))
+        ) {
+          // a selection of columns is the projection of the read
+          return withProjection(read, p.projectList.map(a => childOutput.indexOf(a)))
+        }
+        // read only the columns the expressions refer to, keeping one when they refer to none
+        // (e.g. below a count(*)) as an empty projection would not tell how many rows there are
+        val required = childOutput.filter(p.references.contains) match {
+          case Seq() => childOutput.take(1)
+          case columns => columns
+        }
+        if (required.size < childOutput.size) {
+          (withProjection(read, required.map(a => childOutput.indexOf(a))), required)
+        } else {
+          (child, childOutput)
+        }
+      case _ => (child, childOutput)
+    }
+    val expressions = p.projectList.map(toExpression(output)).toList
 
     relation.Project.builder
-      .remap(relation.Rel.Remap.offset(p.child.output.size, expressions.size))
+      .remap(relation.Rel.Remap.offset(output.size, expressions.size))
       .expressions(expressions.asJava)
-      .input(visit(p.child))
+      .input(input)
       .build()
   }
 
+  private def isPrunable(read: relation.AbstractReadRel): Boolean = read match {
+    case _: relation.NamedScan | _: relation.LocalFiles => !read.getProjection.isPresent
+    case _ => false
+  }
+
+  private def withProjection(
+      read: relation.AbstractReadRel,
+      fields: Seq[Int]): relation.AbstractReadRel = {
+    val projection = MaskExpression.of(fields.map(Integer.valueOf).asJava)
+    read match {
+      case scan: relation.NamedScan =>
+        relation.NamedScan.builder.from(scan).projection(projection).build
+      case files: relation.LocalFiles =>
+        relation.LocalFiles.builder.from(files).projection(projection).build
+    }
+  }
+
   override def visitExpand(p: Expand): relation.Rel = {
     val fields = p.projections.transpose.map(
       proj => {
@@ -350,6 +489,33 @@ class ToSubstraitRel extends AbstractLogicalPlanVisitor with Logging {
       .build
     namedScan
   }
+  /**
+   * Reads the table of a V2 scan with the filters and the column pruning pushed into the scan,
+   * which Spark removes from the plan above it.
+   */
+  private def buildV2Scan(
+      scanRelation: DataSourceV2ScanRelation,
+      tableNames: List[String]): relation.NamedScan = {
+    val table = scanRelation.relation
+    val fields = scanRelation.output.map(a => table.output.indexWhere(_.exprId == a.exprId))
+    if (fields.contains(-1)) {
+      return buildNamedScan(scanRelation.schema, tableNames)
+    }
+    val pushedFilters = scanRelation.scan match {
+      case fileScan: FileScan => fileScan.partitionFilters ++ fileScan.dataFilters
+      case _ => Nil
+    }
+
+    val builder = relation.NamedScan.builder.from(buildNamedScan(table.schema, tableNames))
+    if (pushedFilters.nonEmpty) {
+      builder.filter(toExpression(table.output)(pushedFilters.reduce(And)))
+    }
+    if (fields != table.output.indices) {
+      builder.projection(MaskExpression.of(fields.map(Integer.valueOf).asJava))
+    }
+    builder.build
+  }
+
   private def buildVirtualTableScan(localRelation: LocalRelation): relation.AbstractReadRel = {
     val namedStruct = toNamedStruct(localRelation.schema)
 
@@ -359,21 +525,7 @@ class ToSubstraitRel extends AbstractLogicalPlanVisitor with Logging {
       relation.VirtualTableScan
         .builder()
         .initialSchema(namedStruct)
-        .addAllRows(
-          localRelation.data
-            .map(
-              row => {
-                var idx = 0
-                val buf = new ArrayBuffer[SExpression.Literal](row.numFields)
-                while (idx < row.numFields) {
-                  val dt = localRelation.schema(idx).dataType
-                  val l = Literal.apply(row.get(idx, dt), dt)
-                  buf += ToSubstraitLiteral.apply(l)
-                  idx += 1
-                }
-                ExpressionCreator.struct(false, buf.asJava)
-              })
-            .asJava)
+        .addAllRows(VirtualTables.toStructs(localRelation.schema, localRelation.data).asJava)
         .build()
     }
   }
@@ -401,20 +553,26 @@ class ToSubstraitRel extends AbstractLogicalPlanVisitor with Logging {
         throw new UnsupportedOperationException(s"File format not currently supported: $format")
     }
 
+    val splits = FileSplitter.split(fsRelation)
+    val extension = FileLayout
+      .of(fsRelation, splits)
+      .map(layout => AdvancedExtension.builder().enhancement(layout).build())
+
     relation.LocalFiles
       .builder()
       .initialSchema(namedStruct)
+      .extension(Optional.ofNullable(extension.orNull))
       .addAllItems(
-        fsRelation.location.inputFiles
+        splits
           .map(
-            file => {
+            split => {
               ImmutableFileOrFiles
                 .builder()
                 .fileFormat(format)
-                .partitionIndex(0)
-                .start(0)
-                .length(fsRelation.sizeInBytes)
-                .path(file)
+                .partitionIndex(split.partitionIndex)
+                .start(split.start)
+                .length(split.length)
+                .path(split.path)
                 .pathType(PathType.URI_FILE)
                 .build()
             })
@@ -433,7 +591,7 @@ class ToSubstraitRel extends AbstractLogicalPlanVisitor with Logging {
         buildNamedScan(logicalRelation.schema, tableNames)
       case dataSourceV2ScanRelation: DataSourceV2ScanRelation =>
         tableNames = dataSourceV2ScanRelation.relation.identifier.get.toString.split("\\.").toList
-        buildNamedScan(dataSourceV2ScanRelation.schema, tableNames)
+        buildV2Scan(dataSourceV2ScanRelation, tableNames)
       case dataSourceV2Relation: DataSourceV2Relation =>
         tableNames = dataSourceV2Relation.identifier.get.toString.split("\\.").toList
         buildNamedScan(dataSourceV2Relation.schema, tableNames)
@@ -455,14 +613,57 @@ class ToSubstraitRel extends AbstractLogicalPlanVisitor with Logging {
           s"******* Unable to convert the plan to a substrait NamedScan: $plan")
     }
   }
-  def convert(p: LogicalPlan): Plan = {
-    val rel = visit(p)
-    ImmutablePlan.builder
-      .roots(
-        Collections.singletonList(
-          ImmutableRoot.builder().input(rel).addAllNames(p.output.map(_.name).asJava).build()
-        ))
-      .build()
+  def convert(p: LogicalPlan): Plan = convertAll(Seq(p))
+
+  /** Converts the plans to the roots of a single plan, in which they can share relations. */
+  def convertAll(plans: Seq[LogicalPlan]): Plan = {
+    occurrences = if (shareRepeatedSubtrees) countRepeatedSubtrees(plans) else Map.empty
+    sharedSubtrees.clear()
+    try {
+      val roots = plans.map(
+        p =>
+          ImmutableRoot
+            .builder()
+            .input(visit(p))
+            .addAllNames(p.output.map(_.name).asJava)
+            .build())
+      ImmutablePlan.builder.roots(roots.asJava).build()
+    } finally {
+      occurrences = Map.empty
+      sharedSubtrees.clear()
+    }
+  }
+
+  /**
+   * Converts the plan, replacing each node that cannot be converted by a [[SparkFragment]]
+   * placeholder whose inputs are the converted children of the node, so that the supported parts
+   * of the plan can be run by another engine and the rest by Spark.
+   */
+  def convertPartially(p: LogicalPlan): PartialPlan = {
+    val unsupported = mutable.ArrayBuffer[PartialPlan.Fragment]()
+    fragments = Some(unsupported)
+    try {
+      val plan = convert(p)
+      // the nodes of subqueries may be left to Spark too
+      var nodes = 0
+      p.foreachWithSubqueries(_ => nodes += 1)
+      PartialPlan(plan, unsupported.toIndexedSeq, nodes)
+    } finally {
+      fragments = None
+      partiallyConverted.clear()
+    }
+  }
+
+  private def countRepeatedSubtrees(plans: Seq[LogicalPlan]): Map[LogicalPlan, Int] = {
+    val counts = mutable.HashMap[LogicalPlan, Int]()
+    plans.foreach(_.foreach {
+      case _: CTERelationRef | _: CTERelationDef =>
+      case node if !node.deterministic =>
+      case node =>
+        val key = node.canonicalized
+        counts.put(key, counts.getOrElse(key, 0) + 1)
+    })
+    counts.filter(_._2 > 1).toMap
   }
 
   def tree(p: LogicalPlan): String = {
@@ -470,27 +671,13 @@ class ToSubstraitRel extends AbstractLogicalPlanVisitor with Logging {
   }
 
   def toProtoSubstrait(p: LogicalPlan): Array[Byte] = {
-    val substraitRel = visit(p)
-
-    val extensionCollector = new ExtensionCollector
-    val relProtoConverter = new RelProtoConverter(extensionCollector)
-    val builder = proto.Plan
-      .newBuilder()
-      .addRelations(
-        proto.PlanRel
-          .newBuilder()
-          .setRel(substraitRel
-            .accept(relProtoConverter))
-      )
-    extensionCollector.addExtensionsToPlan(builder)
-    builder.build().toByteArray
+    new PlanProtoConverter().toProto(convert(p)).toByteArray
   }
 }
 
 private[logical] class WithLogicalSubQuery(toSubstraitRel: ToSubstraitRel)
   extends ToSubstraitExpression {
-  override protected val toScalarFunction: ToScalarFunction =
-    ToScalarFunction(SparkExtension.SparkScalarFunctions)
+  override protected val toScalarFunction: ToScalarFunction = SparkExtension.toScalarFunction
 
   override protected def translateSubQuery(expr: PlanExpression[_]): Option[SExpression] = {
     expr match {
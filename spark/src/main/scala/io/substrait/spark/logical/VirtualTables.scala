@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.substrait.spark.logical
+
+import io.substrait.spark.expression.ToSubstraitLiteral
+
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.catalyst.expressions.{Literal, SpecificInternalRow}
+import org.apache.spark.sql.types._
+import org.apache.spark.unsafe.types.UTF8String
+
+import io.substrait.expression.{Expression => SExpression}
+import io.substrait.expression.ExpressionCreator._
+import io.substrait.utils.Util
+
+import java.util
+
+/**
+ * Converts between the rows of a Spark `LocalRelation` and the struct literals of a Substrait
+ * `VirtualTableScan` one column at a time, so that the type of each column is matched once and its
+ * values are read and written with the primitive accessors of the rows.
+ *
+ * Columns of other types than the primitive ones, strings, binaries, dates and timestamps go
+ * through [[ToSubstraitLiteral]] and the expression converter cell by cell, as do cells whose
+ * literal does not have the type of their column.
+ */
+private[logical] object VirtualTables {
+
+  def toStructs(schema: StructType, data: Seq[InternalRow]): Seq[SExpression.StructLiteral] = {
+    val rows = data.toArray
+    val columns = schema.fields.indices.map(i => toLiterals(rows, i, schema(i).dataType)).toArray
+    val structs = new Array[SExpression.StructLiteral](rows.length)
+    var r = 0
+    while (r < rows.length) {
+      val fields = new util.ArrayList[SExpression.Literal](columns.length)
+      var c = 0
+      while (c < columns.length) {
+        fields.add(columns(c)(r))
+        c += 1
+      }
+      structs(r) = struct(false, fields)
+      r += 1
+    }
+    structs
+  }
+
+  def toRows(
+      schema: StructType,
+      structs: util.List[SExpression.StructLiteral],
+      convert: SExpression.Literal => Any): Seq[InternalRow] = {
+    val fields = new Array[util.List[SExpression.Literal]](structs.size)
+    val rows = new Array[InternalRow](structs.size)
+    var r = 0
+    while (r < rows.length) {
+      fields(r) = structs.get(r).fields()
+      rows(r) = new SpecificInternalRow(schema)
+      r += 1
+    }
+    schema.fields.indices.foreach {
+      c =>
+        val set = setter(c, schema(c).dataType, convert)
+        var r = 0
+        while (r < rows.length) {
+          set(rows(r), fields(r).get(c))
+          r += 1
+        }
+    }
+    rows
+  }
+
+  private def toLiterals(
+      rows: Array[InternalRow],
+      ordinal: Int,
+      dataType: DataType): Array[SExpression.Literal] = {
+    val literal = converter(ordinal, dataType)
+    lazy val nullLiteral = ToSubstraitLiteral(Literal(null, dataType))
+    val literals = new Array[SExpression.Literal](rows.length)
+    var r = 0
+    while (r < rows.length) {
+      literals(r) = if (rows(r).isNullAt(ordinal)) nullLiteral else literal(rows(r))
+      r += 1
+    }
+    literals
+  }
+
+  private def converter(ordinal: Int, dataType: DataType): InternalRow => SExpression.Literal =
+    dataType match {
+      case BooleanType => row => bool(false, row.getBoolean(ordinal))
+      case ByteType => row => i8(false, row.getByte(ordinal))
+      case ShortType => row => i16(false, row.getShort(ordinal))
+      case IntegerType => row => i32(false, row.getInt(ordinal))
+      case LongType => row => i64(false, row.getLong(ordinal))
+      case FloatType => row => fp32(false, row.getFloat(ordinal))
+      case DoubleType => row => fp64(false, row.getDouble(ordinal))
+      case DateType => row => date(false, row.getInt(ordinal))
+      case TimestampType =>
+        row => precisionTimestampTZ(false, row.getLong(ordinal), Util.MICROSECOND_PRECISION)
+      case TimestampNTZType =>
+        row => precisionTimestamp(false, row.getLong(ordinal), Util.MICROSECOND_PRECISION)
+      case StringType => row => string(false, row.getUTF8String(ordinal).toString)
+      case BinaryType => row => binary(false, row.getBinary(ordinal))
+      case _ => row => ToSubstraitLiteral(Literal(row.get(ordinal, dataType), dataType))
+    }
+
+  private def setter(
+      ordinal: Int,
+      dataType: DataType,
+      convert: SExpression.Literal => Any): (InternalRow, SExpression.Literal) => Unit = {
+    val fallback: (InternalRow, SExpression.Literal) => Unit =
+      (row, literal) => row.update(ordinal, convert(literal))
+    dataType match {
+      case BooleanType => {
+        case (row, literal: SExpression.BoolLiteral) => row.setBoolean(ordinal, literal.value())
+        case (row, literal) => fallback(row, literal)
+      }
+      case ByteType => {
+        case (row, literal: SExpression.I8Literal) => row.setByte(ordinal, literal.value().toByte)
+        case (row, literal) => fallback(row, literal)
+      }
+      case ShortType => {
+        case (row, literal: SExpression.I16Literal) =>
+          row.setShort(ordinal, literal.value().toShort)
+        case (row, literal) => fallback(row, literal)
+      }
+      case IntegerType => {
+        case (row, literal: SExpression.I32Literal) => row.setInt(ordinal, literal.value())
+        case (row, literal) => fallback(row, literal)
+      }
+      case DateType => {
+        case (row, literal: SExpression.DateLiteral) => row.setInt(ordinal, literal.value())
+        case (row, literal) => fallback(row, literal)
+      }
+      case LongType => {
+        case (row, literal: SExpression.I64Literal) => row.setLong(ordinal, literal.value())
+        case (row, literal) => fallback(row, literal)
+      }
+      case FloatType => {
+        case (row, literal: SExpression.FP32Literal) => row.setFloat(ordinal, literal.value())
+        case (row, literal) => fallback(row, literal)
+      }
+      case DoubleType => {
+        case (row, literal: SExpression.FP64Literal) => row.setDouble(ordinal, literal.value())
+        case (row, literal) => fallback(row, literal)
+      }
+      case StringType => {
+        case (row, literal: SExpression.StrLiteral) =>
+          row.update(ordinal, UTF8String.fromString(literal.value()))
+        case (row, literal) => fallback(row, literal)
+      }
+      case _ => fallback
+    }
+  }
+}
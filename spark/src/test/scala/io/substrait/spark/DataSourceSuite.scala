@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.substrait.spark
+
+import io.substrait.spark.datasource.{SubstraitExecutor, SubstraitScan}
+import io.substrait.spark.logical.ToLogicalPlan
+
+import org.apache.spark.sql.{DataFrame, SparkSession}
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.execution.FilterExec
+import org.apache.spark.sql.execution.arrow.ArrowWriter
+import org.apache.spark.sql.execution.datasources.v2.BatchScanExec
+import org.apache.spark.sql.functions.{col, count, lit, max, min, sum}
+import org.apache.spark.sql.test.SharedSparkSession
+import org.apache.spark.sql.types.StructType
+import org.apache.spark.sql.vectorized.{ArrowColumnVector, ColumnarBatch, ColumnVector}
+
+import io.substrait.plan.Plan
+import io.substrait.relation.Fetch
+
+import java.io.Closeable
+import java.nio.file.Paths
+
+import scala.collection.JavaConverters.asScalaBufferConverter
+import scala.util.Try
+
+class DataSourceSuite extends SharedSparkSession {
+
+  private val path = Paths.get("src/test/resources/dataset-a.parquet").toAbsolutePath.toString
+
+  override def beforeAll(): Unit = {
+    super.beforeAll()
+    sparkContext.setLogLevel("WARN")
+    DataSourceSuite.session = spark
+  }
+
+  private def substrait(): DataFrame = spark.read
+    .format("substrait")
+    .option("executor", classOf[SparkExecutor].getName)
+    .load(path)
+
+  private def scanOf(data: DataFrame): SubstraitScan = data.queryExecution.executedPlan
+    .collectFirst { case scan: BatchScanExec => scan.scan.asInstanceOf[SubstraitScan] }
+    .get
+
+  private def assertSameRows(expected: DataFrame, actual: DataFrame): Unit =
+    assertResult(expected.collect().map(_.toString).sorted)(actual.collect().map(_.toString).sorted)
+
+  test("Push filters and columns into the scan") {
+    def query(data: DataFrame): DataFrame =
+      data.filter(col("ID") > 2 && col("VALUE").startsWith("t")).select("VALUE")
+
+    val result = query(substrait())
+    assertSameRows(query(spark.read.parquet(path)), result)
+
+    assertResult(Seq("VALUE"))(scanOf(result).readSchema().fieldNames.toSeq)
+    assert(result.queryExecution.executedPlan.collect { case f: FilterExec => f }.isEmpty)
+  }
+
+  test("Push aggregates into the scan") {
+    def query(data: DataFrame): DataFrame =
+      data
+        .filter(col("ID") < 8)
+        .agg(count(lit(1)), sum("ID"), min("VALUE"), max("ID"))
+
+    val result = query(substrait())
+    assertSameRows(query(spark.read.parquet(path)), result)
+
+    assertResult(4)(scanOf(result).readSchema().length)
+  }
+
+  test("Push limits into the scan") {
+    val result = substrait().limit(3)
+
+    assertResult(3)(result.collect().length)
+    assert(scanOf(result).plan.getRoots.get(0).getInput.isInstanceOf[Fetch])
+  }
+}
+
+object DataSourceSuite {
+  @volatile var session: SparkSession = _
+}
+
+/**
+ * Stands in for a local engine by running the plans in the Spark session of the test, and returns
+ * the rows as Arrow batches. Spark does not run queries from within tasks, so the plans are run
+ * from another thread.
+ */
+class SparkExecutor extends SubstraitExecutor {
+
+  override def execute(plan: Plan, schema: StructType): Iterator[ColumnarBatch] = {
+    val spark = DataSourceSuite.session
+    var rows: Try[Array[InternalRow]] = null
+    val thread = new Thread(() => rows = Try(run(spark, plan)))
+    thread.start()
+    thread.join()
+
+    val writer = ArrowWriter.create(schema, spark.sessionState.conf.sessionLocalTimeZone)
+    rows.get.foreach(writer.write)
+    writer.finish()
+    val root = writer.root
+    val batch = new ColumnarBatch(
+      root.getFieldVectors.asScala.map(new ArrowColumnVector(_)).toArray[ColumnVector],
+      root.getRowCount)
+
+    new Iterator[ColumnarBatch] with Closeable {
+      private var consumed = false
+
+      override def hasNext: Boolean = !consumed
+
+      override def next(): ColumnarBatch = {
+        consumed = true
+        batch
+      }
+
+      override def close(): Unit = root.close()
+    }
+  }
+
+  private def run(spark: SparkSession, plan: Plan): Array[InternalRow] = {
+    val logicalPlan = new ToLogicalPlan(spark).convert(plan)
+    spark.sessionState.executePlan(logicalPlan).executedPlan.executeCollect()
+  }
+}
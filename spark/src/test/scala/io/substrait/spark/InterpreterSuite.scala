@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.substrait.spark
+
+import io.substrait.spark.logical.ToSubstraitRel
+
+import org.apache.spark.SparkFunSuite
+import org.apache.spark.sql.catalyst.optimizer.ConvertToLocalRelation
+import org.apache.spark.sql.internal.SQLConf
+import org.apache.spark.sql.test.SharedSparkSession
+
+import io.substrait.interpreter.Interpreter
+import org.apache.arrow.memory.RootAllocator
+import org.apache.arrow.vector.util.Text
+
+import scala.collection.JavaConverters.asScalaBufferConverter
+
+/** Compares the results of queries run by Spark and by the interpreter on their Substrait plans. */
+class InterpreterSuite extends SparkFunSuite with SharedSparkSession with SubstraitPlanTestBase {
+
+  override def beforeAll(): Unit = {
+    super.beforeAll()
+    sparkContext.setLogLevel("WARN")
+  }
+
+  private val values =
+    "(values (1, 'a', 2.5D), (2, 'b', -1.0D), (3, 'a', 0.0D), (4, NULL, NULL)) as t(id, s, d)"
+
+  private def assertSameResult(query: String): Unit = {
+    // keeps the optimizer from evaluating filters and projections of values itself
+    withSQLConf(SQLConf.OPTIMIZER_EXCLUDED_RULES.key -> ConvertToLocalRelation.ruleName) {
+      val expected = spark.sql(query).collect().map(_.toSeq.map(normalize)).toSeq
+      val substrait = new ToSubstraitRel().convert(plan(query))
+      val allocator = new RootAllocator()
+      try {
+        val interpreter = new Interpreter(
+          allocator,
+          (names, _) => throw new UnsupportedOperationException(s"No table $names"))
+        val result = interpreter.execute(substrait.getRoots.get(0))
+        try {
+          val vectors = result.getFieldVectors.asScala
+          val actual =
+            (0 until result.getRowCount).map(row => vectors.map(v => normalize(v.getObject(row))))
+          assertResult(sorted(expected))(sorted(actual))
+        } finally {
+          result.close()
+        }
+      } finally {
+        allocator.close()
+      }
+    }
+  }
+
+  /** Represents integers as longs and floating point numbers as doubles. */
+  private def normalize(value: Any): Any = value match {
+    case v: Byte => v.toLong
+    case v: Short => v.toLong
+    case v: Int => v.toLong
+    case v: Float => v.toDouble
+    case v: Text => v.toString
+    case v => v
+  }
+
+  private def sorted(rows: Seq[Seq[Any]]): Seq[Seq[Any]] = rows.sortBy(_.mkString("|"))
+
+  test("filter_project") {
+    assertSameResult(s"select id * 2 + 1, s, d / 2 from $values where d > 0.0D or s = 'b'")
+  }
+
+  test("aggregate") {
+    assertSameResult(s"select s, count(*), sum(id), max(d) from $values group by s")
+  }
+
+  test("distinct") {
+    assertSameResult(s"select distinct s from $values")
+  }
+}
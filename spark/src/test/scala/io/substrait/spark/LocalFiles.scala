@@ -17,16 +17,26 @@
 
 package io.substrait.spark
 
-import io.substrait.spark.logical.{ToLogicalPlan, ToSubstraitRel}
+import io.substrait.spark.logical.{FileLayout, LocalFilesIndex, ToLogicalPlan, ToSubstraitRel}
 
 import org.apache.spark.sql.{Dataset, DatasetUtil, Row}
+import org.apache.spark.sql.catalyst.catalog.BucketSpec
+import org.apache.spark.sql.execution.FileSourceScanExec
+import org.apache.spark.sql.execution.datasources.BucketingUtils
+import org.apache.spark.sql.execution.exchange.ShuffleExchangeExec
 import org.apache.spark.sql.internal.SQLConf
 import org.apache.spark.sql.test.SharedSparkSession
 import org.apache.spark.sql.types.{IntegerType, StringType, StructField, StructType}
 
 import io.substrait.plan.{PlanProtoConverter, ProtoPlanConverter}
+import io.substrait.relation
+import io.substrait.relation.files.{FileOrFiles, ImmutableFileOrFiles}
 
-import java.nio.file.Paths
+import org.apache.hadoop.fs.Path
+
+import java.nio.file.{Files, Paths}
+
+import scala.collection.JavaConverters.asScalaBufferConverter
 
 class LocalFiles extends SharedSparkSession {
   override def beforeAll(): Unit = {
@@ -140,4 +150,204 @@ class LocalFiles extends SharedSparkSession {
 
     assertRoundTrip(both)
   }
+
+  test("Split files like Spark") {
+    withSQLConf(
+      SQLConf.FILES_MAX_PARTITION_BYTES.key -> "64",
+      SQLConf.FILES_OPEN_COST_IN_BYTES.key -> "0") {
+      val path = Paths.get("src/test/resources/dataset-a.parquet").toAbsolutePath
+      val table = spark.read.parquet(path.toString)
+
+      val substraitPlan = new ToSubstraitRel().convert(table.queryExecution.optimizedPlan)
+      val localFiles = substraitPlan.getRoots.get(0).getInput.asInstanceOf[relation.LocalFiles]
+      val items = localFiles.getItems.asScala
+
+      assert(items.size > 1)
+      assertResult(Files.size(path))(items.map(_.getLength).sum)
+      assertResult(items.map(_.getStart).sorted)(items.map(_.getStart).distinct.sorted)
+      assertResult(table.rdd.getNumPartitions)(items.map(_.getPartitionIndex).distinct.size)
+      assertRoundTrip(table)
+    }
+  }
+
+  test("Index files from the plan without listing them") {
+    def range(path: String, start: Long, length: Long, partitionIndex: Int): FileOrFiles =
+      ImmutableFileOrFiles
+        .builder()
+        .path(path)
+        .pathType(FileOrFiles.PathType.URI_FILE)
+        .start(start)
+        .length(length)
+        .partitionIndex(partitionIndex)
+        .build()
+
+    // the files do not exist
+    val index = new LocalFilesIndex(
+      spark,
+      Seq(
+        range("file:/data/b.parquet", 100, 50, 0),
+        range("file:/data/a.parquet", 0, 10, 1),
+        range("file:/data/b.parquet", 0, 100, 1)))
+    assertResult(Seq("file:/data/b.parquet", "file:/data/a.parquet"))(index.inputFiles.toSeq)
+    assertResult(160)(index.sizeInBytes)
+
+    assertThrows[UnsupportedOperationException] {
+      new LocalFilesIndex(spark, Seq(range("file:/data/a.parquet", 10, 10, 0)))
+    }
+  }
+
+  test("List folders of LocalFiles") {
+    withTempPath {
+      dir =>
+        spark.range(10).repartition(2).write.parquet(dir.getCanonicalPath)
+        val folder = ImmutableFileOrFiles
+          .builder()
+          .path(dir.toURI.toString)
+          .pathType(FileOrFiles.PathType.URI_FOLDER)
+          .start(0)
+          .length(0)
+          .partitionIndex(0)
+          .build()
+
+        val index = new LocalFilesIndex(spark, Seq(folder))
+        val listed = dir.listFiles().filter(_.getName.endsWith(".parquet"))
+        assertResult(listed.map(_.length()).sum)(index.sizeInBytes)
+        assertResult(listed.length)(index.inputFiles.length)
+    }
+  }
+
+  test("Partitioned files") {
+    withTempPath {
+      dir =>
+        spark
+          .range(20)
+          .selectExpr("id", "id % 3 as part")
+          .write
+          .partitionBy("part")
+          .parquet(dir.getCanonicalPath)
+        val table = spark.read.parquet(dir.getCanonicalPath)
+
+        val substraitPlan = new ToSubstraitRel().convert(table.queryExecution.optimizedPlan)
+        val bytes = new PlanProtoConverter().toProto(substraitPlan).toByteArray
+        val substraitPlan2 =
+          new SparkProtoPlanConverter().from(io.substrait.proto.Plan.parseFrom(bytes))
+        val sparkPlan2 = new ToLogicalPlan(spark).convert(substraitPlan2)
+        val result = DatasetUtil.fromLogicalPlan(spark, sparkPlan2)
+
+        assertResult(table.collect().toSet)(result.collect().toSet)
+        val scan = result
+          .filter("part = 1")
+          .queryExecution
+          .executedPlan
+          .collectFirst { case scan: FileSourceScanExec => scan }
+          .get
+        assertResult(1)(scan.selectedPartitions.length)
+    }
+  }
+
+  test("Bucketed files") {
+    withSQLConf(
+      SQLConf.FILES_MAX_PARTITION_BYTES.key -> "64",
+      SQLConf.FILES_OPEN_COST_IN_BYTES.key -> "0",
+      SQLConf.AUTO_BROADCASTJOIN_THRESHOLD.key -> "-1",
+      SQLConf.ADAPTIVE_EXECUTION_ENABLED.key -> "false"
+    ) {
+      withTable("bucketed") {
+        spark
+          .range(100)
+          .selectExpr("id", "cast(id % 7 as string) as name")
+          .write
+          .bucketBy(4, "id")
+          .saveAsTable("bucketed")
+        val table = spark.table("bucketed")
+
+        val substraitPlan = new ToSubstraitRel().convert(table.queryExecution.optimizedPlan)
+        val localFiles = substraitPlan.getRoots.get(0).getInput.asInstanceOf[relation.LocalFiles]
+        val items = localFiles.getItems.asScala
+        // whole files, each in the partition of its bucket
+        items.foreach {
+          item =>
+            val path = new Path(item.getPath.get)
+            assertResult(0)(item.getStart)
+            assertResult(Files.size(Paths.get(path.toUri)))(item.getLength)
+            assertResult(BucketingUtils.getBucketId(path.getName))(Some(item.getPartitionIndex))
+        }
+
+        val bytes = new PlanProtoConverter().toProto(substraitPlan).toByteArray
+        val substraitPlan2 =
+          new SparkProtoPlanConverter().from(io.substrait.proto.Plan.parseFrom(bytes))
+        val sparkPlan2 = new ToLogicalPlan(spark).convert(substraitPlan2)
+        val result = DatasetUtil.fromLogicalPlan(spark, sparkPlan2)
+
+        assertResult(table.collect().toSet)(result.collect().toSet)
+        // the buckets survive the round trip, so a join on the bucket column needs no shuffle
+        val join = result.as("a").join(result.as("b"), "id")
+        assertResult(100)(join.count())
+        assert(join.queryExecution.executedPlan.collect {
+          case shuffle: ShuffleExchangeExec => shuffle
+        }.isEmpty)
+      }
+    }
+  }
+
+  test("File layout extension") {
+    val layout = FileLayout(
+      Seq("year", "country"),
+      Some(BucketSpec(4, Seq("id"), Seq("name"))),
+      Seq(
+        FileLayout.FileEntry(
+          "file:/t/year=2024/country=__HIVE_DEFAULT_PARTITION__/part-00001_00001.parquet",
+          Seq(Some("2024"), None),
+          Some(1)),
+        FileLayout.FileEntry(
+          "file:/t/year=2024/country=SE/part-00002.parquet",
+          Seq(Some("2024"), Some("SE")),
+          None)
+      )
+    )
+
+    assertResult(Some(layout))(FileLayout.fromProto(layout.toProto))
+  }
+
+  test("Push filters and projections into reads") {
+    val table = spark.read
+      .parquet(Paths.get("src/test/resources/dataset-a.parquet").toAbsolutePath.toString)
+      .filter("ID > 3")
+      .select("VALUE")
+
+    val substraitPlan = new ToSubstraitRel().convert(table.queryExecution.optimizedPlan)
+    val localFiles = substraitPlan.getRoots.get(0).getInput.asInstanceOf[relation.LocalFiles]
+    assert(localFiles.getFilter.isPresent)
+    assertResult(Seq(1))(
+      localFiles.getProjection.get.getSelect.getStructItems.asScala.map(_.getField))
+    // the read still outputs a struct of the single selected field
+    assert(localFiles.getProjection.get.getMaintainSingularStruct)
+
+    val result = assertRoundTrip(table)
+    val scan = result.queryExecution.executedPlan.collectFirst {
+      case scan: FileSourceScanExec => scan
+    }.get
+    assertResult(Seq("VALUE"))(scan.requiredSchema.fieldNames.toSeq)
+    assert(scan.dataFilters.nonEmpty)
+  }
+
+  test("Keep a column in reads whose columns are all pruned") {
+    val table = spark.read
+      .parquet(Paths.get("src/test/resources/dataset-a.parquet").toAbsolutePath.toString)
+      .selectExpr("count(*)")
+
+    val substraitPlan = new ToSubstraitRel().convert(table.queryExecution.optimizedPlan)
+    val localFiles = substraitPlan.getRoots.get(0).getInput.getInputs.get(0).getInputs.get(0)
+    assertResult(Seq(0))(
+      localFiles
+        .asInstanceOf[relation.LocalFiles]
+        .getProjection
+        .get
+        .getSelect
+        .getStructItems
+        .asScala
+        .map(_.getField))
+
+    assertRoundTrip(table)
+  }
 }
@@ -1,7 +1,15 @@
 package io.substrait.spark
 
+import io.substrait.spark.logical.{SparkFragment, ToLogicalPlan, ToSubstraitRel}
+
 import org.apache.spark.SparkFunSuite
+import org.apache.spark.sql.DatasetUtil
+import org.apache.spark.sql.catalyst.plans.logical.{LogicalPlan, WithCTE}
 import org.apache.spark.sql.test.SharedSparkSession
+import org.apache.spark.sql.types.{IntegerType, StringType}
+
+import io.substrait.plan.{PlanProtoConverter, ProtoPlanConverter}
+import io.substrait.relation
 
 class RelationsSuite extends SparkFunSuite with SharedSparkSession with SubstraitPlanTestBase {
 
@@ -22,4 +30,115 @@ class RelationsSuite extends SparkFunSuite with SharedSparkSession with Substrai
     )
   }
 
+  test("local_relation_types") {
+    val query = "select * from (values " +
+      "(true, 1Y, 2S, 3, 4L, 5.0F, 6.0D, 'a', X'0A', date'2024-01-01', " +
+      "timestamp'2024-01-01 12:00:00', 7.5BD), " +
+      "(NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL) " +
+      "as table(bo, bt, sh, i, l, f, d, s, bi, da, ts, de))"
+    val logicalPlan = assertSqlSubstraitRelRoundTrip(query)
+
+    assertResult(spark.sql(query).collect())(
+      DatasetUtil.fromLogicalPlan(spark, logicalPlan).collect())
+  }
+
+  private def roundTripWithSharedRelations(
+      logicalPlan: LogicalPlan,
+      toSubstrait: ToSubstraitRel,
+      sharedRelations: Int): LogicalPlan = {
+    val protoPlan = new PlanProtoConverter().toProto(toSubstrait.convert(logicalPlan))
+    assertResult(sharedRelations + 1)(protoPlan.getRelationsCount)
+    val logicalPlan2 = new ToLogicalPlan(spark).convert(new ProtoPlanConverter().from(protoPlan))
+    assert(logicalPlan2.isInstanceOf[WithCTE])
+    logicalPlan2
+  }
+
+  test("cte") {
+    val query = "with t as (select col1 as id, col2 as v " +
+      "from (values (1, 'a'), (2, 'b') as table(col1, col2))) " +
+      "select * from t a join t b on a.id = b.id"
+    // the optimizer inlines deterministic common table expressions
+    val analyzed = spark.sql(query).queryExecution.analyzed
+    assert(analyzed.isInstanceOf[WithCTE])
+    val logicalPlan = roundTripWithSharedRelations(analyzed, new ToSubstraitRel(), 1)
+
+    assertResult(spark.sql(query).collect())(
+      DatasetUtil.fromLogicalPlan(spark, logicalPlan).collect())
+  }
+
+  test("shared_subtrees") {
+    val query = "select * from (values (1, 'a'), (2, 'b') as a(id, v)) " +
+      "join (values (1, 'a'), (2, 'b') as b(id, v)) on a.id = b.id"
+    val logicalPlan = roundTripWithSharedRelations(
+      plan(query),
+      new ToSubstraitRel(shareRepeatedSubtrees = true),
+      1)
+
+    assertResult(spark.sql(query).collect())(
+      DatasetUtil.fromLogicalPlan(spark, logicalPlan).collect())
+  }
+
+  test("nondeterministic_subtrees_are_not_shared") {
+    val subquery = "(select id, rand(1) as r from values (1), (2) as t(id))"
+    val query = s"select * from $subquery a join $subquery b on a.id = b.id"
+    // rand cannot be converted, so each occurrence of its projection is left to Spark
+    val partialPlan =
+      new ToSubstraitRel(shareRepeatedSubtrees = true).convertPartially(plan(query))
+
+    assertResult(Seq("Project", "Project"))(partialPlan.fragments.map(_.plan.nodeName))
+  }
+
+  test("converter_context") {
+    withTable("cached") {
+      val context = new ConverterContext(spark)
+      sql("create table cached (a int) using parquet")
+      val relation = context.relation(Seq("cached"))
+      val relation2 = context.relation(Seq("CACHED"))
+      // both reads share an analysis, with attributes of their own
+      assert(relation.sameResult(relation2))
+      assert(relation.output.head.exprId != relation2.output.head.exprId)
+
+      sql("drop table cached")
+      sql("create table cached (a string) using parquet")
+      assertResult(IntegerType)(context.relation(Seq("cached")).output.head.dataType)
+      // a table of the same name in another database is another table
+      context.invalidate(Seq("other", "cached"))
+      assertResult(IntegerType)(context.relation(Seq("cached")).output.head.dataType)
+      context.invalidate(Seq("default", "cached"))
+      assertResult(StringType)(context.relation(Seq("cached")).output.head.dataType)
+    }
+  }
+
+  test("partial_conversion") {
+    // neither Range nor Sample can be converted
+    val query = "select id + 1 as a from range(10) tablesample (50 percent) where id > 2"
+    val partialPlan = new ToSubstraitRel().convertPartially(plan(query))
+
+    assertResult(Seq("Range", "Sample"))(partialPlan.fragments.map(_.plan.nodeName))
+    assertResult(0.5)(partialPlan.coverage)
+    val project = partialPlan.plan.getRoots.get(0).getInput.asInstanceOf[relation.Project]
+    val filter = project.getInput.asInstanceOf[relation.Filter]
+    val sample = filter.getInput.asInstanceOf[relation.ExtensionSingle]
+    assertResult(SparkFragment(1, "Sample", partialPlan.fragments(1).plan.schema))(
+      sample.getDetail)
+    assertResult(SparkFragment(0, "Range", partialPlan.fragments(0).plan.schema))(
+      sample.getInput.asInstanceOf[relation.ExtensionLeaf].getDetail)
+
+    val protoPlan = new PlanProtoConverter().toProto(partialPlan.plan)
+    assertResult(partialPlan.plan)(new SparkProtoPlanConverter().from(protoPlan))
+  }
+
+  test("partial_conversion_subquery") {
+    // the Range and Sample of the scalar subquery cannot be converted either
+    val query = "select id from range(10) where id > " +
+      "(select max(id) from range(10) tablesample (50 percent))"
+    val logicalPlan = plan(query)
+    val partialPlan = new ToSubstraitRel().convertPartially(logicalPlan)
+
+    assertResult(Seq("Range", "Range", "Sample"))(
+      partialPlan.fragments.map(_.plan.nodeName).sorted)
+    val nodes = logicalPlan.collectWithSubqueries { case node => node }.size
+    assertResult(nodes)(partialPlan.nodes)
+    assertResult((nodes - 3).toDouble / nodes)(partialPlan.coverage)
+  }
 }
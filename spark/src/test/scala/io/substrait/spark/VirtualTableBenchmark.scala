@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.substrait.spark
+
+import io.substrait.spark.logical.{ToLogicalPlan, ToSubstraitRel}
+
+import org.apache.spark.sql.SparkSession
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.catalyst.expressions.AttributeReference
+import org.apache.spark.sql.catalyst.plans.logical.LocalRelation
+import org.apache.spark.sql.types.{DoubleType, IntegerType, LongType, StringType}
+import org.apache.spark.unsafe.types.UTF8String
+
+/**
+ * Measures the conversion of a local relation to a virtual table scan and back.
+ *
+ * The relation has a long, an int, a double, a string and a nullable long column. Run the main
+ * method with the test classpath, giving the number of rows as argument, 100000 by default.
+ */
+object VirtualTableBenchmark {
+
+  private val Warmups = 3
+  private val Iterations = 10
+
+  def main(args: Array[String]): Unit = {
+    val rows = args.headOption.map(_.toInt).getOrElse(100000)
+    val spark = SparkSession.builder().master("local[1]").getOrCreate()
+    try {
+      val output = Seq(
+        AttributeReference("l", LongType, nullable = false)(),
+        AttributeReference("i", IntegerType, nullable = false)(),
+        AttributeReference("d", DoubleType, nullable = false)(),
+        AttributeReference("s", StringType, nullable = false)(),
+        AttributeReference("n", LongType, nullable = true)()
+      )
+      val data = (0 until rows).map {
+        i =>
+          InternalRow(
+            i.toLong,
+            i,
+            i.toDouble,
+            UTF8String.fromString(i.toString),
+            if (i % 10 == 0) null else i.toLong)
+      }
+      val relation = LocalRelation(output, data)
+
+      val plan = measure(s"LocalRelation to VirtualTableScan, $rows rows", rows) {
+        new ToSubstraitRel().convert(relation)
+      }
+      measure(s"VirtualTableScan to LocalRelation, $rows rows", rows) {
+        new ToLogicalPlan(spark).convert(plan)
+      }
+    } finally {
+      spark.stop()
+    }
+  }
+
+  private def measure[T](name: String, rows: Int)(f: => T): T = {
+    var result = f
+    (1 until Warmups).foreach(_ => result = f)
+    val times = (1 to Iterations).map {
+      _ =>
+        val start = System.nanoTime()
+        result = f
+        (System.nanoTime() - start) / 1e6
+    }
+    val best = times.min
+    println(
+      f"$name%-50s best ${best}%8.1f ms, avg ${times.sum / Iterations}%8.1f ms, " +
+        f"${rows / best * 1000}%12.0f rows/s")
+    result
+  }
+}